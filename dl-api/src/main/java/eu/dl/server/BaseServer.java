@@ -3,6 +3,8 @@ package eu.dl.server;
 
 import eu.dl.core.UnrecoverableException;
 import eu.dl.core.config.Config;
+import eu.dl.dataaccess.dao.PageCursor;
+import eu.dl.dataaccess.dto.StorableDTO;
 import eu.dl.server.exceptions.NotAuthenticatedException;
 import eu.dl.server.exceptions.NotAuthorizedException;
 import eu.dl.server.exceptions.NotFoundException;
@@ -15,10 +17,12 @@ import org.pac4j.sparkjava.SecurityFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import spark.Request;
+import spark.Response;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static spark.Spark.before;
@@ -39,6 +43,11 @@ public abstract class BaseServer implements Server {
 
     private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS";
 
+    /**
+     * Response header with the token of the next page returned by the keyset paged endpoints.
+     */
+    protected static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+
     /**
      * Main logger.
      */
@@ -174,6 +183,44 @@ public abstract class BaseServer implements Server {
         }
     }
 
+    /**
+     * Returns cursor of the requested page for the keyset paged endpoints. The page is given either by the token
+     * returned with the previous page in {@link #NEXT_PAGE_TOKEN_HEADER} header or, for the first page, by the
+     * timestamp. Stops the execution when neither can be parsed.
+     *
+     * @param request
+     *            request with "token" or "timestamp" query parameter
+     * @return page cursor or throws 400 with description
+     */
+    protected static PageCursor getPageCursor(final Request request) {
+        final String token = request.queryParams("token");
+        if (token == null) {
+            return PageCursor.after(getDate(request.queryParams("timestamp")));
+        }
+
+        try {
+            return PageCursor.fromToken(token);
+        } catch (IllegalArgumentException e) {
+            throw new ParameterFormattingException("Unable to parse page token " + token);
+        }
+    }
+
+    /**
+     * Sets token of the page following the given page to the {@link #NEXT_PAGE_TOKEN_HEADER} header. The header
+     * is missing when the page is empty, that means there are no more records.
+     *
+     * @param response
+     *            response
+     * @param page
+     *            records of the returned page
+     */
+    protected static void setNextPageToken(final Response response, final List<? extends StorableDTO> page) {
+        final PageCursor next = PageCursor.next(page);
+        if (next != null) {
+            response.header(NEXT_PAGE_TOKEN_HEADER, next.toToken());
+        }
+    }
+
     /**
      * API specific config.
      */
@@ -199,6 +246,7 @@ public abstract class BaseServer implements Server {
 
         before((request, response) -> {
             response.header("Access-Control-Allow-Origin", "*");
+            response.header("Access-Control-Expose-Headers", NEXT_PAGE_TOKEN_HEADER);
         });
     }
 
@@ -0,0 +1,184 @@
+package eu.dl.benchmark;
+
+import eu.dl.core.cache.Cache;
+import eu.dl.core.cache.Cache2kCache;
+import eu.dl.core.cache.CacheSettings;
+import eu.dl.core.cache.CacheStatistics;
+import eu.dl.core.cache.CompactHashCache;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap taken by the body hash index of the matcher (body hash to group id) and the lookup time. The heap is measured
+ * when the cache is populated and it is printed to the output of the benchmark as bytes per entry. Each entry gets
+ * its own key and value string, as the entries read from the database do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class HashCacheBenchmark {
+
+    private static final String PREFIX = "hash::";
+
+    private static final int LOOKUP_KEYS = 1 << 12;
+
+    /**
+     * Cache implementation, compact, cache2k or a plain hash map for reference.
+     */
+    @Param({"compact", "cache2k", "hashmap"})
+    public String implementation;
+
+    /**
+     * Number of the cached bodies.
+     */
+    @Param({"2000000"})
+    public int entries;
+
+    /**
+     * Number of the bodies per group.
+     */
+    @Param({"3"})
+    public int bodiesPerGroup;
+
+    private Cache cache;
+
+    private String[] lookupKeys;
+
+    private int next;
+
+    /**
+     * Populates the cache and prints its heap usage.
+     */
+    @Setup
+    public final void setUp() {
+        Random random = new Random(entries);
+        String[] groupIds = new String[Math.max(1, entries / bodiesPerGroup)];
+        for (int i = 0; i < groupIds.length; i++) {
+            groupIds[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+        }
+
+        long before = getUsedHeap();
+        cache = createCache();
+        for (int i = 0; i < entries; i++) {
+            cache.put(getHash(i), new String(groupIds[random.nextInt(groupIds.length)]));
+        }
+        long after = getUsedHeap();
+
+        System.out.printf("%n%s cache of %d entries takes %d bytes of heap, %.1f bytes per entry%n", implementation,
+            entries, after - before, (double) (after - before) / entries);
+
+        lookupKeys = new String[LOOKUP_KEYS];
+        for (int i = 0; i < LOOKUP_KEYS; i++) {
+            lookupKeys[i] = getHash(random.nextInt(entries));
+        }
+    }
+
+    /**
+     * Looks the group id of a cached body up.
+     *
+     * @return group id
+     */
+    @Benchmark
+    public final String get() {
+        next = (next + 1) & (LOOKUP_KEYS - 1);
+        return cache.get(lookupKeys[next]);
+    }
+
+    /**
+     * @return empty cache of the benchmarked implementation
+     */
+    private Cache createCache() {
+        switch (implementation) {
+            case "compact":
+                return new CompactHashCache(PREFIX);
+            case "cache2k":
+                return new Cache2kCache("benchmark", PREFIX, new CacheSettings());
+            case "hashmap":
+                return new MapCache();
+            default:
+                throw new IllegalArgumentException("Unknown cache implementation " + implementation);
+        }
+    }
+
+    /**
+     * @param body
+     *      body number
+     * @return hash of the body, SHA-256 hex as the body hashes of the matcher
+     */
+    private static String getHash(final int body) {
+        return DigestUtils.sha256Hex("body-" + body);
+    }
+
+    /**
+     * @return heap used after the garbage collection
+     */
+    private static long getUsedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Cache backed by a plain hash map with the prefixed keys.
+     */
+    private static final class MapCache implements Cache {
+
+        private final Map<String, String> map = new HashMap<>();
+
+        private final CacheStatistics statistics = new CacheStatistics();
+
+        @Override
+        public void put(final String key, final String value) {
+            map.put(PREFIX.concat(key), value);
+        }
+
+        @Override
+        public String get(final String key) {
+            return map.get(PREFIX.concat(key));
+        }
+
+        @Override
+        public void putAll(final Map<String, String> items) {
+            items.forEach(this::put);
+        }
+
+        @Override
+        public Map<String, String> getAll(final Collection<String> keys) {
+            Map<String, String> result = new HashMap<>();
+            keys.forEach(key -> {
+                String value = get(key);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            });
+            return result;
+        }
+
+        @Override
+        public CacheStatistics getStatistics() {
+            return statistics;
+        }
+    }
+}
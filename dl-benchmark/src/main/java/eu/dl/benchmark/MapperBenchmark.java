@@ -0,0 +1,175 @@
+package eu.dl.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import eu.dl.dataaccess.dto.codetables.BodyIdentifier;
+import eu.dl.dataaccess.dto.codetables.BuyerActivityType;
+import eu.dl.dataaccess.dto.codetables.BuyerType;
+import eu.dl.dataaccess.dto.generic.Address;
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+import eu.dl.dataaccess.utils.MapperRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserialization of the stored rows and of the worker messages by the mappers created per DAO or per message, as
+ * before {@link MapperRegistry}, and by the readers cached by the registry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    private static final TypeReference<Map<String, Object>> MESSAGE_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    /**
+     * Mapper of one DAO, configured as the DAOs did before.
+     */
+    private ObjectMapper daoMapper;
+
+    /**
+     * Reader of the message data shared by all the messages.
+     */
+    private ObjectReader messageReader;
+
+    /**
+     * Stored data of a matched body.
+     */
+    private String row;
+
+    /**
+     * Worker message.
+     */
+    private String message;
+
+    /**
+     * Prepares the JSON of a typical matched body and message.
+     *
+     * @throws JsonProcessingException
+     *      in case the JSON can't be written
+     */
+    @Setup
+    public final void setUp() throws JsonProcessingException {
+        daoMapper = new ObjectMapper();
+        daoMapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        daoMapper.registerModule(new JavaTimeModule());
+        daoMapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"));
+        daoMapper.setSerializationInclusion(Include.NON_NULL);
+        daoMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        messageReader = MapperRegistry.getMessageMapper().readerFor(MESSAGE_TYPE);
+
+        MatchedBody body = new MatchedBody()
+            .setName("Ministerstvo pro místní rozvoj České republiky")
+            .setAddress(new Address()
+                .setStreet("Staroměstské náměstí 932/6")
+                .setCity("Praha 1")
+                .setPostcode("110 00")
+                .setCountry("CZ")
+                .setNuts(Collections.singletonList("CZ010")))
+            .setBodyIds(Arrays.asList(
+                new BodyIdentifier().setId("66002222").setType(BodyIdentifier.Type.ORGANIZATION_ID)
+                    .setScope(BodyIdentifier.Scope.CZ),
+                new BodyIdentifier().setId("CZ66002222").setType(BodyIdentifier.Type.VAT)
+                    .setScope(BodyIdentifier.Scope.CZ)))
+            .setEmail("posta@mmr.cz")
+            .setPhone("+420 224 861 111")
+            .setBuyerType(BuyerType.NATIONAL_AUTHORITY)
+            .setMainActivities(Collections.singletonList(BuyerActivityType.GENERAL_PUBLIC_SERVICES))
+            .setIsPublic(true)
+            .setGroupId("group_2c4b5d7e")
+            .setHash("5b1e0f4ad3c7e2b9a8f6d4c2b0a9e8f7d6c5b4a3f2e1d0c9b8a7f6e5d4c3b2a1")
+            .setStandardizedName("ministerstvo pro mistni rozvoj ceske republiky")
+            .setStandardizedAddress("staromestske namesti 932 6 praha 1 11000")
+            .setDigest("ministerstvomistnirozvoj")
+            .setPublicationDate(LocalDate.of(2019, 10, 1))
+            .setSource("eu.datlab.worker.cz.clean.VVZTenderCleaner");
+        row = MapperRegistry.getWriter(MatchedBody.class).writeValueAsString(body);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", "8a3e4b2c-0d1f-4e5a-9b6c-7d8e9f0a1b2c");
+        data.put("version", "1.0");
+        data.put("retryCount", "0");
+        message = MapperRegistry.getMessageMapper().writeValueAsString(data);
+    }
+
+    /**
+     * Reads the row by the mapper of the DAO, the reader and its root deserializer are looked up for every row.
+     *
+     * @return read body
+     * @throws IOException
+     *      in case the JSON can't be read
+     */
+    @Benchmark
+    public final MatchedBody readRowByDaoMapper() throws IOException {
+        MatchedBody body = new MatchedBody();
+        daoMapper.readerForUpdating(body).readValue(row);
+        return body;
+    }
+
+    /**
+     * Reads the row by the cached reader of the class.
+     *
+     * @return read body
+     * @throws IOException
+     *      in case the JSON can't be read
+     */
+    @Benchmark
+    public final MatchedBody readRowByCachedReader() throws IOException {
+        MatchedBody body = new MatchedBody();
+        MapperRegistry.getReader(MatchedBody.class).withValueToUpdate(body).readValue(row);
+        return body;
+    }
+
+    /**
+     * Parses the message by a new mapper, as each message did.
+     *
+     * @return message data
+     * @throws IOException
+     *      in case the JSON can't be read
+     */
+    @Benchmark
+    public final Map<String, Object> parseMessageByNewMapper() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        return mapper.readValue(message, MESSAGE_TYPE);
+    }
+
+    /**
+     * Parses the message by the shared reader.
+     *
+     * @return message data
+     * @throws IOException
+     *      in case the JSON can't be read
+     */
+    @Benchmark
+    public final Map<String, Object> parseMessageBySharedReader() throws IOException {
+        return messageReader.readValue(message);
+    }
+}
@@ -0,0 +1,129 @@
+package eu.dl.benchmark;
+
+import eu.dl.dataaccess.dto.codetables.BuyerType;
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+import eu.dl.dataaccess.utils.PropertyAccessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies the fields of a matched body to the master one, as the generic master plugins do for each group. Compares
+ * the reflective lookup of the getter and setter done before for every group, the reflective calls of the methods
+ * resolved once and the cached {@link PropertyAccessor}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertyAccessorBenchmark {
+
+    private static final String[] FIELD_NAMES = {"Name", "Email", "Phone", "ContactName", "BuyerType", "IsPublic",
+        "IsSectoral", "GroupId"};
+
+    private MatchedBody item;
+
+    private Method[] getters;
+
+    private Method[] setters;
+
+    /**
+     * Creates the body and resolves the methods.
+     *
+     * @throws NoSuchMethodException
+     *      in case the getter is missing
+     */
+    @Setup
+    public final void setUp() throws NoSuchMethodException {
+        item = new MatchedBody()
+            .setName("Ministerstvo pro místní rozvoj")
+            .setEmail("posta@mmr.cz")
+            .setPhone("+420 224 861 111")
+            .setContactName("Jan Novák")
+            .setBuyerType(BuyerType.NATIONAL_AUTHORITY)
+            .setIsPublic(true)
+            .setIsSectoral(false)
+            .setGroupId("group_2c4b5d7e");
+
+        getters = new Method[FIELD_NAMES.length];
+        setters = new Method[FIELD_NAMES.length];
+        for (int i = 0; i < FIELD_NAMES.length; i++) {
+            getters[i] = MatchedBody.class.getMethod("get" + FIELD_NAMES[i]);
+            setters[i] = findSetter(FIELD_NAMES[i]);
+        }
+    }
+
+    /**
+     * Looks the getter and setter up for every field, as the plugins did for each group.
+     *
+     * @return master body
+     * @throws ReflectiveOperationException
+     *      in case the method can't be called
+     */
+    @Benchmark
+    public final MatchedBody reflectiveLookup() throws ReflectiveOperationException {
+        MatchedBody master = new MatchedBody();
+        for (String fieldName : FIELD_NAMES) {
+            Method getter = MatchedBody.class.getMethod("get" + fieldName);
+            findSetter(fieldName).invoke(master, getter.invoke(item));
+        }
+        return master;
+    }
+
+    /**
+     * Calls the methods resolved in advance reflectively.
+     *
+     * @return master body
+     * @throws ReflectiveOperationException
+     *      in case the method can't be called
+     */
+    @Benchmark
+    public final MatchedBody reflectiveInvoke() throws ReflectiveOperationException {
+        MatchedBody master = new MatchedBody();
+        for (int i = 0; i < FIELD_NAMES.length; i++) {
+            setters[i].invoke(master, getters[i].invoke(item));
+        }
+        return master;
+    }
+
+    /**
+     * Gets the cached accessors for every field, as the plugins do now.
+     *
+     * @return master body
+     */
+    @Benchmark
+    public final MatchedBody propertyAccessor() {
+        MatchedBody master = new MatchedBody();
+        for (String fieldName : FIELD_NAMES) {
+            PropertyAccessor.of(MatchedBody.class, fieldName).set(master,
+                PropertyAccessor.of(MatchedBody.class, fieldName).get(item));
+        }
+        return master;
+    }
+
+    /**
+     * @param fieldName
+     *      capitalized field name
+     * @return setter of the field found among the public methods, as the plugins did
+     */
+    private static Method findSetter(final String fieldName) {
+        for (Method method : MatchedBody.class.getMethods()) {
+            if (method.getName().equals("set" + fieldName)) {
+                return method;
+            }
+        }
+        return null;
+    }
+}
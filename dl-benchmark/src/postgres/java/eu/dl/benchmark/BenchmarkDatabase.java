@@ -0,0 +1,71 @@
+package eu.dl.benchmark;
+
+import eu.dl.core.UnrecoverableException;
+import eu.dl.core.config.Config;
+import eu.dl.dataaccess.dao.jdbc.JdbcTransactionUtils;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Database of the benchmarks. The connection is configured by benchmark.properties, the Postgres container is started
+ * by Testcontainers when the first connection is opened and the tables are created by benchmark_schema.sql.
+ */
+final class BenchmarkDatabase {
+
+    private static final String CONFIG_FILE = "benchmark";
+
+    /**
+     * Suppress default constructor for noninstantiability.
+     */
+    private BenchmarkDatabase() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Loads the configuration of the benchmark database, the DAOs have to be created afterwards.
+     *
+     * @return transaction utils of the benchmark database
+     */
+    static JdbcTransactionUtils init() {
+        Config.getInstance().addConfigFile(CONFIG_FILE);
+        return JdbcTransactionUtils.getInstance();
+    }
+
+    /**
+     * Removes all the rows of the table.
+     *
+     * @param table
+     *      table name without schema
+     */
+    static void truncate(final String table) {
+        execute("TRUNCATE TABLE", table);
+    }
+
+    /**
+     * Updates the statistics of the table, so the queries are planned as in the populated database.
+     *
+     * @param table
+     *      table name without schema
+     */
+    static void analyze(final String table) {
+        execute("ANALYZE", table);
+    }
+
+    /**
+     * @param command
+     *      SQL command followed by the table name
+     * @param table
+     *      table name without schema
+     */
+    private static void execute(final String command, final String table) {
+        JdbcTransactionUtils transactionUtils = JdbcTransactionUtils.getInstance();
+        try (Statement statement = transactionUtils.getConnection().createStatement()) {
+            statement.execute(command + " " + Config.getInstance().getParam("jdbc.schema") + "." + table);
+            transactionUtils.commit();
+        } catch (SQLException e) {
+            transactionUtils.rollback();
+            throw new UnrecoverableException("Unable to execute " + command + " " + table, e);
+        }
+    }
+}
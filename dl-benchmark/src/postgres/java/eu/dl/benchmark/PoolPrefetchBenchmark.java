@@ -0,0 +1,205 @@
+package eu.dl.benchmark;
+
+import eu.dl.dataaccess.dao.MatchedBodiesPool;
+import eu.dl.dataaccess.dao.jdbc.JdbcMatchedBodyDAO;
+import eu.dl.dataaccess.dao.jdbc.JdbcTransactionUtils;
+import eu.dl.dataaccess.dto.codetables.BodyIdentifier;
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gets the exact and approximate matching pools of all the bodies of a tender by two queries per body and by one
+ * prefetching query ({@link JdbcMatchedBodyDAO#getMatchBodiesPools}) whose pools are then selected in memory, as
+ * the matcher does now.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PoolPrefetchBenchmark {
+
+    private static final String TABLE_NAME = "matched_body";
+
+    private static final String WORKER_NAME = "PoolPrefetchBenchmark";
+
+    private static final int SAVE_BATCH_SIZE = 10000;
+
+    private static final int WORDS = 5000;
+
+    private static final int TENDERS = 256;
+
+    /**
+     * Number of the stored matched bodies.
+     */
+    @Param({"200000"})
+    public int storedBodies;
+
+    /**
+     * Number of the bodies of one tender.
+     */
+    @Param({"2", "10", "50"})
+    public int tenderBodies;
+
+    private JdbcMatchedBodyDAO dao;
+
+    private final Random random = new Random(42);
+
+    private List<MatchedBody> stored;
+
+    private List<List<MatchedBody>> tenders;
+
+    private int next;
+
+    /**
+     * Stores the matched bodies and prepares the bodies of the tenders, half of them have a stored twin.
+     */
+    @Setup
+    public final void setUp() {
+        JdbcTransactionUtils transactionUtils = BenchmarkDatabase.init();
+        dao = new JdbcMatchedBodyDAO();
+        dao.populateWithWorkerMetadata(WORKER_NAME, "1");
+
+        BenchmarkDatabase.truncate(TABLE_NAME);
+        stored = new ArrayList<>(storedBodies);
+        for (int i = 0; i < storedBodies; i++) {
+            stored.add(createBody());
+        }
+        for (int i = 0; i < storedBodies; i += SAVE_BATCH_SIZE) {
+            transactionUtils.begin();
+            dao.saveAll(stored.subList(i, Math.min(storedBodies, i + SAVE_BATCH_SIZE)));
+            transactionUtils.commit();
+        }
+        BenchmarkDatabase.analyze(TABLE_NAME);
+
+        tenders = new ArrayList<>(TENDERS);
+        for (int t = 0; t < TENDERS; t++) {
+            List<MatchedBody> bodies = new ArrayList<>(tenderBodies);
+            for (int i = 0; i < tenderBodies; i++) {
+                bodies.add(random.nextBoolean() ? copyBody(stored.get(random.nextInt(storedBodies))) : createBody());
+            }
+            tenders.add(bodies);
+        }
+    }
+
+    /**
+     * Removes the stored bodies.
+     */
+    @TearDown
+    public final void tearDown() {
+        BenchmarkDatabase.truncate(TABLE_NAME);
+    }
+
+    /**
+     * Queries the pools of each body of the tender, as the matcher did.
+     *
+     * @param blackhole
+     *      consumes the pools
+     */
+    @Benchmark
+    public final void queryPerBody(final Blackhole blackhole) {
+        for (MatchedBody body : nextTender()) {
+            blackhole.consume(getPools(body));
+        }
+    }
+
+    /**
+     * Prefetches the pools of all the bodies of the tender by one query, the pools of each body are selected from
+     * them.
+     *
+     * @param blackhole
+     *      consumes the pools
+     */
+    @Benchmark
+    public final void prefetchPools(final Blackhole blackhole) {
+        List<MatchedBody> bodies = nextTender();
+        MatchedBodiesPool<MatchedBody> pools = dao.getMatchBodiesPools(bodies);
+        dao.setPrefetchedPools(pools);
+        try {
+            for (MatchedBody body : bodies) {
+                blackhole.consume(getPools(body));
+            }
+        } finally {
+            dao.setPrefetchedPools(null);
+        }
+    }
+
+    /**
+     * @return bodies of the next tender
+     */
+    private List<MatchedBody> nextTender() {
+        next = (next + 1) % TENDERS;
+        return tenders.get(next);
+    }
+
+    /**
+     * @param body
+     *      matched body
+     * @return exact and approximate pool of the body
+     */
+    private List<List<MatchedBody>> getPools(final MatchedBody body) {
+        List<List<MatchedBody>> pools = new ArrayList<>(2);
+        pools.add(dao.getExactMatchBodiesPool(body.getStandardizedName(), body.getStandardizedAddress(),
+            body.getBodyIds()));
+        pools.add(dao.getApproximateMatchBodiesPool(body.getStandardizedName(), body.getStandardizedAddress(),
+            body.getBodyIds(), body.getDigest()));
+        return pools;
+    }
+
+    /**
+     * @return new body with random name, address and organization id
+     */
+    private MatchedBody createBody() {
+        String first = word();
+        String second = word();
+        return new MatchedBody()
+            .setName(first + " " + second + " s.r.o.")
+            .setStandardizedName(first + " " + second + " sro")
+            .setStandardizedAddress(word() + " " + random.nextInt(1000) + " " + word())
+            .setDigest(first.substring(0, 3) + second.substring(0, 3) + random.nextInt(100))
+            .setBodyIds(Collections.singletonList(new BodyIdentifier()
+                .setId(String.valueOf(10000000 + random.nextInt(90000000)))
+                .setType(BodyIdentifier.Type.ORGANIZATION_ID)
+                .setScope(BodyIdentifier.Scope.CZ)));
+    }
+
+    /**
+     * @param body
+     *      stored body
+     * @return new body with the same matching attributes
+     */
+    private static MatchedBody copyBody(final MatchedBody body) {
+        return new MatchedBody()
+            .setName(body.getName())
+            .setStandardizedName(body.getStandardizedName())
+            .setStandardizedAddress(body.getStandardizedAddress())
+            .setDigest(body.getDigest())
+            .setBodyIds(body.getBodyIds());
+    }
+
+    /**
+     * @return random word of the vocabulary
+     */
+    private String word() {
+        return "word" + random.nextInt(WORDS);
+    }
+}
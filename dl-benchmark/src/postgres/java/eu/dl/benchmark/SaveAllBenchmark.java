@@ -0,0 +1,122 @@
+package eu.dl.benchmark;
+
+import eu.dl.dataaccess.dao.jdbc.JdbcRawDataDAO;
+import eu.dl.dataaccess.dao.jdbc.JdbcTransactionUtils;
+import eu.dl.dataaccess.dto.raw.RawData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the raw records of one message one by one and by the COPY based {@link JdbcRawDataDAO#saveAll}, both in one
+ * transaction as the downloader does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SaveAllBenchmark {
+
+    private static final String TABLE_NAME = "raw_data";
+
+    /**
+     * Number of the records saved at once.
+     */
+    @Param({"10", "100", "1000"})
+    public int records;
+
+    /**
+     * Length of the downloaded source data of each record.
+     */
+    @Param({"2000"})
+    public int dataLength;
+
+    private JdbcTransactionUtils transactionUtils;
+
+    private JdbcRawDataDAO dao;
+
+    private List<RawData> items;
+
+    /**
+     * Starts the database and creates the DAO.
+     */
+    @Setup(Level.Trial)
+    public final void setUp() {
+        transactionUtils = BenchmarkDatabase.init();
+        dao = new JdbcRawDataDAO();
+        dao.populateWithWorkerMetadata("SaveAllBenchmark", "1");
+    }
+
+    /**
+     * Creates new records, the saved ones have their ids set and they would be updated instead of inserted.
+     */
+    @Setup(Level.Invocation)
+    public final void createItems() {
+        items = new ArrayList<>(records);
+        StringBuilder data = new StringBuilder(dataLength);
+        for (int i = 0; data.length() < dataLength; i++) {
+            data.append("<tr><td>item ").append(i).append("</td></tr>");
+        }
+
+        for (int i = 0; i < records; i++) {
+            RawData item = new RawData();
+            item.setSourceData(data.toString());
+            item.setSourceDataMimeType("text/html");
+            item.setSourceFileName("notice-" + i + ".html");
+            items.add(item);
+        }
+    }
+
+    /**
+     * Keeps the size of the table (and its indexes) the same for all the iterations.
+     */
+    @TearDown(Level.Iteration)
+    public final void truncate() {
+        BenchmarkDatabase.truncate(TABLE_NAME);
+    }
+
+    /**
+     * Saves the records by one INSERT or UPDATE statement each.
+     *
+     * @return id of the last record
+     */
+    @Benchmark
+    public final String saveOneByOne() {
+        transactionUtils.begin();
+        String id = null;
+        for (RawData item : items) {
+            id = dao.save(item);
+        }
+        transactionUtils.commit();
+        return id;
+    }
+
+    /**
+     * Saves the records by COPY to the staging table and one INSERT ... ON CONFLICT statement.
+     *
+     * @return ids of the records
+     */
+    @Benchmark
+    public final List<String> saveAll() {
+        transactionUtils.begin();
+        List<String> ids = dao.saveAll(items);
+        transactionUtils.commit();
+        return ids;
+    }
+}
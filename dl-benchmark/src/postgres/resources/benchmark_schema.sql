@@ -0,0 +1,35 @@
+-- tables used by the benchmarks, same as in the tender-dataaccess migrations
+CREATE SCHEMA benchmark;
+SET search_path TO benchmark;
+
+CREATE TABLE raw_data (
+    id character varying(255) PRIMARY KEY,
+    data jsonb,
+    created timestamp without time zone,
+    createdby character varying(255),
+    createdbyversion character varying(255),
+    modified timestamp without time zone,
+    modifiedby character varying(255),
+    modifiedbyversion character varying(255)
+);
+
+CREATE INDEX raw_data_createdby_idx ON raw_data (createdby);
+CREATE INDEX raw_data_modified_idx ON raw_data (modified);
+
+CREATE TABLE matched_body (
+    id character varying(255) PRIMARY KEY,
+    data jsonb,
+    created timestamp without time zone,
+    createdby character varying(255),
+    createdbyversion character varying(255),
+    modified timestamp without time zone,
+    modifiedby character varying(255),
+    modifiedbyversion character varying(255)
+);
+
+CREATE INDEX matched_body_data_idx ON matched_body USING gin (data jsonb_path_ops);
+CREATE INDEX matched_body_modifiedby_idx ON matched_body (modifiedby);
+CREATE INDEX matched_body_modifiedbyversion_idx ON matched_body (modifiedbyversion);
+CREATE INDEX matched_body_digest_idx ON matched_body ((data ->> 'digest'::text));
+CREATE INDEX matched_body_std_name_idx ON matched_body (md5(data ->> 'standardizedName'::text));
+CREATE INDEX matched_body_std_address_idx ON matched_body (md5(data ->> 'standardizedAddress'::text));
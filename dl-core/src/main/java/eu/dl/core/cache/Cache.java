@@ -1,5 +1,8 @@
 package eu.dl.core.cache;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * Defines basic cache functionality.
  */
@@ -19,4 +22,24 @@ public interface Cache {
      * @return cached value
      */
     String get(String key);
+
+    /**
+     * Stores all the items into cache at once.
+     *
+     * @param items items to be stored
+     */
+    void putAll(Map<String, String> items);
+
+    /**
+     * Retrieves the cached values of all the given keys at once.
+     *
+     * @param keys keys
+     * @return cached values by keys, keys without cached value are missing
+     */
+    Map<String, String> getAll(Collection<String> keys);
+
+    /**
+     * @return hit, miss and eviction statistics of the cache
+     */
+    CacheStatistics getStatistics();
 }
@@ -1,25 +1,58 @@
 package eu.dl.core.cache;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import org.cache2k.Cache2kBuilder;
+import org.cache2k.event.CacheEntryEvictedListener;
 
 /**
- *
+ * Local in-memory cache. Its capacity is limited either by the number of entries or by the approximate size of
+ * the entries, see {@link CacheSettings.EvictionPolicy}. Once the capacity is reached, the least valuable entries
+ * are evicted.
  */
 public final class Cache2kCache implements Cache {
-    protected final org.cache2k.Cache<String, String> cache = new Cache2kBuilder<String, String>() {}
-            .name("cache")
-            .eternal(true)
-            .entryCapacity(180000000)
-            .build();
+    /**
+     * Approximate number of bytes taken by the entry besides the characters of its key and value.
+     */
+    private static final int ENTRY_OVERHEAD = 120;
+
+    protected final org.cache2k.Cache<String, String> cache;
 
     protected String prefix = "";
 
+    private final CacheStatistics statistics = new CacheStatistics();
+
     /**
      * Constructs cache.
+     *
+     * @param name unique name of the cache
      * @param cachePrefix prefix used for keys
+     * @param settings cache settings
      */
-    public Cache2kCache(final String cachePrefix) {
+    public Cache2kCache(final String name, final String cachePrefix, final CacheSettings settings) {
         this.prefix = cachePrefix;
+
+        Cache2kBuilder<String, String> builder = new Cache2kBuilder<String, String>() {}
+            .name(name)
+            .addListener((CacheEntryEvictedListener<String, String>) (c, e) -> statistics.recordEviction());
+
+        if (settings.getExpiry() == null) {
+            builder.eternal(true);
+        } else {
+            builder.expireAfterWrite(settings.getExpiry(), TimeUnit.SECONDS);
+        }
+
+        if (settings.getEviction() == CacheSettings.EvictionPolicy.MEMORY) {
+            builder.weigher((String k, String v) -> ENTRY_OVERHEAD + 2L * (k.length() + v.length()))
+                .maximumWeight(settings.getCapacity());
+        } else {
+            builder.entryCapacity(settings.getCapacity());
+        }
+
+        cache = builder.build();
     }
 
     @Override
@@ -29,6 +62,35 @@ public final class Cache2kCache implements Cache {
 
     @Override
     public String get(final String key) {
-        return cache.peek(prefix.concat(key));
+        return statistics.record(cache.peek(prefix.concat(key)));
+    }
+
+    @Override
+    public void putAll(final Map<String, String> items) {
+        final Map<String, String> prefixed = new HashMap<>();
+        items.forEach((k, v) -> prefixed.put(prefix.concat(k), v));
+        cache.putAll(prefixed);
+    }
+
+    @Override
+    public Map<String, String> getAll(final Collection<String> keys) {
+        final Map<String, String> prefixed = new HashMap<>();
+        keys.forEach(k -> prefixed.put(prefix.concat(k), k));
+
+        final Map<String, String> result = new HashMap<>();
+        cache.peekAll(prefixed.keySet()).forEach((k, v) -> {
+            if (v != null) {
+                result.put(prefixed.get(k), v);
+            }
+        });
+
+        statistics.recordHits(result.size());
+        statistics.recordMisses(prefixed.size() - result.size());
+        return result;
+    }
+
+    @Override
+    public CacheStatistics getStatistics() {
+        return statistics;
     }
 }
@@ -1,17 +1,26 @@
 package eu.dl.core.cache;
 
 
-import eu.dl.core.config.Config;
+import eu.dl.core.UnrecoverableException;
 import eu.dl.core.config.MisconfigurationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * Returns intialised cache object.
+ * Registry of named caches. Each cache has its own keyspace (keys are prefixed by the cache name) and its own
+ * settings, see {@link CacheSettings}.
  */
 public class CacheFactory {
 
-    private static Cache cache;
+    private static final Map<String, Cache> caches = new ConcurrentHashMap<>();
 
     private static Logger logger = LoggerFactory.getLogger(CacheFactory.class.getName());
 
@@ -23,26 +32,111 @@ public class CacheFactory {
     }
 
     /**
-     * Creates and returns cache.
+     * Returns the named cache, the cache is created on the first call. The settings which aren't configured for the
+     * cache are read from the parameters {@code cache.<setting>}.
+     *
+     * @param name cache name, it is used as key prefix too
+     *
+     * @return ready to use cache
+     */
+    public static final Cache getCache(final String name) {
+        return caches.computeIfAbsent(name, n -> createCache(n, CacheSettings.fromConfig()));
+    }
+
+    /**
+     * Returns the named cache, the cache is created on the first call.
+     *
+     * @param name cache name, it is used as key prefix too
+     * @param defaults settings used if they aren't configured for the cache
+     *
+     * @return ready to use cache
+     */
+    public static final Cache getCache(final String name, final CacheSettings defaults) {
+        return caches.computeIfAbsent(name, n -> createCache(n, defaults));
+    }
+
+    /**
+     * @return statistics of all the created caches by cache names
+     */
+    public static final Map<String, CacheStatistics> getStatistics() {
+        final Map<String, CacheStatistics> statistics = new TreeMap<>();
+        caches.forEach((name, cache) -> statistics.put(name, cache.getStatistics()));
+        return statistics;
+    }
+
+    /**
+     * Logs statistics of all the created caches.
+     */
+    public static final void logStatistics() {
+        getStatistics().forEach((name, statistics) -> logger.info("Cache {} statistics: {}", name, statistics));
+    }
+
+    /**
+     * Creates cache.
+     *
+     * @param name cache name
+     * @param defaults settings used if they aren't configured for the cache
+     *
+     * @return ready to use cache
+     */
+    private static Cache createCache(final String name, final CacheSettings defaults) {
+        final CacheSettings settings = CacheSettings.fromConfig(name, defaults);
+        final String cachePrefix = name.concat("::");
+        final String cacheImplementation = settings.getImplementation();
+
+        if (cacheImplementation != null && cacheImplementation.equals("cache2k")) {
+            final Cache2kCache local = new Cache2kCache(name, cachePrefix, settings);
+            if (settings.isRedis()) {
+                logger.info("Returning cache2k near cache of redis cache {}", name);
+                return new NearCache(local, new RedisCache(cachePrefix));
+            }
+
+            logger.info("Returning cache2k cache {} with capacity {} {}", name, settings.getCapacity(),
+                settings.getEviction());
+            return local;
+        } else if (cacheImplementation != null && cacheImplementation.equals("compact")) {
+            logger.info("Returning compact hash cache {}", name);
+            return createCompactHashCache(cachePrefix, settings.getSnapshot());
+        } else if (cacheImplementation != null && cacheImplementation.equals("redis")) {
+            logger.info("Returning redis cache {}", name);
+            return new RedisCache(cachePrefix);
+        } else {
+            throw new MisconfigurationException(String.format("Improper cache configuration. %s cache not found",
+                cacheImplementation));
+        }
+    }
+
+    /**
+     * Creates compact hash cache. In case the snapshot file is set, the cache is loaded from the existing snapshot
+     * and saved to it when the JVM shuts down. The loaded snapshot is deleted right away, so the cache of the process
+     * which hasn't ended properly is never reused.
      *
      * @param cachePrefix used for keys
+     * @param snapshot path of the snapshot file or null
      *
      * @return ready to use cache
      */
-    public static final Cache getCache(final String cachePrefix) {
-        if (cache == null) {
-            Config config = Config.getInstance();
-            String cacheImplementation = config.getParam("cache.implementation");
-            if (cacheImplementation != null && cacheImplementation.equals("cache2k")) {
-                logger.info("Returning cache2k cache");
-                cache = new Cache2kCache(cachePrefix);
-            } else if (cacheImplementation != null && cacheImplementation.equals("redis")) {
-                logger.info("Returning redis cache");
-                cache = new RedisCache(cachePrefix);
-            } else {
-                throw new MisconfigurationException(String.format("Improper cache configuration. %s cache not found", cacheImplementation));
+    private static CompactHashCache createCompactHashCache(final String cachePrefix, final String snapshot) {
+        if (snapshot == null) {
+            return new CompactHashCache(cachePrefix);
+        }
+
+        final Path file = Paths.get(snapshot);
+        final CompactHashCache compactCache;
+        if (Files.exists(file)) {
+            compactCache = CompactHashCache.load(file, cachePrefix);
+            try {
+                Files.delete(file);
+            } catch (IOException ex) {
+                logger.error("Unable to delete loaded cache snapshot {} because of", file, ex);
+                throw new UnrecoverableException("Unable to delete loaded cache snapshot", ex);
             }
+        } else {
+            compactCache = new CompactHashCache(cachePrefix);
         }
-        return cache;
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> compactCache.snapshot(file), "cache-snapshot"));
+
+        return compactCache;
     }
 }
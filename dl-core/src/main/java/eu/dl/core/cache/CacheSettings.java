@@ -0,0 +1,240 @@
+package eu.dl.core.cache;
+
+import java.util.function.Function;
+
+import eu.dl.core.config.Config;
+import eu.dl.core.config.MisconfigurationException;
+
+/**
+ * Settings of one named cache.
+ *
+ * Each setting is read from the parameter {@code cache.<name>.<setting>}. If the parameter isn't set, the value of
+ * the default settings is used. The defaults of the caches created by {@link CacheFactory#getCache(String)} are read
+ * from the parameters {@code cache.<setting>}, so the configuration shared by all the caches keeps working.
+ * Available settings are:
+ * <ul>
+ *     <li>implementation - cache2k, compact or redis</li>
+ *     <li>capacity - maximal number of entries or approximate number of bytes, see eviction</li>
+ *     <li>eviction - entries (capacity limits the number of entries) or memory (capacity limits the approximate
+ *     size of the entries in bytes), used by cache2k only</li>
+ *     <li>expiry - number of seconds after which the written entry expires, entries never expire if not set, used by
+ *     cache2k only</li>
+ *     <li>redis - true if the cache2k cache is a near cache of the redis one</li>
+ *     <li>compact.snapshot - snapshot file of the compact cache</li>
+ * </ul>
+ */
+public final class CacheSettings {
+
+    /**
+     * The way the capacity of the local cache is measured.
+     */
+    public enum EvictionPolicy {
+        /**
+         * Capacity is the maximal number of entries.
+         */
+        ENTRIES,
+        /**
+         * Capacity is the maximal approximate size of the entries in bytes.
+         */
+        MEMORY
+    }
+
+    /**
+     * Capacity used if none is configured.
+     */
+    public static final long DEFAULT_CAPACITY = 180000000;
+
+    private String implementation;
+
+    private long capacity = DEFAULT_CAPACITY;
+
+    private EvictionPolicy eviction = EvictionPolicy.ENTRIES;
+
+    private Long expiry;
+
+    private boolean redis = false;
+
+    private String snapshot;
+
+    /**
+     * @return cache implementation
+     */
+    public String getImplementation() {
+        return implementation;
+    }
+
+    /**
+     * @param implementation cache implementation
+     * @return this instance for chaining
+     */
+    public CacheSettings setImplementation(final String implementation) {
+        this.implementation = implementation;
+        return this;
+    }
+
+    /**
+     * @return capacity of the cache
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @param capacity capacity of the cache
+     * @return this instance for chaining
+     */
+    public CacheSettings setCapacity(final long capacity) {
+        this.capacity = capacity;
+        return this;
+    }
+
+    /**
+     * @return the way the capacity is measured
+     */
+    public EvictionPolicy getEviction() {
+        return eviction;
+    }
+
+    /**
+     * @param eviction the way the capacity is measured
+     * @return this instance for chaining
+     */
+    public CacheSettings setEviction(final EvictionPolicy eviction) {
+        this.eviction = eviction;
+        return this;
+    }
+
+    /**
+     * @return number of seconds after which the written entry expires, null for entries which never expire
+     */
+    public Long getExpiry() {
+        return expiry;
+    }
+
+    /**
+     * @param expiry number of seconds after which the written entry expires, null for entries which never expire
+     * @return this instance for chaining
+     */
+    public CacheSettings setExpiry(final Long expiry) {
+        this.expiry = expiry;
+        return this;
+    }
+
+    /**
+     * @return true if the local cache is a near cache of the redis one
+     */
+    public boolean isRedis() {
+        return redis;
+    }
+
+    /**
+     * @param redis true if the local cache is a near cache of the redis one
+     * @return this instance for chaining
+     */
+    public CacheSettings setRedis(final boolean redis) {
+        this.redis = redis;
+        return this;
+    }
+
+    /**
+     * @return snapshot file of the compact cache or null
+     */
+    public String getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @param snapshot snapshot file of the compact cache or null
+     * @return this instance for chaining
+     */
+    public CacheSettings setSnapshot(final String snapshot) {
+        this.snapshot = snapshot;
+        return this;
+    }
+
+    /**
+     * @return default settings read from the parameters {@code cache.<setting>}
+     */
+    static CacheSettings fromConfig() {
+        return read("cache.", new CacheSettings(), Config.getInstance()::getParam);
+    }
+
+    /**
+     * @param name cache name
+     * @param defaults default settings
+     * @return settings of the named cache read from the parameters {@code cache.<name>.<setting>}
+     */
+    static CacheSettings fromConfig(final String name, final CacheSettings defaults) {
+        return fromConfig(name, defaults, Config.getInstance()::getParam);
+    }
+
+    /**
+     * @param name cache name
+     * @param defaults default settings
+     * @param params function which returns value of the parameter or null
+     * @return settings of the named cache read from the parameters {@code cache.<name>.<setting>}
+     */
+    static CacheSettings fromConfig(final String name, final CacheSettings defaults,
+                                    final Function<String, String> params) {
+        CacheSettings settings = new CacheSettings()
+            .setImplementation(defaults.implementation)
+            .setCapacity(defaults.capacity)
+            .setEviction(defaults.eviction)
+            .setExpiry(defaults.expiry)
+            .setRedis(defaults.redis)
+            .setSnapshot(defaults.snapshot);
+
+        return read("cache." + name + ".", settings, params);
+    }
+
+    /**
+     * Overwrites the settings by the set parameters.
+     *
+     * @param paramPrefix prefix of the parameters
+     * @param settings settings to be updated
+     * @param params function which returns value of the parameter or null
+     * @return updated settings
+     */
+    private static CacheSettings read(final String paramPrefix, final CacheSettings settings,
+                                      final Function<String, String> params) {
+        String value = params.apply(paramPrefix + "implementation");
+        if (value != null) {
+            settings.setImplementation(value);
+        }
+
+        try {
+            value = params.apply(paramPrefix + "capacity");
+            if (value != null) {
+                settings.setCapacity(Long.parseLong(value));
+            }
+
+            value = params.apply(paramPrefix + "expiry");
+            if (value != null) {
+                settings.setExpiry(Long.valueOf(value));
+            }
+        } catch (NumberFormatException ex) {
+            throw new MisconfigurationException(String.format("Improper cache configuration %s*", paramPrefix), ex);
+        }
+
+        value = params.apply(paramPrefix + "eviction");
+        if (value != null) {
+            try {
+                settings.setEviction(EvictionPolicy.valueOf(value.toUpperCase()));
+            } catch (IllegalArgumentException ex) {
+                throw new MisconfigurationException(String.format("Improper cache eviction %s", value), ex);
+            }
+        }
+
+        value = params.apply(paramPrefix + "redis");
+        if (value != null) {
+            settings.setRedis(value.equals("true"));
+        }
+
+        value = params.apply(paramPrefix + "compact.snapshot");
+        if (value != null) {
+            settings.setSnapshot(value);
+        }
+
+        return settings;
+    }
+}
@@ -0,0 +1,114 @@
+package eu.dl.core.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit, miss and eviction counters of one cache. The counters are thread-safe.
+ */
+public final class CacheStatistics {
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions;
+
+    /**
+     * Constructs statistics with zero counters.
+     */
+    public CacheStatistics() {
+        this(new LongAdder());
+    }
+
+    /**
+     * @param evictions eviction counter
+     */
+    private CacheStatistics(final LongAdder evictions) {
+        this.evictions = evictions;
+    }
+
+    /**
+     * @param other statistics of another cache
+     * @return statistics with zero hit and miss counters which share the eviction counter of the other statistics
+     */
+    static CacheStatistics sharingEvictions(final CacheStatistics other) {
+        return new CacheStatistics(other.evictions);
+    }
+
+    /**
+     * Records cache hits.
+     *
+     * @param count number of hits
+     */
+    void recordHits(final long count) {
+        hits.add(count);
+    }
+
+    /**
+     * Records cache misses.
+     *
+     * @param count number of misses
+     */
+    void recordMisses(final long count) {
+        misses.add(count);
+    }
+
+    /**
+     * Records entry evicted from the cache because of its capacity.
+     */
+    void recordEviction() {
+        evictions.increment();
+    }
+
+    /**
+     * Records result of a single lookup.
+     *
+     * @param value found value or null
+     * @return the given value
+     */
+    String record(final String value) {
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+
+        return value;
+    }
+
+    /**
+     * @return number of lookups which found the value
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups which haven't found the value
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of entries evicted because of the cache capacity
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return ratio of hits to all the lookups, 0 if there hasn't been any lookup
+     */
+    public double getHitRate() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, hitRate=%.3f, evictions=%d", getHits(), getMisses(), getHitRate(),
+            getEvictions());
+    }
+}
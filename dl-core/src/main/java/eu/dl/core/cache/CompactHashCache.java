@@ -0,0 +1,477 @@
+package eu.dl.core.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.codec.digest.MurmurHash3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.dl.core.UnrecoverableException;
+
+/**
+ * Memory efficient cache for a large number of keys with a much smaller number of distinct values, eg. the index of
+ * body hashes and their group ids used by the matchers.
+ *
+ * Keys aren't stored. Each key is replaced by its 128-bit MurmurHash3 digest kept in open addressing primitive arrays,
+ * so the entry takes 20 bytes (about 27 bytes at the maximum load factor) instead of hundreds of bytes taken by
+ * the string key and the entry of a generic cache. Values are interned, each distinct value is stored once and
+ * the entries reference it by an integer handle.
+ *
+ * The cache can be saved to a snapshot file by {@link #snapshot(Path)} and loaded from it by
+ * {@link #load(Path, String)}. The arrays are read from the memory-mapped file in bulk, so even the cache with
+ * hundreds of millions entries loads in seconds. The cache is thread-safe.
+ */
+public final class CompactHashCache implements Cache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompactHashCache.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x444c4348;
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * Size of the snapshot header (magic, version, capacity, size, number of values and padding).
+     */
+    private static final int HEADER_SIZE = 24;
+
+    /**
+     * Maximal size of the memory-mapped region, multiple of 8.
+     */
+    private static final int MAX_REGION_SIZE = 1 << 30;
+
+    private static final int SEED = 104729;
+
+    private static final int MIN_CAPACITY = 1 << 10;
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final String prefix;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Upper and lower halves of key digests.
+     */
+    private long[] high;
+
+    private long[] low;
+
+    /**
+     * Handles of the values, 0 for empty slot. Handle {@code h} references value {@code values.get(h - 1)}.
+     */
+    private int[] handles;
+
+    private int size;
+
+    private final List<String> values = new ArrayList<>();
+
+    private final Map<String, Integer> valueHandles = new HashMap<>();
+
+    private final CacheStatistics statistics = new CacheStatistics();
+
+    /**
+     * Constructs empty cache.
+     *
+     * @param prefix
+     *      prefix used for keys
+     */
+    public CompactHashCache(final String prefix) {
+        this(prefix, MIN_CAPACITY);
+    }
+
+    /**
+     * Constructs empty cache.
+     *
+     * @param prefix
+     *      prefix used for keys
+     * @param capacity
+     *      initial number of slots, rounded up to the power of two
+     */
+    private CompactHashCache(final String prefix, final int capacity) {
+        this.prefix = prefix == null ? "" : prefix;
+        allocate(capacity);
+    }
+
+    @Override
+    public void put(final String key, final String value) {
+        Objects.requireNonNull(value, "Null values aren't supported");
+
+        final long[] digest = digest(key);
+
+        lock.writeLock().lock();
+        try {
+            if (size + 1 > handles.length * LOAD_FACTOR) {
+                resize();
+            }
+
+            final int slot = find(digest[0], digest[1]);
+            if (handles[slot] == 0) {
+                high[slot] = digest[0];
+                low[slot] = digest[1];
+                size++;
+            }
+            handles[slot] = intern(value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String get(final String key) {
+        final long[] digest = digest(key);
+
+        lock.readLock().lock();
+        try {
+            final int handle = handles[find(digest[0], digest[1])];
+            return statistics.record(handle == 0 ? null : values.get(handle - 1));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void putAll(final Map<String, String> items) {
+        final List<long[]> digests = new ArrayList<>(items.size());
+        items.forEach((k, v) -> {
+            Objects.requireNonNull(v, "Null values aren't supported");
+            digests.add(digest(k));
+        });
+
+        lock.writeLock().lock();
+        try {
+            int i = 0;
+            for (String value : items.values()) {
+                if (size + 1 > handles.length * LOAD_FACTOR) {
+                    resize();
+                }
+
+                final long[] digest = digests.get(i++);
+                final int slot = find(digest[0], digest[1]);
+                if (handles[slot] == 0) {
+                    high[slot] = digest[0];
+                    low[slot] = digest[1];
+                    size++;
+                }
+                handles[slot] = intern(value);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, String> getAll(final Collection<String> keys) {
+        final Map<String, long[]> digests = new HashMap<>();
+        keys.forEach(k -> digests.put(k, digest(k)));
+
+        final Map<String, String> result = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            digests.forEach((k, digest) -> {
+                final int handle = handles[find(digest[0], digest[1])];
+                if (handle != 0) {
+                    result.put(k, values.get(handle - 1));
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        statistics.recordHits(result.size());
+        statistics.recordMisses(digests.size() - result.size());
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The cache never evicts entries.
+     */
+    @Override
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return number of entries
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Saves the cache to the given file. The file is written to a temporary file first and then moved, so the
+     * snapshot is either complete or missing.
+     *
+     * @param file
+     *      snapshot file
+     */
+    public void snapshot(final Path file) {
+        lock.readLock().lock();
+        try {
+            final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(handles.length).putInt(size)
+                    .putInt(values.size()).clear();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+
+                writeArrays(channel);
+
+                // values follow the arrays, channel is kept open by the stream until the try block ends
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    Channels.newOutputStream(channel)));
+                for (String value : values) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    output.writeInt(bytes.length);
+                    output.write(bytes);
+                }
+                output.flush();
+                channel.force(false);
+            }
+
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Cache snapshot with {} entries and {} values saved to {}", size, values.size(), file);
+        } catch (IOException ex) {
+            logger.error("Unable to save cache snapshot to {} because of", file, ex);
+            throw new UnrecoverableException("Unable to save cache snapshot", ex);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads the cache from the snapshot file.
+     *
+     * @param file
+     *      snapshot file
+     * @param prefix
+     *      prefix used for keys, it has to be the same as the prefix of the saved cache
+     * @return cache
+     */
+    public static CompactHashCache load(final Path file, final String prefix) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != SNAPSHOT_MAGIC || header.getInt() != SNAPSHOT_VERSION) {
+                logger.error("File {} isn't a cache snapshot of the supported version", file);
+                throw new UnrecoverableException("Unsupported cache snapshot");
+            }
+
+            final int capacity = header.getInt();
+            final CompactHashCache cache = new CompactHashCache(prefix, capacity);
+            cache.size = header.getInt();
+            final int valuesCount = header.getInt();
+
+            long position = cache.readArrays(channel, HEADER_SIZE);
+
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(position))));
+            for (int i = 0; i < valuesCount; i++) {
+                byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                cache.intern(new String(bytes, StandardCharsets.UTF_8));
+            }
+
+            logger.info("Cache snapshot with {} entries and {} values loaded from {}", cache.size, valuesCount, file);
+            return cache;
+        } catch (IOException ex) {
+            logger.error("Unable to load cache snapshot from {} because of", file, ex);
+            throw new UnrecoverableException("Unable to load cache snapshot", ex);
+        }
+    }
+
+    /**
+     * Writes digests and handles to the channel.
+     *
+     * @param channel
+     *      channel positioned after the header
+     * @throws IOException
+     *      in case of writing failure
+     */
+    private void writeArrays(final FileChannel channel) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        for (long[] array : new long[][]{high, low}) {
+            for (long value : array) {
+                if (buffer.remaining() < Long.BYTES) {
+                    flush(channel, buffer);
+                }
+                buffer.putLong(value);
+            }
+        }
+        for (int value : handles) {
+            if (buffer.remaining() < Integer.BYTES) {
+                flush(channel, buffer);
+            }
+            buffer.putInt(value);
+        }
+        flush(channel, buffer);
+    }
+
+    /**
+     * Writes the buffer content to the channel and clears the buffer.
+     *
+     * @param channel
+     *      channel
+     * @param buffer
+     *      buffer
+     * @throws IOException
+     *      in case of writing failure
+     */
+    private static void flush(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads digests and handles from the memory-mapped channel.
+     *
+     * @param channel
+     *      snapshot channel
+     * @param start
+     *      position of the arrays
+     * @return position after the arrays
+     * @throws IOException
+     *      in case of reading failure
+     */
+    private long readArrays(final FileChannel channel, final long start) throws IOException {
+        long position = start;
+        for (long[] array : new long[][]{high, low}) {
+            int offset = 0;
+            while (offset < array.length) {
+                int count = Math.min(array.length - offset, MAX_REGION_SIZE / Long.BYTES);
+                channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Long.BYTES).asLongBuffer()
+                    .get(array, offset, count);
+                offset += count;
+                position += (long) count * Long.BYTES;
+            }
+        }
+
+        int offset = 0;
+        while (offset < handles.length) {
+            int count = Math.min(handles.length - offset, MAX_REGION_SIZE / Integer.BYTES);
+            channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Integer.BYTES).asIntBuffer()
+                .get(handles, offset, count);
+            offset += count;
+            position += (long) count * Integer.BYTES;
+        }
+
+        return position;
+    }
+
+    /**
+     * @param key
+     *      key
+     * @return 128-bit digest of the prefixed key
+     */
+    private long[] digest(final String key) {
+        final byte[] bytes = prefix.concat(key).getBytes(StandardCharsets.UTF_8);
+        return MurmurHash3.hash128(bytes, 0, bytes.length, SEED);
+    }
+
+    /**
+     * Finds slot of the given digest using linear probing.
+     *
+     * @param h
+     *      upper half of the digest
+     * @param l
+     *      lower half of the digest
+     * @return slot with the digest or the empty slot where the digest belongs
+     */
+    private int find(final long h, final long l) {
+        final int mask = handles.length - 1;
+        int slot = (int) (l ^ (l >>> 32)) & mask;
+        while (handles[slot] != 0 && (high[slot] != h || low[slot] != l)) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Allocates empty arrays.
+     *
+     * @param capacity
+     *      minimal number of slots
+     */
+    private void allocate(final int capacity) {
+        int slots = MIN_CAPACITY;
+        while (slots < capacity) {
+            slots <<= 1;
+        }
+
+        high = new long[slots];
+        low = new long[slots];
+        handles = new int[slots];
+    }
+
+    /**
+     * Moves all the entries to new arrays of the double capacity.
+     */
+    private void resize() {
+        if (handles.length >= MAX_CAPACITY) {
+            logger.error("Cache size {} exceeds the maximal capacity {}", size, MAX_CAPACITY);
+            throw new UnrecoverableException("Cache capacity exceeded");
+        }
+
+        final long[] oldHigh = high;
+        final long[] oldLow = low;
+        final int[] oldHandles = handles;
+
+        allocate(oldHandles.length * 2);
+        for (int i = 0; i < oldHandles.length; i++) {
+            if (oldHandles[i] != 0) {
+                int slot = find(oldHigh[i], oldLow[i]);
+                high[slot] = oldHigh[i];
+                low[slot] = oldLow[i];
+                handles[slot] = oldHandles[i];
+            }
+        }
+    }
+
+    /**
+     * @param value
+     *      value
+     * @return handle of the value, the value is added if it is new
+     */
+    private int intern(final String value) {
+        return valueHandles.computeIfAbsent(value, v -> {
+            values.add(v);
+            return values.size();
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package eu.dl.core.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Two-level cache. Values are read from the bounded local cache first and the keys missing there are read from
+ * the shared remote cache, the found values are then kept in the local cache. Values are written to both levels.
+ */
+public final class NearCache implements Cache {
+
+    private final Cache local;
+
+    private final Cache remote;
+
+    private final CacheStatistics statistics;
+
+    /**
+     * Constructs cache.
+     *
+     * @param local local cache
+     * @param remote remote cache
+     */
+    public NearCache(final Cache local, final Cache remote) {
+        this.local = local;
+        this.remote = remote;
+        this.statistics = CacheStatistics.sharingEvictions(local.getStatistics());
+    }
+
+    @Override
+    public void put(final String key, final String value) {
+        remote.put(key, value);
+        local.put(key, value);
+    }
+
+    @Override
+    public String get(final String key) {
+        String value = local.get(key);
+        if (value == null) {
+            value = remote.get(key);
+            if (value != null) {
+                local.put(key, value);
+            }
+        }
+
+        return statistics.record(value);
+    }
+
+    @Override
+    public void putAll(final Map<String, String> items) {
+        remote.putAll(items);
+        local.putAll(items);
+    }
+
+    @Override
+    public Map<String, String> getAll(final Collection<String> keys) {
+        final Map<String, String> result = new HashMap<>(local.getAll(keys));
+        if (result.size() < keys.size()) {
+            final List<String> missing = new ArrayList<>();
+            for (String key : keys) {
+                if (!result.containsKey(key)) {
+                    missing.add(key);
+                }
+            }
+
+            final Map<String, String> found = remote.getAll(missing);
+            local.putAll(found);
+            result.putAll(found);
+        }
+
+        statistics.recordHits(result.size());
+        statistics.recordMisses(keys.size() - result.size());
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Evictions are the evictions from the local cache.
+     */
+    @Override
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+}
@@ -1,15 +1,33 @@
 package eu.dl.core.cache;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import eu.dl.core.config.Config;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.LettuceFutures;
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
 import io.lettuce.core.RedisURI;
 import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.api.sync.RedisCommands;
 
 /**
- *
+ * Cache stored in Redis. Bulk operations are split to MGET/MSET commands of limited size which are sent at once
+ * without waiting for the previous replies, so the whole batch costs about one network round trip.
  */
 public final class RedisCache implements Cache {
+    /**
+     * Maximal number of keys in one MGET/MSET command.
+     */
+    private static final int BATCH_SIZE = 1000;
+
     protected String prefix = "";
 
     protected RedisClient client;
@@ -18,14 +36,41 @@ public final class RedisCache implements Cache {
 
     protected RedisCommands<String, String> commands;
 
+    protected RedisAsyncCommands<String, String> asyncCommands;
+
+    private final CacheStatistics statistics = new CacheStatistics();
+
     /**
      * Redis cache initialisation.
      *
      * @param cachePrefix prefix for keys
      */
     public RedisCache(final String cachePrefix) {
+        this(cachePrefix, createURI());
+    }
+
+    /**
+     * Redis cache initialisation.
+     *
+     * @param cachePrefix prefix for keys
+     * @param uri Redis server URI
+     */
+    RedisCache(final String cachePrefix, final RedisURI uri) {
         prefix = cachePrefix;
 
+        client = RedisClient.create(uri);
+
+        connection = client.connect();
+
+        commands = connection.sync();
+
+        asyncCommands = connection.async();
+    }
+
+    /**
+     * @return Redis server URI from the configuration
+     */
+    private static RedisURI createURI() {
         Config config = Config.getInstance();
         String port= config.getParam("cache.redis.port");
         String host = config.getParam("cache.redis.host");
@@ -35,11 +80,7 @@ public final class RedisCache implements Cache {
             uri.withPort(Integer.valueOf(port));
         }
 
-        client = RedisClient.create(uri.build());
-
-        connection = client.connect();
-
-        commands = connection.sync();
+        return uri.build();
     }
 
     @Override
@@ -49,6 +90,77 @@ public final class RedisCache implements Cache {
 
     @Override
     public String get(final String key) {
-        return commands.get(prefix.concat(key));
+        return statistics.record(commands.get(prefix.concat(key)));
+    }
+
+    @Override
+    public void putAll(final Map<String, String> items) {
+        final List<RedisFuture<String>> futures = new ArrayList<>();
+        Map<String, String> batch = new HashMap<>();
+        for (Map.Entry<String, String> item : items.entrySet()) {
+            batch.put(prefix.concat(item.getKey()), item.getValue());
+            if (batch.size() == BATCH_SIZE) {
+                futures.add(asyncCommands.mset(batch));
+                batch = new HashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            futures.add(asyncCommands.mset(batch));
+        }
+
+        for (RedisFuture<String> future : futures) {
+            await(future);
+        }
+    }
+
+    @Override
+    public Map<String, String> getAll(final Collection<String> keys) {
+        final List<RedisFuture<List<KeyValue<String, String>>>> futures = new ArrayList<>();
+        List<String> batch = new ArrayList<>();
+        for (String key : keys) {
+            batch.add(prefix.concat(key));
+            if (batch.size() == BATCH_SIZE) {
+                futures.add(asyncCommands.mget(batch.toArray(new String[0])));
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            futures.add(asyncCommands.mget(batch.toArray(new String[0])));
+        }
+
+        final Map<String, String> result = new HashMap<>();
+        for (RedisFuture<List<KeyValue<String, String>>> future : futures) {
+            for (KeyValue<String, String> item : await(future)) {
+                if (item.hasValue()) {
+                    result.put(item.getKey().substring(prefix.length()), item.getValue());
+                }
+            }
+        }
+
+        statistics.recordHits(result.size());
+        statistics.recordMisses(keys.size() - result.size());
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Redis evicts the entries on its own, so the evictions aren't counted.
+     */
+    @Override
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Waits for the command result within the connection timeout.
+     *
+     * @param future command future
+     * @param <T> type of the result
+     * @return command result
+     */
+    private <T> T await(final RedisFuture<T> future) {
+        final Duration timeout = connection.getTimeout();
+        return LettuceFutures.awaitOrCancel(future, timeout.toNanos(), TimeUnit.NANOSECONDS);
     }
 }
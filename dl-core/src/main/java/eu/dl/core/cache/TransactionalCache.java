@@ -0,0 +1,100 @@
+package eu.dl.core.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache which keeps the written values of each thread aside until {@link #commit()}. The thread reads its own pending
+ * values before the values of the wrapped cache, the other threads see them only after the commit. {@link #rollback()}
+ * discards them, so the cache can follow the database transaction of the thread.
+ */
+public final class TransactionalCache implements Cache {
+
+    private final Cache cache;
+
+    /**
+     * Values written by the current thread which haven't been committed yet.
+     */
+    private final ThreadLocal<Map<String, String>> pending = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * Constructs cache.
+     *
+     * @param cache wrapped cache
+     */
+    public TransactionalCache(final Cache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void put(final String key, final String value) {
+        pending.get().put(key, value);
+    }
+
+    @Override
+    public String get(final String key) {
+        final String value = pending.get().get(key);
+        return value != null ? value : cache.get(key);
+    }
+
+    @Override
+    public void putAll(final Map<String, String> items) {
+        pending.get().putAll(items);
+    }
+
+    @Override
+    public Map<String, String> getAll(final Collection<String> keys) {
+        final Map<String, String> local = pending.get();
+        if (local.isEmpty()) {
+            return cache.getAll(keys);
+        }
+
+        final Map<String, String> result = new HashMap<>();
+        final List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            final String value = local.get(key);
+            if (value != null) {
+                result.put(key, value);
+            } else {
+                missing.add(key);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            result.putAll(cache.getAll(missing));
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes the pending values of the current thread to the wrapped cache at once.
+     */
+    public void commit() {
+        final Map<String, String> local = pending.get();
+        if (!local.isEmpty()) {
+            cache.putAll(local);
+            local.clear();
+        }
+    }
+
+    /**
+     * Discards the pending values of the current thread.
+     */
+    public void rollback() {
+        pending.get().clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Statistics of the wrapped cache, the pending values aren't counted.
+     */
+    @Override
+    public CacheStatistics getStatistics() {
+        return cache.getStatistics();
+    }
+}
@@ -0,0 +1,63 @@
+package eu.dl.core.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Test of local cache bounded by the number or the size of entries.
+ */
+public final class Cache2kCacheTest {
+
+    /**
+     * Cache bounded by the number of entries evicts the entries over its capacity and counts hits and misses.
+     */
+    @Test
+    public void entriesEvictionTest() {
+        Cache2kCache cache = new Cache2kCache("entriesEvictionTest", "test::",
+            new CacheSettings().setCapacity(100));
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put("hash_" + i, "group_" + i);
+        }
+
+        int found = cache.getAll(Arrays.asList("hash_0", "hash_999")).size();
+        for (int i = 0; i < 1000; i++) {
+            if (cache.get("hash_" + i) != null) {
+                found++;
+            }
+        }
+        assertNull(cache.get("missing"));
+
+        CacheStatistics statistics = cache.getStatistics();
+        assertTrue(statistics.getEvictions() >= 900);
+        assertEquals(found, statistics.getHits());
+        assertEquals(1000 + 2 + 1 - found, statistics.getMisses());
+        assertTrue(found <= 100 + 2);
+    }
+
+    /**
+     * Cache bounded by the size of entries keeps fewer long entries than short ones.
+     */
+    @Test
+    public void memoryEvictionTest() {
+        Cache2kCache cache = new Cache2kCache("memoryEvictionTest", "test::", new CacheSettings()
+            .setCapacity(100000).setEviction(CacheSettings.EvictionPolicy.MEMORY));
+
+        char[] longValue = new char[5000];
+        Arrays.fill(longValue, 'x');
+        for (int i = 0; i < 100; i++) {
+            cache.put("long_" + i, new String(longValue));
+        }
+        assertTrue(cache.getStatistics().getEvictions() >= 80);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put("short_" + i, "group_" + i);
+        }
+        assertEquals("group_99", cache.get("short_99"));
+    }
+}
@@ -0,0 +1,53 @@
+package eu.dl.core.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import eu.dl.core.config.MisconfigurationException;
+
+/**
+ * Test of reading of the named cache settings.
+ */
+public final class CacheSettingsTest {
+
+    /**
+     * Configured settings of the cache override the defaults, the other caches keep the defaults.
+     */
+    @Test
+    public void fromConfigTest() {
+        Map<String, String> params = Map.of(
+            "cache.hashes.capacity", "1000",
+            "cache.hashes.eviction", "memory",
+            "cache.hashes.expiry", "3600",
+            "cache.hashes.redis", "true");
+
+        CacheSettings defaults = new CacheSettings().setImplementation("cache2k").setCapacity(50);
+
+        CacheSettings settings = CacheSettings.fromConfig("hashes", defaults, params::get);
+        assertEquals("cache2k", settings.getImplementation());
+        assertEquals(1000, settings.getCapacity());
+        assertEquals(CacheSettings.EvictionPolicy.MEMORY, settings.getEviction());
+        assertEquals(Long.valueOf(3600), settings.getExpiry());
+        assertTrue(settings.isRedis());
+
+        settings = CacheSettings.fromConfig("other", defaults, params::get);
+        assertEquals(50, settings.getCapacity());
+        assertEquals(CacheSettings.EvictionPolicy.ENTRIES, settings.getEviction());
+        assertNull(settings.getExpiry());
+        assertFalse(settings.isRedis());
+    }
+
+    /**
+     * Unknown eviction policy is a misconfiguration.
+     */
+    @Test(expected = MisconfigurationException.class)
+    public void unknownEvictionTest() {
+        CacheSettings.fromConfig("hashes", new CacheSettings(), Map.of("cache.hashes.eviction", "random")::get);
+    }
+}
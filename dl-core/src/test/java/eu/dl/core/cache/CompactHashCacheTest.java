@@ -0,0 +1,117 @@
+package eu.dl.core.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test of compact hash cache.
+ */
+public final class CompactHashCacheTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test of put and get, including overwriting and the resizing of the arrays.
+     */
+    @Test
+    public void putGetTest() {
+        CompactHashCache cache = new CompactHashCache("test::");
+        assertNull(cache.get("missing"));
+
+        cache.put("a", "group_1");
+        cache.put("b", "group_1");
+        cache.put("a", "group_2");
+        assertEquals("group_2", cache.get("a"));
+        assertEquals("group_1", cache.get("b"));
+        assertEquals(2, cache.size());
+
+        Map<String, String> expected = fill(cache, 100000);
+        expected.forEach((k, v) -> assertEquals(v, cache.get(k)));
+        assertEquals(expected.size() + 2, cache.size());
+        assertNull(cache.get("missing"));
+    }
+
+    /**
+     * Test of saving and loading of the snapshot. The loaded cache with different prefix doesn't find the keys.
+     *
+     * @throws IOException
+     *      in case of temporary file failure
+     */
+    @Test
+    public void snapshotTest() throws IOException {
+        CompactHashCache cache = new CompactHashCache("test::");
+        Map<String, String> expected = fill(cache, 50000);
+
+        Path file = folder.getRoot().toPath().resolve("cache.snapshot");
+        cache.snapshot(file);
+        assertFalse(Files.exists(file.resolveSibling("cache.snapshot.tmp")));
+
+        CompactHashCache loaded = CompactHashCache.load(file, "test::");
+        assertEquals(cache.size(), loaded.size());
+        expected.forEach((k, v) -> assertEquals(v, loaded.get(k)));
+
+        // loaded cache is modifiable
+        loaded.put("new", "group_new");
+        assertEquals("group_new", loaded.get("new"));
+
+        CompactHashCache other = CompactHashCache.load(file, "other::");
+        assertNull(other.get(expected.keySet().iterator().next()));
+    }
+
+    /**
+     * Bulk put and get return the same values as the single key operations.
+     */
+    @Test
+    public void bulkTest() {
+        CompactHashCache cache = new CompactHashCache("test::");
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            expected.put("hash_" + i, "group_" + (i % 13));
+        }
+        cache.putAll(expected);
+        assertEquals(expected.size(), cache.size());
+        expected.forEach((k, v) -> assertEquals(v, cache.get(k)));
+
+        cache.put("single", "group_single");
+        Map<String, String> found = cache.getAll(Arrays.asList("hash_1", "single", "missing"));
+        assertEquals(2, found.size());
+        assertEquals("group_1", found.get("hash_1"));
+        assertEquals("group_single", found.get("single"));
+    }
+
+    /**
+     * Fills the cache with random hashes and groups.
+     *
+     * @param cache
+     *      cache
+     * @param count
+     *      number of entries
+     * @return expected content of the cache
+     */
+    private static Map<String, String> fill(final CompactHashCache cache, final int count) {
+        Random random = new Random(count);
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String key = "hash::" + Long.toHexString(random.nextLong());
+            String value = "group_" + random.nextInt(count / 10);
+            cache.put(key, value);
+            expected.put(key, value);
+        }
+
+        return expected;
+    }
+}
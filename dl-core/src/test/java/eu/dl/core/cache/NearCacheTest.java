@@ -0,0 +1,81 @@
+package eu.dl.core.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.lettuce.core.RedisURI;
+
+/**
+ * Test of two-level cache with the local level in cache2k and the remote one in {@link RedisStandIn}.
+ */
+public final class NearCacheTest {
+
+    private RedisStandIn server;
+
+    private RedisCache remote;
+
+    /**
+     * Starts the server and connects the remote cache.
+     *
+     * @throws IOException
+     *      in case the server can't be started
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new RedisStandIn();
+        remote = new RedisCache("test::", RedisURI.create("127.0.0.1", server.getPort()));
+    }
+
+    /**
+     * Disconnects the remote cache and stops the server.
+     *
+     * @throws IOException
+     *      in case of closing failure
+     */
+    @After
+    public void tearDown() throws IOException {
+        remote.connection.close();
+        remote.client.shutdown();
+        server.close();
+    }
+
+    /**
+     * Values are written to both levels, values missing in the local level are read from the remote one and kept
+     * locally.
+     */
+    @Test
+    public void twoLevelTest() {
+        NearCache cache = new NearCache(new Cache2kCache("twoLevelTest", "test::", new CacheSettings()), remote);
+
+        cache.put("a", "group_1");
+        assertEquals("group_1", server.data.get("test::a"));
+        assertEquals("group_1", cache.get("a"));
+        assertEquals(0, server.count("GET"));
+
+        // written by another process
+        server.data.put("test::b", "group_2");
+        server.data.put("test::c", "group_3");
+        assertEquals("group_2", cache.get("b"));
+        assertEquals("group_2", cache.get("b"));
+        assertEquals(1, server.count("GET"));
+
+        Map<String, String> found = cache.getAll(Arrays.asList("a", "b", "c", "missing"));
+        assertEquals(3, found.size());
+        assertEquals("group_3", found.get("c"));
+        assertEquals(1, server.count("MGET"));
+        assertEquals("group_3", cache.get("c"));
+        assertNull(cache.get("missing"));
+        assertEquals(2, server.count("GET"));
+
+        assertEquals(7, cache.getStatistics().getHits());
+        assertEquals(2, cache.getStatistics().getMisses());
+    }
+}
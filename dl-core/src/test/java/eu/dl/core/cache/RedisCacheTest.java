@@ -0,0 +1,94 @@
+package eu.dl.core.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.lettuce.core.RedisURI;
+
+/**
+ * Test of Redis cache against a minimal in-process server speaking the Redis protocol, see {@link RedisStandIn}.
+ */
+public final class RedisCacheTest {
+
+    private RedisStandIn server;
+
+    private RedisCache cache;
+
+    /**
+     * Starts the server and connects the cache.
+     *
+     * @throws IOException
+     *      in case the server can't be started
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new RedisStandIn();
+        cache = new RedisCache("test::", RedisURI.create("127.0.0.1", server.getPort()));
+    }
+
+    /**
+     * Disconnects the cache and stops the server.
+     *
+     * @throws IOException
+     *      in case of closing failure
+     */
+    @After
+    public void tearDown() throws IOException {
+        cache.connection.close();
+        cache.client.shutdown();
+        server.close();
+    }
+
+    /**
+     * Test of single key put and get.
+     */
+    @Test
+    public void putGetTest() {
+        assertNull(cache.get("missing"));
+        cache.put("a", "group_1");
+        assertEquals("group_1", cache.get("a"));
+        assertEquals("group_1", server.data.get("test::a"));
+    }
+
+    /**
+     * Bulk put and get are sent as a few MGET/MSET commands and return the same values as the single key operations.
+     */
+    @Test
+    public void bulkTest() {
+        Map<String, String> items = new HashMap<>();
+        for (int i = 0; i < 2500; i++) {
+            items.put("hash_" + i, "group_" + (i % 7));
+        }
+        cache.putAll(items);
+        assertEquals(3, server.count("MSET"));
+        assertEquals(0, server.count("SET"));
+
+        cache.put("single", "group_single");
+
+        List<String> keys = new ArrayList<>(items.keySet());
+        keys.addAll(Arrays.asList("single", "missing_1", "missing_2"));
+        Map<String, String> found = cache.getAll(keys);
+        assertEquals(3, server.count("MGET"));
+        assertEquals(0, server.count("GET"));
+
+        assertEquals(items.size() + 1, found.size());
+        items.forEach((k, v) -> assertEquals(v, found.get(k)));
+        assertEquals("group_single", found.get("single"));
+        assertTrue(!found.containsKey("missing_1"));
+
+        assertEquals(items.get("hash_42"), cache.get("hash_42"));
+        assertTrue(cache.getAll(new ArrayList<>()).isEmpty());
+    }
+}
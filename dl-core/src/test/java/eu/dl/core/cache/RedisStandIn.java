@@ -0,0 +1,225 @@
+package eu.dl.core.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process server which supports GET, SET, MGET, MSET and PING commands of the Redis protocol.
+ */
+final class RedisStandIn implements Runnable {
+    private final ServerSocket server;
+
+    /**
+     * Stored values by keys.
+     */
+    final Map<String, String> data = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Starts the server on a free local port.
+     *
+     * @throws IOException
+     *      in case the socket can't be opened
+     */
+    RedisStandIn() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(this, "redis-stand-in");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread thread = new Thread(() -> serve(socket), "redis-stand-in-connection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException ex) {
+                // server closed
+            }
+        }
+    }
+
+    /**
+     * Serves commands of one connection.
+     *
+     * @param socket
+     *      client socket
+     */
+    private void serve(final Socket socket) {
+        try (socket) {
+            InputStream input = new BufferedInputStream(socket.getInputStream());
+            OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+            List<String> command;
+            while ((command = readCommand(input)) != null) {
+                execute(command, output);
+                if (input.available() == 0) {
+                    output.flush();
+                }
+            }
+        } catch (IOException ex) {
+            // connection closed
+        }
+    }
+
+    /**
+     * Executes the command and writes the reply.
+     *
+     * @param command
+     *      command name and arguments
+     * @param output
+     *      output stream
+     * @throws IOException
+     *      in case of writing failure
+     */
+    private void execute(final List<String> command, final OutputStream output) throws IOException {
+        String name = command.get(0).toUpperCase();
+        counts.computeIfAbsent(name, n -> new AtomicInteger()).incrementAndGet();
+        switch (name) {
+            case "PING":
+                write(output, "+PONG\r\n");
+                break;
+            case "GET":
+                writeBulk(output, data.get(command.get(1)));
+                break;
+            case "SET":
+                data.put(command.get(1), command.get(2));
+                write(output, "+OK\r\n");
+                break;
+            case "MGET":
+                write(output, "*" + (command.size() - 1) + "\r\n");
+                for (String key : command.subList(1, command.size())) {
+                    writeBulk(output, data.get(key));
+                }
+                break;
+            case "MSET":
+                for (int i = 1; i + 1 < command.size(); i += 2) {
+                    data.put(command.get(i), command.get(i + 1));
+                }
+                write(output, "+OK\r\n");
+                break;
+            default:
+                write(output, "-ERR unknown command '" + name + "'\r\n");
+        }
+    }
+
+    /**
+     * @param name
+     *      command name
+     * @return number of received commands with the given name
+     */
+    int count(final String name) {
+        AtomicInteger count = counts.get(name);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return server port
+     */
+    int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Stops the server.
+     *
+     * @throws IOException
+     *      in case of closing failure
+     */
+    void close() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Reads command sent as an array of bulk strings.
+     *
+     * @param input
+     *      input stream
+     * @return command name and arguments or null at the end of the stream
+     * @throws IOException
+     *      in case of reading failure
+     */
+    private static List<String> readCommand(final InputStream input) throws IOException {
+        String header = readLine(input);
+        if (header == null) {
+            return null;
+        }
+
+        int count = Integer.parseInt(header.substring(1));
+        List<String> command = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = Integer.parseInt(readLine(input).substring(1));
+            byte[] bytes = input.readNBytes(length + 2);
+            command.add(new String(bytes, 0, length, StandardCharsets.UTF_8));
+        }
+
+        return command;
+    }
+
+    /**
+     * @param input
+     *      input stream
+     * @return line without the trailing CRLF or null at the end of the stream
+     * @throws IOException
+     *      in case of reading failure
+     */
+    private static String readLine(final InputStream input) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = input.read()) != '\n') {
+            if (c == -1) {
+                return null;
+            } else if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+
+        return line.toString();
+    }
+
+    /**
+     * @param output
+     *      output stream
+     * @param value
+     *      value written as bulk string, null value is written as nil
+     * @throws IOException
+     *      in case of writing failure
+     */
+    private static void writeBulk(final OutputStream output, final String value) throws IOException {
+        if (value == null) {
+            write(output, "$-1\r\n");
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            write(output, "$" + bytes.length + "\r\n");
+            output.write(bytes);
+            write(output, "\r\n");
+        }
+    }
+
+    /**
+     * @param output
+     *      output stream
+     * @param reply
+     *      reply
+     * @throws IOException
+     *      in case of writing failure
+     */
+    private static void write(final OutputStream output, final String reply) throws IOException {
+        output.write(reply.getBytes(StandardCharsets.UTF_8));
+    }
+}
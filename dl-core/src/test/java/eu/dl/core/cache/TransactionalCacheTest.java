@@ -0,0 +1,68 @@
+package eu.dl.core.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ * Test of transactional cache wrapping the compact hash cache.
+ */
+public final class TransactionalCacheTest {
+
+    /**
+     * Pending values are visible only to the writing thread until the commit, the rollback discards them.
+     *
+     * @throws Exception
+     *      in case the other thread fails
+     */
+    @Test
+    public void commitRollbackTest() throws Exception {
+        CompactHashCache wrapped = new CompactHashCache("test::");
+        wrapped.put("a", "group_1");
+        TransactionalCache cache = new TransactionalCache(wrapped);
+
+        cache.put("a", "group_2");
+        cache.putAll(Map.of("b", "group_3"));
+        assertEquals("group_2", cache.get("a"));
+        assertEquals(Map.of("a", "group_2", "b", "group_3"), cache.getAll(Arrays.asList("a", "b", "c")));
+        assertEquals("group_1", inOtherThread(cache, "a"));
+        assertNull(inOtherThread(cache, "b"));
+
+        cache.rollback();
+        assertEquals("group_1", cache.get("a"));
+        assertNull(cache.get("b"));
+
+        cache.put("b", "group_3");
+        cache.commit();
+        assertEquals("group_3", wrapped.get("b"));
+        assertEquals("group_3", inOtherThread(cache, "b"));
+
+        // nothing is pending after the commit
+        cache.rollback();
+        assertEquals("group_3", cache.get("b"));
+    }
+
+    /**
+     * @param cache
+     *      cache
+     * @param key
+     *      key
+     * @return value read by another thread
+     * @throws Exception
+     *      in case the other thread fails
+     */
+    private static String inOtherThread(final Cache cache, final String key) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(() -> cache.get(key)).get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
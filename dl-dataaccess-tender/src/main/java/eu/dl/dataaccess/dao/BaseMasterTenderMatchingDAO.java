@@ -21,6 +21,21 @@ public interface BaseMasterTenderMatchingDAO {
      * @param page
      *            order of the page in the result (for first page set 0)
      * @return set of objects modified after timestamp or empty list
+     * @deprecated deep pages are slow, use
+     *      {@link #getModifiedAfterForBuyerProfileMatching(PageCursor, String)} instead
      */
+    @Deprecated
     List<MasterTender> getModifiedAfterForBuyerProfileMatching(LocalDateTime timestamp, String createdBy, Integer page);
+
+    /**
+     * Same as {@link #getModifiedAfterForBuyerProfileMatching(LocalDateTime, String, Integer)} but the page is given
+     * by the cursor (keyset pagination), see {@link PageCursor}.
+     *
+     * @param cursor
+     *            objects following this position will be returned
+     * @param createdBy
+     *            "author" of the change
+     * @return set of objects modified after cursor or empty list
+     */
+    List<MasterTender> getModifiedAfterForBuyerProfileMatching(PageCursor cursor, String createdBy);
 }
@@ -49,6 +49,42 @@ public interface BaseMasterTenderOpentenderDAO {
      */
     List<MasterTender> getModifiedAfter(LocalDateTime timestamp, String createdBy, String countryCode, Integer page, boolean opentender);
 
+    /**
+     * Returns objects which has been modified after the cursor position by certain source, ordered by modification
+     * timestamp and id. Keyset variant of
+     * {@link BaseMasterTenderOpentenderDAO#getModifiedAfter(LocalDateTime, String, String, Integer, boolean, Integer)}.
+     *
+     * @param cursor
+     *            objects following this position will be returned
+     * @param createdBy
+     *            "author" of the change
+     * @param countryCode
+     *            country code
+     * @param opentender
+     *          whether returns only opentender records (tender.metaData.opentender = true)
+     * @param pageSize
+     *      page size
+     * @return set of objects modified after cursor
+     */
+    List<MasterTender> getModifiedAfter(PageCursor cursor, String createdBy, String countryCode, boolean opentender,
+                                        Integer pageSize);
+
+    /**
+     * Same as {@link BaseMasterTenderOpentenderDAO#getModifiedAfter(PageCursor, String, String, boolean, Integer)} but
+     * uses default page size.
+     *
+     * @param cursor
+     *            objects following this position will be returned
+     * @param createdBy
+     *            "author" of the change
+     * @param countryCode
+     *            country code
+     * @param opentender
+     *          whether returns only opentender records (tender.metaData.opentender = true)
+     * @return set of objects modified after cursor
+     */
+    List<MasterTender> getModifiedAfter(PageCursor cursor, String createdBy, String countryCode, boolean opentender);
+
     /**
      * Returns count of objects which has been modified after timestamp.
      *
@@ -5,6 +5,7 @@ import eu.dl.dataaccess.dto.master.MasterTender;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * DAO for mastered body.
@@ -127,6 +128,19 @@ public interface MasterTenderDAO<T extends MasterTender> extends MasterDAO<T> {
      */
     List<T> getByCountry(String countryCode, Integer page, String source, Integer pageSize);
 
+    /**
+     * Passes all the master items for a specific country and source to the action one by one. The items are streamed
+     * from the storage, so the whole country is read at once without paging and in constant memory.
+     *
+     * @param countryCode
+     *            ISO country code
+     * @param source
+     *          source
+     * @param action
+     *          action performed for each item
+     */
+    void forEachByCountry(String countryCode, String source, Consumer<T> action);
+
     /**
      * Returns list of tender ids modified by source and version. The IDs are sorted.
      *
@@ -137,6 +151,19 @@ public interface MasterTenderDAO<T extends MasterTender> extends MasterDAO<T> {
      */
     List<String> getIdsBySourceAndVersion(String name, String version);
 
+    /**
+     * Returns one page of tender ids modified by source and version. The IDs are sorted and the page is sought by the
+     * primary key, pass the last id of the previous page to get the next one.
+     *
+     * @param name worker name
+     * @param version worker version
+     * @param lastId last id of the previous page, null for the first page
+     * @param pageSize page size
+     *
+     * @return list of tender ids
+     */
+    List<String> getIdsBySourceAndVersion(String name, String version, String lastId, Integer pageSize);
+
     /**
      * Returns last date of publication before {@code maxDate} for the given worker and version.
      *
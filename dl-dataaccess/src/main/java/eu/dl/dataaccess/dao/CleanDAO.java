@@ -2,6 +2,7 @@ package eu.dl.dataaccess.dao;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Clean item DAO interface. Specifies methods for manipulating data about items
@@ -47,6 +48,24 @@ public interface CleanDAO<T> {
      */
     List<T> getMine(String name, String version, String fromDate, String toDate);
 
+    /**
+     * Passes ids of the objects stored by the particular version of the worker to the action one by one. Unlike
+     * {@link CleanDAO#getMine(String, String, String, String)} the ids are streamed from the database, so any number of
+     * them is processed in constant memory.
+     *
+     * @param name
+     *            worker name
+     * @param version
+     *            worker version
+     * @param fromDate
+     *            from date
+     * @param toDate
+     *            to date
+     * @param action
+     *            action performed for each id
+     */
+    void forEachMineId(String name, String version, String fromDate, String toDate, Consumer<String> action);
+
     /**
      * Returns objects which has been modified after timestamp. The result is paged with {@code pageSize} records per page.
      *
@@ -135,6 +154,36 @@ public interface CleanDAO<T> {
      */
     List<T> getModifiedAfter(LocalDateTime timestamp, String createdBy, String country, Integer page);
 
+    /**
+     * Returns objects which has been modified after the cursor position by certain source, ordered by modification
+     * timestamp and id. Unlike {@link CleanDAO#getModifiedAfter(LocalDateTime, String, String, Integer, Integer)} the page is
+     * sought by the index, use {@link PageCursor#next(List)} to get cursor of the following page.
+     *
+     * @param cursor
+     *            objects following this position will be returned
+     * @param createdBy
+     *            "author" of the change
+     * @param country
+     *            country code
+     * @param pageSize
+     *      page size
+     * @return set of objects modified after cursor
+     */
+    List<T> getModifiedAfter(PageCursor cursor, String createdBy, String country, Integer pageSize);
+
+    /**
+     * Same as {@link CleanDAO#getModifiedAfter(PageCursor, String, String, Integer)} but uses default page size.
+     *
+     * @param cursor
+     *            objects following this position will be returned
+     * @param createdBy
+     *            "author" of the change
+     * @param country
+     *            country code
+     * @return set of objects modified after cursor
+     */
+    List<T> getModifiedAfter(PageCursor cursor, String createdBy, String country);
+
     /**
      * Returns new instance of T.
      *
@@ -1,5 +1,8 @@
 package eu.dl.dataaccess.dao;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * Transaction utils used when there is no transaction handling needed at all.
  * 
@@ -8,6 +11,8 @@ package eu.dl.dataaccess.dao;
  */
 public class DummyTransactionUtils implements TransactionUtils {
 
+    private final List<Runnable> commitListeners = new CopyOnWriteArrayList<>();
+
     @Override
     public void begin() {
         // TODO Auto-generated method stub
@@ -16,8 +21,7 @@ public class DummyTransactionUtils implements TransactionUtils {
 
     @Override
     public void commit() {
-        // TODO Auto-generated method stub
-
+        commitListeners.forEach(Runnable::run);
     }
 
     @Override
@@ -26,4 +30,14 @@ public class DummyTransactionUtils implements TransactionUtils {
 
     }
 
+    @Override
+    public void release() {
+        // nothing to release
+    }
+
+    @Override
+    public void addCommitListener(final Runnable listener) {
+        commitListeners.add(listener);
+    }
+
 }
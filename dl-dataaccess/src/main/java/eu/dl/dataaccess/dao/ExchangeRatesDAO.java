@@ -31,7 +31,7 @@ public interface ExchangeRatesDAO<ExchangeRates> {
     ExchangeRates getByDate(LocalDate date);
     
     /**
-     * Returns all exchange rates.
+     * Returns all exchange rates ordered by date.
      *
      * @return set of objects or empty list.
      */
@@ -1,7 +1,9 @@
 package eu.dl.dataaccess.dao;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * @param <T>
@@ -18,6 +20,15 @@ public interface GenericDAO<T> extends BaseDAO<T> {
      */
     String save(T t);
 
+    /**
+     * Saves all the objects at once and returns their ids.
+     *
+     * @param items
+     *            objects to be saved
+     * @return saved ids in the order of the given objects
+     */
+    List<String> saveAll(Collection<T> items);
+
     /**
      * Returns object identified by the id.
      *
@@ -53,6 +64,24 @@ public interface GenericDAO<T> extends BaseDAO<T> {
      */
     List<T> getMine(String name, String version, String fromDate, String toDate);
 
+    /**
+     * Passes ids of the objects stored by the particular version of the worker to the action one by one. Unlike
+     * {@link GenericDAO#getMine(String, String, String, String)} the ids are streamed from the database, so any number of
+     * them is processed in constant memory.
+     *
+     * @param name
+     *            worker name
+     * @param version
+     *            worker version
+     * @param fromDate
+     *            from date
+     * @param toDate
+     *            to date
+     * @param action
+     *            action performed for each id
+     */
+    void forEachMineId(String name, String version, String fromDate, String toDate, Consumer<String> action);
+
     /**
      * Returns objects which has been modified after timestamp. The result is paged with {@code pageSize} records per page.
      *
@@ -142,6 +171,36 @@ public interface GenericDAO<T> extends BaseDAO<T> {
      */
     List<T> getModifiedAfter(LocalDateTime timestamp, String createdBy, String countryCode, Integer page);
 
+    /**
+     * Returns objects which has been modified after the cursor position by certain source, ordered by modification
+     * timestamp and id. Unlike {@link GenericDAO#getModifiedAfter(LocalDateTime, String, String, Integer, Integer)} the page is
+     * sought by the index, use {@link PageCursor#next(List)} to get cursor of the following page.
+     *
+     * @param cursor
+     *            objects following this position will be returned
+     * @param createdBy
+     *            "author" of the change
+     * @param country
+     *            country code
+     * @param pageSize
+     *      page size
+     * @return set of objects modified after cursor
+     */
+    List<T> getModifiedAfter(PageCursor cursor, String createdBy, String country, Integer pageSize);
+
+    /**
+     * Same as {@link GenericDAO#getModifiedAfter(PageCursor, String, String, Integer)} but uses default page size.
+     *
+     * @param cursor
+     *            objects following this position will be returned
+     * @param createdBy
+     *            "author" of the change
+     * @param country
+     *            country code
+     * @return set of objects modified after cursor
+     */
+    List<T> getModifiedAfter(PageCursor cursor, String createdBy, String country);
+
     /**
      * Returns count of objects which has been modified after timestamp by certain
      * source.
@@ -175,4 +234,17 @@ public interface GenericDAO<T> extends BaseDAO<T> {
      * @return list of object ids
      */
     List<String> getIdsBySourceAndVersion(String name, String version);
+
+    /**
+     * Returns one page of object ids modified by source and version. The IDs are sorted and the page is sought by the
+     * primary key, pass the last id of the previous page to get the next one.
+     *
+     * @param name worker name
+     * @param version worker version
+     * @param lastId last id of the previous page, null for the first page
+     * @param pageSize page size
+     *
+     * @return list of object ids
+     */
+    List<String> getIdsBySourceAndVersion(String name, String version, String lastId, Integer pageSize);
 }
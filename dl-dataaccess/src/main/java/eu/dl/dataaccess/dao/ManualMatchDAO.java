@@ -1,6 +1,8 @@
 package eu.dl.dataaccess.dao;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 import eu.dl.dataaccess.dto.matched.ManualMatch;
 
@@ -31,4 +33,23 @@ public interface ManualMatchDAO<T> {
      * @return list of objects
      */
 	List<ManualMatch> getAllEntries(String flag);
+
+    /**
+     * Passes all stored matches for a flag to the action one by one. Unlike {@link #getAllEntries(String)} the
+     * matches are streamed from the database, so any number of them is processed in constant memory.
+     *
+     * @param flag flag/type of the item
+     * @param action action performed for each match
+     */
+    void forEachEntry(String flag, Consumer<ManualMatch> action);
+
+    /**
+     * Returns stored matches for a flag modified at the given time or later, ordered by the modification time.
+     *
+     * @param flag flag/type of the item
+     * @param since the earliest modification time
+     *
+     * @return list of objects with the modification time set
+     */
+    List<ManualMatch> getModifiedSince(String flag, LocalDateTime since);
 }
@@ -4,6 +4,7 @@ import eu.dl.dataaccess.dto.master.MasterBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * DAO for mastered body.
@@ -118,4 +119,12 @@ public interface MasterBodyDAO<T extends MasterBody> extends MasterDAO<T> {
      * @return boolean
      */
     boolean existsInPoliticalExposedPersons(String bvdIdNumber);
+
+    /**
+     * Passes BVD ids of all the political exposed persons to the action one by one, so the whole table can be
+     * loaded at once.
+     *
+     * @param action action performed for each BVD id
+     */
+    void forEachPoliticalExposedPersonId(Consumer<String> action);
 }
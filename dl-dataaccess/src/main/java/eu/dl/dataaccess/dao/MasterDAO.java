@@ -41,6 +41,16 @@ public interface MasterDAO<T> {
      */
     String save(T masteredItem);
 
+    /**
+     * Saves given items to persistent storage at once.
+     *
+     * @param masteredItems
+     *            mastered items to be saved
+     *
+     * @return ids of saved items in the same order
+     */
+    List<String> saveAll(Collection<T> masteredItems);
+
     /**
      * Returns objects which has been modified after timestamp. The result is paged with {@code pageSize} records per page.
      *
@@ -129,6 +139,36 @@ public interface MasterDAO<T> {
      */
     List<T> getModifiedAfter(LocalDateTime timestamp, String createdBy, String country, Integer page);
 
+    /**
+     * Returns objects which has been modified after the cursor position by certain source, ordered by modification
+     * timestamp and id. Unlike {@link MasterDAO#getModifiedAfter(LocalDateTime, String, String, Integer, Integer)} the page is
+     * sought by the index, use {@link PageCursor#next(List)} to get cursor of the following page.
+     *
+     * @param cursor
+     *            objects following this position will be returned
+     * @param createdBy
+     *            "author" of the change
+     * @param country
+     *            country code
+     * @param pageSize
+     *      page size
+     * @return set of objects modified after cursor
+     */
+    List<T> getModifiedAfter(PageCursor cursor, String createdBy, String country, Integer pageSize);
+
+    /**
+     * Same as {@link MasterDAO#getModifiedAfter(PageCursor, String, String, Integer)} but uses default page size.
+     *
+     * @param cursor
+     *            objects following this position will be returned
+     * @param createdBy
+     *            "author" of the change
+     * @param country
+     *            country code
+     * @return set of objects modified after cursor
+     */
+    List<T> getModifiedAfter(PageCursor cursor, String createdBy, String country);
+
     /**
      * Returns new instance of T.
      *
@@ -0,0 +1,405 @@
+package eu.dl.dataaccess.dao;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import eu.dl.dataaccess.dto.codetables.BodyIdentifier;
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+
+/**
+ * Union of the exact and approximate matching pools of several bodies fetched at once, see
+ * {@link MatchedBodyDAO#getMatchBodiesPools(Collection)}. The pool of each body is then selected from memory by the
+ * same conditions as {@link ExactMatchBodyDAO#getExactMatchBodiesPool(String, String, List)} and
+ * {@link ApproximateMatchBodyDAO#getApproximateMatchBodiesPool(String, String, List, String)} use. The selected pools
+ * are {@link Selection}s, so the data the matching derives from a pool body (eg. its fingerprint) can be attached to
+ * the body and computed only once for all the bodies matched with these pools. The bodies and the keys are immutable,
+ * the attachments are thread-safe.
+ *
+ * @param <T>
+ *      class of the pool body
+ */
+public final class MatchedBodiesPool<T extends MatchedBody> {
+
+    private final Keys keys;
+
+    private final List<T> bodies;
+
+    private final Map<String, List<Integer>> byName = new HashMap<>();
+
+    private final Map<String, List<Integer>> byAddress = new HashMap<>();
+
+    private final Map<String, List<Integer>> byDigest = new HashMap<>();
+
+    private final Map<String, List<Integer>> byBodyId = new HashMap<>();
+
+    /**
+     * Type of the attached data -> data attached to each body, indexed by the position of the body.
+     */
+    private final Map<Class<?>, AtomicReferenceArray<Object>> attachments = new ConcurrentHashMap<>();
+
+    /**
+     * Type of the attached data -> data attached to the whole pools.
+     */
+    private final Map<Class<?>, Object> poolsAttachments = new ConcurrentHashMap<>();
+
+    /**
+     * Keys the pools are searched by.
+     */
+    public static final class Keys {
+
+        private final Function<String, String> normalizer;
+
+        private final Set<String> names = new TreeSet<>();
+
+        private final Set<String> addresses = new TreeSet<>();
+
+        private final Set<String> digests = new TreeSet<>();
+
+        private final Map<String, BodyIdentifier> bodyIds = new HashMap<>();
+
+        /**
+         * Collects keys of the given bodies.
+         *
+         * @param bodies
+         *      bodies, nulls are skipped
+         * @param normalizer
+         *      function which converts standardized name, standardized address and digest of the searched body to
+         *      the form the pool bodies are compared with
+         */
+        public Keys(final Collection<? extends MatchedBody> bodies, final Function<String, String> normalizer) {
+            this.normalizer = normalizer;
+            for (MatchedBody body : bodies) {
+                if (body != null) {
+                    addIfNotNull(names, body.getStandardizedName());
+                    addIfNotNull(addresses, body.getStandardizedAddress());
+                    addIfNotNull(digests, body.getDigest());
+                    if (body.getBodyIds() != null) {
+                        for (BodyIdentifier id : body.getBodyIds()) {
+                            if (isValid(id)) {
+                                bodyIds.putIfAbsent(key(id), id);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return normalized standardized names
+         */
+        public Set<String> getNames() {
+            return Collections.unmodifiableSet(names);
+        }
+
+        /**
+         * @return normalized standardized addresses
+         */
+        public Set<String> getAddresses() {
+            return Collections.unmodifiableSet(addresses);
+        }
+
+        /**
+         * @return normalized digests
+         */
+        public Set<String> getDigests() {
+            return Collections.unmodifiableSet(digests);
+        }
+
+        /**
+         * @return body identifiers with not null id and scope
+         */
+        public Collection<BodyIdentifier> getBodyIds() {
+            return Collections.unmodifiableCollection(bodyIds.values());
+        }
+
+        /**
+         * @return true if there is no key
+         */
+        public boolean isEmpty() {
+            return names.isEmpty() && addresses.isEmpty() && digests.isEmpty() && bodyIds.isEmpty();
+        }
+
+        /**
+         * Adds the normalized value.
+         *
+         * @param set
+         *      target set
+         * @param value
+         *      value, nothing is added for null
+         */
+        private void addIfNotNull(final Set<String> set, final String value) {
+            if (value != null) {
+                set.add(normalizer.apply(value));
+            }
+        }
+    }
+
+    /**
+     * @param keys
+     *      keys the pools have been fetched by
+     * @param bodies
+     *      union of the pools, ie. all the bodies which match any of the keys
+     */
+    public MatchedBodiesPool(final Keys keys, final List<T> bodies) {
+        this.keys = keys;
+        this.bodies = bodies;
+
+        for (int i = 0; i < bodies.size(); i++) {
+            T body = bodies.get(i);
+            index(byName, body.getStandardizedName(), i);
+            index(byAddress, body.getStandardizedAddress(), i);
+            index(byDigest, body.getDigest(), i);
+            if (body.getBodyIds() != null) {
+                for (BodyIdentifier id : body.getBodyIds()) {
+                    if (isValid(id)) {
+                        index(byBodyId, key(id), i);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of bodies in all the pools
+     */
+    public int size() {
+        return bodies.size();
+    }
+
+    /**
+     * Returns the pool for exact matching.
+     *
+     * @param standardizedName
+     *          standardized name
+     * @param standardizedAddress
+     *          standardized address
+     * @param bodyIds
+     *          list of body identifiers
+     * @return list of bodies or null if the pool hasn't been fetched for all the given keys
+     */
+    public List<T> getExactMatchBodiesPool(final String standardizedName, final String standardizedAddress,
+                                           final List<BodyIdentifier> bodyIds) {
+        return getApproximateMatchBodiesPool(standardizedName, standardizedAddress, bodyIds, null);
+    }
+
+    /**
+     * Returns the pool for approximate matching.
+     *
+     * @param standardizedName
+     *          standardized name
+     * @param standardizedAddress
+     *          standardized address
+     * @param bodyIds
+     *          list of body identifiers
+     * @param digest
+     *          body digest
+     * @return list of bodies or null if the pool hasn't been fetched for all the given keys
+     */
+    public List<T> getApproximateMatchBodiesPool(final String standardizedName, final String standardizedAddress,
+                                                 final List<BodyIdentifier> bodyIds, final String digest) {
+        // indices of the pool bodies in the fetched order
+        final Set<Integer> found = new TreeSet<>();
+
+        if (standardizedName != null && !select(keys.names, byName, keys.normalizer.apply(standardizedName), found)) {
+            return null;
+        }
+        if (standardizedAddress != null
+            && !select(keys.addresses, byAddress, keys.normalizer.apply(standardizedAddress), found)) {
+            return null;
+        }
+        if (digest != null && !select(keys.digests, byDigest, keys.normalizer.apply(digest), found)) {
+            return null;
+        }
+        if (bodyIds != null) {
+            for (BodyIdentifier id : bodyIds) {
+                if (isValid(id) && !select(keys.bodyIds.keySet(), byBodyId, key(id), found)) {
+                    return null;
+                }
+            }
+        }
+
+        return new Selection<>(this, found.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Returns the data of the given type attached to the body, the data are computed by the factory when they are
+     * requested for the first time. The factory may be called more than once for the same body by concurrent threads,
+     * but all of them get the same instance.
+     *
+     * @param position
+     *      position of the body in the pools
+     * @param type
+     *      type of the attached data
+     * @param factory
+     *      function which computes the data from the body
+     * @param <A>
+     *      type of the attached data
+     * @return attached data
+     */
+    public <A> A getAttachment(final int position, final Class<A> type,
+                               final Function<? super T, ? extends A> factory) {
+        final AtomicReferenceArray<Object> attached =
+            attachments.computeIfAbsent(type, k -> new AtomicReferenceArray<>(bodies.size()));
+
+        final Object current = attached.get(position);
+        if (current != null) {
+            return type.cast(current);
+        }
+
+        final A computed = factory.apply(bodies.get(position));
+        return attached.compareAndSet(position, null, computed) ? computed : type.cast(attached.get(position));
+    }
+
+    /**
+     * Returns the data of the given type attached to the whole pools (eg. an index of all the pool bodies), the data are
+     * computed by the factory when they are requested for the first time.
+     *
+     * @param type
+     *      type of the attached data
+     * @param factory
+     *      function which computes the data from the pools
+     * @param <A>
+     *      type of the attached data
+     * @return attached data
+     */
+    public <A> A getAttachment(final Class<A> type,
+                               final Function<? super MatchedBodiesPool<T>, ? extends A> factory) {
+        return type.cast(poolsAttachments.computeIfAbsent(type, k -> factory.apply(this)));
+    }
+
+    /**
+     * Pool of one body selected from the pools. The list remembers the positions of its bodies in the pools, so the
+     * data attached to the bodies are shared by all the selections. The list is unmodifiable.
+     *
+     * @param <T>
+     *      class of the pool body
+     */
+    public static final class Selection<T extends MatchedBody> extends AbstractList<T> implements RandomAccess {
+
+        private final MatchedBodiesPool<T> pools;
+
+        private final int[] positions;
+
+        /**
+         * @param pools
+         *      pools the bodies are selected from
+         * @param positions
+         *      positions of the selected bodies in the pools
+         */
+        private Selection(final MatchedBodiesPool<T> pools, final int[] positions) {
+            this.pools = pools;
+            this.positions = positions;
+        }
+
+        @Override
+        public T get(final int index) {
+            return pools.bodies.get(positions[index]);
+        }
+
+        @Override
+        public int size() {
+            return positions.length;
+        }
+
+        /**
+         * @return pools the bodies are selected from
+         */
+        public MatchedBodiesPool<T> getPools() {
+            return pools;
+        }
+
+        /**
+         * @param index
+         *      index of the body in this list
+         * @return position of the body in the pools
+         */
+        public int getPosition(final int index) {
+            return positions[index];
+        }
+
+        /**
+         * Returns the data of the given type attached to the body, see
+         * {@link MatchedBodiesPool#getAttachment(int, Class, Function)}.
+         *
+         * @param index
+         *      index of the body in this list
+         * @param type
+         *      type of the attached data
+         * @param factory
+         *      function which computes the data from the body
+         * @param <A>
+         *      type of the attached data
+         * @return attached data
+         */
+        public <A> A getAttachment(final int index, final Class<A> type,
+                                   final Function<? super T, ? extends A> factory) {
+            return pools.getAttachment(positions[index], type, factory);
+        }
+    }
+
+    /**
+     * Adds indices of the bodies with the given key.
+     *
+     * @param fetched
+     *      keys the pools have been fetched by
+     * @param index
+     *      index of the bodies by the key
+     * @param key
+     *      key
+     * @param found
+     *      set of found indices
+     * @return false if the pool hasn't been fetched for the key
+     */
+    private static boolean select(final Set<String> fetched, final Map<String, List<Integer>> index, final String key,
+                                  final Set<Integer> found) {
+        if (!fetched.contains(key)) {
+            return false;
+        }
+
+        found.addAll(index.getOrDefault(key, Collections.emptyList()));
+        return true;
+    }
+
+    /**
+     * @param index
+     *      index of the bodies
+     * @param key
+     *      key, nothing is indexed for null
+     * @param i
+     *      index of the body
+     */
+    private static void index(final Map<String, List<Integer>> index, final String key, final int i) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new ArrayList<>(1)).add(i);
+        }
+    }
+
+    /**
+     * @param id
+     *      body identifier
+     * @return true if the identifier can be searched by
+     */
+    private static boolean isValid(final BodyIdentifier id) {
+        return id != null && id.getId() != null && id.getScope() != null;
+    }
+
+    /**
+     * @param id
+     *      body identifier
+     * @return key of the identifier
+     */
+    private static String key(final BodyIdentifier id) {
+        return id.getScope() + ":" + id.getId();
+    }
+}
@@ -1,10 +1,15 @@
 package eu.dl.dataaccess.dao;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import eu.dl.dataaccess.dto.codetables.BodyType;
 import eu.dl.dataaccess.dto.matched.MatchedBody;
+import eu.dl.dataaccess.dto.matched.MatchedGroupInfo;
 
 /**
  * DAO for matched body.
@@ -25,6 +30,16 @@ public interface MatchedBodyDAO<T extends MatchedBody>
      */
     String save(T matchedBody);
 
+    /**
+     * Saves given bodies to persistent storage at once.
+     *
+     * @param matchedBodies
+     *            matched bodies to be saved
+     *
+     * @return ids of the saved bodies in the same order
+     */
+    List<String> saveAll(Collection<T> matchedBodies);
+
     /**
      * Returns the object by given id.
      *
@@ -88,6 +103,36 @@ public interface MatchedBodyDAO<T extends MatchedBody>
      */
     Map<String, String> getHashAndGroupIds();
 
+    /**
+     * Passes hash and group id pairs to the action one by one. Unlike {@link MatchedBodyDAO#getHashAndGroupIds()}
+     * the pairs are streamed from the database, so any number of them is processed in constant memory.
+     *
+     * @param action
+     *          action performed for each hash (first argument) and group id (second argument)
+     */
+    void forEachHashAndGroupId(BiConsumer<String, String> action);
+
+    /**
+     * Passes hash and group id pairs of the bodies modified since the given time to the action one by one, see
+     * {@link MatchedBodyDAO#forEachHashAndGroupId(BiConsumer)}.
+     *
+     * @param modifiedSince
+     *          minimal modification time of the bodies, null for all the bodies
+     * @param action
+     *          action performed for each hash (first argument) and group id (second argument)
+     */
+    void forEachHashAndGroupId(LocalDateTime modifiedSince, BiConsumer<String, String> action);
+
+    /**
+     * Passes information about each group of the bodies to the action one by one. The information is the same as
+     * {@link #getGroupsInfo(List)} returns, but the groups are streamed from the database, so any number of them is
+     * processed in constant memory.
+     *
+     * @param action
+     *          action performed for each group
+     */
+    void forEachGroupInfo(Consumer<MatchedGroupInfo> action);
+
     /**
      * Returns list of bodies with the given name and role.
      *
@@ -98,4 +143,23 @@ public interface MatchedBodyDAO<T extends MatchedBody>
      * @return list of bodies
      */
     List<T> getByNameAndRole(String name, BodyType role);
+
+    /**
+     * Returns the union of the exact and approximate matching pools of all the given bodies, fetched at once.
+     *
+     * @param bodies
+     *          bodies to be matched
+     * @return pools of the bodies
+     */
+    MatchedBodiesPool<T> getMatchBodiesPools(Collection<? extends MatchedBody> bodies);
+
+    /**
+     * Sets the pools which answer the {@link #getExactMatchBodiesPool(String, String, List)} and
+     * {@link #getApproximateMatchBodiesPool(String, String, List, String)} calls of the current thread instead of
+     * the database. The calls whose keys haven't been fetched to the pools still query the database.
+     *
+     * @param pools
+     *          pools fetched by {@link #getMatchBodiesPools(Collection)}, null to query the database again
+     */
+    void setPrefetchedPools(MatchedBodiesPool<T> pools);
 }
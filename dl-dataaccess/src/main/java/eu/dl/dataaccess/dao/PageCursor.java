@@ -0,0 +1,120 @@
+package eu.dl.dataaccess.dao;
+
+import eu.dl.dataaccess.dto.StorableDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Position in the list of records ordered by modification timestamp and id. Paged methods taking the cursor return
+ * records which follow the position (keyset pagination), so the page is found by the index regardless of how deep
+ * it is and records modified during the walk are neither skipped nor returned twice within the walk (updated record
+ * moves to the end of the list).
+ *
+ * The cursor can be passed around as an opaque token, see {@link #toToken()} and {@link #fromToken(String)}.
+ */
+public final class PageCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime modified;
+
+    private final String id;
+
+    /**
+     * @param modified
+     *      modification timestamp of the last record
+     * @param id
+     *      id of the last record, null for the position right after the timestamp
+     */
+    private PageCursor(final LocalDateTime modified, final String id) {
+        if (modified == null) {
+            throw new IllegalArgumentException("Modification timestamp of the cursor is required");
+        }
+        this.modified = modified;
+        this.id = id;
+    }
+
+    /**
+     * Returns cursor of the first page, i.e. the position before all the records modified after the timestamp.
+     *
+     * @param timestamp
+     *      records modified after this timestamp follow the cursor
+     * @return cursor
+     */
+    public static PageCursor after(final LocalDateTime timestamp) {
+        return new PageCursor(timestamp, null);
+    }
+
+    /**
+     * Returns cursor pointing to the given record.
+     *
+     * @param item
+     *      record
+     * @return cursor
+     */
+    public static PageCursor after(final StorableDTO item) {
+        return new PageCursor(item.getModified(), item.getId());
+    }
+
+    /**
+     * Returns cursor of the page which follows the given page.
+     *
+     * @param page
+     *      records of the page in the order they were returned
+     * @return cursor pointing to the last record of the page or null if the page is empty
+     */
+    public static PageCursor next(final List<? extends StorableDTO> page) {
+        return page == null || page.isEmpty() ? null : after(page.get(page.size() - 1));
+    }
+
+    /**
+     * @return modification timestamp of the last record
+     */
+    public LocalDateTime getModified() {
+        return modified;
+    }
+
+    /**
+     * @return id of the last record or null for the first page
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Encodes the cursor to URL safe token.
+     *
+     * @return token
+     */
+    public String toToken() {
+        String value = id == null ? modified.toString() : modified + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes the cursor from the token created by {@link #toToken()}.
+     *
+     * @param token
+     *      token
+     * @return cursor
+     * @throws IllegalArgumentException
+     *      in case the token is malformed
+     */
+    public static PageCursor fromToken(final String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator == -1) {
+                return new PageCursor(LocalDateTime.parse(value), null);
+            }
+
+            return new PageCursor(LocalDateTime.parse(value.substring(0, separator)), value.substring(separator + 1));
+        } catch (DateTimeParseException | NullPointerException e) {
+            throw new IllegalArgumentException("Malformed page token " + token, e);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package eu.dl.dataaccess.dao;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 import eu.dl.dataaccess.dto.parsed.Parsable;
 
@@ -25,6 +27,16 @@ public interface ParsedDAO<T extends Parsable> {
      */
     String save(T parsedItem);
 
+    /**
+     * Saves all the given items to persistent storage at once.
+     *
+     * @param parsedItems
+     *            parsed items to be saved
+     *
+     * @return Ids of saved items in the order of the given items
+     */
+    List<String> saveAll(Collection<T> parsedItems);
+
     /**
      * Returns the object by given id.
      *
@@ -52,6 +64,24 @@ public interface ParsedDAO<T extends Parsable> {
      */
     List<T> getMine(String name, String version, String fromDate, String toDate);
 
+    /**
+     * Passes ids of the objects stored by the particular version of the worker to the action one by one. Unlike
+     * {@link ParsedDAO#getMine(String, String, String, String)} the ids are streamed from the database, so any number of
+     * them is processed in constant memory.
+     *
+     * @param name
+     *            worker name
+     * @param version
+     *            worker version
+     * @param fromDate
+     *            from date
+     * @param toDate
+     *            to date
+     * @param action
+     *            action performed for each id
+     */
+    void forEachMineId(String name, String version, String fromDate, String toDate, Consumer<String> action);
+
     /**
      * Returns objects which has been modified after timestamp. The result is paged with {@code pageSize} records per page.
      *
@@ -1,6 +1,8 @@
 package eu.dl.dataaccess.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 import eu.dl.dataaccess.dto.raw.Raw;
 
@@ -24,6 +26,16 @@ public interface RawDAO<T extends Raw> {
      */
     String save(T parsedItem);
 
+    /**
+     * Saves all the given items to persistent storage at once.
+     *
+     * @param items
+     *            raw items to be saved
+     *
+     * @return Ids of saved items in the order of the given items
+     */
+    List<String> saveAll(Collection<T> items);
+
     /**
      * Returns the object by given id.
      *
@@ -61,6 +73,24 @@ public interface RawDAO<T extends Raw> {
      */
     List<T> getMine(String name, String version, String fromDate, String toDate);
 
+    /**
+     * Passes ids of the objects stored by the particular version of the worker to the action one by one. Unlike
+     * {@link RawDAO#getMine(String, String, String, String)} the ids are streamed from the database, so any number of
+     * them is processed in constant memory.
+     *
+     * @param name
+     *            worker name
+     * @param version
+     *            worker version
+     * @param fromDate
+     *            from date
+     * @param toDate
+     *            to date
+     * @param action
+     *            action performed for each id
+     */
+    void forEachMineId(String name, String version, String fromDate, String toDate, Consumer<String> action);
+
     /**
      * Returns new instance of T.
      *
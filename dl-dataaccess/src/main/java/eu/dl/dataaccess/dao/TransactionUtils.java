@@ -19,4 +19,19 @@ public interface TransactionUtils {
      * Rollbacks transaction.
      */
     void rollback();
+
+    /**
+     * Ends the unit of work of the current thread. Unfinished transaction is rolled back and the resources held by
+     * the thread (eg. database connection) are released.
+     */
+    void release();
+
+    /**
+     * Registers action performed after each commit, by the thread which has committed. The action can eg. publish
+     * the messages which refer to the committed data, including the data committed in the middle of the work.
+     *
+     * @param listener
+     *      action performed after commit
+     */
+    void addCommitListener(Runnable listener);
 }
@@ -1,18 +1,26 @@
 package eu.dl.dataaccess.dao.jdbc;
 
-import com.fasterxml.jackson.annotation.JsonInclude.Include;
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mchange.v2.c3p0.C3P0ProxyConnection;
 import eu.dl.core.config.Config;
 import eu.dl.dataaccess.dao.BaseDAO;
+import eu.dl.dataaccess.utils.MapperRegistry;
 import org.apache.commons.text.StringEscapeUtils;
 import org.apache.commons.lang3.tuple.Pair;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.text.SimpleDateFormat;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -34,8 +42,6 @@ public abstract class BaseJdbcDAO<T> implements BaseDAO<T> {
 
     protected List<Pair<String, String>> additionalWorkers;
 
-    protected final Connection connection;
-
     protected final ObjectMapper mapper;
 
     protected final String schema;
@@ -50,6 +56,16 @@ public abstract class BaseJdbcDAO<T> implements BaseDAO<T> {
      */
     protected int pageSize;
 
+    /**
+     * Default number of rows fetched at once by the streaming reads.
+     */
+    public static final Integer DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * Number of rows fetched at once by the streaming reads.
+     */
+    protected int fetchSize;
+
     /**
      * Initializes connection etc.
      */
@@ -58,18 +74,210 @@ public abstract class BaseJdbcDAO<T> implements BaseDAO<T> {
 
         schema = config.getParam("jdbc.schema");
 
-        connection = JdbcTransactionUtils.getInstance().getConnection();
-
-        mapper = new ObjectMapper();
-        mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
-        mapper.registerModule(new JavaTimeModule());
-        mapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"));
-        mapper.setSerializationInclusion(Include.NON_NULL);
-
-        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper = MapperRegistry.getStorageMapper();
 
         Integer pageSizeParam = config.getParamValueAs("jdbc.pageSize", Integer::valueOf);
         pageSize = pageSizeParam != null ? pageSizeParam : DEFAULT_PAGE_SIZE;
+
+        Integer fetchSizeParam = config.getParamValueAs("jdbc.fetchSize", Integer::valueOf);
+        fetchSize = fetchSizeParam != null ? fetchSizeParam : DEFAULT_FETCH_SIZE;
+    }
+
+    /**
+     * Returns connection of the current thread. DAO instances are shared by all the worker threads, so the connection
+     * can't be held by the DAO itself.
+     *
+     * @return connection
+     */
+    protected final Connection getConnection() {
+        return JdbcTransactionUtils.getInstance().getConnection();
+    }
+
+    /**
+     * Executes the work in a transaction. In case the connection of the current thread is in autocommit mode,
+     * the transaction is started and committed (or rollbacked) here, otherwise the work joins the transaction in
+     * progress.
+     *
+     * @param work
+     *         work to be done
+     * @param <R>
+     *         result type
+     *
+     * @return result of the work
+     * @throws SQLException
+     *         in case of database failure
+     * @throws IOException
+     *         in case of COPY failure
+     */
+    protected final <R> R executeInTransaction(final TransactionalWork<R> work) throws SQLException, IOException {
+        final Connection connection = getConnection();
+        if (!connection.getAutoCommit()) {
+            return work.execute(connection);
+        }
+
+        connection.setAutoCommit(false);
+        try {
+            final R result = work.execute(connection);
+            connection.commit();
+            return result;
+        } catch (SQLException | IOException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Executes the query and passes the rows to the handler one by one. The rows are read through a server side
+     * cursor, {@link #fetchSize} rows at once, so tables of any size are processed in constant memory. The cursor
+     * requires a transaction, see {@link #executeInTransaction(TransactionalWork)}, and the query must be a single
+     * statement without the trailing semicolon.
+     *
+     * @param query
+     *         SQL query
+     * @param parameters
+     *         sets parameters of the query
+     * @param handler
+     *         handler of the rows
+     *
+     * @throws SQLException
+     *         in case of database failure
+     * @throws IOException
+     *         never, declared by the transactional work
+     */
+    protected final void forEachRow(final String query, final StatementParameters parameters,
+                                    final RowHandler handler) throws SQLException, IOException {
+        executeInTransaction(connection -> {
+            streamRows(connection, query, parameters, fetchSize, handler);
+            return null;
+        });
+    }
+
+    /**
+     * Executes the query on the given connection and passes the rows to the handler one by one. See
+     * {@link #forEachRow(String, StatementParameters, RowHandler)}.
+     *
+     * @param connection
+     *         connection, not in autocommit mode
+     * @param query
+     *         SQL query
+     * @param parameters
+     *         sets parameters of the query
+     * @param fetchSize
+     *         number of rows fetched at once
+     * @param handler
+     *         handler of the rows
+     *
+     * @throws SQLException
+     *         in case of database failure
+     */
+    static void streamRows(final Connection connection, final String query, final StatementParameters parameters,
+                           final int fetchSize, final RowHandler handler) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+            ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(fetchSize);
+            parameters.set(statement);
+
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the rows to the temporary staging table with the COPY command. The staging table is created with
+     * the first use in the database session and it's emptied before the copy and at the end of each transaction,
+     * so it has to be used within a transaction (see {@link #executeInTransaction(TransactionalWork)}).
+     *
+     * @param stagingTable
+     *         name of the staging table
+     * @param definition
+     *         definition of the staging table columns
+     * @param columns
+     *         names of the copied columns, in the order of the row values
+     * @param rows
+     *         rows to be copied
+     *
+     * @throws SQLException
+     *         in case of database failure
+     * @throws IOException
+     *         in case of COPY failure
+     */
+    protected final void copyToStagingTable(final String stagingTable, final String definition,
+                                            final List<String> columns, final Collection<Object[]> rows)
+        throws SQLException, IOException {
+        final Connection connection = getConnection();
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TEMPORARY TABLE IF NOT EXISTS " + stagingTable + " (" + definition + ")"
+                + " ON COMMIT DELETE ROWS");
+            statement.execute("TRUNCATE " + stagingTable);
+        }
+
+        final CopyIn copyIn = getCopyManager(connection).copyIn("COPY " + stagingTable
+            + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)");
+        try {
+            for (Object[] row : rows) {
+                final byte[] bytes = toCsvRow(row).getBytes(StandardCharsets.UTF_8);
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+            }
+            final long copied = copyIn.endCopy();
+            logger.debug("Copied {} rows to {}", copied, stagingTable);
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    /**
+     * Returns COPY API of the connection. The pooled connection is only a proxy, so the API has to be obtained from
+     * the underlying PostgreSQL connection.
+     *
+     * @param connection
+     *         connection
+     *
+     * @return copy manager
+     * @throws SQLException
+     *         in case the connection doesn't support COPY
+     */
+    private static CopyManager getCopyManager(final Connection connection) throws SQLException {
+        if (connection instanceof C3P0ProxyConnection) {
+            try {
+                return (CopyManager) ((C3P0ProxyConnection) connection).rawConnectionOperation(
+                    PGConnection.class.getMethod("getCopyAPI"), C3P0ProxyConnection.RAW_CONNECTION, new Object[0]);
+            } catch (ReflectiveOperationException e) {
+                throw new SQLException("Unable to get COPY API of the connection", e);
+            }
+        }
+
+        return connection.unwrap(PGConnection.class).getCopyAPI();
+    }
+
+    /**
+     * Formats the values as one row of CSV accepted by the COPY command. Nulls are left empty, all the other values
+     * are quoted, so that empty strings are distinguished from nulls.
+     *
+     * @param values
+     *         row values
+     *
+     * @return CSV row including the line separator
+     */
+    static String toCsvRow(final Object... values) {
+        final StringBuilder row = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            if (values[i] != null) {
+                row.append('"').append(values[i].toString().replace("\"", "\"\"")).append('"');
+            }
+        }
+
+        return row.append('\n').toString();
     }
 
     /**
@@ -169,4 +377,55 @@ public abstract class BaseJdbcDAO<T> implements BaseDAO<T> {
     public final int getPageSize() {
         return pageSize;
     }
+
+    /**
+     * Database work executed in a transaction.
+     *
+     * @param <R>
+     *         result type
+     */
+    @FunctionalInterface
+    protected interface TransactionalWork<R> {
+        /**
+         * @param connection
+         *         connection of the current thread
+         *
+         * @return result of the work
+         * @throws SQLException
+         *         in case of database failure
+         * @throws IOException
+         *         in case of COPY failure
+         */
+        R execute(Connection connection) throws SQLException, IOException;
+    }
+
+    /**
+     * Sets parameters of the prepared statement.
+     */
+    @FunctionalInterface
+    protected interface StatementParameters {
+        /**
+         * @param statement
+         *         prepared statement
+         *
+         * @throws SQLException
+         *         in case of database failure
+         */
+        void set(PreparedStatement statement) throws SQLException;
+    }
+
+    /**
+     * Handles one row of the streamed result.
+     */
+    @FunctionalInterface
+    protected interface RowHandler {
+        /**
+         * @param rs
+         *         result set positioned at the row
+         *
+         * @throws SQLException
+         *         in case of database failure
+         */
+        void handle(ResultSet rs) throws SQLException;
+    }
 }
@@ -1,9 +1,10 @@
 package eu.dl.dataaccess.dao.jdbc;
 
-import com.fasterxml.jackson.databind.ObjectWriter;
 import eu.dl.core.UnrecoverableException;
 import eu.dl.dataaccess.dao.GenericDAO;
+import eu.dl.dataaccess.dao.PageCursor;
 import eu.dl.dataaccess.dto.StorableDTO;
+import eu.dl.dataaccess.utils.MapperRegistry;
 
 import java.io.IOException;
 import java.sql.PreparedStatement;
@@ -15,10 +16,15 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -29,6 +35,20 @@ import java.util.stream.Collectors;
  */
 public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<T> implements GenericDAO<T> {
 
+    /**
+     * Columns of the tables handled by this DAO.
+     */
+    private static final List<String> COLUMNS = Arrays.asList("id", "created", "createdBy", "createdByVersion",
+        "modified", "modifiedBy", "modifiedByVersion", "data");
+
+    /**
+     * Definition of the staging table used by {@link #saveAll(Collection)}.
+     */
+    private static final String STAGING_TABLE_DEFINITION = "id character varying(255),"
+        + " created timestamp without time zone, createdby character varying(255),"
+        + " createdbyversion character varying(255), modified timestamp without time zone,"
+        + " modifiedby character varying(255), modifiedbyversion character varying(255), data jsonb";
+
     /**
      * Gets tenders for a specific country.
      *
@@ -39,7 +59,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
      */
     public final List<T> getByCountry(final String countryCode, final Integer page, final Integer pageSize) {
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM " + getTableWithSchema() + " WHERE data ->> 'country' = '" +
                             sanitizeForJsonString(countryCode) + "' ORDER BY modified ASC LIMIT ? " +
                             "OFFSET ?");
@@ -86,7 +106,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
      */
     public final List<T> getByCountry(final String countryCode, final Integer page, final String createdBy, final Integer pageSize) {
         try {
-            PreparedStatement statement = connection.prepareStatement("SELECT * FROM " + getTableWithSchema()
+            PreparedStatement statement = getConnection().prepareStatement("SELECT * FROM " + getTableWithSchema()
                 + " WHERE data ->> 'country' = '" + sanitizeForJsonString(countryCode) + "' AND createdby = ?"
                 + " ORDER BY modified ASC LIMIT ? OFFSET ?");
 
@@ -122,6 +142,29 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
         return getByCountry(countryCode, page, createdBy, getPageSize());
     }
 
+    /**
+     * Passes all the items for a specific country and source to the action one by one. The items are read through
+     * a server side cursor, so all the items of the country are processed in constant memory and with one query
+     * instead of the {@code OFFSET} paging of {@link #getByCountry(String, Integer, String, Integer)}. The items
+     * aren't ordered.
+     *
+     * @param countryCode country code
+     * @param createdBy createdBy
+     * @param action action performed for each item
+     */
+    public final void forEachByCountry(final String countryCode, final String createdBy, final Consumer<T> action) {
+        try {
+            forEachRow("SELECT * FROM " + getTableWithSchema() + " WHERE data ->> 'country' = ? AND createdby = ?",
+                statement -> {
+                    statement.setString(1, countryCode);
+                    statement.setString(2, createdBy);
+                }, rs -> action.accept(createFromResultSet(rs)));
+        } catch (Exception e) {
+            logger.error("Unable to perform query, because of of {}", e);
+            throw new UnrecoverableException("Unable to perform query.", e);
+        }
+    }
+
     /**
      * Returns items with the group id.
      *
@@ -132,7 +175,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
      */
     public final List<T> getByGroupId(final String groupId) {
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM " + getTableWithSchema() + " WHERE data @> '{ \"groupId\":\"" +
                             sanitizeForJsonString(
                             groupId) + "\"}' ");
@@ -156,53 +199,35 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
     }
 
     /**
-     * Returns items with the group id.
+     * Returns items with the group ids. All the groups are searched by one query using the index of the group id.
      *
      * @param groupIds
      *         group ids to be searched for
      *
-     * @return list of items
+     * @return list of items, null for no group ids
      */
     public final List<T> getByGroupIds(final Collection<String> groupIds) {
         if (groupIds == null || groupIds.isEmpty()) {
             return null;
         }
         try {
+            // unlike the containment used by getByGroupId, ->> returns the unescaped value
+            PreparedStatement statement = getConnection().prepareStatement(
+                    "SELECT * FROM " + getTableWithSchema() + " WHERE data->>'groupId' = ANY(?)");
+            statement.setArray(1, getConnection().createArrayOf("text",
+                    groupIds.stream().filter(Objects::nonNull).distinct().toArray()));
 
-            List<T> result = new ArrayList<T>();
-            Integer size = groupIds.size();
-            Integer counter = 0;
-            Integer pageSize = 200;
-            ArrayList<String> list = new ArrayList<String>(groupIds);
-
-            while (counter < size) {
-                String condition = new String();
-
-                for (String groupId : list.subList(counter, Integer.min(size, counter + pageSize))) {
-                    if (groupId != null) {
-                        if (!condition.isEmpty()) {
-                            condition = condition + " OR ";
-                        }
-
-                        condition = condition + "data->>'groupId' = '" + sanitizeForJsonString(groupId) + "' ";
-                    }
-                }
-
-                PreparedStatement statement = connection.prepareStatement("SELECT * FROM " + getTableWithSchema() + " WHERE " + condition);
-
-                ResultSet rs = statement.executeQuery();
+            ResultSet rs = statement.executeQuery();
 
-                while (rs.next()) {
-                    result.add(createFromResultSet(rs));
-                }
+            List<T> result = new ArrayList<T>();
+            while (rs.next()) {
+                result.add(createFromResultSet(rs));
+            }
 
-                rs.close();
-                statement.close();
-                logger.debug("Selected {} bodies from {} to {}", pageSize, counter,
-                        Integer.min(size, counter + pageSize));
+            rs.close();
+            statement.close();
+            logger.debug("Selected {} items of {} groups", result.size(), groupIds.size());
 
-                counter = counter + pageSize;
-            }
             return result;
         } catch (Exception e) {
             logger.error("Unable to perform query, because of of {}", e);
@@ -222,7 +247,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
 
                 if (t.getId() == null) {
                     // insert
-                    statement = connection.prepareStatement(
+                    statement = getConnection().prepareStatement(
                             "INSERT INTO " + getTableWithSchema() + " (id, created, createdBy, createdByVersion, " +
                                     "modified, modifiedBy, modifiedByVersion, data)" + " VALUES (?, ?, ?, ?, ?, ?, ?,"
                                     + "" + "" + "" + "" + "" + "" + "" + "" + " ?)",
@@ -255,7 +280,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
                     rs.close();
                 } else {
                     // update
-                    statement = connection.prepareStatement(
+                    statement = getConnection().prepareStatement(
                             "UPDATE " + getTableWithSchema() + " SET modified = ? , modifiedBy = ?, " +
                                     "modifiedByVersion" + " = ?, data = ? WHERE id = ?;");
 
@@ -287,10 +312,79 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The objects are copied to a temporary staging table with the COPY command and merged into the table with one
+     * INSERT ... ON CONFLICT statement. Ids of the new objects are generated here.
+     */
+    @Override
+    public final List<String> saveAll(final Collection<T> items) {
+        if (items == null || items.contains(null)) {
+            logger.error("Unable to save null");
+            throw new UnrecoverableException("Unable to save null!");
+        }
+
+        if (items.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // generate now stamp
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+
+        List<String> ids = new ArrayList<>(items.size());
+        // the same object can't be merged twice in one statement, the last one wins
+        Map<String, Object[]> rows = new LinkedHashMap<>();
+        for (T t : items) {
+            if (t.getId() == null) {
+                // generate id and populate data
+                t.setId(UUID.randomUUID().toString());
+                t.setCreatedBy(getWorkerName());
+                t.setCreatedByVersion(getWorkerVersion());
+                t.setCreated(now);
+            }
+            t.setModifiedBy(getWorkerName());
+            t.setModifiedByVersion(getWorkerVersion());
+            t.setModified(now);
+
+            rows.put(t.getId(), new Object[]{t.getId(),
+                t.getCreated() == null ? null : Timestamp.valueOf(t.getCreated()), t.getCreatedBy(),
+                t.getCreatedByVersion(), timestamp, getWorkerName(), getWorkerVersion(), serializeToJson(t)});
+            ids.add(t.getId());
+        }
+
+        final String stagingTable = getTableWithSchema().replaceAll("^.*\\.", "") + "_staging";
+        final String columns = String.join(", ", COLUMNS);
+
+        try {
+            executeInTransaction(connection -> {
+                copyToStagingTable(stagingTable, STAGING_TABLE_DEFINITION, COLUMNS, rows.values());
+
+                PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO " + getTableWithSchema() + " (" + columns + ")"
+                        + " SELECT " + columns + " FROM " + stagingTable
+                        + " ON CONFLICT (id) DO UPDATE SET modified = EXCLUDED.modified,"
+                        + " modifiedBy = EXCLUDED.modifiedBy, modifiedByVersion = EXCLUDED.modifiedByVersion,"
+                        + " data = EXCLUDED.data");
+                int saved = statement.executeUpdate();
+                statement.close();
+
+                logger.debug("Saved {} objects to {}", saved, getTableWithSchema());
+                return saved;
+            });
+        } catch (SQLException | IOException e) {
+            logger.error("Unable to perform query, because of {}", e);
+            throw new UnrecoverableException("Unable to perform query.", e);
+        }
+
+        return ids;
+    }
+
     @Override
     public final T getById(final String id) {
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM " + getTableWithSchema() + " WHERE id = ?");
 
             statement.setString(1, id);
@@ -330,7 +424,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
 
             sql.append(");");
 
-            PreparedStatement statement = connection.prepareStatement(sql.toString());
+            PreparedStatement statement = getConnection().prepareStatement(sql.toString());
 
             statement.executeQuery();
 
@@ -354,47 +448,43 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
 
     @Override
     public final List<T> getMine(final String name, final String version, final String fromDate, final String toDate) {
-        try {
-            PreparedStatement statement;
-            if (fromDate != null && toDate != null) {
-                statement = connection.prepareStatement(
-                        "SELECT id FROM " + getTableWithSchema() + " WHERE createdby = ? AND createdbyversion = ? "
-                                + "AND modified >= ? AND modified <= ? ORDER BY data->>'processingOrder'");
-                statement.setString(3, fromDate);
-                statement.setString(4, toDate);
-            } else if (fromDate != null) {
-                statement = connection.prepareStatement(
-                        "SELECT id FROM " + getTableWithSchema() + " WHERE createdby = ? AND createdbyversion = ? "
-                                + "AND modified >= ? ORDER BY data->>'processingOrder'");
-                statement.setString(3, fromDate);
-            } else if (toDate != null) {
-                statement = connection.prepareStatement(
-                        "SELECT id FROM " + getTableWithSchema() + " WHERE createdby = ? AND createdbyversion = ? "
-                                + "modified <= ? ORDER BY data->>'processingOrder'");
-                statement.setString(3, toDate);
-            } else {
-                statement = connection.prepareStatement(
-                        "SELECT id FROM " + getTableWithSchema() + " WHERE createdby = ? AND createdbyversion = ? " +
-                                "ORDER BY data->>'processingOrder'");
-            }
+        List<T> result = new ArrayList<T>();
 
-            statement.setString(1, name);
-            statement.setString(2, version);
+        forEachMineId(name, version, fromDate, toDate, id -> {
+            T t = getEmptyInstance();
+            t.setId(id);
+            result.add(t);
+        });
 
-            ResultSet rs = statement.executeQuery();
+        return result;
+    }
 
-            List<T> result = new ArrayList<T>();
+    @Override
+    public final void forEachMineId(final String name, final String version, final String fromDate, final String toDate,
+                                    final Consumer<String> action) {
+        String query = "SELECT id FROM " + getTableWithSchema() + " WHERE createdby = ? AND createdbyversion = ?";
 
-            while (rs.next()) {
-                T t = getEmptyInstance();
-                t.setId((rs.getString("id")));
-                result.add(t);
-            }
+        if (fromDate != null) {
+            query = query + " AND modified >= ?";
+        }
 
-            rs.close();
-            statement.close();
+        if (toDate != null) {
+            query = query + " AND modified <= ?";
+        }
 
-            return result;
+        try {
+            forEachRow(query + " ORDER BY data->>'processingOrder'", statement -> {
+                statement.setString(1, name);
+                statement.setString(2, version);
+
+                int index = 3;
+                if (fromDate != null) {
+                    statement.setString(index++, fromDate);
+                }
+                if (toDate != null) {
+                    statement.setString(index, toDate);
+                }
+            }, rs -> action.accept(rs.getString("id")));
         } catch (Exception e) {
             logger.error("Unable to perform query, because of of {}", e);
             throw new UnrecoverableException("Unable to perform query.", e);
@@ -411,7 +501,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
      */
     public final List<T> getMineByHash(final String hash) {
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM " + getTableWithSchema() + " WHERE data @> '{ \"hash\":\"" + sanitize(
                             hash) + "\"}' AND createdBy = ? AND createdbyversion = ? ORDER BY data->>'processingOrder'");
 
@@ -445,10 +535,13 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
      * @param pageSize
      *      page size
      * @return list of objects with the same hash
+     * @deprecated deep pages are slow, stream the items with {@link #forEachMineId} or page them with
+     *      {@link #getModifiedAfter(PageCursor, String, String, Integer)} instead
      */
+    @Deprecated
     public final List<T> getMine(final Integer page, final Integer pageSize) {
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM " + getTableWithSchema()
                     + " WHERE ((createdBy = ? AND createdByVersion = ?) "
         				+ prepareAdditionalWorkersCondition() + ")"
@@ -484,7 +577,9 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
      * @param page
      * 		   no. of page (from 0)
      * @return list of objects with the same hash
+     * @deprecated see {@link #getMine(Integer, Integer)}
      */
+    @Deprecated
     public final List<T> getMine(final Integer page) {
         return getMine(page, getPageSize());
     }
@@ -503,7 +598,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
         String additionalWorkersCondition = prepareAdditionalWorkersCondition();
 
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM " + getTableWithSchema() + " WHERE data @> '{ \"hash\":\"" + sanitize(
                             hash) + "\"}' AND ( (createdBy = ? AND createdByVersion = ?) " +
                             additionalWorkersCondition + ")");
@@ -532,8 +627,8 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
     @Override
     public final List<T> getModifiedAfter(final LocalDateTime timestamp, final Integer page, final Integer pageSize) {
         try {
-            PreparedStatement statement = connection.prepareStatement(
-                    "SELECT * FROM " + getTableWithSchema() + " WHERE modified > ? ORDER BY modified ASC LIMIT ? " +
+            PreparedStatement statement = getConnection().prepareStatement(
+                    "SELECT * FROM " + getTableWithSchema() + " WHERE modified > ? ORDER BY modified ASC, id ASC LIMIT ? " +
                             "OFFSET ?");
 
             statement.setTimestamp(1, Timestamp.valueOf(timestamp));
@@ -567,9 +662,9 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
     public final List<T> getModifiedAfter(final LocalDateTime timestamp, final String modifiedBy, final Integer page,
                                           final Integer pageSize) {
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM " + getTableWithSchema() + " WHERE modified > ? AND createdby = ? ORDER BY " +
-                            "modified ASC LIMIT ? OFFSET ?");
+                            "modified ASC, id ASC LIMIT ? OFFSET ?");
 
             statement.setTimestamp(1, Timestamp.valueOf(timestamp));
             statement.setString(2, modifiedBy);
@@ -612,10 +707,10 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
                 query = query + " AND data ->> 'country' = '" + sanitize(countryCode) + "' ";
             }
 
-            query = query + " ORDER BY modified ASC LIMIT ? OFFSET ?";
+            query = query + " ORDER BY modified ASC, id ASC LIMIT ? OFFSET ?";
 
 
-            PreparedStatement statement = connection.prepareStatement(query);
+            PreparedStatement statement = getConnection().prepareStatement(query);
 
             statement.setTimestamp(1, Timestamp.valueOf(timestamp));
             statement.setInt(2, pageSize);
@@ -645,6 +740,93 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
         return getModifiedAfter(timestamp, createdBy, countryCode, page, getPageSize());
     }
 
+    @Override
+    public final List<T> getModifiedAfter(final PageCursor cursor, final String createdBy, final String countryCode,
+                                          final Integer pageSize) {
+        try {
+            String query = "SELECT * FROM " + getTableWithSchema() + " WHERE " + getCursorCondition(cursor);
+
+            if (createdBy != null && !createdBy.isEmpty()) {
+                query = query + " AND createdby = ?";
+            }
+
+            if (countryCode != null && !countryCode.isEmpty()) {
+                query = query + " AND data ->> 'country' = ?";
+            }
+
+            query = query + " ORDER BY modified ASC, id ASC LIMIT ?";
+
+            PreparedStatement statement = getConnection().prepareStatement(query);
+
+            int index = setCursorParameters(statement, 1, cursor);
+            if (createdBy != null && !createdBy.isEmpty()) {
+                statement.setString(index++, createdBy);
+            }
+            if (countryCode != null && !countryCode.isEmpty()) {
+                statement.setString(index++, countryCode);
+            }
+            statement.setInt(index, pageSize);
+
+            ResultSet rs = statement.executeQuery();
+
+            List<T> result = new ArrayList<T>();
+
+            while (rs.next()) {
+                result.add(createFromResultSet(rs));
+            }
+
+            rs.close();
+            statement.close();
+
+            return result;
+        } catch (Exception e) {
+            logger.error("Unable to perform query, because of of {}", e);
+            throw new UnrecoverableException("Unable to perform query.", e);
+        }
+    }
+
+    @Override
+    public final List<T> getModifiedAfter(final PageCursor cursor, final String createdBy, final String countryCode) {
+        return getModifiedAfter(cursor, createdBy, countryCode, getPageSize());
+    }
+
+    /**
+     * Returns condition selecting the records which follow the cursor in the order by modification timestamp and id.
+     * The condition is served by the (modified, id) index, its parameters are set by
+     * {@link #setCursorParameters(PreparedStatement, int, PageCursor)}.
+     *
+     * @param cursor
+     *         page cursor
+     * @return SQL condition
+     */
+    protected final String getCursorCondition(final PageCursor cursor) {
+        return cursor.getId() == null ? "modified > ?" : "(modified, id) > (?, ?)";
+    }
+
+    /**
+     * Sets parameters of the condition returned by {@link #getCursorCondition(PageCursor)}.
+     *
+     * @param statement
+     *         prepared statement
+     * @param index
+     *         index of the first parameter
+     * @param cursor
+     *         page cursor
+     * @return index of the parameter following the cursor parameters
+     * @throws SQLException
+     *         when setting of the parameters fails
+     */
+    protected final int setCursorParameters(final PreparedStatement statement, final int index, final PageCursor cursor)
+        throws SQLException {
+        statement.setTimestamp(index, Timestamp.valueOf(cursor.getModified()));
+        if (cursor.getId() == null) {
+            return index + 1;
+        }
+
+        statement.setString(index + 1, cursor.getId());
+        return index + 2;
+    }
+
     @Override
     public final Integer getModifiedAfterCount(final LocalDateTime timestamp,
                                           final String createdBy,
@@ -660,7 +842,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
                 query = query + " AND data ->> 'country' = '" + sanitize(countryCode) + "' ";
             }
 
-            PreparedStatement statement = connection.prepareStatement(query);
+            PreparedStatement statement = getConnection().prepareStatement(query);
 
             statement.setTimestamp(1, Timestamp.valueOf(timestamp));
 
@@ -704,7 +886,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
 
         String data = rs.getString("data");
         try {
-            mapper.readerForUpdating(t).readValue(data);
+            MapperRegistry.getReader(t.getClass()).withValueToUpdate(t).readValue(data);
             logger.debug("Deserialized object {} with id {}", t, t.getId());
         } catch (IOException e) {
             logger.error("Unable to deserialize data from json exception {}", e);
@@ -743,7 +925,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
      */
     protected final void disableIndexScan() {
         try {
-            PreparedStatement st = connection.prepareStatement("SET enable_indexscan TO 'off';");
+            PreparedStatement st = getConnection().prepareStatement("SET enable_indexscan TO 'off';");
 
             st.executeUpdate();
             st.close();
@@ -761,7 +943,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
      */
     protected final void enableIndexScan() {
         try {
-            PreparedStatement st = connection.prepareStatement("SET enable_indexscan TO 'on';");
+            PreparedStatement st = getConnection().prepareStatement("SET enable_indexscan TO 'on';");
 
             st.executeUpdate();
             st.close();
@@ -779,7 +961,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
      */
     protected final void disableSeqScan() {
         try {
-            PreparedStatement st = connection.prepareStatement("SET enable_seqscan TO 'off';");
+            PreparedStatement st = getConnection().prepareStatement("SET enable_seqscan TO 'off';");
 
             st.executeUpdate();
             st.close();
@@ -797,7 +979,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
      */
     protected final void enableSeqScan() {
         try {
-            PreparedStatement st = connection.prepareStatement("SET enable_seqscan TO 'on';");
+            PreparedStatement st = getConnection().prepareStatement("SET enable_seqscan TO 'on';");
 
             st.executeUpdate();
             st.close();
@@ -833,12 +1015,9 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
         try {
             // sanitize the input first
             t.setData(null);
-            ObjectWriter objectWriter = mapper.writerWithDefaultPrettyPrinter();
-            byte[] tWritten = objectWriter.writeValueAsBytes(t);
 
-            // Written json
-            String jsonData = new String(tWritten, "UTF-8");
-            return jsonData;
+            // compact json, the formatting is lost in jsonb anyway
+            return MapperRegistry.getWriter(t.getClass()).writeValueAsString(t);
         } catch (Exception e) {
             logger.error("Unable to serialize data to json exception {}", e);
             throw new UnrecoverableException("Unable to serialize data to json", e);
@@ -848,7 +1027,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
     @Override
     public final Boolean removeById(final String id) {
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "DELETE FROM " + getTableWithSchema() + " WHERE id = ?");
 
             statement.setString(1, id);
@@ -866,11 +1045,11 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
     @Override
     public final List<String> getIdsBySourceAndVersion(final String name, final String version) {
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT id FROM " + getTableWithSchema() + ";");
 
             if (!name.isEmpty()) {
-                statement = connection.prepareStatement(
+                statement = getConnection().prepareStatement(
                         "SELECT id FROM " + getTableWithSchema() + " WHERE createdby "
                                 + "LIKE" + " ? AND createdbyversion LIKE ?");
                 statement.setString(1, name);
@@ -894,6 +1073,49 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
         }
     }
 
+    @Override
+    public final List<String> getIdsBySourceAndVersion(final String name, final String version, final String lastId,
+                                                       final Integer pageSize) {
+        try {
+            String query = "SELECT id FROM " + getTableWithSchema() + " WHERE true";
+
+            if (!name.isEmpty()) {
+                query = query + " AND createdby LIKE ? AND createdbyversion LIKE ?";
+            }
+
+            if (lastId != null) {
+                query = query + " AND id > ?";
+            }
+
+            PreparedStatement statement = getConnection().prepareStatement(query + " ORDER BY id ASC LIMIT ?");
+
+            int index = 1;
+            if (!name.isEmpty()) {
+                statement.setString(index++, name);
+                statement.setString(index++, version);
+            }
+            if (lastId != null) {
+                statement.setString(index++, lastId);
+            }
+            statement.setInt(index, pageSize);
+
+            ResultSet rs = statement.executeQuery();
+            List<String> result = new ArrayList<String>();
+
+            while (rs.next()) {
+                result.add(rs.getString("id"));
+            }
+
+            rs.close();
+            statement.close();
+
+            return result;
+        } catch (Exception e) {
+            logger.error("Unable to perform query, because of of {}", e);
+            throw new UnrecoverableException("Unable to perform query.", e);
+        }
+    }
+
     /**
      * Returns last date of publication before {@code maxDate} for the given worker and version.
      *
@@ -913,13 +1135,13 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
         try {
             PreparedStatement statement;
             if (maxDate != null) {
-                statement = connection.prepareStatement(
+                statement = getConnection().prepareStatement(
                     "SELECT max(p->>'publicationDate') as last_date"
                         + " FROM " + getTableWithSchema() + " t, jsonb_array_elements(t.data->'publications') p"
                         + " WHERE createdby = ? AND createdbyversion = ? AND p->>'publicationDate' < ?");
                 statement.setString(3, maxDate.format(DateTimeFormatter.ISO_LOCAL_DATE));
             } else {
-                statement = connection.prepareStatement(
+                statement = getConnection().prepareStatement(
                     "SELECT max(p->>'publicationDate') as last_date"
                         + " FROM " + getTableWithSchema() + " t, jsonb_array_elements(t.data->'publications') p"
                         + " WHERE createdby = ? AND createdbyversion = ?");
@@ -972,7 +1194,7 @@ public abstract class GenericJdbcDAO<T extends StorableDTO> extends BaseJdbcDAO<
                 .map(n -> String.format("data->>'hash' = '%s'", sanitize(n)))
                 .collect(Collectors.joining(" OR "));
 
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                 "SELECT data->>'hash' AS hash FROM " + getTableWithSchema() +
                 " WHERE createdBy = ? AND createdByVersion = ? AND (" + restriction + ")");
 
@@ -4,6 +4,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
 import eu.dl.core.UnrecoverableException;
@@ -21,7 +22,7 @@ public class JdbcExhangeRatesDAO extends GenericJdbcDAO<ExchangeRates> implement
     @Override
     public final ExchangeRates getByDate(final LocalDate date) {
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM " + getTableWithSchema() + " WHERE data @> '{ \"date\":\"" +
                             sanitizeForJsonString(date.format(DateTimeFormatter.ISO_LOCAL_DATE)) + "\"}' ");
 
@@ -45,8 +46,16 @@ public class JdbcExhangeRatesDAO extends GenericJdbcDAO<ExchangeRates> implement
 
     @Override
     public final List<ExchangeRates> findAll() {
-        // TODO Auto-generated method stub
-        return null;
+        try {
+            List<ExchangeRates> result = new ArrayList<>();
+            forEachRow("SELECT * FROM " + getTableWithSchema() + " ORDER BY data->>'date'", statement -> { },
+                rs -> result.add(createFromResultSet(rs)));
+
+            return result;
+        } catch (Exception e) {
+            logger.error("Unable to perform query, because of {}", e);
+            throw new UnrecoverableException("Unable to perform query.", e);
+        }
     }
 
     @Override
@@ -25,8 +25,6 @@ public final class JdbcPostcodeNutsDAO implements PostcodeNutsDAO {
 
     protected List<Pair<String, String>> additionalWorkers;
 
-    protected final Connection connection;
-
     private static final String TABLE_NAME = "postcode_nuts";
 
     /**
@@ -36,8 +34,13 @@ public final class JdbcPostcodeNutsDAO implements PostcodeNutsDAO {
         config = Config.getInstance();
 
         schema = config.getParam("jdbc.schema");
+    }
 
-        connection = JdbcTransactionUtils.getInstance().getConnection();
+    /**
+     * @return connection of the current thread
+     */
+    private Connection getConnection() {
+        return JdbcTransactionUtils.getInstance().getConnection();
     }
 
     /**
@@ -54,7 +57,7 @@ public final class JdbcPostcodeNutsDAO implements PostcodeNutsDAO {
         }
 
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                 "SELECT nuts" +
                 " FROM " + getTableWithSchema() +
                 " WHERE country = ? AND postcode = ?");
@@ -2,6 +2,8 @@ package eu.dl.dataaccess.dao.jdbc;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.mchange.v2.c3p0.ComboPooledDataSource;
 import org.slf4j.Logger;
@@ -12,11 +14,40 @@ import eu.dl.core.config.Config;
 import eu.dl.dataaccess.dao.TransactionUtils;
 
 /**
- * Transaction handling for hibernate.
+ * Transaction handling for JDBC. Each thread works with its own connection borrowed from the pool, so the
+ * transactions of concurrently running workers (or concurrently handled API requests) don't interfere.
+ *
+ * The connection is borrowed with the first database access of the thread. {@link #begin()} starts a transaction
+ * on it, {@link #commit()} and {@link #rollback()} end the transaction and return the connection to the pool.
+ * Connection used without transaction (in autocommit mode) is returned to the pool by {@link #release()}. The
+ * listeners registered by {@link #addCommitListener(Runnable)} are run after each commit.
+ *
+ * Size of the pool can be set with configuration properties {@code jdbc.minPoolSize}, {@code jdbc.maxPoolSize}
+ * and {@code jdbc.checkoutTimeout} (in milliseconds).
  */
 public final class JdbcTransactionUtils implements TransactionUtils {
 
-    private Connection connection;
+    private final ComboPooledDataSource dataSource;
+
+    /**
+     * Connection of the current thread.
+     */
+    private final ThreadLocal<Connection> connection = new ThreadLocal<>();
+
+    /**
+     * Whether the transaction of the current thread has been started by {@link #begin()}.
+     */
+    private final ThreadLocal<Boolean> transaction = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * Actions performed after each commit.
+     */
+    private final List<Runnable> commitListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Autocommit mode of newly taken connections.
+     */
+    private volatile boolean autoCommit = true;
 
     private static JdbcTransactionUtils instance;
 
@@ -35,13 +66,30 @@ public final class JdbcTransactionUtils implements TransactionUtils {
 
             String url = config.getParam("jdbc.url");
 
-            ComboPooledDataSource cpds = new ComboPooledDataSource();
-            cpds.setJdbcUrl(url);
-            cpds.setUser(config.getParam("jdbc.user"));
-            cpds.setPassword(config.getParam("jdbc.password"));
-            connection = cpds.getConnection();
+            dataSource = new ComboPooledDataSource();
+            dataSource.setJdbcUrl(url);
+            dataSource.setUser(config.getParam("jdbc.user"));
+            dataSource.setPassword(config.getParam("jdbc.password"));
+
+            Integer minPoolSize = config.getParamValueAs("jdbc.minPoolSize", Integer::valueOf);
+            if (minPoolSize != null) {
+                dataSource.setMinPoolSize(minPoolSize);
+                dataSource.setInitialPoolSize(minPoolSize);
+            }
+            Integer maxPoolSize = config.getParamValueAs("jdbc.maxPoolSize", Integer::valueOf);
+            if (maxPoolSize != null) {
+                dataSource.setMaxPoolSize(maxPoolSize);
+            }
+            Integer checkoutTimeout = config.getParamValueAs("jdbc.checkoutTimeout", Integer::valueOf);
+            if (checkoutTimeout != null) {
+                dataSource.setCheckoutTimeout(checkoutTimeout);
+            }
 
-            logger.info("Successfully established database connection to {}", url);
+            // check the credentials right away
+            dataSource.getConnection().close();
+
+            logger.info("Successfully established database connection to {}, pool size {}-{}", url,
+                dataSource.getMinPoolSize(), dataSource.getMaxPoolSize());
         } catch (Exception e) {
             logger.error("Unable to establish db connection caused by {}", e);
             throw new UnrecoverableException("Unable to establish db connection because of", e);
@@ -50,10 +98,10 @@ public final class JdbcTransactionUtils implements TransactionUtils {
 
     /**
      * Returns initialised utils.
-     * 
+     *
      * @return utils
      */
-    public static JdbcTransactionUtils getInstance() {
+    public static synchronized JdbcTransactionUtils getInstance() {
         if (instance == null) {
             instance = new JdbcTransactionUtils();
         }
@@ -62,40 +110,104 @@ public final class JdbcTransactionUtils implements TransactionUtils {
     }
 
     /**
-     * Returns initialised entity manager.
-     * 
-     * @return entity manager
+     * Returns connection of the current thread. The connection is borrowed from the pool with the first call
+     * in the thread (or the first call after the connection has been returned).
+     *
+     * @return connection
      */
     public Connection getConnection() {
-        return connection;
+        Connection current = connection.get();
+        if (current == null) {
+            try {
+                current = dataSource.getConnection();
+                current.setAutoCommit(autoCommit);
+            } catch (SQLException ex) {
+                logger.error("Unable to get connection from the pool.");
+                throw new UnrecoverableException("Unable to get connection from the pool", ex);
+            }
+            connection.set(current);
+            logger.debug("Connection({}) assigned to thread {}.", current.hashCode(), Thread.currentThread().getName());
+        }
+
+        return current;
+    }
+
+    /**
+     * Sets autocommit mode for all the connections, including the connection already held by the current thread.
+     * Connections in manual mode keep the transaction open until {@link #commit()} or {@link #rollback()} even if
+     * {@link #begin()} hasn't been called.
+     *
+     * @param autoCommit
+     *      whether the connections should commit automatically
+     */
+    public void setAutoCommit(final boolean autoCommit) {
+        this.autoCommit = autoCommit;
+
+        Connection current = connection.get();
+        if (current != null) {
+            try {
+                current.setAutoCommit(autoCommit);
+            } catch (SQLException ex) {
+                logger.error("Unable to set autocommit mode.");
+                throw new UnrecoverableException("Unable to set autocommit mode", ex);
+            }
+        }
     }
 
     @Override
     public void begin() {
-        logger.debug("Transaction({}) is started by default.", connection.hashCode());
+        if (transaction.get()) {
+            logger.trace("Transaction is already in progress, joining it.");
+            return;
+        }
+
+        Connection current = getConnection();
+        try {
+            current.setAutoCommit(false);
+        } catch (SQLException ex) {
+            logger.error("Unable to begin transaction.");
+            throw new UnrecoverableException("Unable to begin transaction", ex);
+        }
+        transaction.set(true);
+        logger.debug("Transaction({}) started.", current.hashCode());
     }
 
     @Override
     public void commit() {
-        try {
-            if (!connection.getAutoCommit()) {
-                connection.commit();
-                logger.debug("Transaction({}) commited.", connection.hashCode());
-            } else {
-                logger.trace("Transaction is in autocommit mode, no commmit.");
+        Connection current = connection.get();
+        if (current == null) {
+            logger.trace("No connection held by the thread, no commit.");
+        } else {
+            try {
+                if (!current.getAutoCommit()) {
+                    current.commit();
+                    logger.debug("Transaction({}) commited.", current.hashCode());
+                } else {
+                    logger.trace("Transaction is in autocommit mode, no commmit.");
+                }
+            } catch (SQLException ex) {
+                logger.error("Unable to commit transaction.");
+                throw new UnrecoverableException("Unable to commit transaction", ex);
             }
-        } catch (SQLException ex) {
-            logger.error("Unable to commit transaction.");
-            throw new UnrecoverableException("Unable to commit transaction", ex);
+
+            endTransaction();
         }
+
+        commitListeners.forEach(Runnable::run);
     }
 
     @Override
     public void rollback() {
+        Connection current = connection.get();
+        if (current == null) {
+            logger.trace("No connection held by the thread, no rollback needed.");
+            return;
+        }
+
         try {
-            if (!connection.getAutoCommit()) {
-                connection.rollback();
-                logger.debug("Transaction({}) rollbacked.", connection.hashCode());
+            if (!current.getAutoCommit()) {
+                current.rollback();
+                logger.debug("Transaction({}) rollbacked.", current.hashCode());
             } else {
                 logger.trace("Transaction is in autocommit mode, no rollback needed.");
             }
@@ -103,6 +215,55 @@ public final class JdbcTransactionUtils implements TransactionUtils {
             logger.error("Unable to rollback transaction.");
             throw new UnrecoverableException("Unable to rollback transaction", ex);
         }
+
+        endTransaction();
+    }
+
+    @Override
+    public void release() {
+        Connection current = connection.get();
+        if (current == null) {
+            return;
+        }
+
+        if (transaction.get()) {
+            logger.warn("Transaction({}) hasn't been finished, rolling back.", current.hashCode());
+            rollback();
+        } else {
+            returnConnection();
+        }
     }
 
+    @Override
+    public void addCommitListener(final Runnable listener) {
+        commitListeners.add(listener);
+    }
+
+    /**
+     * Ends the transaction started by {@link #begin()} and returns the connection to the pool.
+     */
+    private void endTransaction() {
+        if (transaction.get()) {
+            transaction.set(false);
+            returnConnection();
+        }
+    }
+
+    /**
+     * Returns connection of the current thread to the pool.
+     */
+    private void returnConnection() {
+        Connection current = connection.get();
+        connection.remove();
+        transaction.remove();
+
+        try {
+            current.close();
+            logger.debug("Connection({}) returned to the pool by thread {}.", current.hashCode(),
+                Thread.currentThread().getName());
+        } catch (SQLException ex) {
+            logger.error("Unable to return connection to the pool.");
+            throw new UnrecoverableException("Unable to return connection to the pool", ex);
+        }
+    }
 }
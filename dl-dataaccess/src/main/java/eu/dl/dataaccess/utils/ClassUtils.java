@@ -1,15 +1,16 @@
 package eu.dl.dataaccess.utils;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import eu.dl.core.UnrecoverableException;
 import eu.dl.dataaccess.dto.clean.Validable;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import org.apache.commons.lang3.StringUtils;
 
 /**
  * Utils class which provides useful methods working with objects, classes, reflections etc.
@@ -20,6 +21,11 @@ public final class ClassUtils {
 
     private static final Logger logger = LoggerFactory.getLogger(ClassUtils.class);
 
+    /**
+     * No-argument constructors of the list classes.
+     */
+    private static final Map<Class<?>, Constructor<?>> CONSTRUCTORS = new ConcurrentHashMap<>();
+
     /**
      * Suppress default constructor for noninstatiability.
      */
@@ -60,7 +66,8 @@ public final class ClassUtils {
         }
 
         try {
-            List newList = list.getClass().getDeclaredConstructor().newInstance();
+            List newList = (List) CONSTRUCTORS.computeIfAbsent(list.getClass(), ClassUtils::getConstructor)
+                .newInstance();
             for (T n : list) {
                 n = removeNonsenses(n);
                 if (n != null) {
@@ -69,7 +76,7 @@ public final class ClassUtils {
             }
 
             return newList.isEmpty() ? null : newList;
-        } catch (IllegalAccessException | InstantiationException | NoSuchMethodException | InvocationTargetException ex) {
+        } catch (IllegalAccessException | InstantiationException | InvocationTargetException | IllegalStateException ex) {
             logger.error("Unable to get new instance of the {} because of", list.getClass(), ex);
             throw new UnrecoverableException("Unable to get new instance of the collection");
         }
@@ -101,8 +108,12 @@ public final class ClassUtils {
         try {
             Object value;
             if (!(clazz instanceof List)) {
-                Method m = clazz.getClass().getMethod("get" + StringUtils.capitalize(p[0]));
-                value = m.invoke(clazz);
+                PropertyAccessor accessor = PropertyAccessor.of(clazz.getClass(), p[0]);
+                if (!accessor.isReadable()) {
+                    logger.error("Unable to get property '{}', {} has no such getter", p[0], clazz.getClass());
+                    return null;
+                }
+                value = accessor.get(clazz);
             } else {
                 value = ((List) clazz).get(Integer.parseInt(p[0]));
             }
@@ -115,10 +126,24 @@ public final class ClassUtils {
         } catch (IndexOutOfBoundsException ex) {
             logger.error("The number index '{}' of the list item is out of bounds.", p[0]);
             return null;
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException | NoSuchMethodException
-            | SecurityException ex) {
+        } catch (RuntimeException ex) {
             logger.error("Unable to get property '{}' because of", p[0], ex);
             return null;
         }
     }
+
+    /**
+     * @param cls
+     *      class
+     * @return no-argument constructor of the class
+     * @throws IllegalStateException
+     *      in case the class has no such constructor
+     */
+    private static Constructor<?> getConstructor(final Class<?> cls) {
+        try {
+            return cls.getDeclaredConstructor();
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalStateException("Class " + cls + " has no constructor without arguments", ex);
+        }
+    }
 }
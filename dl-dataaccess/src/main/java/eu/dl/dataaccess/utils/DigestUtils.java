@@ -134,6 +134,37 @@ public final class DigestUtils {
         repl.put("NV", "N V");
         COMPANY_TYPE_REGEX_REPLACEMENT.put("BE", repl);
     }
+
+    private static final Pattern WHITESPACE_REGEX = Pattern.compile("\\s+");
+
+    private static final Pattern ACCENTS_REGEX = Pattern.compile("[\\p{InCombiningDiacriticalMarks}]");
+
+    /**
+     * Cache of compiled regular expressions used by {@link #digestString(String, String, int)}.
+     */
+    private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+
+    /**
+     * Cache of compiled company type expressions, see {@link #compileExpression(String)}.
+     */
+    private static final Map<String, Pattern> EXPRESSIONS = new ConcurrentHashMap<>();
+
+    /**
+     * Compiled company type replacements of all the countries in order of their application. Built once from
+     * {@link #COMPANY_TYPE_REGEX_REPLACEMENT}, so the changes of the map made after the class initialization aren't
+     * reflected.
+     */
+    private static final List<Pair<Pattern, String>> COMPANY_TYPE_REPLACEMENTS;
+    static {
+        Map<String, String> regex = new HashMap<>();
+        // merging of regexes for selected countries
+        COMPANY_TYPE_REGEX_REPLACEMENT.entrySet().stream()
+            // TODO - filtering by country(ies)
+            //.filter()
+            .forEach(n -> regex.putAll(n.getValue()));
+
+        COMPANY_TYPE_REPLACEMENTS = compileReplacements(regex);
+    }
     
     /**
      * Separator used when creating digest.
@@ -173,10 +204,10 @@ public final class DigestUtils {
             return null;
         }
 
-        return input
+        return WHITESPACE_REGEX.matcher(input
             .trim()
-            .toLowerCase()            
-            .replaceAll("\\s+", " ");
+            .toLowerCase())
+            .replaceAll(" ");
     }
     
     /**
@@ -194,16 +225,7 @@ public final class DigestUtils {
             return null;
         }
 
-        String stdName = standardize(name);
-
-        Map<String, String> regex = new HashMap();
-        // merging of regexes for selected countries
-        COMPANY_TYPE_REGEX_REPLACEMENT.entrySet().stream()
-            // TODO - filtering by country(ies)
-            //.filter()
-            .forEach(n -> regex.putAll(n.getValue()));
-        
-        stdName = replace(stdName, regex);
+        String stdName = replace(standardize(name), COMPANY_TYPE_REPLACEMENTS);
 
         return StringUtils.substring(removeAccents(stdName), 0, 513);
     }
@@ -225,23 +247,10 @@ public final class DigestUtils {
             return input;
         }
         
-        String cleanInput = input;
-        List<String> sortedRegex = parseExpressions(regex).stream()
-            .sorted(sortDescByLength(o -> o.length())).collect(Collectors.toList());
-
-        for (String r : sortedRegex) {
-            String exp =
-                // begin of the input
-               "(?i)(\\A?" + SPACE_REGEX + "+|\\A|(?<before>\\|))"
-               // matched regex
-               + r.replace(" ", SPACE_REGEX + "*")
-               // end of the input
-               + "(" + SPACE_REGEX + "+\\z?|\\z|(?<after>\\|))";
-                        
-            cleanInput = cleanInput.replaceAll(exp, "${before}|" + replacement + "|${after}");
-        }
-
-        return cleanInput;
+        return replace(input, parseExpressions(regex).stream()
+            .sorted(sortDescByLength(o -> o.length()))
+            .map(r -> Pair.of(compileExpression(r), getReplacement(replacement)))
+            .collect(Collectors.toList()));
     }
 
     /**
@@ -259,6 +268,18 @@ public final class DigestUtils {
             return input;
         }
 
+        return replace(input, compileReplacements(regex));
+    }
+
+    /**
+     * Compiles the mapping of regular expressions to the list of replacements. Regular expresions are sorted by length
+     * in descending order and duplicities are removed.
+     *
+     * @param regex
+     *      mapping of regular expresions, where replacement is key and regular expression is value
+     * @return compiled expressions and their replacements in order of application
+     */
+    private static List<Pair<Pattern, String>> compileReplacements(final Map<String, String> regex) {
         final List<Pair<String, String>> expressions = new ArrayList<>();
         regex.entrySet().stream()
             // unique list by key (replacement), assumes that same keys includes same regular expression so we can
@@ -269,15 +290,56 @@ public final class DigestUtils {
                 parseExpressions(n.getValue()).forEach(m -> expressions.add(Pair.of(n.getKey(), m)));
             });
 
-        // expressions sorting and replacing
-        final String[] cleanInput = {input};
-        expressions.stream()
+        return expressions.stream()
             .sorted(sortDescByLength(o -> o.getValue().length()))
-            .forEach(n -> {
-               cleanInput[0] = replace(cleanInput[0], n.getValue(), n.getKey());
-            });
-                
-        return cleanInput[0];
+            .map(n -> Pair.of(compileExpression(n.getValue()), getReplacement(n.getKey())))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Applies the compiled replacements in the given order.
+     *
+     * @param input
+     *      string to be replaced
+     * @param replacements
+     *      compiled expressions and their replacements
+     * @return replaced string
+     */
+    private static String replace(final String input, final List<Pair<Pattern, String>> replacements) {
+        if (input == null) {
+            return null;
+        }
+
+        String cleanInput = input;
+        for (Pair<Pattern, String> r : replacements) {
+            cleanInput = r.getKey().matcher(cleanInput).replaceAll(r.getValue());
+        }
+
+        return cleanInput;
+    }
+
+    /**
+     * @param regex
+     *      pseudo regular expression, spaces match any number of separators
+     * @return compiled expression which matches the {@code regex} as a separate word
+     */
+    private static Pattern compileExpression(final String regex) {
+        return EXPRESSIONS.computeIfAbsent(regex, r -> Pattern.compile(
+            // begin of the input
+            "(?i)(\\A?" + SPACE_REGEX + "+|\\A|(?<before>\\|))"
+            // matched regex
+            + r.replace(" ", SPACE_REGEX + "*")
+            // end of the input
+            + "(" + SPACE_REGEX + "+\\z?|\\z|(?<after>\\|))"));
+    }
+
+    /**
+     * @param replacement
+     *      replacement of the company type
+     * @return replacement string for the expression compiled by {@link #compileExpression(String)}
+     */
+    private static String getReplacement(final String replacement) {
+        return "${before}|" + replacement + "|${after}";
     }
 
     /**
@@ -471,7 +533,7 @@ public final class DigestUtils {
         }
         
         final StringBuilder digest = new StringBuilder();
-        final Pattern p = Pattern.compile(regex);
+        final Pattern p = PATTERNS.computeIfAbsent(regex, Pattern::compile);
         final Matcher m = p.matcher(input);        
         while (m.find() && digest.length() < count) {
             digest.append(m.group());
@@ -494,9 +556,9 @@ public final class DigestUtils {
 
         return
             //input canonical decomposition
-            Normalizer.normalize(input, Normalizer.Form.NFD)
+            ACCENTS_REGEX.matcher(Normalizer.normalize(input, Normalizer.Form.NFD))
             //accents removing
-            .replaceAll("[\\p{InCombiningDiacriticalMarks}]", "");
+            .replaceAll("");
     }
 
     /**
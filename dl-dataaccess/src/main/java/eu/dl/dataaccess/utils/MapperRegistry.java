@@ -0,0 +1,94 @@
+package eu.dl.dataaccess.utils;
+
+import java.text.SimpleDateFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Shared, pre-configured Jackson mappers. Construction of a mapper and discovery of (de)serializers for a class are
+ * expensive, so the mappers are created once and readers and writers are cached per class. All the returned
+ * instances are thread-safe and must not be reconfigured.
+ */
+public final class MapperRegistry {
+
+    /**
+     * Mapper used for the data stored in the database.
+     */
+    private static final ObjectMapper STORAGE_MAPPER = createStorageMapper();
+
+    /**
+     * Mapper used for the messages exchanged by the workers.
+     */
+    private static final ObjectMapper MESSAGE_MAPPER = new ObjectMapper()
+        // java time module must be registered to support java 8 date time classes
+        .registerModule(new JavaTimeModule());
+
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    private static final Map<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    /**
+     * Suppress default constructor for noninstatiability.
+     */
+    private MapperRegistry() {
+    }
+
+    /**
+     * @return mapper for the data stored in the database
+     */
+    public static ObjectMapper getStorageMapper() {
+        return STORAGE_MAPPER;
+    }
+
+    /**
+     * @return mapper for the worker messages
+     */
+    public static ObjectMapper getMessageMapper() {
+        return MESSAGE_MAPPER;
+    }
+
+    /**
+     * Returns storage reader of the given class. Use {@link ObjectReader#withValueToUpdate(Object)} to populate an
+     * existing instance, the derived reader shares the cached deserializer.
+     *
+     * @param cls
+     *      read class
+     * @return reader
+     */
+    public static ObjectReader getReader(final Class<?> cls) {
+        return READERS.computeIfAbsent(cls, STORAGE_MAPPER::readerFor);
+    }
+
+    /**
+     * Returns storage writer of the given class.
+     *
+     * @param cls
+     *      written class
+     * @return writer
+     */
+    public static ObjectWriter getWriter(final Class<?> cls) {
+        return WRITERS.computeIfAbsent(cls, STORAGE_MAPPER::writerFor);
+    }
+
+    /**
+     * @return mapper configured for the data stored in the database
+     */
+    private static ObjectMapper createStorageMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        mapper.registerModule(new JavaTimeModule());
+        mapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"));
+        mapper.setSerializationInclusion(Include.NON_NULL);
+
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        return mapper;
+    }
+}
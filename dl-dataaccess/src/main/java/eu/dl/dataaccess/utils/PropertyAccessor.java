@@ -0,0 +1,248 @@
+package eu.dl.dataaccess.utils;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.dl.core.UnrecoverableException;
+
+/**
+ * Compiled getter and setter of the class property. Looking the accessor methods up by reflection and invoking them
+ * reflectively is expensive, so the accessors are resolved once per class and property name, compiled with
+ * {@link LambdaMetafactory} to plain functional interfaces and cached. Instances are thread-safe.
+ *
+ * The getter is the public method get[Property] without parameters, the setter is the public one-parameter method
+ * set[Property].
+ */
+public final class PropertyAccessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PropertyAccessor.class);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final Map<Class<?>, Map<String, PropertyAccessor>> ACCESSORS = new ConcurrentHashMap<>();
+
+    private final Class<?> cls;
+
+    private final String property;
+
+    private final Class<?> type;
+
+    private final Function<Object, Object> getter;
+
+    private final BiConsumer<Object, Object> setter;
+
+    /**
+     * @param cls
+     *      class of the accessed objects
+     * @param property
+     *      capitalized property name
+     */
+    private PropertyAccessor(final Class<?> cls, final String property) {
+        this.cls = cls;
+        this.property = property;
+
+        Method getterMethod = null;
+        Method setterMethod = null;
+        for (Method method : cls.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+
+            if (getterMethod == null && method.getParameterCount() == 0 && method.getName().equals("get" + property)) {
+                getterMethod = method;
+            } else if (setterMethod == null && method.getParameterCount() == 1
+                && method.getName().equals("set" + property)) {
+                setterMethod = method;
+            }
+        }
+
+        this.type = getterMethod == null ? null : getterMethod.getReturnType();
+        this.getter = getterMethod == null ? null : compileGetter(cls, getterMethod);
+        this.setter = setterMethod == null ? null : compileSetter(cls, setterMethod);
+    }
+
+    /**
+     * Returns accessor of the given property.
+     *
+     * @param cls
+     *      class of the accessed objects
+     * @param property
+     *      property name, it is capitalized (e.g. title -> getTitle/setTitle)
+     * @return accessor
+     */
+    public static PropertyAccessor of(final Class<?> cls, final String property) {
+        final String name = StringUtils.capitalize(property);
+
+        return ACCESSORS.computeIfAbsent(cls, k -> new ConcurrentHashMap<>())
+            .computeIfAbsent(name, k -> new PropertyAccessor(cls, k));
+    }
+
+    /**
+     * @return true if the property has getter
+     */
+    public boolean isReadable() {
+        return getter != null;
+    }
+
+    /**
+     * @return true if the property has setter
+     */
+    public boolean isWritable() {
+        return setter != null;
+    }
+
+    /**
+     * @return return type of the getter or null if the property isn't readable
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Returns value of the property.
+     *
+     * @param object
+     *      object of the accessor class
+     * @return property value
+     * @throws UnrecoverableException
+     *      in case the property isn't readable
+     */
+    public Object get(final Object object) {
+        if (getter == null) {
+            logger.error("Class {} has no getter of the property {}", cls.getName(), property);
+            throw new UnrecoverableException("Property " + property + " isn't readable");
+        }
+
+        return getter.apply(object);
+    }
+
+    /**
+     * Sets value of the property.
+     *
+     * @param object
+     *      object of the accessor class
+     * @param value
+     *      property value
+     * @throws UnrecoverableException
+     *      in case the property isn't writable
+     */
+    public void set(final Object object, final Object value) {
+        if (setter == null) {
+            logger.error("Class {} has no setter of the property {}", cls.getName(), property);
+            throw new UnrecoverableException("Property " + property + " isn't writable");
+        }
+
+        setter.accept(object, value);
+    }
+
+    /**
+     * @param cls
+     *      class of the accessed objects
+     * @param method
+     *      getter method
+     * @return compiled getter or null if the method isn't accessible
+     */
+    private static Function<Object, Object> compileGetter(final Class<?> cls, final Method method) {
+        final MethodHandle handle = findVirtual(cls, method);
+        if (handle == null) {
+            return null;
+        }
+
+        try {
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply", MethodType.methodType(Function.class),
+                MethodType.methodType(Object.class, Object.class), handle,
+                MethodType.methodType(wrap(method.getReturnType()), cls));
+
+            return (Function<Object, Object>) site.getTarget().invokeExact();
+        } catch (Throwable ex) {
+            // the class isn't visible for the lambda, the method handle is used directly
+            logger.debug("Unable to compile getter {} because of", method, ex);
+            final MethodHandle generic = handle.asType(MethodType.methodType(Object.class, Object.class));
+
+            return object -> {
+                try {
+                    return (Object) generic.invokeExact(object);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new UnrecoverableException("Unable to invoke " + method, e);
+                }
+            };
+        }
+    }
+
+    /**
+     * @param cls
+     *      class of the accessed objects
+     * @param method
+     *      setter method
+     * @return compiled setter or null if the method isn't accessible
+     */
+    private static BiConsumer<Object, Object> compileSetter(final Class<?> cls, final Method method) {
+        final MethodHandle handle = findVirtual(cls, method);
+        if (handle == null) {
+            return null;
+        }
+
+        try {
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept", MethodType.methodType(BiConsumer.class),
+                MethodType.methodType(void.class, Object.class, Object.class), handle,
+                MethodType.methodType(void.class, cls, wrap(method.getParameterTypes()[0])));
+
+            return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+        } catch (Throwable ex) {
+            // the class isn't visible for the lambda, the method handle is used directly
+            logger.debug("Unable to compile setter {} because of", method, ex);
+            final MethodHandle generic = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+            return (object, value) -> {
+                try {
+                    generic.invokeExact(object, value);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new UnrecoverableException("Unable to invoke " + method, e);
+                }
+            };
+        }
+    }
+
+    /**
+     * @param cls
+     *      class of the accessed objects
+     * @param method
+     *      accessor method
+     * @return method handle of the method resolved on the given class or null if the method isn't accessible
+     */
+    private static MethodHandle findVirtual(final Class<?> cls, final Method method) {
+        try {
+            return LOOKUP.findVirtual(cls, method.getName(),
+                MethodType.methodType(method.getReturnType(), method.getParameterTypes()));
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            logger.debug("Method {} isn't accessible because of", method, ex);
+            return null;
+        }
+    }
+
+    /**
+     * @param type
+     *      type
+     * @return wrapper type for primitive type, otherwise the type itself
+     */
+    private static Class<?> wrap(final Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+}
@@ -0,0 +1,160 @@
+package eu.dl.dataaccess.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import eu.dl.dataaccess.dto.codetables.BodyIdentifier;
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+
+/**
+ * Test of the matching pools selected from memory.
+ */
+public final class MatchedBodiesPoolTest {
+
+    private static final Function<String, String> NORMALIZER = v -> v.replace("/", "\\/");
+
+    /**
+     * Pools selected from memory are the same as the pools selected by the conditions of the single body queries.
+     */
+    @Test
+    public void sameAsSingleBodyTest() {
+        Random random = new Random(42);
+        List<MatchedBody> stored = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            stored.add(body(random));
+        }
+
+        List<MatchedBody> searched = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            searched.add(body(random));
+        }
+        searched.add(null);
+
+        MatchedBodiesPool.Keys keys = new MatchedBodiesPool.Keys(searched, NORMALIZER);
+        MatchedBodiesPool<MatchedBody> pools = new MatchedBodiesPool<>(keys,
+            stored.stream().filter(b -> searched.stream().anyMatch(s -> s != null && matches(b, s, true)))
+                .collect(Collectors.toList()));
+
+        for (MatchedBody body : searched.subList(0, 50)) {
+            List<MatchedBody> exact = pools.getExactMatchBodiesPool(body.getStandardizedName(),
+                body.getStandardizedAddress(), body.getBodyIds());
+            assertEquals(stored.stream().filter(b -> matches(b, body, false)).collect(Collectors.toList()), exact);
+
+            List<MatchedBody> approximate = pools.getApproximateMatchBodiesPool(body.getStandardizedName(),
+                body.getStandardizedAddress(), body.getBodyIds(), body.getDigest());
+            assertEquals(stored.stream().filter(b -> matches(b, body, true)).collect(Collectors.toList()),
+                approximate);
+        }
+    }
+
+    /**
+     * Pool isn't returned for the keys which haven't been fetched, the keys are normalized.
+     */
+    @Test
+    public void notFetchedTest() {
+        MatchedBody body = new MatchedBody().setStandardizedName("a/b").setDigest("d");
+        MatchedBodiesPool<MatchedBody> pools = new MatchedBodiesPool<>(
+            new MatchedBodiesPool.Keys(Collections.singletonList(body), NORMALIZER), Collections.emptyList());
+
+        assertEquals(Collections.emptyList(), pools.getExactMatchBodiesPool("a/b", null, null));
+        assertNotNull(pools.getApproximateMatchBodiesPool("a/b", null, null, "d"));
+        assertNull(pools.getExactMatchBodiesPool("a/b", "address", null));
+        assertNull(pools.getApproximateMatchBodiesPool("a/b", null, null, "other"));
+        assertNull(pools.getExactMatchBodiesPool(null, null, Collections.singletonList(
+            new BodyIdentifier().setId("1").setScope(BodyIdentifier.Scope.ETALON_ID))));
+    }
+
+    /**
+     * Data attached to a pool body are computed once and shared by all the pools the body is selected into.
+     */
+    @Test
+    public void attachmentTest() {
+        MatchedBody first = new MatchedBody().setStandardizedName("name").setDigest("d");
+        MatchedBody second = new MatchedBody().setStandardizedName("other").setDigest("d");
+        MatchedBodiesPool<MatchedBody> pools = new MatchedBodiesPool<>(
+            new MatchedBodiesPool.Keys(Arrays.asList(first, second), NORMALIZER), Arrays.asList(first, second));
+
+        AtomicInteger computed = new AtomicInteger();
+        Function<MatchedBody, String> factory = b -> {
+            computed.incrementAndGet();
+            return b.getStandardizedName().toUpperCase();
+        };
+
+        MatchedBodiesPool.Selection<MatchedBody> byName =
+            (MatchedBodiesPool.Selection<MatchedBody>) pools.getApproximateMatchBodiesPool("other", null, null, null);
+        MatchedBodiesPool.Selection<MatchedBody> byDigest =
+            (MatchedBodiesPool.Selection<MatchedBody>) pools.getApproximateMatchBodiesPool(null, null, null, "d");
+
+        assertEquals(Collections.singletonList(second), byName);
+        assertEquals(Arrays.asList(first, second), byDigest);
+        assertEquals("OTHER", byName.getAttachment(0, String.class, factory));
+        assertEquals("OTHER", byDigest.getAttachment(1, String.class, factory));
+        assertEquals("NAME", byDigest.getAttachment(0, String.class, factory));
+        assertEquals(2, computed.get());
+    }
+
+    /**
+     * Conditions of the single body queries.
+     *
+     * @param stored
+     *      stored body
+     * @param searched
+     *      searched body
+     * @param approximate
+     *      true for the approximate matching pool
+     * @return true if the stored body belongs to the pool of the searched one
+     */
+    private static boolean matches(final MatchedBody stored, final MatchedBody searched, final boolean approximate) {
+        if (searched.getStandardizedName() != null
+            && Objects.equals(stored.getStandardizedName(), NORMALIZER.apply(searched.getStandardizedName()))) {
+            return true;
+        }
+        if (searched.getStandardizedAddress() != null
+            && Objects.equals(stored.getStandardizedAddress(), NORMALIZER.apply(searched.getStandardizedAddress()))) {
+            return true;
+        }
+        if (approximate && searched.getDigest() != null
+            && Objects.equals(stored.getDigest(), NORMALIZER.apply(searched.getDigest()))) {
+            return true;
+        }
+
+        return searched.getBodyIds() != null && stored.getBodyIds() != null && searched.getBodyIds().stream()
+            .anyMatch(s -> s.getId() != null && s.getScope() != null && stored.getBodyIds().stream()
+                .anyMatch(b -> s.getId().equals(b.getId()) && s.getScope() == b.getScope()));
+    }
+
+    /**
+     * @param random
+     *      random generator
+     * @return body with random keys
+     */
+    private static MatchedBody body(final Random random) {
+        MatchedBody body = new MatchedBody()
+            .setStandardizedName(random.nextInt(5) == 0 ? null : "name " + random.nextInt(300))
+            .setStandardizedAddress(random.nextInt(3) == 0 ? null : "street " + random.nextInt(300))
+            .setDigest(random.nextInt(4) == 0 ? null : "digest" + random.nextInt(500));
+
+        if (random.nextBoolean()) {
+            List<BodyIdentifier> ids = new ArrayList<>();
+            ids.add(new BodyIdentifier().setId(String.valueOf(random.nextInt(200)))
+                .setScope(random.nextBoolean() ? BodyIdentifier.Scope.ETALON_ID : BodyIdentifier.Scope.CZ));
+            ids.add(new BodyIdentifier().setId(null).setScope(BodyIdentifier.Scope.CZ));
+            body.setBodyIds(ids);
+        }
+
+        return body;
+    }
+}
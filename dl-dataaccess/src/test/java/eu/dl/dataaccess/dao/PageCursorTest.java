@@ -0,0 +1,65 @@
+package eu.dl.dataaccess.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import eu.dl.dataaccess.dto.raw.RawData;
+
+/**
+ * Tests for PageCursor class.
+ */
+public final class PageCursorTest {
+    private static final LocalDateTime MODIFIED = LocalDateTime.of(2020, 1, 2, 3, 4, 5, 123456000);
+
+    /**
+     * Test of the token encoding and decoding.
+     */
+    @Test
+    public void tokenTest() {
+        // first page cursor has no id
+        PageCursor first = PageCursor.fromToken(PageCursor.after(MODIFIED).toToken());
+        assertEquals(MODIFIED, first.getModified());
+        assertNull(first.getId());
+
+        // ids may contain the separator, timestamp keeps microseconds
+        RawData item = new RawData();
+        item.setId("a|b");
+        item.setModified(MODIFIED);
+        PageCursor cursor = PageCursor.fromToken(PageCursor.after(item).toToken());
+        assertEquals(MODIFIED, cursor.getModified());
+        assertEquals("a|b", cursor.getId());
+    }
+
+    /**
+     * Test of {@link PageCursor#next(java.util.List)}.
+     */
+    @Test
+    public void nextTest() {
+        assertNull(PageCursor.next(Collections.emptyList()));
+
+        RawData first = new RawData();
+        first.setId("1");
+        first.setModified(MODIFIED);
+        RawData last = new RawData();
+        last.setId("2");
+        last.setModified(MODIFIED.plusSeconds(1));
+
+        PageCursor next = PageCursor.next(Arrays.asList(first, last));
+        assertEquals("2", next.getId());
+        assertEquals(MODIFIED.plusSeconds(1), next.getModified());
+    }
+
+    /**
+     * Malformed token is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedTokenTest() {
+        PageCursor.fromToken("not a token");
+    }
+}
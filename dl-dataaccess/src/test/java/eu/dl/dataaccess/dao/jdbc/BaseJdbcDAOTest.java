@@ -0,0 +1,149 @@
+package eu.dl.dataaccess.dao.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Tests for BaseJdbcDAO class.
+ */
+public final class BaseJdbcDAOTest {
+    private static final int ROWS = 3000000;
+
+    private static final int FETCH_SIZE = 500;
+
+    private static final long MAX_RETAINED_MEMORY = 64 * 1024 * 1024;
+
+    /**
+     * Test of {@link BaseJdbcDAO#toCsvRow(Object...)}.
+     */
+    @Test
+    public void toCsvRowTest() {
+        // nulls are left empty, empty strings are quoted
+        assertEquals(",\"\",\"a\"\n", BaseJdbcDAO.toCsvRow(null, "", "a"));
+
+        // quotes are doubled, separators and line breaks stay inside of the quoted value
+        assertEquals("\"{\"\"name\"\":\"\"a,b\nc\"\"}\"\n", BaseJdbcDAO.toCsvRow("{\"name\":\"a,b\nc\"}"));
+
+        // other values are converted to strings
+        Timestamp timestamp = Timestamp.valueOf(LocalDateTime.of(2020, 1, 2, 3, 4, 5));
+        assertEquals("\"1\",\"2020-01-02 03:04:05.0\"\n", BaseJdbcDAO.toCsvRow(1, timestamp));
+    }
+
+    /**
+     * Test of {@link BaseJdbcDAO#streamRows(Connection, String, BaseJdbcDAO.StatementParameters, int,
+     * BaseJdbcDAO.RowHandler)}. Streams a few million synthetic rows and checks that they are handed over one by one
+     * in order, read with the fetch size and not retained in memory.
+     *
+     * @throws Exception
+     *      in case of failure
+     */
+    @Test
+    public void streamRowsTest() throws Exception {
+        final AtomicInteger fetchSize = new AtomicInteger();
+        final AtomicInteger parameter = new AtomicInteger();
+
+        final Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        final long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+
+        final AtomicLong handled = new AtomicLong();
+        BaseJdbcDAO.streamRows(syntheticConnection(fetchSize, parameter), "SELECT id FROM t WHERE createdby = ?",
+            statement -> statement.setInt(1, 1), FETCH_SIZE,
+            rs -> {
+                assertEquals("id-" + handled.get(), rs.getString("id"));
+                handled.incrementAndGet();
+            });
+
+        System.gc();
+        final long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+
+        assertEquals(ROWS, handled.get());
+        assertEquals(FETCH_SIZE, fetchSize.get());
+        assertEquals(1, parameter.get());
+        assertTrue("Streaming retained " + (usedAfter - usedBefore) + " bytes",
+            usedAfter - usedBefore < MAX_RETAINED_MEMORY);
+    }
+
+    /**
+     * Creates connection whose statements return {@link #ROWS} generated rows with column "id".
+     *
+     * @param fetchSize
+     *      receives fetch size of the statement
+     * @param parameter
+     *      receives the first parameter of the statement
+     * @return connection
+     */
+    private static Connection syntheticConnection(final AtomicInteger fetchSize, final AtomicInteger parameter) {
+        final AtomicInteger row = new AtomicInteger(-1);
+
+        final ResultSet resultSet = proxy(ResultSet.class, (method, args) -> {
+            switch (method) {
+                case "next":
+                    return row.incrementAndGet() < ROWS;
+                case "getString":
+                    return "id-" + row.get();
+                default:
+                    return null;
+            }
+        });
+
+        final PreparedStatement statement = proxy(PreparedStatement.class, (method, args) -> {
+            switch (method) {
+                case "setFetchSize":
+                    fetchSize.set((Integer) args[0]);
+                    return null;
+                case "setInt":
+                    parameter.set((Integer) args[1]);
+                    return null;
+                case "executeQuery":
+                    return resultSet;
+                default:
+                    return null;
+            }
+        });
+
+        return proxy(Connection.class, (method, args) -> "prepareStatement".equals(method) ? statement : null);
+    }
+
+    /**
+     * Creates proxy implementing the interface with the handler.
+     *
+     * @param type
+     *      interface
+     * @param handler
+     *      handler of the calls by method name
+     * @param <I>
+     *      interface type
+     * @return proxy
+     */
+    private static <I> I proxy(final Class<I> type, final CallHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+            (proxy, method, args) -> handler.handle(method.getName(), args)));
+    }
+
+    /**
+     * Handles call of the proxied method.
+     */
+    @FunctionalInterface
+    private interface CallHandler {
+        /**
+         * @param method
+         *      method name
+         * @param args
+         *      arguments
+         * @return result
+         */
+        Object handle(String method, Object[] args);
+    }
+}
@@ -3,9 +3,16 @@ package eu.dl.dataaccess.utils;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
+import java.text.Normalizer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.lang3.StringUtils;
 
 import org.junit.Test;
 
@@ -323,4 +330,71 @@ public final class DigestUtilsTest {
         
         assertEquals(DigestUtils.bodyFullHash(body1), DigestUtils.bodyFullHash(body2));
     }
+
+    /**
+     * Standardized names of a large generated corpus are identical to the names standardized by the reference
+     * implementation which merges and compiles the company type expressions on each call.
+     */
+    @Test
+    public void standardizeNameGoldenTest() {
+        List<String> words = Arrays.asList("Datlab", "Stavby", "Silnice", "Nemocnice", "Société", "Générale",
+            "Müller", "Bau", "Przedsiębiorstwo", "Budowlane", "Construcciones", "Unión", "Temporal", "Empresas",
+            "Aktiebolaget", "Volvo", "Kft", "Holding", "Company", "co", "&", "|", "a", "s", "l", "k");
+        List<String> companyTypes = Arrays.asList("s.r.o.", "spol. s r.o.", "a. s.", "akciová společnost", "o.p.s.",
+            "v.o.s.", "státní podnik", "S.A.R.L.", "SAS", "S.A.", "Ltd", "Limited", "co. ltd.", "plc", "L.L.P.",
+            "GmbH", "GmbH & Co. KG", "mbH", "AG", "Firma", "BIETERGEMEINSCHAFT", "S.L.", "S.L.U.", "S.A.U.", "U.T.E.",
+            "Lda", "E.P.E.", "Sp. z o.o.", "sp. j.", "S.p.A.", "S.r.l.", "R.T.I.", "B.V.", "N.V.", "AB", "H.B.",
+            "Kft.", "Zrt.");
+        List<String> separators = Arrays.asList(" ", "  ", ", ", ".", " \t", "\n", "|", " - ");
+
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder name = new StringBuilder(random.nextBoolean() ? " " : "");
+            int length = 1 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                List<String> source = random.nextInt(3) == 0 ? companyTypes : words;
+                String part = source.get(random.nextInt(source.size()));
+                if (random.nextInt(4) == 0) {
+                    part = part.toUpperCase();
+                }
+                name.append(part).append(separators.get(random.nextInt(separators.size())));
+            }
+
+            String input = name.toString();
+            assertEquals(input, referenceStandardizeName(input), DigestUtils.standardizeName(input));
+        }
+    }
+
+    /**
+     * Reference implementation of the name standardization.
+     *
+     * @param name
+     *      name
+     * @return standardized name
+     */
+    private static String referenceStandardizeName(final String name) {
+        String stdName = name.trim().toLowerCase().replaceAll("\\s+", " ");
+
+        Map<String, String> regex = new HashMap<>();
+        DigestUtils.COMPANY_TYPE_REGEX_REPLACEMENT.entrySet().forEach(n -> regex.putAll(n.getValue()));
+
+        List<String[]> expressions = new ArrayList<>();
+        regex.forEach((replacement, value) -> {
+            for (String r : value.split(", ?")) {
+                expressions.add(new String[]{replacement, r});
+            }
+        });
+        expressions.sort(Comparator.comparingInt((String[] n) -> n[1].length()).reversed());
+
+        for (String[] n : expressions) {
+            String exp = "(?i)(\\A?[,\\.\\s]+|\\A|(?<before>\\|))" + n[1].replace(" ", "[,\\.\\s]*")
+                + "([,\\.\\s]+\\z?|\\z|(?<after>\\|))";
+            stdName = stdName.replaceAll(exp, "${before}|" + n[0] + "|${after}");
+        }
+
+        stdName = Normalizer.normalize(stdName, Normalizer.Form.NFD)
+            .replaceAll("[\\p{InCombiningDiacriticalMarks}]", "");
+
+        return StringUtils.substring(stdName, 0, 513);
+    }
 }
@@ -0,0 +1,50 @@
+package eu.dl.dataaccess.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import eu.dl.dataaccess.dto.raw.RawData;
+
+/**
+ * Tests for MapperRegistry class.
+ */
+public final class MapperRegistryTest {
+    /**
+     * Readers and writers are cached per class.
+     */
+    @Test
+    public void cacheTest() {
+        assertSame(MapperRegistry.getReader(RawData.class), MapperRegistry.getReader(RawData.class));
+        assertSame(MapperRegistry.getWriter(RawData.class), MapperRegistry.getWriter(RawData.class));
+    }
+
+    /**
+     * Test of writing and reading for update with the cached instances.
+     *
+     * @throws IOException
+     *      in case of (de)serialization failure
+     */
+    @Test
+    public void roundTripTest() throws IOException {
+        RawData raw = new RawData();
+        raw.setSourceData("data");
+        raw.setSourceDataMimeType("text/html");
+
+        String json = MapperRegistry.getWriter(RawData.class).writeValueAsString(raw);
+        // nulls are omitted
+        assertFalse(json.contains("sourceUrl"));
+
+        RawData read = new RawData();
+        read.setId("1");
+        MapperRegistry.getReader(RawData.class).withValueToUpdate(read).readValue(json);
+
+        assertEquals("1", read.getId());
+        assertEquals("data", read.getSourceData());
+        assertEquals("text/html", read.getSourceDataMimeType());
+    }
+}
@@ -0,0 +1,94 @@
+package eu.dl.dataaccess.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import eu.dl.core.UnrecoverableException;
+import eu.dl.dataaccess.dto.generic.Address;
+
+/**
+ * Tests for PropertyAccessor class.
+ */
+public final class PropertyAccessorTest {
+    /**
+     * Bean with primitive property and read-only property.
+     */
+    public static final class Bean {
+        private int count;
+
+        /**
+         * @return count
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @param count
+         *      count
+         */
+        public void setCount(final int count) {
+            this.count = count;
+        }
+
+        /**
+         * @return constant
+         */
+        public String getReadOnly() {
+            return "read only";
+        }
+    }
+
+    /**
+     * Test of the DTO property with fluent setter.
+     */
+    @Test
+    public void fluentSetterTest() {
+        PropertyAccessor accessor = PropertyAccessor.of(Address.class, "postcode");
+        assertSame(accessor, PropertyAccessor.of(Address.class, "Postcode"));
+        assertEquals(String.class, accessor.getType());
+
+        Address address = new Address();
+        accessor.set(address, "12345");
+        assertEquals("12345", address.getPostcode());
+        assertEquals("12345", accessor.get(address));
+    }
+
+    /**
+     * Test of the primitive property.
+     */
+    @Test
+    public void primitivePropertyTest() {
+        PropertyAccessor accessor = PropertyAccessor.of(Bean.class, "count");
+        assertEquals(int.class, accessor.getType());
+
+        Bean bean = new Bean();
+        accessor.set(bean, 5);
+        assertEquals(5, accessor.get(bean));
+    }
+
+    /**
+     * Missing accessor methods.
+     */
+    @Test
+    public void missingAccessorTest() {
+        PropertyAccessor readOnly = PropertyAccessor.of(Bean.class, "readOnly");
+        assertTrue(readOnly.isReadable());
+        assertFalse(readOnly.isWritable());
+
+        PropertyAccessor missing = PropertyAccessor.of(Bean.class, "missing");
+        assertFalse(missing.isReadable());
+        assertNull(missing.getType());
+        try {
+            missing.get(new Bean());
+        } catch (UnrecoverableException ex) {
+            return;
+        }
+        throw new AssertionError("Missing getter was invoked");
+    }
+}
@@ -7,6 +7,8 @@ import eu.dl.dataaccess.dto.indicator.TenderIndicatorType;
 import eu.dl.dataaccess.dto.master.MasterBid;
 import eu.dl.dataaccess.dto.master.MasterTender;
 
+import java.util.function.Predicate;
+
 import static eu.dl.dataaccess.dto.codetables.BodyIdentifier.Type.BVD_ID;
 
 /**
@@ -15,15 +17,25 @@ import static eu.dl.dataaccess.dto.codetables.BodyIdentifier.Type.BVD_ID;
 public final class PoliticalConnectionsOfSuppliers extends BaseIndicatorPlugin implements
         IndicatorPlugin<MasterTender> {
 
-    private MasterBodyDAO masterBodyDAO;
+    private final Predicate<String> politicalExposedPerson;
 
     /**
-     * Default constructor.
+     * Default constructor. Each bvd id is searched by a query, see
+     * {@link #PoliticalConnectionsOfSuppliers(PoliticalExposedPersonsSet)} for the in-memory search.
      *
      * @param masterBodyDAO dao to search with for bvd id.
      */
     public PoliticalConnectionsOfSuppliers(final MasterBodyDAO masterBodyDAO) {
-        this.masterBodyDAO = masterBodyDAO;
+        this.politicalExposedPerson = masterBodyDAO::existsInPoliticalExposedPersons;
+    }
+
+    /**
+     * Constructor with bvd ids of the political exposed persons held in memory.
+     *
+     * @param politicalExposedPersons set of bvd ids to search in
+     */
+    public PoliticalConnectionsOfSuppliers(final PoliticalExposedPersonsSet politicalExposedPersons) {
+        this.politicalExposedPerson = politicalExposedPersons::contains;
     }
 
     @Override
@@ -44,14 +56,14 @@ public final class PoliticalConnectionsOfSuppliers extends BaseIndicatorPlugin i
                     .allMatch(bid -> bid.getBidders().stream().filter(bidder -> bidder.getBodyIds() != null)
                     .allMatch(bidder -> bidder.getBodyIds().stream()
                     .allMatch(id -> id.getType() == BVD_ID && id.getId() != null && isBidWinning(bid)
-                            && masterBodyDAO.existsInPoliticalExposedPersons(id.getId())))))) {
+                            && politicalExposedPerson.test(id.getId())))))) {
             return calculated(0d);
         } else if (item.getLots().stream().filter(lot -> lot.getBids() != null)
                     .anyMatch(lot -> lot.getBids().stream().filter(bid -> bid.getBidders() != null)
                     .anyMatch(bid -> bid.getBidders().stream().filter(bidder -> bidder.getBodyIds() != null)
                     .anyMatch(bidder -> bidder.getBodyIds().stream()
                     .anyMatch(id -> id.getType() == BVD_ID && id.getId() != null && isBidWinning(bid)
-                            && masterBodyDAO.existsInPoliticalExposedPersons(id.getId())))))) {
+                            && politicalExposedPerson.test(id.getId())))))) {
             return calculated(100d);
         } else {
             return insufficient();
@@ -0,0 +1,114 @@
+package eu.dl.worker.indicator.plugin;
+
+import eu.dl.core.config.Config;
+import eu.dl.dataaccess.dao.MasterBodyDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * BVD ids of the political exposed persons held in memory, so the indicators don't query the database for each body
+ * identifier. The ids are loaded at once and kept in a sorted array searched by binary search.
+ *
+ * The ids are loaded again once they are older than the refresh interval (configuration property
+ * {@code politicalExposedPersons.refreshInterval} in minutes, 60 by default). The reload is done by one of the calling
+ * threads, the other threads keep using the previous ids meanwhile.
+ */
+public final class PoliticalExposedPersonsSet {
+
+    private static final int DEFAULT_REFRESH_INTERVAL = 60;
+
+    private static final Logger logger = LoggerFactory.getLogger(PoliticalExposedPersonsSet.class);
+
+    private final Consumer<Consumer<String>> loader;
+
+    private final long refreshInterval;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile String[] ids;
+
+    private volatile long loaded;
+
+    /**
+     * Creates the set and loads the ids.
+     *
+     * @param loader
+     *      passes all the BVD ids to the given action, eg. {@link MasterBodyDAO#forEachPoliticalExposedPersonId}
+     * @param refreshInterval
+     *      refresh interval in minutes, the ids are never loaded again if not positive
+     */
+    public PoliticalExposedPersonsSet(final Consumer<Consumer<String>> loader, final int refreshInterval) {
+        this.loader = loader;
+        this.refreshInterval = TimeUnit.MINUTES.toNanos(refreshInterval);
+        refresh();
+    }
+
+    /**
+     * Creates the set of the ids stored in the database.
+     *
+     * @param masterBodyDAO
+     *      master body DAO
+     * @return set of the political exposed persons
+     */
+    public static PoliticalExposedPersonsSet of(final MasterBodyDAO<?> masterBodyDAO) {
+        Integer interval = Config.getInstance().getParamValueAs("politicalExposedPersons.refreshInterval",
+            Integer::valueOf);
+        return new PoliticalExposedPersonsSet(masterBodyDAO::forEachPoliticalExposedPersonId,
+            interval != null ? interval : DEFAULT_REFRESH_INTERVAL);
+    }
+
+    /**
+     * @param bvdIdNumber
+     *      BVD id number
+     * @return true if the id belongs to a political exposed person
+     */
+    public boolean contains(final String bvdIdNumber) {
+        if (refreshInterval > 0 && System.nanoTime() - loaded > refreshInterval && refreshLock.tryLock()) {
+            try {
+                // another thread may have refreshed the ids meanwhile
+                if (System.nanoTime() - loaded > refreshInterval) {
+                    refresh();
+                }
+            } catch (RuntimeException e) {
+                // the previous ids are kept, the refresh is tried again after the interval
+                loaded = System.nanoTime();
+                logger.error("Unable to refresh ids of political exposed persons because of {}", e);
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+
+        return bvdIdNumber != null && Arrays.binarySearch(ids, bvdIdNumber) >= 0;
+    }
+
+    /**
+     * @return number of the ids
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Loads all the ids.
+     */
+    private void refresh() {
+        List<String> loadedIds = new ArrayList<>();
+        loader.accept(n -> {
+            if (n != null) {
+                loadedIds.add(n);
+            }
+        });
+
+        String[] sorted = loadedIds.stream().sorted().distinct().toArray(String[]::new);
+        ids = sorted;
+        loaded = System.nanoTime();
+        logger.info("Loaded {} ids of political exposed persons.", sorted.length);
+    }
+}
@@ -46,7 +46,7 @@ import java.util.stream.Collectors;
  */
 public abstract class BaseTenderMaster<T extends MatchedTender, V extends MasterTender> extends BaseMaster<T, V> {
 
-    private static final int NUMBER_OF_LOTS_THRESHOLD = 10000;
+    private static final int NUMBER_OF_LOTS_THRESHOLD = 100000;
     private static final int NUMBER_OF_PUBLICATIONS = 10000;
 
     private final CurrencyService currencyService = CurrencyServiceFactory.getCurrencyService();
@@ -319,11 +319,12 @@ public abstract class BaseTenderMaster<T extends MatchedTender, V extends Master
 
     /**
      * Predicate used to filter the resulting set of items. In this case we don't want to master a tender
-     * with too much lots because of performance issues.
+     * with too much lots because of performance issues. The lot plugins compare the lots of the large tenders by
+     * blocking keys (see {@link eu.dl.worker.master.plugin.BaseTenderLotPlugin#isBlockingUsed(List)}), the limit
+     * protects against the tenders whose lots have no keys.
      *
      * @return predicate testing whether the group does not contain too much lots
      */
-    // TODO[Hruby] - get rid of this quick fix and make algorithm more effective
     private Predicate<MatchedTender> hasNotTooMuchLots() {
         return new Predicate<MatchedTender>() {
 
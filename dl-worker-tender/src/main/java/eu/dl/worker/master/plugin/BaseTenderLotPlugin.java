@@ -7,6 +7,8 @@ import eu.dl.dataaccess.dto.matched.MatchedTenderLot;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -34,212 +36,123 @@ public abstract class BaseTenderLotPlugin<T extends MatchedTender, W extends Mas
     public static final String PLUGIN_ID = "tenderLotPlugin";
 
     /**
-     * This class contains matched tender lot and indices to input list of match method. It is important during matching
-     * process where we want to know its parent tender and we want to avoid situation where two lots from one tender are
-     * matched.
-     * todo: consider refactoring - deletion of this class and using StructuredLotId class.
+     * Cross tender pair of lots with matching ratio. Lots are identified by their position in the list of all the
+     * lots, the first lot belongs to the tender with lower index.
      */
-    private class MatchedTenderLotOverview {
-        private int tenderIndex;
-        private int lotIndex;
-        private U lot;
-
-        /**
-         * Private constructor to make this class static.
-         */
-        private MatchedTenderLotOverview() {
-        }
-
-        /**
-         * Constructor to initialise the class.
-         *
-         * @param tenderIndex
-         *         index of matched tender lot in list of tenders
-         * @param lotIndex
-         *         index of matched tender lot in list of lots
-         * @param lot
-         *         lot
-         */
-        MatchedTenderLotOverview(final int tenderIndex, final int lotIndex, final U lot) {
-            this.tenderIndex = tenderIndex;
-            this.lotIndex = lotIndex;
-            this.lot = lot;
-        }
-
-        /**
-         * @return tenderIndex
-         */
-        public int getTenderIndex() {
-            return tenderIndex;
-        }
-
-        /**
-         * @return lotIndex
-         */
-        public int getLotIndex() {
-            return lotIndex;
-        }
-
-        /**
-         * @return lot
-         */
-        public U getLot() {
-            return lot;
-        }
-    }
-
-    /**
-     * This class contains information about two lots and its matching ratio.
-     */
-    private class MatchedTenderLotPairRatio {
-        private MatchedTenderLotOverview lot1Overview;
-        private MatchedTenderLotOverview lot2Overview;
-        private Double matchingRatio;
-
-        /**
-         * Private constructor to make this class static.
-         */
-        private MatchedTenderLotPairRatio() {
-        }
+    private static final class LotPair {
+        private final int first;
+        private final int second;
+        private final Double matchingRatio;
 
         /**
          * Constructor to initialise the class.
          *
-         * @param lot1Overview
-         *         information about first lot
-         * @param lot2Overview
-         *         information about second lot
+         * @param first
+         *         id of the first lot
+         * @param second
+         *         id of the second lot
          * @param matchingRatio
          *         matching ratio of the two lots
          */
-        MatchedTenderLotPairRatio(final MatchedTenderLotOverview lot1Overview,
-                                  final MatchedTenderLotOverview lot2Overview,
-                                  final Double matchingRatio) {
-            this.lot1Overview = lot1Overview;
-            this.lot2Overview = lot2Overview;
+        LotPair(final int first, final int second, final Double matchingRatio) {
+            this.first = first;
+            this.second = second;
             this.matchingRatio = matchingRatio;
         }
-
-        /**
-         * @return information about first lot
-         */
-        public MatchedTenderLotOverview getLot1Overview() {
-            return lot1Overview;
-        }
-
-        /**
-         * @return information about second lot
-         */
-        public MatchedTenderLotOverview getLot2Overview() {
-            return lot2Overview;
-        }
-
-        /**
-         * @return matching ratio
-         */
-        public Double getMatchingRatio() {
-            return matchingRatio;
-        }
-    }
-
-    /**
-     * This comparator helps to order ratios in the ratio value order.
-     */
-    final class RatioComparator implements Comparator<MatchedTenderLotPairRatio> {
-        @Override
-        public int compare(final MatchedTenderLotPairRatio o1, final MatchedTenderLotPairRatio o2) {
-            return o1.getMatchingRatio().compareTo(o2.getMatchingRatio());
-        }
     }
 
     /**
-     * This class represents matched group of lots.
+     * Groups of lots stored as union-find structure over lot ids. Each group keeps set of its tenders, because
+     * the group can't contain two lots of the same tender.
      */
-    private class MatchedTenderLotOverviewGroup {
-        private HashMap<String, MatchedTenderLotOverview> lotOverviews;
-
-        /**
-         * Private constructor to make this class static.
-         */
-        private MatchedTenderLotOverviewGroup() {
-        }
+    private static final class LotGroups {
+        private final int[] parent;
+        private final int[] size;
+        private final int[] order;
+        private final BitSet[] tenders;
+        private int groupCount = 0;
 
         /**
-         * Constructor to initialise the class.
+         * Creates one group for each lot.
          *
-         * @param lotOverviews
-         *         list of information about lots from on group
+         * @param lotTenders
+         *         tender index of each lot
          */
-        MatchedTenderLotOverviewGroup(final List<MatchedTenderLotOverview> lotOverviews) {
-            this.lotOverviews = new HashMap<String, MatchedTenderLotOverview>();
-            for (MatchedTenderLotOverview lotOverview : lotOverviews) {
-                this.lotOverviews.put(getKey(lotOverview), lotOverview);
+        LotGroups(final int[] lotTenders) {
+            parent = new int[lotTenders.length];
+            size = new int[lotTenders.length];
+            order = new int[lotTenders.length];
+            tenders = new BitSet[lotTenders.length];
+            for (int i = 0; i < lotTenders.length; ++i) {
+                parent[i] = i;
+                size[i] = 1;
+                order[i] = Integer.MAX_VALUE;
+                tenders[i] = new BitSet();
+                tenders[i].set(lotTenders[i]);
             }
         }
 
         /**
-         * Adds information about lot to group.
-         *
-         * @param lotOverview
-         *          information about lot
+         * @param lot
+         *         lot id
+         * @return id of the group root
          */
-        void addLotOverview(final MatchedTenderLotOverview lotOverview) {
-            this.lotOverviews.put(getKey(lotOverview), lotOverview);
-        }
+        int find(final int lot) {
+            int root = lot;
+            while (parent[root] != root) {
+                root = parent[root];
+            }
 
-        /**
-         * Checks whether lot is part of this group.
-         *
-         * @param lotOverview
-         *          information about lot
-         *
-         * @return true if lot is part of this group; otherwise false
-         */
-        boolean contains(final MatchedTenderLotOverview lotOverview) {
-            return lotOverviews.containsKey(getKey(lotOverview));
-        }
+            // path compression
+            int current = lot;
+            while (parent[current] != root) {
+                int next = parent[current];
+                parent[current] = root;
+                current = next;
+            }
 
-        /**
-         * Joins another group with this group.
-         *
-         * @param group
-         *          group to be joined
-         */
-        void join(final MatchedTenderLotOverviewGroup group) {
-            lotOverviews.putAll(group.getLotOverviews());
+            return root;
         }
 
         /**
-         * Gets lots contained in this group.
+         * Joins groups of the two lots unless the joined group would contain two lots of the same tender.
          *
-         * @return lots contained in this group
+         * @param first
+         *         first lot id
+         * @param second
+         *         second lot id
          */
-        public Map<String, MatchedTenderLotOverview> getLotOverviews() {
-            return lotOverviews;
-        }
+        void join(final int first, final int second) {
+            int root1 = find(first);
+            int root2 = find(second);
+            if (root1 == root2 || tenders[root1].intersects(tenders[root2])) {
+                return;
+            }
 
-        /**
-         * Checks whether group contains tender.
-         *
-         * @param tenderIndex
-         *          tender index
-         *
-         * @return true if group contains tender; otherwise false
-         */
-        boolean hasLotFromTender(final int tenderIndex) {
-            return lotOverviews.values()
-                    .stream()
-                    .anyMatch(lo -> lo.getTenderIndex() == tenderIndex);
+            if (size[root1] < size[root2]) {
+                int swap = root1;
+                root1 = root2;
+                root2 = swap;
+            }
+
+            parent[root2] = root1;
+            size[root1] += size[root2];
+            tenders[root1].or(tenders[root2]);
+            tenders[root2] = null;
+            // groups are listed in order of their creation, joined group keeps the position of the older one
+            order[root1] = Math.min(order[root1], order[root2]);
+            if (order[root1] == Integer.MAX_VALUE) {
+                order[root1] = groupCount++;
+            }
         }
-        
+
         /**
-         * Creates map key from the lotOverview.
-         * 
-         * @param lotOverview key will be created from this overview
-         * @return key
+         * @param lot
+         *         lot id
+         * @return order of creation of the group with the lot, {@link Integer#MAX_VALUE} for the one-lot group
          */
-        private String getKey(final MatchedTenderLotOverview lotOverview) {
-            return lotOverview.getTenderIndex() + "_" + lotOverview.getLotIndex();
+        int getOrder(final int lot) {
+            return order[find(lot)];
         }
     }
 
@@ -251,6 +164,10 @@ public abstract class BaseTenderLotPlugin<T extends MatchedTender, W extends Mas
 
     /**
      * Lots matching.
+     *
+     * Matching ratio is calculated for cross tender lot pairs. Pairs with matching ratio &gt;= 0.5 are visited from the
+     * highest ratio and lots of each pair are joined into one group, unless the group would contain two lots of the
+     * same tender. The remaining lots form one-lot groups.
      */
     @Override
     protected final List<List<U>> match(final List<List<U>> lotLists) {
@@ -263,121 +180,120 @@ public abstract class BaseTenderLotPlugin<T extends MatchedTender, W extends Mas
             return Arrays.asList(lotLists.stream().flatMap(List::stream).collect(Collectors.toList()));
         }
 
-        // calculate matching ratio MR for each cross tender lot-lot pair
-        List<MatchedTenderLotPairRatio> lotPairRatios = new ArrayList<>();
-        for (int firstLotTenderIndex = 0; firstLotTenderIndex < lotLists.size() - 1; ++firstLotTenderIndex) {
-            List<U> lotList1 = lotLists.get(firstLotTenderIndex);
-            for (int firstLotIndex = 0; firstLotIndex < lotList1.size(); ++firstLotIndex) {
-                // we can get the first lot to compare
-                U firstLot = lotList1.get(firstLotIndex);
-                for (int secondLotTenderIndex = firstLotTenderIndex + 1; secondLotTenderIndex < lotLists.size();
-                     ++secondLotTenderIndex) {
-                    List<U> lotList2 = lotLists.get(secondLotTenderIndex);
-                    for (int secondLotIndex = 0; secondLotIndex < lotList2.size(); ++secondLotIndex) {
-                        // we can get the second lot to compare
-                        U secondLot = lotList2.get(secondLotIndex);
-
-                        // calculating matching ratio MR
-                        Double matchingRatio = calculateMatchingRatio(firstLot, secondLot, lotLists);
-
-                        lotPairRatios.add(new MatchedTenderLotPairRatio(
-                                new MatchedTenderLotOverview(firstLotTenderIndex, firstLotIndex, firstLot),
-                                new MatchedTenderLotOverview(secondLotTenderIndex, secondLotIndex, secondLot),
-                                matchingRatio));
-                    }
-                }
+        // lots get integer ids in order of tenders and lots
+        final List<U> lots = new ArrayList<>();
+        final List<Integer> lotTenderList = new ArrayList<>();
+        for (int tenderIndex = 0; tenderIndex < lotLists.size(); ++tenderIndex) {
+            for (U lot : lotLists.get(tenderIndex)) {
+                lots.add(lot);
+                lotTenderList.add(tenderIndex);
             }
         }
+        final int[] lotTenders = lotTenderList.stream().mapToInt(Integer::intValue).toArray();
 
-        // sort all tender lot-lot pairs according to matching ratio MR
-        lotPairRatios = lotPairRatios.stream().sorted(new RatioComparator()).collect(Collectors.toList());
-
-        // visit all pairs from the end (with the higher score) to begin and create matched lot groups. Rules:
-        //   MR >= 0.5 ... match lots (they are in one group)
-        //   MR < 0.5  ... do not match lots (each lot is in separated group)
-        List<MatchedTenderLotOverviewGroup> lotOverviewGroups = new ArrayList<>();
-        while (!lotPairRatios.isEmpty()) {
-            // get pair with the higher score from the end of sorted list
-            MatchedTenderLotPairRatio lotPairRatio = lotPairRatios.remove(lotPairRatios.size() - 1);
-            MatchedTenderLotOverview lot1Overview = lotPairRatio.getLot1Overview();
-            MatchedTenderLotOverview lot2Overview = lotPairRatio.getLot2Overview();
-
-            // two lots of the pair belong to some group(s), because the pair is valid (invalid pairs were previously
-            // deleted)
-
-            if (lotPairRatio.getMatchingRatio().compareTo(0.5) >= 0) {
-                boolean createNewGroup = true;
-
-                for (int i = 0; i < lotOverviewGroups.size(); ++i) {
-                    MatchedTenderLotOverviewGroup lotOverviewGroup = lotOverviewGroups.get(i);
-
-                    if (!lotOverviewGroup.contains(lot1Overview) && !lotOverviewGroup.contains(lot2Overview)) {
-                        // no lot of the pair is in the group -> try another one
-                        continue;
-                    }
-
-                    // we know that the pair has to be joined to the group or ignored (when it cause invalid group or
-                    // the pair is already in group)
-
-                    if (lotOverviewGroup.contains(lot1Overview) && !lotOverviewGroup.contains(lot2Overview)) {
-                        if (!lotOverviewGroup.hasLotFromTender(lot2Overview.getTenderIndex())) {
-                            addLotToGroup(lot2Overview, lotOverviewGroups, i);
-                        }
-                    } else if (!lotOverviewGroup.contains(lot1Overview) && lotOverviewGroup.contains(lot2Overview)){
-                        if (!lotOverviewGroup.hasLotFromTender(lot1Overview.getTenderIndex())) {
-                            addLotToGroup(lot1Overview, lotOverviewGroups, i);
-                        }
-                    }
-
-                    createNewGroup = false;
-                    break;
-                }
+        // calculate matching ratio MR for cross tender lot-lot pairs, only the pairs with MR >= 0.5 are kept
+        final List<LotPair> lotPairs = getMatchingPairs(lots, lotTenders, lotLists);
 
-                if (createNewGroup) {
-                    lotOverviewGroups.add(new MatchedTenderLotOverviewGroup(
-                            new ArrayList<>(Arrays.asList(lot1Overview, lot2Overview))));
-                }
-            } else { // MR < 0.5
-                // add each lot to separated group if it is not already in some other group
-                if (lotOverviewGroups.stream().noneMatch(g -> g.contains(lot1Overview))) {
-                    lotOverviewGroups.add(
-                            new MatchedTenderLotOverviewGroup(new ArrayList<>(Arrays.asList(lot1Overview))));
-                }
-                if (lotOverviewGroups.stream().noneMatch(g -> g.contains(lot2Overview))) {
-                    lotOverviewGroups.add(
-                            new MatchedTenderLotOverviewGroup(new ArrayList<>(Arrays.asList(lot2Overview))));
-                }
+        // visit the pairs from the higher score to the lower one, pairs with the same score in reverse order of their
+        // lot ids, the first pair that joins two lots wins
+        lotPairs.sort((p1, p2) -> {
+            int result = p2.matchingRatio.compareTo(p1.matchingRatio);
+            if (result == 0) {
+                result = Integer.compare(p2.first, p1.first);
             }
+            return result != 0 ? result : Integer.compare(p2.second, p1.second);
+        });
+
+        final LotGroups groups = new LotGroups(lotTenders);
+        lotPairs.forEach(p -> groups.join(p.first, p.second));
+
+        // convert groups structure which will be returned, groups of more lots go first in order of their creation,
+        // then the one-lot groups
+        final Map<Integer, List<U>> groupsByRoot = new HashMap<>();
+        for (int i = 0; i < lots.size(); ++i) {
+            groupsByRoot.computeIfAbsent(groups.find(i), k -> new ArrayList<>()).add(lots.get(i));
         }
 
-        // convert groups structure which will be returned
-        List<List<U>> matchedLots = lotOverviewGroups
+        List<List<U>> matchedLots = groupsByRoot.entrySet()
                 .stream()
-                .map(g -> g.getLotOverviews().values()
-                        .stream()
-                        .map(l -> l.getLot())
-                        .collect(Collectors.toList()))
+                .sorted(Comparator.<Map.Entry<Integer, List<U>>>comparingInt(e -> groups.getOrder(e.getKey()))
+                        .thenComparingInt(Map.Entry::getKey))
+                .map(Map.Entry::getValue)
                 .collect(Collectors.toList());
 
-        // create group with one lot if the lot is not in matched groups
-        for (int i = 0; i < lotLists.size(); ++i) {
-            List<U> lotList = lotLists.get(i);
-            for (int j = 0; j < lotList.size(); ++j) {
-                U lot = lotList.get(j);
-                if (!matchedLots
-                        .stream()
-                        .anyMatch(lotGroup -> lotGroup
-                                .stream()
-                                .anyMatch(l -> l.equals(lot)))) {
-                    matchedLots.add(Arrays.asList(lot));
+        assert matchedLots.stream().mapToInt(l -> l.size()).sum() == lotLists.stream().mapToInt(l -> l.size()).sum()
+                : "Number of matched lots has to be equal to number of input lot lists.";
+
+        return matchedLots;
+    }
+
+    /**
+     * Calculates matching ratio of the cross tender lot pairs and returns the pairs with ratio &gt;= 0.5. In case the
+     * blocking is used for the lots (see {@link #isBlockingUsed(List)}), only the lots which share some blocking key
+     * (see {@link #getBlockingKeys(MatchedTenderLot)}) are compared.
+     *
+     * @param lots
+     *          all the lots, position of the lot is its id
+     * @param lotTenders
+     *          tender index of each lot
+     * @param lotLists
+     *          list of matched lot lists (each matched lot list represents lots of one matched tender)
+     * @return matching pairs
+     */
+    private List<LotPair> getMatchingPairs(final List<U> lots, final int[] lotTenders, final List<List<U>> lotLists) {
+        // blocking index, lots without keys are compared with all the lots
+        final boolean blocking = isBlockingUsed(lotLists);
+        final Map<Object, List<Integer>> index = new HashMap<>();
+        final List<Integer> unblocked = new ArrayList<>();
+        final List<Collection<?>> lotKeys = new ArrayList<>();
+        for (int i = 0; i < lots.size(); ++i) {
+            Collection<?> keys = blocking ? getBlockingKeys(lots.get(i)) : null;
+            lotKeys.add(keys);
+            if (keys == null) {
+                unblocked.add(i);
+            } else {
+                for (Object key : keys) {
+                    index.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
                 }
             }
         }
 
-        assert matchedLots.stream().mapToInt(l -> l.size()).sum() == lotLists.stream().mapToInt(l -> l.size()).sum()
-                : "Number of matched lots has to be equal to number of input lot lists.";
+        final List<LotPair> pairs = new ArrayList<>();
+        // last lot id for which the lot was added to candidates, prevents duplicate comparisons
+        final int[] visited = new int[lots.size()];
+        Arrays.fill(visited, -1);
 
-        return matchedLots;
+        for (int first = 0; first < lots.size(); ++first) {
+            final List<Integer> candidates = new ArrayList<>();
+            if (lotKeys.get(first) == null) {
+                for (int second = first + 1; second < lots.size(); ++second) {
+                    candidates.add(second);
+                }
+            } else {
+                for (Object key : lotKeys.get(first)) {
+                    candidates.addAll(index.get(key));
+                }
+                candidates.addAll(unblocked);
+            }
+
+            for (int second : candidates) {
+                // only pairs of lots from different tenders, the first lot is from the tender with lower index
+                if (lotTenders[second] <= lotTenders[first] || visited[second] == first) {
+                    continue;
+                }
+                visited[second] = first;
+
+                Double matchingRatio = calculateMatchingRatio(lots.get(first), lots.get(second), lotLists);
+
+                //   MR >= 0.5 ... match lots (they are in one group)
+                //   MR < 0.5  ... do not match lots (each lot is in separated group)
+                if (matchingRatio.compareTo(0.5) >= 0) {
+                    pairs.add(new LotPair(first, second, matchingRatio));
+                }
+            }
+        }
+
+        return pairs;
     }
 
     @Override
@@ -405,57 +321,31 @@ public abstract class BaseTenderLotPlugin<T extends MatchedTender, W extends Mas
     protected abstract Double calculateMatchingRatio(U firstLot, U secondLot, List<List<U>> items);
 
     /**
-     * Adds lot to matched group of lots. The lot can be part of some other group (it is checked only with groups
-     * after the group) so the group may be joined with another one.
+     * Returns keys of the blocking index for the given lot. Two lots are compared only if they share at least one key,
+     * so the keys have to be chosen in a way that each pair of lots with matching ratio &gt;= 0.5 shares a key (e.g.
+     * lot number or main CPV if the ratio can't reach 0.5 without their match).
+     *
+     * Default implementation returns null, which means that the lot is compared with all the lots.
      *
      * @param lot
-     *          lot to be added
-     * @param groups
-     *          matched groups of lots
-     * @param groupIndex
-     *          index to matched groups of lots to get the right group of lots
+     *          matched lot
+     * @return blocking keys or null
      */
-    private void addLotToGroup(final MatchedTenderLotOverview lot,
-                               final List<MatchedTenderLotOverviewGroup> groups,
-                               final int groupIndex) {
-        boolean addLot = true;
-        // it is possible that the pair joined two groups, so try to join
-        for (int j = groupIndex + 1; j < groups.size(); ++j) {
-            MatchedTenderLotOverviewGroup lotOverviewGroup = groups.get(j);
-            if (lotOverviewGroup.contains(lot)) {
-                // JOIN THE TWO GROUPS
-                if (isGroupJoinValid(groups.get(groupIndex), lotOverviewGroup)) {
-                    groups.get(groupIndex).join(lotOverviewGroup);
-                    groups.remove(j);
-                } else {
-                    addLot = false;
-                }
-                break;
-            }
-        }
-        
-        if (addLot) {
-            // add lot which is not in group
-            groups.get(groupIndex).addLotOverview(lot);
-        }
+    protected Collection<?> getBlockingKeys(final U lot) {
+        return null;
     }
 
     /**
-     * Two groups cannot be joined if the final group will contain two different lots from the same tender.
-     * @param groupOne First group to be joined
-     * @param groupTwo Second group to be joined
-     * @return <code>TRUE</code> if the groups can be joined, otherwise <code>FALSE</code>
+     * Decides whether the blocking keys are used for the given lots. The plugin whose blocking keys don't cover all
+     * the pairs with matching ratio &gt;= 0.5 can use them only for the inputs too large to compare all the pairs.
+     *
+     * Default implementation returns true.
+     *
+     * @param lotLists
+     *          list of matched lot lists (each matched lot list represents lots of one matched tender)
+     * @return true if the blocking keys are used
      */
-    private boolean isGroupJoinValid(final MatchedTenderLotOverviewGroup groupOne, final MatchedTenderLotOverviewGroup groupTwo) {
-        for(Map.Entry<String, MatchedTenderLotOverview> lotOverviewOne : groupOne.getLotOverviews().entrySet()) {
-            for(Map.Entry<String, MatchedTenderLotOverview> lotOverviewTwo : groupTwo.getLotOverviews().entrySet()) {
-                if ((lotOverviewOne.getValue().getTenderIndex() == lotOverviewTwo.getValue().getTenderIndex()) 
-                        && lotOverviewOne.getValue().getLotIndex() != lotOverviewTwo.getValue().getLotIndex()) {
-                    return false;
-                }
-            }
-        }
-
+    protected boolean isBlockingUsed(final List<List<U>> lotLists) {
         return true;
     }
-}
\ No newline at end of file
+}
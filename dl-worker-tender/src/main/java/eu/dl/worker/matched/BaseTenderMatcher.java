@@ -4,18 +4,21 @@ import eu.dl.core.UnrecoverableException;
 import eu.dl.dataaccess.dao.CleanTenderDAO;
 import eu.dl.dataaccess.dao.EtalonBodyDAO;
 import eu.dl.dataaccess.dao.ManualMatchDAO;
+import eu.dl.dataaccess.dao.MatchedBodiesPool;
 import eu.dl.dataaccess.dao.MatchedBodyDAO;
 import eu.dl.dataaccess.dao.MatchedTenderDAO;
 import eu.dl.dataaccess.dto.clean.CleanTender;
 import eu.dl.dataaccess.dto.generic.Publication;
 import eu.dl.dataaccess.dto.matched.MatchedBid;
 import eu.dl.dataaccess.dto.matched.MatchedBody;
+import eu.dl.dataaccess.dto.matched.MatchedGroupInfo;
 import eu.dl.dataaccess.dto.matched.MatchedTender;
 import eu.dl.dataaccess.dto.matched.MatchedTenderLot;
 import eu.dl.dataaccess.utils.BodyUtils;
 import eu.dl.dataaccess.utils.WeightedHash;
 import eu.dl.core.cache.Cache;
 import eu.dl.core.cache.CacheFactory;
+import eu.dl.core.cache.TransactionalCache;
 import eu.dl.worker.Message;
 import eu.dl.worker.MessageFactory;
 import eu.dl.worker.matched.plugin.ApproximateMatchingEtalonPlugin;
@@ -30,14 +33,23 @@ import eu.dl.worker.utils.PluginRegistry;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.ThreadContext;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static eu.dl.dataaccess.utils.DigestUtils.bodyFullHash;
 import static eu.dl.dataaccess.utils.DigestUtils.generateAlternativeBodyHashes;
@@ -96,16 +108,50 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
      */
     private static final long PLUGIN_TIME_THRESHOLD = 100;
 
+    /**
+     * Number of items written to cache at once when the cache is populated.
+     */
+    private static final int CACHE_BATCH_SIZE = 1000;
+
+    /**
+     * Default number of the group statistics lookups between two checks against the database.
+     */
+    private static final int DEFAULT_GROUP_STATISTICS_CHECK_INTERVAL = 1000;
+
+    /**
+     * Hashes of the bodies modified this long before the last population of the hash cache are read again when the
+     * restored cache is topped up. The overlap covers the bodies committed later than they have been modified and the
+     * differences of the clocks of the workers.
+     */
+    private static final Duration HASH_CACHE_TOP_UP_OVERLAP = Duration.ofHours(1);
+
     private final ManualMatchingPlugin<MatchedBody> manualBodyMatchingPlugin;
 
     protected Cache hashCache;
 
+    /**
+     * Hash cache used by the matching. The entries of the tender are written to the {@link #hashCache} when the
+     * tender is committed, null if the cache is disabled.
+     */
+    private TransactionalCache matchingHashCache;
+
     private Boolean cacheEnabled = false;
 
     private String hashCachePrefix = "hash::";
 
     private String etalonCachePrefix = "etalon::";
 
+    /**
+     * Statistics of the groups used by the plugins to pick the best of several equally similar groups, null if the
+     * plugins query the database.
+     */
+    private final GroupStatisticsStore groupStatistics;
+
+    /**
+     * Executor of the parallel body matching, null if the bodies are matched sequentially.
+     */
+    private final ExecutorService matchingExecutor;
+
     /**
      * Default constructor.
      */
@@ -125,6 +171,8 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
         matchedBodyDao = getMatchedBodyDAO(additionalMatchers);
         matchedTenderDao = getMatchedTenderDAO(additionalMatchers);
 
+        groupStatistics = createGroupStatistics();
+
         registerCommonBodyPlugins();
         registerBodyPlugins();
 
@@ -133,23 +181,55 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
 
         if (config.getParam("cache.enabled") != null && config.getParam("cache.enabled").equals("true")) {
             this.cacheEnabled = true;
-            hashCache = CacheFactory.getCache(this.getClass().getSimpleName().concat("::"));
+            hashCache = CacheFactory.getCache(this.getClass().getSimpleName());
 
             String repopulate = hashCache.get(hashCachePrefix.concat("repopulate"));
+            String populated = hashCache.get(hashCachePrefix.concat("populated"));
 
-            if (repopulate == null || repopulate.equals("true")) {
-                populateBodyHashCache();
-                populateEtalonCache();
-                hashCache.put(hashCachePrefix.concat("repopulate"), "false");
+            // the time is taken before the hashes are read, so the bodies saved meanwhile are read by the next top up
+            final LocalDateTime populationStart = LocalDateTime.now();
+            if (repopulate == null || repopulate.equals("true") || populated == null) {
+                populateBodyHashCache(null);
+            } else {
+                // the cache has been populated before (eg. it has been loaded from a snapshot), only the hashes saved
+                // since then by any process are added
+                populateBodyHashCache(LocalDateTime.parse(populated).minus(HASH_CACHE_TOP_UP_OVERLAP));
             }
+            populateEtalonCache();
+            hashCache.put(hashCachePrefix.concat("populated"), populationStart.toString());
+            hashCache.put(hashCachePrefix.concat("repopulate"), "false");
+            matchingHashCache = new TransactionalCache(hashCache);
         }
 
-        manualBodyMatchingPlugin = new ManualMatchingPlugin<MatchedBody>(manualMatchDao, "body");
+        manualBodyMatchingPlugin = new ManualMatchingPlugin<MatchedBody>(manualMatchDao, "body",
+                getManualMatchRefreshInterval());
+
+        final int matchingThreads = getMatchingThreadsCount();
+        if (matchingThreads > 1) {
+            final AtomicInteger threadCounter = new AtomicInteger();
+            matchingExecutor = Executors.newFixedThreadPool(matchingThreads, r -> {
+                Thread thread = new Thread(r,
+                        getClass().getSimpleName() + "-matching-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            logger.info("Bodies of the tender are matched by {} threads", matchingThreads);
+        } else {
+            matchingExecutor = null;
+        }
     }
 
 	@Override
     public final void doWork(final Message message) {
         getTransactionUtils().begin();
+        if (groupStatistics != null) {
+            // changes left by a failed tender have been rolled back together with its transaction
+            groupStatistics.rollback();
+        }
+        if (matchingHashCache != null) {
+            matchingHashCache.rollback();
+        }
+
         final String cleanTenderId = message.getValue("id");
         ThreadContext.put("clean_tender_id", cleanTenderId);
         CleanTender cleanTender = cleanDao.getById(cleanTenderId);
@@ -161,11 +241,45 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
         // set item processing order
         matchedTender.setProcessingOrder(cleanTender.getProcessingOrder());
 
-        matchedTender = matchBodies(matchedTender, cleanTender);
+        // the bodies are saved at once and the tender refers to them, so the bodies are written before the tender
+        final MatchedBodyWriteBatch batch = new MatchedBodyWriteBatch(bodies -> matchedBodyDao.saveAll(bodies),
+                this::getBodyMatchingKeys);
+        matchedTender = matchBodies(matchedTender, cleanTender, batch);
+        batch.write();
+        logger.debug("Bodies of tender {} saved in {} writes, {} bodies matched again before the write",
+                cleanTenderId, batch.getWriteCount(), batch.getRematchedCount());
 
         logger.info("Matching tender {}", cleanTenderId);
         matchTender(matchedTender);
         getTransactionUtils().commit();
+        if (groupStatistics != null) {
+            groupStatistics.commit();
+        }
+        if (matchingHashCache != null) {
+            matchingHashCache.commit();
+        }
+
+        // the masters read the groups, so they are announced only once they are committed
+        publishBodyGroups(batch.getGroupIds());
+        publishTenderGroup(matchedTender.getGroupId());
+    }
+
+    /**
+     * Publishes one message with ids of all the groups the bodies of the tender have been saved into.
+     *
+     * @param groupIds
+     *         group ids
+     */
+    private void publishBodyGroups(final List<String> groupIds) {
+        if (groupIds.isEmpty()) {
+            return;
+        }
+
+        final Message outgoingMessage = MessageFactory.getMessage();
+        final String tag = getBodyMessagingTag();
+        outgoingMessage.setValues("groupIds", groupIds);
+        publishMessage(outgoingMessage, tag);
+        logger.info("Body matching finished, published message '{}' with tag '{}'", outgoingMessage, tag);
     }
 
     /**
@@ -176,10 +290,13 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
      *
      * @param cleanTender
      *         clean tender
+     * @param batch
+     *         batch the matched bodies are saved by
      *
      * @return tender with matched bodies set
      */
-    private MatchedTender matchBodies(final MatchedTender matchedTender, final CleanTender cleanTender) {
+    private MatchedTender matchBodies(final MatchedTender matchedTender, final CleanTender cleanTender,
+            final MatchedBodyWriteBatch batch) {
         LocalDate publicationDate = null;
         String source = null;
         if (matchedTender.getPublications() != null) {
@@ -190,26 +307,67 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
                 }
             }
         }
+
+        // pools of all the bodies are fetched at once, they stay valid until the batch writes the bodies because the
+        // bodies of the tender matched in the meantime are matched again by the batch
+        final List<MatchedBody> bodies = getBodies(matchedTender);
+        final MatchedBodiesPool pools = matchedBodyDao.getMatchBodiesPools(bodies);
+        logger.debug("Matching pools of {} bodies include {} bodies", bodies.size(), pools.size());
+
+        matchedBodyDao.setPrefetchedPools(pools);
+        try {
+            return matchBodies(matchedTender, cleanTender, publicationDate, source, speculate(bodies, pools),
+                    batch);
+        } finally {
+            matchedBodyDao.setPrefetchedPools(null);
+        }
+    }
+
+    /**
+     * Body matching with the speculative results.
+     *
+     * @param matchedTender
+     *         matched tender
+     * @param cleanTender
+     *         clean tender
+     * @param publicationDate
+     *         publication date
+     * @param source
+     *         body source
+     * @param speculation
+     *         speculative matching results
+     * @param batch
+     *         batch the matched bodies are saved by
+     *
+     * @return tender with matched bodies set
+     */
+    private MatchedTender matchBodies(final MatchedTender matchedTender, final CleanTender cleanTender,
+            final LocalDate publicationDate, final String source, final BodyMatchSpeculation speculation,
+            final MatchedBodyWriteBatch batch) {
         matchedTender.setAdministrators(
-                matchBodySet(matchedTender.getAdministrators(), cleanTender, publicationDate, source));
+                matchBodySet(matchedTender.getAdministrators(), cleanTender, publicationDate, source, speculation,
+                        batch));
         matchedTender.setApproachedBidders(
-                matchBodySet(matchedTender.getApproachedBidders(), cleanTender, publicationDate, source));
+                matchBodySet(matchedTender.getApproachedBidders(), cleanTender, publicationDate, source, speculation,
+                        batch));
         matchedTender.setCandidates(
-                matchBodySet(matchedTender.getCandidates(), cleanTender, publicationDate, source));
+                matchBodySet(matchedTender.getCandidates(), cleanTender, publicationDate, source, speculation, batch));
         matchedTender.setSupervisors(
-                matchBodySet(matchedTender.getSupervisors(), cleanTender, publicationDate, source));
-        matchedTender.setBuyers(matchBodySet(matchedTender.getBuyers(), cleanTender, publicationDate, source));
+                matchBodySet(matchedTender.getSupervisors(), cleanTender, publicationDate, source, speculation, batch));
+        matchedTender.setBuyers(
+                matchBodySet(matchedTender.getBuyers(), cleanTender, publicationDate, source, speculation, batch));
 
         matchedTender.setOnBehalfOf(
-                matchBodySet(matchedTender.getOnBehalfOf(), cleanTender, publicationDate, source));
+                matchBodySet(matchedTender.getOnBehalfOf(), cleanTender, publicationDate, source, speculation, batch));
         matchedTender.setBidsRecipient(
-                matchBody(matchedTender.getBidsRecipient(), cleanTender, publicationDate, source));
-        matchedTender.setFurtherInformationProvider(
-                matchBody(matchedTender.getFurtherInformationProvider(), cleanTender, publicationDate, source));
+                matchBody(matchedTender.getBidsRecipient(), cleanTender, publicationDate, source, speculation, batch));
+        matchedTender.setFurtherInformationProvider(matchBody(matchedTender.getFurtherInformationProvider(),
+                cleanTender, publicationDate, source, speculation, batch));
         matchedTender.setSpecificationsCreator(
-                matchBody(matchedTender.getSpecificationsCreator(), cleanTender, publicationDate, source));
-        matchedTender.setSpecificationsProvider(
-                matchBody(matchedTender.getSpecificationsProvider(), cleanTender, publicationDate, source));
+                matchBody(matchedTender.getSpecificationsCreator(), cleanTender, publicationDate, source, speculation,
+                        batch));
+        matchedTender.setSpecificationsProvider(matchBody(matchedTender.getSpecificationsProvider(), cleanTender,
+                publicationDate, source, speculation, batch));
 
         List<MatchedTenderLot> lots = matchedTender.getLots();
         if (lots != null) {
@@ -217,18 +375,137 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
                 List<MatchedBid> bids = lot.getBids();
                 if (bids != null) {
                     for (MatchedBid bid : bids) {
-                        bid.setBidders(matchBodySet(bid.getBidders(), cleanTender, publicationDate, source));
-                        bid.setSubcontractors(
-                                matchBodySet(bid.getSubcontractors(), cleanTender, publicationDate, source));
+                        bid.setBidders(matchBodySet(bid.getBidders(), cleanTender, publicationDate, source,
+                                speculation, batch));
+                        bid.setSubcontractors(matchBodySet(bid.getSubcontractors(), cleanTender, publicationDate,
+                                source, speculation, batch));
                     }
                 }
                 lot.setBids(bids);
             }
             matchedTender.setLots(lots);
         }
+
+        if (matchingExecutor != null) {
+            logger.debug("Speculative results reused for {} bodies, {} bodies matched again",
+                    speculation.getReusedCount(), speculation.getRematchedCount());
+        }
+
         return matchedTender;
     }
 
+    /**
+     * Returns all the bodies of the tender in the order they are matched in.
+     *
+     * @param matchedTender
+     *         matched tender
+     *
+     * @return bodies of the tender, may include nulls
+     */
+    private static List<MatchedBody> getBodies(final MatchedTender matchedTender) {
+        final List<MatchedBody> bodies = new ArrayList<>();
+        addAll(bodies, matchedTender.getAdministrators());
+        addAll(bodies, matchedTender.getApproachedBidders());
+        addAll(bodies, matchedTender.getCandidates());
+        addAll(bodies, matchedTender.getSupervisors());
+        addAll(bodies, matchedTender.getBuyers());
+        addAll(bodies, matchedTender.getOnBehalfOf());
+        bodies.add(matchedTender.getBidsRecipient());
+        bodies.add(matchedTender.getFurtherInformationProvider());
+        bodies.add(matchedTender.getSpecificationsCreator());
+        bodies.add(matchedTender.getSpecificationsProvider());
+        if (matchedTender.getLots() != null) {
+            for (MatchedTenderLot lot : matchedTender.getLots()) {
+                if (lot != null && lot.getBids() != null) {
+                    for (MatchedBid bid : lot.getBids()) {
+                        if (bid != null) {
+                            addAll(bodies, bid.getBidders());
+                            addAll(bodies, bid.getSubcontractors());
+                        }
+                    }
+                }
+            }
+        }
+
+        return bodies;
+    }
+
+    /**
+     * Matches all the bodies of the tender in parallel in case the parallel matching is enabled (see
+     * {@link #getMatchingThreadsCount()}). The speculative results are applied in the same order as in the sequential
+     * matching and they are reused only if they are the same as the sequential matching would return.
+     *
+     * @param bodies
+     *         bodies of the tender
+     * @param pools
+     *         prefetched pools of the bodies
+     *
+     * @return speculation
+     */
+    private BodyMatchSpeculation speculate(final List<MatchedBody> bodies, final MatchedBodiesPool pools) {
+        if (matchingExecutor == null) {
+            return BodyMatchSpeculation.none();
+        }
+
+        // logging context of the worker thread is passed to the matching threads
+        final Map<String, String> context = ThreadContext.getImmutableContext();
+
+        return BodyMatchSpeculation.speculate(matchingExecutor, getTransactionUtils(), bodies, body -> {
+            ThreadContext.putAll(context);
+            matchedBodyDao.setPrefetchedPools(pools);
+            try {
+                return findMatch(body);
+            } finally {
+                matchedBodyDao.setPrefetchedPools(null);
+                if (groupStatistics != null) {
+                    // the speculative transaction is always rolled back
+                    groupStatistics.rollback();
+                }
+                ThreadContext.clearMap();
+            }
+        }, this::getBodyMatchingKeys);
+    }
+
+    /**
+     * Creates the store of the group statistics in case it is enabled by a configuration property
+     * {@code <worker_class>.groupStatistics}. The store is loaded from the database and then kept up to date by the
+     * matcher, every {@code <worker_class>.groupStatistics.checkInterval}-th lookup (1000 by default, 0 turns the
+     * check off) is compared with the database. The store is exact only as long as no other process saves bodies of
+     * the worker, the check repairs the differences otherwise.
+     *
+     * @return group statistics store or null if it is disabled
+     */
+    private GroupStatisticsStore createGroupStatistics() {
+        if (!"true".equals(config.getParam(getName() + ".groupStatistics"))) {
+            return null;
+        }
+
+        final Integer checkInterval =
+                config.getParamValueAs(getName() + ".groupStatistics.checkInterval", Integer::valueOf);
+        final GroupStatisticsStore store = new GroupStatisticsStore(matchedBodyDao,
+                checkInterval == null || checkInterval < 0 ? DEFAULT_GROUP_STATISTICS_CHECK_INTERVAL : checkInterval);
+
+        logger.info("Loading group statistics.");
+        matchedBodyDao.forEachGroupInfo(info -> store.put((MatchedGroupInfo) info));
+        logger.info("Group statistics of {} groups loaded.", store.size());
+
+        return store;
+    }
+
+    /**
+     * Adds all the bodies from the list.
+     *
+     * @param bodies
+     *         target list
+     * @param list
+     *         added bodies, may be null
+     */
+    private static void addAll(final List<MatchedBody> bodies, final List<MatchedBody> list) {
+        if (list != null) {
+            bodies.addAll(list);
+        }
+    }
+
     /**
      * Matches one body.
      *
@@ -240,16 +517,22 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
      *         publication date
      * @param source
      *         body source
+     * @param speculation
+     *         speculative matching results
+     * @param batch
+     *         batch the matched body is saved by
      *
      * @return list of matched bodies
      */
     private MatchedBody matchBody(final MatchedBody body, final CleanTender cleanTender,
-            final LocalDate publicationDate, final String source) {
+            final LocalDate publicationDate, final String source, final BodyMatchSpeculation speculation,
+            final MatchedBodyWriteBatch batch) {
         if (body == null) {
             return null;
         }
 
-        List<MatchedBody> matchedBodies = matchBodySet(Arrays.asList(body), cleanTender, publicationDate, source);
+        List<MatchedBody> matchedBodies = matchBodySet(Arrays.asList(body), cleanTender, publicationDate, source,
+                speculation, batch);
 
         if (matchedBodies != null && !matchedBodies.isEmpty()) {
             return matchedBodies.get(0);
@@ -269,11 +552,16 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
      *         publication date
      * @param source
      *         body source
+     * @param speculation
+     *         speculative matching results
+     * @param batch
+     *         batch the matched bodies are saved by
      *
      * @return list of "plain/reference" bodies
      */
     private List<MatchedBody> matchBodySet(final List<MatchedBody> bodies, final CleanTender cleanTender,
-            final LocalDate publicationDate, final String source) {
+            final LocalDate publicationDate, final String source, final BodyMatchSpeculation speculation,
+            final MatchedBodyWriteBatch batch) {
         if (bodies == null) {
             return null;
         }
@@ -285,9 +573,9 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
                 continue;
             }
 
-            generateHashes(body);
+            BodyMatch match = speculation.resolve(body, b -> batch.match(b, this::findMatch));
 
-            if (body.getHash() == null) {
+            if (match == null) {
                 continue;
             }
 
@@ -296,81 +584,29 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
                 metaData = body.getMetaData();
             }
 
-            // search by manual matching plugin first
-            long pluginStartTime = System.currentTimeMillis();
-            MatchingResult manualMatchingResult = manualBodyMatchingPlugin.match(body);
-            long pluginEndTime = System.currentTimeMillis();
-
-            logMatchingData(pluginStartTime, pluginEndTime, "manual");
-
-            HashMap<String, Long> matchingTimes = new HashMap<String, Long>();
-            matchingTimes.put("manual", pluginEndTime - pluginStartTime);
-
-            if (manualMatchingResult.getMatched()) {
-                // match found, store group_id and matched by
-                body.setGroupId(manualMatchingResult.getGroupId());
-                body.setMatchedBy(manualMatchingResult.getMatchedBy());
-                metaData.put("matchedBy", manualMatchingResult.getMatchedBy());
-                metaData.put("matchingData", manualMatchingResult.getMetaData());
-            } else {
-
-                String matchedByHashGroupId = null;
-                if (this.cacheEnabled) {
-                    // search for potential matches in cache
-                    pluginStartTime = System.currentTimeMillis();
-                    matchedByHashGroupId = findByHashes(body);
-                    pluginEndTime = System.currentTimeMillis();
-
-                    logMatchingData(pluginStartTime, pluginEndTime, "HASH");
+            body.setGroupId(match.getGroupId());
+            metaData.put("matchedBy", match.getMatchedBy());
+            if (match.getType() != BodyMatch.Type.UNMATCHED) {
+                body.setMatchedBy(match.getMatchedBy());
+            }
+            if (match.getResult() != null) {
+                metaData.put("matchingData", match.getResult().getMetaData());
+            }
 
-                    matchingTimes.put("HASH", pluginEndTime - pluginStartTime);
-                }
+            if (groupStatistics != null && match.getType() == BodyMatch.Type.PLUGIN
+                    && isEtalonMatch(match.getResult())) {
+                // the etalon plugins may have saved the matched body of the etalon into the group
+                groupStatistics.invalidate(match.getGroupId());
+            }
 
-                if (matchedByHashGroupId != null) {
-                    // the same hash found, storing into the same group
-                    body.setGroupId(matchedByHashGroupId);
-                    body.setMatchedBy(HASH);
-                    metaData.put("matchedBy", HASH);
+            if (this.cacheEnabled && match.getType() == BodyMatch.Type.PLUGIN) {
+                // save results to cache
+                MatchingResult matchingResult = match.getResult();
+                if (isEtalonMatch(matchingResult)) {
+                    matchingHashCache.put(etalonCachePrefix.concat(matchingResult.getGroupId()), "true");
+                    putToCache(matchingResult.getGroupId(), matchingResult.getMatchedBody());
                 } else {
-                    Boolean matched = false;
-                    // try all registered plugins for potential match
-                    for (Entry<String, MatchingPlugin<MatchedBody>> entry : bodyPluginRegistry.getPlugins().entrySet()) {
-                        MatchingPlugin<MatchedBody> plugin = entry.getValue();
-                        pluginStartTime = System.currentTimeMillis();
-                        MatchingResult matchingResult = plugin.match(body);
-                        pluginEndTime = System.currentTimeMillis();
-                        logMatchingData(pluginStartTime, pluginEndTime, plugin.getClass().getName());
-                        matchingTimes.put(plugin.getClass().getName(), pluginEndTime - pluginStartTime);
-
-                        if (matchingResult.getMatched()) {
-                            // match found, store group_id and matched by
-                            body.setGroupId(matchingResult.getGroupId());
-                            body.setMatchedBy(matchingResult.getMatchedBy());
-                            metaData.put("matchedBy", matchingResult.getMatchedBy());
-                            metaData.put("matchingData", matchingResult.getMetaData());
-                            matched = true;
-
-                            if (this.cacheEnabled) {
-                                // save results to cache
-                                if (matchingResult.getMatchedBy().equals(ExactMatchingEtalonPlugin.MATCHED_BY)
-                                        || matchingResult.getMatchedBy().equals(ApproximateMatchingEtalonPlugin.MATCHED_BY)) {
-                                    hashCache.put(etalonCachePrefix.concat(matchingResult.getGroupId()), "true");
-                                    putToCache(matchingResult.getGroupId(), matchingResult.getMatchedBody());
-                                } else {
-                                    hashCache.put(etalonCachePrefix.concat(matchingResult.getGroupId()), "false");
-                                }
-                            }
-
-                            // end the plugin loop
-                            break;
-                        }
-                    }
-
-                    // not matched by any of our plugins, store as a new item
-                    if (!matched) {
-                        body.setGroupId("group_" + getSourceId() + "_body_" + body.getHash());
-                        metaData.put("matchedBy", UNMATCHED);
-                    }
+                    matchingHashCache.put(etalonCachePrefix.concat(matchingResult.getGroupId()), "false");
                 }
             }
 
@@ -390,25 +626,22 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
             Double completenessScore = BodyUtils.completenessScore(body);
             metaData.put("completenessScore", completenessScore);
             metaData.put("cleanObjectPersistentId", cleanTender.getPersistentId());
-            metaData.put("matchingTimes", matchingTimes);
+            metaData.put("matchingTimes", match.getMatchingTimes());
 
             body.setMetaData(metaData);
-            matchedBodyDao.save(body);
 
-            // we don't store the whole body, only the "plain", reference body
+            // we don't store the whole body, only the "plain", reference body, which gets the id when the body is
+            // written
             MatchedBody plainBody = new MatchedBody();
-            plainBody.setId(body.getId());
             plainBody.setGroupId(body.getGroupId());
             plainBody.setCompletenessScore(completenessScore);
 
-            matchedBodies.add(plainBody);
+            batch.add(body, plainBody);
+            if (groupStatistics != null) {
+                groupStatistics.record(body);
+            }
 
-            // publish message
-            final Message outgoingMessage = MessageFactory.getMessage();
-            final String tag = getBodyMessagingTag();
-            outgoingMessage.setValue("groupId", body.getGroupId());
-            publishMessage(outgoingMessage, tag);
-            logger.info("Body matching finished, published message '{}' with tag '{}'", outgoingMessage, tag);
+            matchedBodies.add(plainBody);
         }
 
         if (matchedBodies != null && !matchedBodies.isEmpty()) {
@@ -418,6 +651,137 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
         return null;
     }
 
+    /**
+     * Finds the group of the body. Tries manual matching first, then the hash cache and then all the registered
+     * plugins. The result isn't applied to the body, the body gets only its hashes.
+     *
+     * @param body
+     *         body to be matched
+     *
+     * @return matching result or null if the body hash can't be generated
+     */
+    private BodyMatch findMatch(final MatchedBody body) {
+        generateHashes(body);
+
+        if (body.getHash() == null) {
+            return null;
+        }
+
+        // search by manual matching plugin first
+        long pluginStartTime = System.currentTimeMillis();
+        MatchingResult manualMatchingResult = manualBodyMatchingPlugin.match(body);
+        long pluginEndTime = System.currentTimeMillis();
+
+        logMatchingData(pluginStartTime, pluginEndTime, "manual");
+
+        HashMap<String, Long> matchingTimes = new HashMap<String, Long>();
+        matchingTimes.put("manual", pluginEndTime - pluginStartTime);
+
+        if (manualMatchingResult.getMatched()) {
+            // match found, store group_id and matched by
+            return new BodyMatch(BodyMatch.Type.MANUAL, manualMatchingResult.getGroupId(),
+                    manualMatchingResult.getMatchedBy(), manualMatchingResult, matchingTimes, null, true);
+        }
+
+        final Set<String> readGroupIds = new HashSet<>();
+
+        String matchedByHashGroupId = null;
+        if (this.cacheEnabled) {
+            // search for potential matches in cache
+            pluginStartTime = System.currentTimeMillis();
+            matchedByHashGroupId = findByHashes(body, readGroupIds);
+            pluginEndTime = System.currentTimeMillis();
+
+            logMatchingData(pluginStartTime, pluginEndTime, "HASH");
+
+            matchingTimes.put("HASH", pluginEndTime - pluginStartTime);
+        }
+
+        if (matchedByHashGroupId != null) {
+            // the same hash found, storing into the same group
+            return new BodyMatch(BodyMatch.Type.HASH, matchedByHashGroupId, HASH, null, matchingTimes, readGroupIds,
+                    true);
+        }
+
+        // try all registered plugins for potential match
+        for (Entry<String, MatchingPlugin<MatchedBody>> entry : bodyPluginRegistry.getPlugins().entrySet()) {
+            MatchingPlugin<MatchedBody> plugin = entry.getValue();
+            pluginStartTime = System.currentTimeMillis();
+            MatchingResult matchingResult = plugin.match(body);
+            pluginEndTime = System.currentTimeMillis();
+            logMatchingData(pluginStartTime, pluginEndTime, plugin.getClass().getName());
+            matchingTimes.put(plugin.getClass().getName(), pluginEndTime - pluginStartTime);
+
+            if (matchingResult.getMatched()) {
+                if (matchingResult.getCandidateGroupIds() != null) {
+                    readGroupIds.addAll(matchingResult.getCandidateGroupIds());
+                }
+
+                // match found, store group_id and matched by. The etalon plugins may create the matched body of the
+                // etalon, so their results can't be reused in another transaction.
+                return new BodyMatch(BodyMatch.Type.PLUGIN, matchingResult.getGroupId(),
+                        matchingResult.getMatchedBy(), matchingResult, matchingTimes, readGroupIds,
+                        !isEtalonMatch(matchingResult));
+            }
+        }
+
+        // not matched by any of our plugins, store as a new item
+        return new BodyMatch(BodyMatch.Type.UNMATCHED, "group_" + getSourceId() + "_body_" + body.getHash(),
+                UNMATCHED, null, matchingTimes, readGroupIds, true);
+    }
+
+    /**
+     * @param matchingResult
+     *         matching result
+     *
+     * @return true if the body has been matched with etalon
+     */
+    private static boolean isEtalonMatch(final MatchingResult matchingResult) {
+        return matchingResult.getMatchedBy().equals(ExactMatchingEtalonPlugin.MATCHED_BY)
+                || matchingResult.getMatchedBy().equals(ApproximateMatchingEtalonPlugin.MATCHED_BY);
+    }
+
+    /**
+     * Returns keys the matching of the body searches by. Two bodies of the tender without a common key can be
+     * matched independently, see {@link BodyMatchSpeculation}. Override the method in case the matcher registers
+     * plugin which searches by other values.
+     *
+     * @param body
+     *         matched body with generated hashes
+     *
+     * @return modifiable collection of keys
+     */
+    protected Collection<String> getBodyMatchingKeys(final MatchedBody body) {
+        return BodyMatchSpeculation.getDefaultKeys(body);
+    }
+
+    /**
+     * Gets interval between two refreshes of the manual matches. The interval in seconds can be set with a
+     * configuration property {@code <worker_class>.manualMatchRefreshInterval}, a negative value turns the refresh
+     * off. The manual matches are refreshed every minute by default.
+     *
+     * @return refresh interval or null if the manual matches aren't refreshed
+     */
+    private Duration getManualMatchRefreshInterval() {
+        Integer seconds = config.getParamValueAs(getName() + ".manualMatchRefreshInterval", Integer::valueOf);
+        if (seconds == null) {
+            return ManualMatchingPlugin.DEFAULT_REFRESH_INTERVAL;
+        }
+        return seconds < 0 ? null : Duration.ofSeconds(seconds);
+    }
+
+    /**
+     * Gets number of threads matching bodies of one tender in parallel. The number can be set with a configuration
+     * property {@code <worker_class>.matchingThreads}, by default the bodies are matched sequentially. The threads
+     * are shared by all consumer threads of the worker and each of them borrows its own database connection, so the
+     * connection pool has to be large enough.
+     *
+     * @return number of matching threads
+     */
+    protected final int getMatchingThreadsCount() {
+        Integer threads = config.getParamValueAs(getName() + ".matchingThreads", Integer::valueOf);
+        return threads == null || threads < 1 ? 1 : threads;
+    }
 
     /**
      * Generate body hashes.
@@ -449,67 +813,89 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
      * @param body matched body
      */
     private void putToCache(final String groupId, final MatchedBody body) {
-    	if (body.getHash() != null) {
-    		hashCache.put(hashCachePrefix.concat(body.getHash()), groupId);
-    	}
+        final Map<String, String> items = new HashMap<>();
+        if (body.getHash() != null) {
+            items.put(hashCachePrefix.concat(body.getHash()), groupId);
+        }
 
         if (body.getFullHash() != null) {
-            hashCache.put(hashCachePrefix.concat(body.getFullHash()), groupId);
+            items.put(hashCachePrefix.concat(body.getFullHash()), groupId);
         }
 
-    	for (WeightedHash hash : body.getAlternativeHashes()) {
-    		hashCache.put(hashCachePrefix.concat(hash.getHash()), groupId);
-    	}
-	}
+        for (WeightedHash hash : body.getAlternativeHashes()) {
+            items.put(hashCachePrefix.concat(hash.getHash()), groupId);
+        }
+
+        matchingHashCache.putAll(items);
+    }
 
 	/**
      * This method searches by body hashes for potential matches.
      *
      * @param body for which body to search
+     * @param readGroupIds ids of the groups found in the cache are added to this set
      * @return groupid or null if nothing found
      */
-    private String findByHashes(final MatchedBody body) {
-    		// check first, whether there is not the "same"(in the sense of the equal hash) body
-        String groupId = hashCache.get(hashCachePrefix.concat(body.getHash()));
-        if (groupId != null) {
-        		return groupId;
-    		}
-
-        String winningGroupId = null;
-        Double winnerWeight = null;
-
+    private String findByHashes(final MatchedBody body, final Set<String> readGroupIds) {
         List<WeightedHash> alternativeHashes = body.getAlternativeHashes();
 
         alternativeHashes.sort(Comparator.comparing(WeightedHash::getWeight).reversed()
                 .thenComparing(Comparator.comparing(WeightedHash::getHash)));
 
+        // all the hashes are probed at once, the groups are then evaluated in the same order as before
+        final List<String> keys = new ArrayList<>();
+        keys.add(hashCachePrefix.concat(body.getHash()));
+        for (WeightedHash hash : alternativeHashes) {
+            keys.add(hashCachePrefix.concat(hash.getHash()));
+        }
+        final Map<String, String> groupIds = matchingHashCache.getAll(keys);
+
+        // check first, whether there is not the "same"(in the sense of the equal hash) body
+        String groupId = groupIds.get(keys.get(0));
+        if (groupId != null) {
+            readGroupIds.add(groupId);
+            return groupId;
+        }
+
+        if (groupIds.isEmpty()) {
+            return null;
+        }
+
+        final Set<String> etalonKeys = new HashSet<>();
+        groupIds.values().forEach(g -> etalonKeys.add(etalonCachePrefix.concat(g)));
+        final Map<String, String> etalonGroups = matchingHashCache.getAll(etalonKeys);
+
+        String winningGroupId = null;
+        Double winnerWeight = null;
+
         for (WeightedHash hash : alternativeHashes) {
-            groupId = hashCache.get(hashCachePrefix.concat(hash.getHash()));
+            groupId = groupIds.get(hashCachePrefix.concat(hash.getHash()));
 
             if (groupId != null) {
-            		String isEtalonGroup = hashCache.get(etalonCachePrefix.concat(groupId));
-
-            		if (isEtalonGroup != null && isEtalonGroup.equals("true")) {
-    					// etalon wins, no need to wait
-    					return groupId;
-            		}
-
-            		if (winningGroupId == null) {
-            			// first go through, init data
-        				winningGroupId = groupId;
-        				winnerWeight = hash.getWeight();
-        			} else {
-        				// next round, compare weight with previous
-        				if ((winnerWeight - hash.getWeight()) > 0.9) {
-        					// less specific hash, return previous one
-        					return winningGroupId;
-        				}
-        			}
-        		}
+                readGroupIds.add(groupId);
+                String isEtalonGroup = etalonGroups.get(etalonCachePrefix.concat(groupId));
+
+                if (isEtalonGroup != null && isEtalonGroup.equals("true")) {
+                    // etalon wins, no need to wait
+                    return groupId;
+                }
+
+                if (winningGroupId == null) {
+                    // first go through, init data
+                    winningGroupId = groupId;
+                    winnerWeight = hash.getWeight();
+                } else {
+                    // next round, compare weight with previous
+                    if ((winnerWeight - hash.getWeight()) > 0.9) {
+                        // less specific hash, return previous one
+                        return winningGroupId;
+                    }
+                }
+            }
         }
 
         return winningGroupId;
-	}
+    }
 
 	/**
      * Body matching.
@@ -566,10 +952,18 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
 
         // save the result
         matchedTenderDao.save(matchedTender);
+    }
 
+    /**
+     * Publishes message with the group id of the matched tender.
+     *
+     * @param groupId
+     *         group id
+     */
+    private void publishTenderGroup(final String groupId) {
         final Message outgoingMessage = MessageFactory.getMessage();
         final String tag = getTenderMessagingTag();
-        outgoingMessage.setValue("groupId", matchedTender.getGroupId());
+        outgoingMessage.setValue("groupId", groupId);
         publishMessage(outgoingMessage, tag);
         logger.info("Tender matching finished, published message '{}' with tag '{}'", outgoingMessage, tag);
     }
@@ -592,6 +986,7 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
                 final String tag = getTenderMessagingTag();
                 outgoingMessage.setValue("groupId", tender.getGroupId());
                 publishMessage(outgoingMessage, tag);
+                flushOutgoingMessagesIfFull();
             }
             logger.info("Messages with matched tenders sent over.");
 
@@ -601,6 +996,7 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
                 final String tag = getBodyMessagingTag();
                 outgoingMessage.setValue("groupId", body.getGroupId());
                 publishMessage(outgoingMessage, tag);
+                flushOutgoingMessagesIfFull();
             }
             logger.info("Messages with matched bodies sent over.");
         } catch (final Exception ex) {
@@ -616,9 +1012,11 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
         bodyPluginRegistry.registerPlugin(EXACT_MATCH_ETALON_PLUGIN,
                 new ExactMatchingEtalonPlugin(matchedBodyDao, etalonBodyDao, getSourceId()));
 
-        bodyPluginRegistry.registerPlugin(EXACT_MATCH_BODY_PLUGIN, new ExactMatchingPlugin(matchedBodyDao));
+        bodyPluginRegistry.registerPlugin(EXACT_MATCH_BODY_PLUGIN,
+                new ExactMatchingPlugin(matchedBodyDao).setGroupStatistics(groupStatistics));
 
-        bodyPluginRegistry.registerPlugin(APPROXIMATE_MATCH_BODY_PLUGIN, new ApproximateMatchingPlugin(matchedBodyDao));
+        bodyPluginRegistry.registerPlugin(APPROXIMATE_MATCH_BODY_PLUGIN,
+                new ApproximateMatchingPlugin(matchedBodyDao).setGroupStatistics(groupStatistics));
 
         bodyPluginRegistry.registerPlugin(APPROXIMATE_MATCH_ETALON_PLUGIN,
                 new ApproximateMatchingEtalonPlugin(matchedBodyDao, etalonBodyDao, getSourceId()));
@@ -629,7 +1027,7 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
      */
     private void registerCommonTenderPlugins() {
         tenderPluginRegistry.registerPlugin(MANUAL_PLUGIN,
-                new ManualMatchingPlugin<MatchedTender>(manualMatchDao, "tender"));
+                new ManualMatchingPlugin<MatchedTender>(manualMatchDao, "tender", getManualMatchRefreshInterval()));
     }
 
     @Override
@@ -744,18 +1142,39 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
 
     /**
      * Populates body hash cache with already matched results.
+     *
+     * @param modifiedSince
+     *         only the hashes of the bodies modified since this time are added, null for all the hashes
      */
-    private void populateBodyHashCache() {
-        logger.info("Populating body hash cache.");
-		Map<String, String> hashes = matchedBodyDao.getHashAndGroupIds();
-		for (Map.Entry<String, String> entry : hashes.entrySet()) {
-			String value = hashCache.get(hashCachePrefix.concat(entry.getKey()));
-			if (value == null) {
-				hashCache.put(hashCachePrefix.concat(entry.getKey()), entry.getValue());
-			}
-		}
-		logger.info("Body hash cache populated.");
-	}
+    private void populateBodyHashCache(final LocalDateTime modifiedSince) {
+        logger.info("Populating body hash cache with bodies modified since {}.", modifiedSince);
+        // hashes are streamed from the database, so that all of them needn't be held in memory
+        final Map<String, String> batch = new LinkedHashMap<>();
+        matchedBodyDao.forEachHashAndGroupId(modifiedSince, (hash, groupId) -> {
+            // the first group of the hash wins
+            batch.putIfAbsent(hashCachePrefix.concat((String) hash), (String) groupId);
+            if (batch.size() == CACHE_BATCH_SIZE) {
+                putMissingToCache(batch);
+            }
+        });
+        putMissingToCache(batch);
+        logger.info("Body hash cache populated.");
+    }
+
+    /**
+     * Puts the items whose keys aren't cached yet to cache and clears the given map.
+     *
+     * @param items items to be cached
+     */
+    private void putMissingToCache(final Map<String, String> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        items.keySet().removeAll(hashCache.getAll(items.keySet()).keySet());
+        hashCache.putAll(items);
+        items.clear();
+    }
 
     /**
      * Populates body hash cache with already matched results.
@@ -763,11 +1182,17 @@ public abstract class BaseTenderMatcher extends BaseMatcher {
     private void populateEtalonCache() {
         logger.info("Populating etalon cache.");
         List<String> list = matchedBodyDao.getEtalonGroupIds();
-		for (String groupId : list) {
-			hashCache.put(etalonCachePrefix.concat(groupId), "true");
-		}
-		logger.info("Etalon cache populated.");
-	}
+        final Map<String, String> batch = new HashMap<>();
+        for (String groupId : list) {
+            batch.put(etalonCachePrefix.concat(groupId), "true");
+            if (batch.size() == CACHE_BATCH_SIZE) {
+                hashCache.putAll(batch);
+                batch.clear();
+            }
+        }
+        hashCache.putAll(batch);
+        logger.info("Etalon cache populated.");
+    }
 
     /**
      * Logs about matching to thread context.
@@ -0,0 +1,127 @@
+package eu.dl.worker.matched;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import eu.dl.worker.matched.plugin.MatchingResult;
+
+/**
+ * Result of the body matching which hasn't been applied to the body yet. Besides the group the body belongs to, it
+ * holds the ids of the groups whose state has been read during the matching, so it can be decided whether the result
+ * is still valid after other bodies have been matched.
+ */
+final class BodyMatch {
+
+    /**
+     * The way the body has been matched.
+     */
+    enum Type {
+        /**
+         * Matched by manual matching plugin.
+         */
+        MANUAL,
+        /**
+         * Matched by hash cache.
+         */
+        HASH,
+        /**
+         * Matched by one of the registered plugins.
+         */
+        PLUGIN,
+        /**
+         * Not matched, the body creates a new group.
+         */
+        UNMATCHED
+    }
+
+    private final Type type;
+
+    private final String groupId;
+
+    private final String matchedBy;
+
+    private final MatchingResult result;
+
+    private final HashMap<String, Long> matchingTimes;
+
+    private final Set<String> readGroupIds;
+
+    private final boolean reusable;
+
+    /**
+     * @param type
+     *      the way the body has been matched
+     * @param groupId
+     *      id of the group the body belongs to
+     * @param matchedBy
+     *      identifier of the matching
+     * @param result
+     *      result of the matching plugin, null for the body matched by hash or the unmatched body
+     * @param matchingTimes
+     *      execution times of the plugins
+     * @param readGroupIds
+     *      ids of the groups whose state has been read during the matching
+     * @param reusable
+     *      false if the matching had side effects, so the result mustn't be reused in another transaction
+     */
+    BodyMatch(final Type type, final String groupId, final String matchedBy, final MatchingResult result,
+              final HashMap<String, Long> matchingTimes, final Set<String> readGroupIds, final boolean reusable) {
+        this.type = type;
+        this.groupId = groupId;
+        this.matchedBy = matchedBy;
+        this.result = result;
+        this.matchingTimes = matchingTimes;
+        this.readGroupIds = readGroupIds == null ? new HashSet<>() : readGroupIds;
+        this.reusable = reusable;
+    }
+
+    /**
+     * @return the way the body has been matched
+     */
+    Type getType() {
+        return type;
+    }
+
+    /**
+     * @return id of the group the body belongs to
+     */
+    String getGroupId() {
+        return groupId;
+    }
+
+    /**
+     * @return identifier of the matching
+     */
+    String getMatchedBy() {
+        return matchedBy;
+    }
+
+    /**
+     * @return result of the matching plugin or null
+     */
+    MatchingResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return execution times of the plugins
+     */
+    HashMap<String, Long> getMatchingTimes() {
+        return matchingTimes;
+    }
+
+    /**
+     * @return ids of the groups whose state has been read during the matching
+     */
+    Set<String> getReadGroupIds() {
+        return readGroupIds;
+    }
+
+    /**
+     * @return true if the result can be reused in another transaction
+     */
+    boolean isReusable() {
+        return reusable;
+    }
+}
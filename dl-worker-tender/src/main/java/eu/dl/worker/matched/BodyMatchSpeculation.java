@@ -0,0 +1,258 @@
+package eu.dl.worker.matched;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.dl.core.UnrecoverableException;
+import eu.dl.dataaccess.dao.TransactionUtils;
+import eu.dl.dataaccess.dto.codetables.BodyIdentifier;
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+import eu.dl.dataaccess.utils.WeightedHash;
+
+/**
+ * Speculative parallel matching of the bodies of one tender.
+ *
+ * The result of the body matching depends on the bodies matched before (they are saved and cached, so the later body
+ * can join their group). To get the same results as the sequential matching, all the bodies are matched in parallel
+ * against the data stored before the tender and the results are then applied one by one in the original order, see
+ * {@link #resolve(MatchedBody, Function)}. The speculative result is reused only if none of the already applied
+ * bodies could change it - they share no matching key with the body (hashes, standardized name and address,
+ * identifiers, digest) and they haven't joined any group whose state has been read during the matching. Otherwise
+ * the body is matched again. Thus two bodies of the tender which would create the same new group always end up in
+ * the group created by the first of them, as they do in the sequential matching.
+ *
+ * Each speculative matching runs in its own transaction on a connection borrowed from the pool and the transaction is
+ * always rolled back, so the speculation has no side effects. Instances aren't thread-safe.
+ */
+final class BodyMatchSpeculation {
+
+    private static final Logger logger = LoggerFactory.getLogger(BodyMatchSpeculation.class);
+
+    /**
+     * Speculative results by bodies (compared by identity).
+     */
+    private final Map<MatchedBody, BodyMatch> speculations;
+
+    private final Function<MatchedBody, Collection<String>> keys;
+
+    /**
+     * Matching keys of the already applied bodies.
+     */
+    private final Set<String> appliedKeys = new HashSet<>();
+
+    /**
+     * Ids of the groups joined by the already applied bodies.
+     */
+    private final Set<String> appliedGroupIds = new HashSet<>();
+
+    private int reused = 0;
+
+    private int rematched = 0;
+
+    /**
+     * @param speculations
+     *      speculative results by bodies
+     * @param keys
+     *      function which returns matching keys of the body
+     */
+    private BodyMatchSpeculation(final Map<MatchedBody, BodyMatch> speculations,
+                                 final Function<MatchedBody, Collection<String>> keys) {
+        this.speculations = speculations;
+        this.keys = keys;
+    }
+
+    /**
+     * @return speculation without any speculative result, each body is matched sequentially
+     */
+    static BodyMatchSpeculation none() {
+        return new BodyMatchSpeculation(Collections.emptyMap(), null);
+    }
+
+    /**
+     * Matches the given bodies in parallel.
+     *
+     * @param executor
+     *      executor which runs the matching
+     * @param transactionUtils
+     *      transaction utils, each matching runs in its own transaction which is rolled back
+     * @param bodies
+     *      bodies to be matched, nulls and repeated bodies are skipped
+     * @param matcher
+     *      function which matches the body, returns null for the body which can't be matched
+     * @param keys
+     *      function which returns matching keys of the body, ie. all the values the matching of other bodies searches
+     *      by
+     * @return speculation
+     */
+    static BodyMatchSpeculation speculate(final ExecutorService executor, final TransactionUtils transactionUtils,
+                                          final Collection<MatchedBody> bodies,
+                                          final Function<MatchedBody, BodyMatch> matcher,
+                                          final Function<MatchedBody, Collection<String>> keys) {
+        final Map<MatchedBody, Future<BodyMatch>> futures = new IdentityHashMap<>();
+        for (MatchedBody body : bodies) {
+            if (body == null || futures.containsKey(body)) {
+                continue;
+            }
+
+            futures.put(body, executor.submit(() -> {
+                transactionUtils.begin();
+                try {
+                    return matcher.apply(body);
+                } finally {
+                    transactionUtils.rollback();
+                }
+            }));
+        }
+
+        final Map<MatchedBody, BodyMatch> speculations = new IdentityHashMap<>();
+        for (Map.Entry<MatchedBody, Future<BodyMatch>> entry : futures.entrySet()) {
+            try {
+                BodyMatch match = entry.getValue().get();
+                if (match != null) {
+                    speculations.put(entry.getKey(), match);
+                }
+            } catch (ExecutionException ex) {
+                // the body is matched again in the resolve method
+                logger.warn("Speculative matching of the body failed because of", ex.getCause());
+            } catch (InterruptedException ex) {
+                futures.values().forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                logger.error("Speculative matching of the bodies has been interrupted");
+                throw new UnrecoverableException("Speculative matching of the bodies has been interrupted", ex);
+            }
+        }
+
+        return new BodyMatchSpeculation(speculations, keys);
+    }
+
+    /**
+     * Returns the matching result of the given body. The speculative result is returned if it is still valid,
+     * otherwise the body is matched by the given matcher. The bodies have to be resolved in the order in which the
+     * results are applied.
+     *
+     * @param body
+     *      matched body
+     * @param matcher
+     *      function which matches the body, returns null for the body which can't be matched
+     * @return matching result or null
+     */
+    BodyMatch resolve(final MatchedBody body, final Function<MatchedBody, BodyMatch> matcher) {
+        if (keys == null) {
+            return matcher.apply(body);
+        }
+
+        BodyMatch match = speculations.remove(body);
+        if (match != null && isValid(match, keys.apply(body))) {
+            reused++;
+        } else {
+            match = matcher.apply(body);
+            rematched++;
+        }
+
+        if (match != null) {
+            appliedKeys.addAll(keys.apply(body));
+            appliedGroupIds.add(match.getGroupId());
+            // the body the result refers to may have been created during the matching (eg. the etalon one)
+            if (match.getResult() != null && match.getResult().getMatchedBody() != null) {
+                appliedKeys.addAll(keys.apply(match.getResult().getMatchedBody()));
+            }
+        }
+
+        return match;
+    }
+
+    /**
+     * @return number of the reused speculative results
+     */
+    int getReusedCount() {
+        return reused;
+    }
+
+    /**
+     * @return number of the bodies matched again
+     */
+    int getRematchedCount() {
+        return rematched;
+    }
+
+    /**
+     * Checks whether the speculative result is still valid.
+     *
+     * @param match
+     *      speculative result
+     * @param bodyKeys
+     *      matching keys of the body
+     * @return true if none of the already applied bodies could change the result
+     */
+    private boolean isValid(final BodyMatch match, final Collection<String> bodyKeys) {
+        if (!match.isReusable()) {
+            return false;
+        } else if (match.getType() == BodyMatch.Type.MANUAL) {
+            // manual matching doesn't depend on the other bodies
+            return true;
+        }
+
+        return Collections.disjoint(bodyKeys, appliedKeys)
+            && Collections.disjoint(match.getReadGroupIds(), appliedGroupIds);
+    }
+
+    /**
+     * Returns the keys the common matching searches by - hashes used by the hash cache and standardized name and
+     * address, identifiers and digest used by the plugins.
+     *
+     * @param body
+     *      matched body
+     * @return modifiable set of keys
+     */
+    static Set<String> getDefaultKeys(final MatchedBody body) {
+        final Set<String> keys = new HashSet<>();
+
+        addKey(keys, "hash", body.getHash());
+        addKey(keys, "hash", body.getFullHash());
+        if (body.getAlternativeHashes() != null) {
+            for (WeightedHash hash : body.getAlternativeHashes()) {
+                addKey(keys, "hash", hash.getHash());
+            }
+        }
+
+        addKey(keys, "name", body.getStandardizedName());
+        addKey(keys, "address", body.getStandardizedAddress());
+        addKey(keys, "digest", body.getDigest());
+        if (body.getBodyIds() != null) {
+            for (BodyIdentifier id : body.getBodyIds()) {
+                if (id != null && id.getId() != null && id.getScope() != null) {
+                    addKey(keys, "id", id.getScope() + ":" + id.getId());
+                }
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * Adds not null key with the given prefix.
+     *
+     * @param keys
+     *      set of keys
+     * @param prefix
+     *      key prefix
+     * @param value
+     *      key value
+     */
+    private static void addKey(final Set<String> keys, final String prefix, final String value) {
+        if (value != null) {
+            keys.add(prefix + ":" + value);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package eu.dl.worker.matched;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+
+/**
+ * Matched bodies of one tender which are saved at once. The bodies are matched against the database which doesn't
+ * contain the pending bodies, so the matching result is used only if it can't depend on them (the same rule as for
+ * the speculative results, see {@link BodyMatchSpeculation}). Otherwise the pending bodies are written and the body
+ * is matched again, so the results are always the same as if each body was saved right after its matching.
+ *
+ * The batch collects ids of all the groups the bodies have been saved into, the groups are published in one message.
+ */
+final class MatchedBodyWriteBatch {
+
+    private final Consumer<Collection<MatchedBody>> writer;
+
+    private final Function<MatchedBody, Collection<String>> keys;
+
+    /**
+     * Bodies waiting to be written.
+     */
+    private final List<MatchedBody> bodies = new ArrayList<>();
+
+    /**
+     * Reference bodies of the pending bodies which get the ids of the pending bodies once they are written.
+     */
+    private final List<MatchedBody> references = new ArrayList<>();
+
+    /**
+     * Matching keys of the pending bodies.
+     */
+    private final Set<String> pendingKeys = new HashSet<>();
+
+    /**
+     * Groups of the pending bodies.
+     */
+    private final Set<String> pendingGroupIds = new HashSet<>();
+
+    /**
+     * Groups of all the bodies added to the batch in the order of adding.
+     */
+    private final Set<String> groupIds = new LinkedHashSet<>();
+
+    private int writes = 0;
+
+    private int rematched = 0;
+
+    /**
+     * @param writer
+     *      saves the bodies at once and sets their ids, eg. {@link eu.dl.dataaccess.dao.GenericDAO#saveAll}
+     * @param keys
+     *      returns matching keys of the body with generated hashes
+     */
+    MatchedBodyWriteBatch(final Consumer<Collection<MatchedBody>> writer,
+                          final Function<MatchedBody, Collection<String>> keys) {
+        this.writer = writer;
+        this.keys = keys;
+    }
+
+    /**
+     * Matches the body. In case the result may depend on the pending bodies, they are written and the body is
+     * matched again.
+     *
+     * @param body
+     *      body to be matched
+     * @param matcher
+     *      matches the body against the database
+     * @return matching result or null if the body can't be matched
+     */
+    BodyMatch match(final MatchedBody body, final Function<MatchedBody, BodyMatch> matcher) {
+        BodyMatch match = matcher.apply(body);
+        if (match != null && !bodies.isEmpty() && !isIndependent(match, keys.apply(body))) {
+            write();
+            rematched++;
+            match = matcher.apply(body);
+        }
+
+        return match;
+    }
+
+    /**
+     * Adds the matched body with group id set to the batch.
+     *
+     * @param body
+     *      matched body
+     * @param reference
+     *      reference body stored in the tender, its id is set once the body is written
+     */
+    void add(final MatchedBody body, final MatchedBody reference) {
+        bodies.add(body);
+        references.add(reference);
+        pendingKeys.addAll(keys.apply(body));
+        pendingGroupIds.add(body.getGroupId());
+        groupIds.add(body.getGroupId());
+    }
+
+    /**
+     * Writes the pending bodies at once and sets the ids of their reference bodies.
+     */
+    void write() {
+        if (bodies.isEmpty()) {
+            return;
+        }
+
+        writer.accept(bodies);
+        for (int i = 0; i < bodies.size(); i++) {
+            references.get(i).setId(bodies.get(i).getId());
+        }
+        writes++;
+
+        bodies.clear();
+        references.clear();
+        pendingKeys.clear();
+        pendingGroupIds.clear();
+    }
+
+    /**
+     * @return ids of the groups of all the added bodies in the order of adding
+     */
+    List<String> getGroupIds() {
+        return new ArrayList<>(groupIds);
+    }
+
+    /**
+     * @return number of the pending bodies
+     */
+    int size() {
+        return bodies.size();
+    }
+
+    /**
+     * @return number of the writes
+     */
+    int getWriteCount() {
+        return writes;
+    }
+
+    /**
+     * @return number of the bodies matched again after the pending bodies had been written
+     */
+    int getRematchedCount() {
+        return rematched;
+    }
+
+    /**
+     * @param match
+     *      matching result computed without the pending bodies
+     * @param bodyKeys
+     *      matching keys of the matched body
+     * @return true if the result can't depend on the pending bodies
+     */
+    private boolean isIndependent(final BodyMatch match, final Collection<String> bodyKeys) {
+        if (match.getType() == BodyMatch.Type.MANUAL) {
+            // manual matching doesn't depend on the other bodies
+            return true;
+        }
+
+        return Collections.disjoint(bodyKeys, pendingKeys)
+            && Collections.disjoint(match.getReadGroupIds(), pendingGroupIds);
+    }
+}
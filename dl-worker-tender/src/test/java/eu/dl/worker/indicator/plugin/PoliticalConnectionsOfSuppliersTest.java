@@ -1,9 +1,11 @@
 package eu.dl.worker.indicator.plugin;
 
 import eu.dl.dataaccess.dao.MasterBodyDAO;
+import eu.dl.dataaccess.dao.PageCursor;
 import eu.dl.dataaccess.dto.codetables.BodyIdentifier;
 import eu.dl.dataaccess.dto.codetables.PublicationFormType;
 import eu.dl.dataaccess.dto.generic.Publication;
+import eu.dl.dataaccess.dto.indicator.Indicator;
 import eu.dl.dataaccess.dto.indicator.IndicatorStatus;
 import eu.dl.dataaccess.dto.indicator.TenderIndicatorType;
 import eu.dl.dataaccess.dto.master.MasterBid;
@@ -13,9 +15,15 @@ import eu.dl.dataaccess.dto.master.MasterTenderLot;
 import org.junit.Test;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static eu.dl.dataaccess.dto.codetables.BodyIdentifier.Type.BVD_ID;
 import static org.junit.Assert.assertEquals;
@@ -192,6 +200,56 @@ public class PoliticalConnectionsOfSuppliersTest {
         assertEquals(pluginTrue.evaluate(anyMatch1).getStatus(), IndicatorStatus.CALCULATED);
     }
 
+    /**
+     * Plugin searching the bvd ids in memory gives the same results as the plugin querying the DAO for each id,
+     * without any query for a single id.
+     */
+    @Test
+    public final void sameAsDaoTest() {
+        Random random = new Random(1);
+        Set<String> persons = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            if (random.nextBoolean()) {
+                persons.add("bvd" + i);
+            }
+        }
+
+        AtomicInteger queries = new AtomicInteger();
+        MasterBodyDAOtest dao = new MasterBodyDAOtest() {
+            @Override
+            public boolean existsInPoliticalExposedPersons(final String bvdIdNumber) {
+                queries.incrementAndGet();
+                return persons.contains(bvdIdNumber);
+            }
+
+            @Override
+            public void forEachPoliticalExposedPersonId(final Consumer action) {
+                persons.forEach(action);
+            }
+        };
+
+        PoliticalConnectionsOfSuppliers pluginDao = new PoliticalConnectionsOfSuppliers(dao);
+        PoliticalConnectionsOfSuppliers pluginSet = new PoliticalConnectionsOfSuppliers(
+                new PoliticalExposedPersonsSet(dao::forEachPoliticalExposedPersonId, 0));
+
+        Set<String> verdicts = new HashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            MasterTender tender = generateTender(random);
+            Indicator expected = pluginDao.evaluate(tender);
+
+            int before = queries.get();
+            Indicator actual = pluginSet.evaluate(tender);
+            assertEquals(before, queries.get());
+
+            assertEquals(expected.getStatus(), actual.getStatus());
+            assertEquals(expected.getValue(), actual.getValue());
+            verdicts.add(expected.getStatus() + ":" + expected.getValue());
+        }
+
+        // all the results have been tested
+        assertEquals(4, verdicts.size());
+    }
+
     /**
      * Test of correct type.
      */
@@ -201,6 +259,39 @@ public class PoliticalConnectionsOfSuppliersTest {
                 TenderIndicatorType.INTEGRITY_POLITICAL_CONNECTIONS.name());
     }
 
+    /**
+     * @param random random generator
+     * @return tender with random winning bids and bidder ids
+     */
+    private static MasterTender generateTender(final Random random) {
+        List<MasterTenderLot> lots = new ArrayList<>();
+        for (int l = random.nextInt(3); l >= 0; l--) {
+            List<MasterBid> bids = new ArrayList<>();
+            for (int b = random.nextInt(3); b >= 0; b--) {
+                List<MasterBody> bidders = new ArrayList<>();
+                for (int n = random.nextInt(3); n >= 0; n--) {
+                    List<BodyIdentifier> ids = new ArrayList<>();
+                    for (int i = random.nextInt(3); i > 0; i--) {
+                        ids.add(new BodyIdentifier()
+                                .setId(random.nextInt(10) == 0 ? null : "bvd" + random.nextInt(20))
+                                .setType(random.nextInt(5) == 0 ? BodyIdentifier.Type.ORGANIZATION_ID : BVD_ID));
+                    }
+                    bidders.add(new MasterBody().setBodyIds(random.nextInt(5) == 0 ? null : ids));
+                }
+                bids.add(new MasterBid()
+                        .setIsWinning(random.nextInt(5) == 0 ? null : random.nextInt(4) > 0)
+                        .setBidders(bidders));
+            }
+            lots.add(new MasterTenderLot().setBids(bids));
+        }
+
+        return new MasterTender()
+                .setPublications(Arrays.asList(new Publication()
+                        .setFormType(random.nextInt(10) == 0 ? PublicationFormType.CONTRACT_NOTICE
+                                : PublicationFormType.CONTRACT_AWARD)))
+                .setLots(lots);
+    }
+
     /**
      * MasterBodyDao for test.
      */
@@ -267,6 +358,26 @@ public class PoliticalConnectionsOfSuppliersTest {
             return null;
         }
 
+        @Override
+        public List getModifiedAfter(final PageCursor cursor, final String createdBy, final String country,
+                                     final Integer pageSize) {
+            return null;
+        }
+
+        @Override
+        public List getModifiedAfter(final PageCursor cursor, final String createdBy, final String country) {
+            return null;
+        }
+
+        @Override
+        public List<String> saveAll(final Collection masteredItems) {
+            return null;
+        }
+
+        @Override
+        public void forEachPoliticalExposedPersonId(final Consumer action) {
+        }
+
         @Override
         public MasterBody getEmptyInstance() {
             return null;
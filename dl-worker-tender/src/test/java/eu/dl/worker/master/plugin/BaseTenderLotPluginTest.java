@@ -0,0 +1,314 @@
+package eu.dl.worker.master.plugin;
+
+import eu.dl.dataaccess.dto.master.MasterTender;
+import eu.dl.dataaccess.dto.master.MasterTenderLot;
+import eu.dl.dataaccess.dto.matched.MatchedTender;
+import eu.dl.dataaccess.dto.matched.MatchedTenderLot;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test of lots matching. Groups of lots are compared with the groups created by the reference implementation which
+ * compares and sorts all the lot pairs and merges the groups by linear scans.
+ */
+public final class BaseTenderLotPluginTest {
+    /**
+     * Lot plugin with matching ratio given by number of equal lot numbers, titles and contract numbers.
+     */
+    private static class TestLotPlugin
+            extends BaseTenderLotPlugin<MatchedTender, MasterTender, MatchedTenderLot, MasterTenderLot> {
+        @Override
+        protected final MasterTenderLot createEmptyListItemInstance() {
+            return new MasterTenderLot();
+        }
+
+        @Override
+        protected final void registerNestedMasterPlugins() {
+        }
+
+        @Override
+        protected Double calculateMatchingRatio(final MatchedTenderLot firstLot, final MatchedTenderLot secondLot,
+                                                final List<List<MatchedTenderLot>> items) {
+            double score = 0;
+            int comparisons = 0;
+            for (Object[] values : new Object[][]{
+                    {firstLot.getLotNumber(), secondLot.getLotNumber()},
+                    {firstLot.getTitle(), secondLot.getTitle()},
+                    {firstLot.getContractNumber(), secondLot.getContractNumber()}}) {
+                if (values[0] != null && values[1] != null) {
+                    score += values[0].equals(values[1]) ? 1 : 0;
+                    comparisons++;
+                }
+            }
+
+            // no comparison results in NaN
+            return score / comparisons;
+        }
+    }
+
+    /**
+     * Lot plugin which matches lots with equal contract number and uses the contract number as blocking key.
+     */
+    private static final class BlockingTestLotPlugin extends TestLotPlugin {
+        @Override
+        protected Double calculateMatchingRatio(final MatchedTenderLot firstLot, final MatchedTenderLot secondLot,
+                                                final List<List<MatchedTenderLot>> items) {
+            return Objects.equals(firstLot.getContractNumber(), secondLot.getContractNumber()) ? 1.0 : 0.0;
+        }
+
+        @Override
+        protected Collection<?> getBlockingKeys(final MatchedTenderLot lot) {
+            return Collections.singletonList(lot.getContractNumber());
+        }
+    }
+
+    /**
+     * Lot plugin whose lot number blocking keys don't cover all the matching pairs, the blocking is used only in case
+     * some tender has at least three lots.
+     */
+    private static final class LargeInputBlockingTestLotPlugin extends TestLotPlugin {
+        @Override
+        protected Collection<?> getBlockingKeys(final MatchedTenderLot lot) {
+            return lot.getLotNumber() == null ? null : Collections.singletonList(lot.getLotNumber());
+        }
+
+        @Override
+        protected boolean isBlockingUsed(final List<List<MatchedTenderLot>> lotLists) {
+            return lotLists.stream().anyMatch(lots -> lots.size() >= 3);
+        }
+    }
+
+    /**
+     * Groups of lots are the same as the groups of the reference implementation.
+     */
+    @Test
+    public void sameGroupsAsReferenceTest() {
+        Random random = new Random(11);
+        for (TestLotPlugin plugin : new TestLotPlugin[]{new TestLotPlugin(), new BlockingTestLotPlugin()}) {
+            for (int i = 0; i < 200; i++) {
+                List<List<MatchedTenderLot>> lotLists = randomLotLists(random);
+                assertEquals(toIds(lotLists, referenceMatch(plugin, lotLists)), toIds(lotLists, plugin.match(lotLists)));
+            }
+        }
+    }
+
+    /**
+     * The blocking keys are used only for the inputs the plugin uses them for.
+     */
+    @Test
+    public void blockingUsedTest() {
+        Random random = new Random(13);
+        TestLotPlugin plugin = new LargeInputBlockingTestLotPlugin();
+        for (int i = 0; i < 200; i++) {
+            List<List<MatchedTenderLot>> lotLists = randomLotLists(random);
+            if (!plugin.isBlockingUsed(lotLists)) {
+                assertEquals(toIds(lotLists, referenceMatch(plugin, lotLists)),
+                        toIds(lotLists, plugin.match(lotLists)));
+            }
+        }
+
+        // lots with different numbers and equal titles match (ratio 0.5) unless the blocking is used
+        List<List<MatchedTenderLot>> lotLists = new ArrayList<>();
+        lotLists.add(new ArrayList<>(List.of(new MatchedTenderLot().setLotNumber(1).setTitle("a"),
+                new MatchedTenderLot().setLotNumber(3).setTitle("c"))));
+        lotLists.add(new ArrayList<>(List.of(new MatchedTenderLot().setLotNumber(2).setTitle("a"))));
+        assertEquals(2, plugin.match(lotLists).size());
+
+        lotLists.get(0).add(new MatchedTenderLot().setLotNumber(4).setTitle("d"));
+        assertEquals(4, plugin.match(lotLists).size());
+    }
+
+    /**
+     * Group can't contain two lots of one tender.
+     */
+    @Test
+    public void oneLotPerTenderTest() {
+        List<List<MatchedTenderLot>> lotLists = new ArrayList<>();
+        lotLists.add(new ArrayList<>(List.of(new MatchedTenderLot().setContractNumber("1"))));
+        lotLists.add(new ArrayList<>(List.of(new MatchedTenderLot().setContractNumber("1"),
+                new MatchedTenderLot().setContractNumber("1"))));
+
+        List<List<MatchedTenderLot>> groups = new BlockingTestLotPlugin().match(lotLists);
+        assertEquals(2, groups.size());
+        assertEquals(2, groups.get(0).size());
+        assertEquals(1, groups.get(1).size());
+    }
+
+    /**
+     * @param random
+     *      random generator
+     * @return random lots of up to five tenders
+     */
+    private static List<List<MatchedTenderLot>> randomLotLists(final Random random) {
+        List<List<MatchedTenderLot>> lotLists = new ArrayList<>();
+        int tenders = 1 + random.nextInt(5);
+        for (int t = 0; t < tenders; t++) {
+            List<MatchedTenderLot> lots = new ArrayList<>();
+            int count = 1 + random.nextInt(6);
+            for (int l = 0; l < count; l++) {
+                lots.add(new MatchedTenderLot()
+                        .setLotNumber(random.nextInt(4) == 0 ? null : 1 + random.nextInt(4))
+                        .setTitle(random.nextInt(3) == 0 ? null : "title " + random.nextInt(3))
+                        .setContractNumber(random.nextInt(3) == 0 ? null : String.valueOf(random.nextInt(4))));
+            }
+            lotLists.add(lots);
+        }
+        return lotLists;
+    }
+
+    /**
+     * @param lotLists
+     *      lots of tenders
+     * @param groups
+     *      groups of lots
+     * @return groups of lot ids (ids are positions of the lots in the lot lists)
+     */
+    private static Set<Set<Integer>> toIds(final List<List<MatchedTenderLot>> lotLists,
+                                           final List<List<MatchedTenderLot>> groups) {
+        Map<MatchedTenderLot, Integer> ids = new IdentityHashMap<>();
+        lotLists.stream().flatMap(List::stream).forEach(lot -> ids.put(lot, ids.size()));
+
+        return groups.stream()
+                .map(g -> g.stream().map(ids::get).collect(Collectors.toSet()))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Reference lots matching. Compares all the cross tender lot pairs, visits them from the highest matching ratio and
+     * merges the groups by linear scans.
+     *
+     * @param plugin
+     *      plugin used to calculate matching ratio
+     * @param lotLists
+     *      lots of tenders
+     * @return groups of lots
+     */
+    private static List<List<MatchedTenderLot>> referenceMatch(final TestLotPlugin plugin,
+                                                               final List<List<MatchedTenderLot>> lotLists) {
+        if (lotLists.stream().allMatch(lots -> lots.size() == 1)) {
+            return List.of(lotLists.stream().flatMap(List::stream).collect(Collectors.toList()));
+        }
+
+        // pair is {tender1, lot1, tender2, lot2}
+        List<int[]> pairs = new ArrayList<>();
+        List<Double> ratios = new ArrayList<>();
+        for (int t1 = 0; t1 < lotLists.size() - 1; t1++) {
+            for (int l1 = 0; l1 < lotLists.get(t1).size(); l1++) {
+                for (int t2 = t1 + 1; t2 < lotLists.size(); t2++) {
+                    for (int l2 = 0; l2 < lotLists.get(t2).size(); l2++) {
+                        pairs.add(new int[]{t1, l1, t2, l2});
+                        ratios.add(plugin.calculateMatchingRatio(lotLists.get(t1).get(l1), lotLists.get(t2).get(l2),
+                                lotLists));
+                    }
+                }
+            }
+        }
+
+        // stable sort by ratio, pairs are visited from the end
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < pairs.size(); i++) {
+            order.add(i);
+        }
+        order.sort((a, b) -> ratios.get(a).compareTo(ratios.get(b)));
+
+        // group is a set of "tender_lot" keys
+        List<Set<String>> groups = new ArrayList<>();
+        for (int k = order.size() - 1; k >= 0; k--) {
+            int[] pair = pairs.get(order.get(k));
+            String lot1 = pair[0] + "_" + pair[1];
+            String lot2 = pair[2] + "_" + pair[3];
+
+            if (ratios.get(order.get(k)).compareTo(0.5) < 0) {
+                continue;
+            }
+
+            boolean createNewGroup = true;
+            for (int i = 0; i < groups.size(); i++) {
+                Set<String> group = groups.get(i);
+                if (!group.contains(lot1) && !group.contains(lot2)) {
+                    continue;
+                }
+
+                if (group.contains(lot1) && !group.contains(lot2) && !hasTender(group, pair[2])) {
+                    addToGroup(lot2, groups, i);
+                } else if (!group.contains(lot1) && group.contains(lot2) && !hasTender(group, pair[0])) {
+                    addToGroup(lot1, groups, i);
+                }
+                createNewGroup = false;
+                break;
+            }
+
+            if (createNewGroup) {
+                groups.add(new HashSet<>(List.of(lot1, lot2)));
+            }
+        }
+
+        List<List<MatchedTenderLot>> result = groups.stream()
+                .map(g -> g.stream()
+                        .map(key -> key.split("_"))
+                        .map(key -> lotLists.get(Integer.parseInt(key[0])).get(Integer.parseInt(key[1])))
+                        .collect(Collectors.toList()))
+                .collect(Collectors.toList());
+
+        for (int t = 0; t < lotLists.size(); t++) {
+            for (int l = 0; l < lotLists.get(t).size(); l++) {
+                String key = t + "_" + l;
+                if (groups.stream().noneMatch(g -> g.contains(key))) {
+                    result.add(List.of(lotLists.get(t).get(l)));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param group
+     *      group of lot keys
+     * @param tender
+     *      tender index
+     * @return true if the group has lot of the tender
+     */
+    private static boolean hasTender(final Set<String> group, final int tender) {
+        return group.stream().anyMatch(key -> key.startsWith(tender + "_"));
+    }
+
+    /**
+     * Adds lot to the group, joins the group with the later group of the lot if the join is valid.
+     *
+     * @param lot
+     *      lot key
+     * @param groups
+     *      groups
+     * @param groupIndex
+     *      index of the group
+     */
+    private static void addToGroup(final String lot, final List<Set<String>> groups, final int groupIndex) {
+        for (int j = groupIndex + 1; j < groups.size(); j++) {
+            if (groups.get(j).contains(lot)) {
+                Set<String> group = groups.get(groupIndex);
+                Set<String> other = groups.get(j);
+                if (other.stream().noneMatch(key -> hasTender(group, Integer.parseInt(key.split("_")[0])))) {
+                    group.addAll(other);
+                    groups.remove(j);
+                }
+                return;
+            }
+        }
+
+        groups.get(groupIndex).add(lot);
+    }
+}
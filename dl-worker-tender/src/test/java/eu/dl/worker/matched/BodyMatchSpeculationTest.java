@@ -0,0 +1,297 @@
+package eu.dl.worker.matched;
+
+import eu.dl.dataaccess.dao.TransactionUtils;
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+import eu.dl.worker.matched.plugin.MatchingResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test of speculative parallel body matching. Results of the parallel matching are compared with the sequential
+ * matching which applies each result before the next body is matched.
+ */
+public final class BodyMatchSpeculationTest {
+    /**
+     * Transaction utils which do nothing.
+     */
+    private static final TransactionUtils NO_TRANSACTION = new TransactionUtils() {
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void commit() {
+        }
+
+        @Override
+        public void rollback() {
+        }
+
+        @Override
+        public void release() {
+        }
+
+        @Override
+        public void addCommitListener(final Runnable listener) {
+        }
+    };
+
+    private ExecutorService executor;
+
+    /**
+     * In-memory storage of the matched bodies with matching similar to the matcher one. The body is matched manually,
+     * by hash, by standardized name or address with the largest group winning, or it creates a new group.
+     */
+    private static final class Storage {
+        private final List<MatchedBody> bodies = new ArrayList<>();
+
+        private final Map<String, String> hashes = new HashMap<>();
+
+        /**
+         * @param body
+         *      matched body
+         * @return matching result
+         */
+        BodyMatch match(final MatchedBody body) {
+            if (body.getHash() == null) {
+                return null;
+            }
+
+            if (body.getName().startsWith("manual")) {
+                MatchingResult manual = result("manual_" + body.getName(), "manual", null);
+                return new BodyMatch(BodyMatch.Type.MANUAL, manual.getGroupId(), "manual", manual, new HashMap<>(),
+                    null, true);
+            }
+
+            Set<String> readGroupIds = new HashSet<>();
+
+            String groupId = hashes.get(body.getHash());
+            if (groupId != null) {
+                readGroupIds.add(groupId);
+                return new BodyMatch(BodyMatch.Type.HASH, groupId, BaseTenderMatcher.HASH, null, new HashMap<>(),
+                    readGroupIds, true);
+            }
+
+            List<MatchedBody> pool = bodies.stream()
+                .filter(n -> Objects.equals(n.getStandardizedName(), body.getStandardizedName())
+                    || (n.getStandardizedAddress() != null
+                        && Objects.equals(n.getStandardizedAddress(), body.getStandardizedAddress())))
+                .collect(Collectors.toList());
+
+            if (!pool.isEmpty()) {
+                Set<String> candidates = pool.stream().map(MatchedBody::getGroupId).collect(Collectors.toSet());
+                Map<String, Long> sizes = bodies.stream()
+                    .collect(Collectors.groupingBy(MatchedBody::getGroupId, Collectors.counting()));
+
+                String best = candidates.stream()
+                    .max(Comparator.comparing((String g) -> sizes.get(g)).thenComparing(Comparator.naturalOrder()))
+                    .get();
+
+                MatchingResult result = result(best, "exact",
+                    pool.stream().filter(n -> n.getGroupId().equals(best)).findFirst().get());
+                if (candidates.size() > 1) {
+                    result.setCandidateGroupIds(new ArrayList<>(candidates));
+                    readGroupIds.addAll(candidates);
+                }
+
+                return new BodyMatch(BodyMatch.Type.PLUGIN, best, "exact", result, new HashMap<>(), readGroupIds,
+                    true);
+            }
+
+            return new BodyMatch(BodyMatch.Type.UNMATCHED, "group_" + body.getHash(), BaseTenderMatcher.UNMATCHED,
+                null, new HashMap<>(), readGroupIds, true);
+        }
+
+        /**
+         * Stores the matched body.
+         *
+         * @param body
+         *      matched body
+         * @param match
+         *      matching result
+         */
+        void apply(final MatchedBody body, final BodyMatch match) {
+            body.setGroupId(match.getGroupId());
+            bodies.add(body);
+            hashes.put(body.getHash(), match.getGroupId());
+        }
+
+        /**
+         * @param groupId
+         *      group id
+         * @param matchedBy
+         *      matched by
+         * @param matchedBody
+         *      paired body
+         * @return positive matching result
+         */
+        private static MatchingResult result(final String groupId, final String matchedBy,
+                                             final MatchedBody matchedBody) {
+            MatchingResult result = new MatchingResult();
+            result.setMatched(true);
+            result.setGroupId(groupId);
+            result.setMatchedBy(matchedBy);
+            result.setMatchedBody(matchedBody);
+            return result;
+        }
+    }
+
+    /**
+     * Starts the executor.
+     */
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    /**
+     * Stops the executor.
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Parallel matching of randomly generated bodies with many shared names, addresses and hashes returns the same
+     * groups as the sequential one.
+     */
+    @Test
+    public void sameAsSequentialTest() {
+        for (int seed = 0; seed < 20; seed++) {
+            List<String> sequential = matchSequentially(createStorage(seed), generate(seed));
+
+            Storage storage = createStorage(seed);
+            List<MatchedBody> bodies = generate(seed);
+            BodyMatchSpeculation speculation = BodyMatchSpeculation.speculate(executor, NO_TRANSACTION, bodies,
+                storage::match, BodyMatchSpeculation::getDefaultKeys);
+
+            List<String> parallel = new ArrayList<>();
+            for (MatchedBody body : bodies) {
+                BodyMatch match = speculation.resolve(body, storage::match);
+                if (match != null) {
+                    storage.apply(body, match);
+                    parallel.add(match.getMatchedBy() + ":" + match.getGroupId());
+                }
+            }
+
+            assertEquals("seed " + seed, sequential, parallel);
+            assertTrue(speculation.getReusedCount() > 0);
+            assertTrue(speculation.getRematchedCount() > 0);
+        }
+    }
+
+    /**
+     * Two bodies of the tender with the same hash end up in the group created by the first one.
+     */
+    @Test
+    public void sharedNewGroupTest() {
+        Storage storage = new Storage();
+        MatchedBody first = body("first", "a", "h");
+        MatchedBody second = body("second", "b", "h");
+
+        List<MatchedBody> bodies = List.of(first, second);
+        BodyMatchSpeculation speculation = BodyMatchSpeculation.speculate(executor, NO_TRANSACTION, bodies,
+            storage::match, BodyMatchSpeculation::getDefaultKeys);
+
+        // both speculative results create the same group
+        BodyMatch match = speculation.resolve(first, storage::match);
+        assertEquals(BodyMatch.Type.UNMATCHED, match.getType());
+        storage.apply(first, match);
+
+        match = speculation.resolve(second, storage::match);
+        assertEquals(BodyMatch.Type.HASH, match.getType());
+        assertEquals("group_h", match.getGroupId());
+        assertEquals(1, speculation.getReusedCount());
+        assertEquals(1, speculation.getRematchedCount());
+    }
+
+    /**
+     * @param storage
+     *      storage with the bodies matched before
+     * @param bodies
+     *      bodies to be matched
+     * @return matching results
+     */
+    private static List<String> matchSequentially(final Storage storage, final List<MatchedBody> bodies) {
+        List<String> results = new ArrayList<>();
+        for (MatchedBody body : bodies) {
+            BodyMatch match = storage.match(body);
+            if (match != null) {
+                storage.apply(body, match);
+                results.add(match.getMatchedBy() + ":" + match.getGroupId());
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * @param seed
+     *      random seed
+     * @return storage with the bodies matched before the tender
+     */
+    private static Storage createStorage(final int seed) {
+        Random random = new Random(-seed);
+        Storage storage = new Storage();
+        for (int i = 0; i < 30; i++) {
+            MatchedBody body = body("n" + random.nextInt(40), "a" + random.nextInt(60), "h" + random.nextInt(50));
+            storage.apply(body, storage.match(body));
+        }
+
+        return storage;
+    }
+
+    /**
+     * @param seed
+     *      random seed
+     * @return bodies of one tender
+     */
+    private static List<MatchedBody> generate(final int seed) {
+        Random random = new Random(seed);
+        List<MatchedBody> bodies = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String name = (random.nextInt(20) == 0 ? "manual" : "n") + random.nextInt(40);
+            String address = random.nextBoolean() ? null : "a" + random.nextInt(60);
+            String hash = random.nextInt(10) == 0 ? null : "h" + random.nextInt(100);
+            bodies.add(body(name, address, hash));
+        }
+
+        return bodies;
+    }
+
+    /**
+     * @param name
+     *      name and standardized name
+     * @param address
+     *      standardized address
+     * @param hash
+     *      hash
+     * @return body
+     */
+    private static MatchedBody body(final String name, final String address, final String hash) {
+        MatchedBody body = new MatchedBody();
+        body.setName(name);
+        body.setStandardizedName(name);
+        body.setStandardizedAddress(address);
+        body.setHash(hash);
+        return body;
+    }
+}
@@ -0,0 +1,362 @@
+package eu.dl.worker.matched;
+
+import eu.dl.core.UnrecoverableException;
+import eu.dl.core.cache.CompactHashCache;
+import eu.dl.core.cache.TransactionalCache;
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+import eu.dl.dataaccess.dto.matched.MatchedGroupInfo;
+import eu.dl.worker.matched.plugin.MatchingResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test of the batched saving of the matched bodies. Results of the matching with the batch are compared with the
+ * matching which saves each body right after its matching.
+ */
+public final class MatchedBodyWriteBatchTest {
+
+    /**
+     * In-memory transactional storage of the matched bodies with matching similar to the matcher one. The body is
+     * matched by hash, by standardized name or address with the largest group winning, or it creates a new group.
+     */
+    private static final class Storage {
+        private final List<MatchedBody> committed = new ArrayList<>();
+
+        private final List<MatchedBody> uncommitted = new ArrayList<>();
+
+        /**
+         * Number of the writes which succeed, negative if all of them succeed.
+         */
+        private int successfulWrites = -1;
+
+        /**
+         * @param body
+         *      matched body
+         * @return matching result
+         */
+        BodyMatch match(final MatchedBody body) {
+            if (body.getHash() == null) {
+                return null;
+            }
+
+            Set<String> readGroupIds = new HashSet<>();
+            Map<String, Long> sizes = visible()
+                .collect(Collectors.groupingBy(MatchedBody::getGroupId, Collectors.counting()));
+
+            String groupId = visible().filter(n -> body.getHash().equals(n.getHash()))
+                .map(MatchedBody::getGroupId).findFirst().orElse(null);
+            if (groupId != null) {
+                readGroupIds.add(groupId);
+                return new BodyMatch(BodyMatch.Type.HASH, groupId, BaseTenderMatcher.HASH, null, new HashMap<>(),
+                    readGroupIds, true);
+            }
+
+            Set<String> candidates = visible()
+                .filter(n -> Objects.equals(n.getStandardizedName(), body.getStandardizedName())
+                    || (n.getStandardizedAddress() != null
+                        && Objects.equals(n.getStandardizedAddress(), body.getStandardizedAddress())))
+                .map(MatchedBody::getGroupId)
+                .collect(Collectors.toSet());
+
+            if (!candidates.isEmpty()) {
+                String best = candidates.stream()
+                    .max(Comparator.comparing((String g) -> sizes.get(g)).thenComparing(Comparator.naturalOrder()))
+                    .get();
+                readGroupIds.addAll(candidates);
+
+                MatchingResult result = new MatchingResult();
+                result.setMatched(true);
+                result.setGroupId(best);
+                result.setMatchedBy("exact");
+                return new BodyMatch(BodyMatch.Type.PLUGIN, best, "exact", result, new HashMap<>(), readGroupIds,
+                    true);
+            }
+
+            return new BodyMatch(BodyMatch.Type.UNMATCHED, "group_" + body.getHash(), BaseTenderMatcher.UNMATCHED,
+                null, new HashMap<>(), readGroupIds, true);
+        }
+
+        /**
+         * Saves the bodies in the current transaction and generates their ids.
+         *
+         * @param bodies
+         *      matched bodies with group ids
+         */
+        void write(final Collection<MatchedBody> bodies) {
+            if (successfulWrites == 0) {
+                throw new UnrecoverableException("Connection lost");
+            }
+            successfulWrites--;
+
+            for (MatchedBody body : bodies) {
+                body.setId(UUID.randomUUID().toString());
+                uncommitted.add(body);
+            }
+        }
+
+        /**
+         * @param groupIds
+         *      group ids
+         * @return statistics of the groups visible in the current transaction
+         */
+        List<MatchedGroupInfo> getGroupsInfo(final List<String> groupIds) {
+            return visible()
+                .filter(n -> groupIds.contains(n.getGroupId()))
+                .collect(Collectors.groupingBy(MatchedBody::getGroupId, Collectors.counting()))
+                .entrySet().stream()
+                .map(e -> new MatchedGroupInfo().setGroupId(e.getKey()).setSize(e.getValue().intValue())
+                    .setHasEtalon(false))
+                .sorted(Comparator.comparing(MatchedGroupInfo::getSize).reversed())
+                .collect(Collectors.toList());
+        }
+
+        /**
+         * Commits the transaction.
+         */
+        void commit() {
+            committed.addAll(uncommitted);
+            uncommitted.clear();
+        }
+
+        /**
+         * Rolls the transaction back.
+         */
+        void rollback() {
+            uncommitted.clear();
+        }
+
+        /**
+         * @return bodies visible in the current transaction
+         */
+        private Stream<MatchedBody> visible() {
+            return Stream.concat(committed.stream(), uncommitted.stream());
+        }
+    }
+
+    /**
+     * Matching of randomly generated bodies with many shared names, addresses and hashes returns the same groups as
+     * the matching which saves each body at once, while the bodies are written in fewer writes.
+     */
+    @Test
+    public void sameAsImmediateSaveTest() {
+        int saved = 0;
+        int writes = 0;
+        int rematched = 0;
+        for (int seed = 0; seed < 20; seed++) {
+            Storage immediate = createStorage(seed);
+            List<String> expected = new ArrayList<>();
+            for (MatchedBody body : generate(seed)) {
+                BodyMatch match = immediate.match(body);
+                if (match != null) {
+                    body.setGroupId(match.getGroupId());
+                    immediate.write(List.of(body));
+                    expected.add(match.getMatchedBy() + ":" + match.getGroupId());
+                }
+            }
+
+            Storage storage = createStorage(seed);
+            MatchedBodyWriteBatch batch = new MatchedBodyWriteBatch(storage::write,
+                BodyMatchSpeculation::getDefaultKeys);
+            List<MatchedBody> bodies = generate(seed);
+            List<MatchedBody> references = new ArrayList<>();
+            List<String> actual = new ArrayList<>();
+            for (MatchedBody body : bodies) {
+                BodyMatch match = batch.match(body, storage::match);
+                if (match != null) {
+                    body.setGroupId(match.getGroupId());
+                    MatchedBody reference = new MatchedBody();
+                    batch.add(body, reference);
+                    references.add(reference);
+                    actual.add(match.getMatchedBy() + ":" + match.getGroupId());
+                }
+            }
+            batch.write();
+
+            assertEquals("seed " + seed, expected, actual);
+            assertEquals(references.size(), storage.uncommitted.size());
+            saved += references.size();
+            writes += batch.getWriteCount();
+            rematched += batch.getRematchedCount();
+            for (int i = 0; i < references.size(); i++) {
+                assertEquals(storage.uncommitted.get(i).getId(), references.get(i).getId());
+            }
+            assertEquals(expected.stream().map(n -> n.replaceAll("^.*:", "")).distinct().collect(Collectors.toList()),
+                batch.getGroupIds());
+        }
+
+        assertTrue(writes < saved / 2);
+        assertTrue(rematched > 0);
+    }
+
+    /**
+     * Failure of a write in the middle of the tender leaves neither bodies, nor group statistics, nor cached hashes of
+     * the tender. The tender is then matched again with the same result as if the failure didn't happen.
+     */
+    @Test
+    public void failedWriteTest() {
+        Storage storage = createStorage(1);
+        GroupStatisticsStore statistics = new GroupStatisticsStore(storage::getGroupsInfo, 0);
+        storage.getGroupsInfo(allGroups(storage)).forEach(statistics::put);
+        CompactHashCache committedHashes = new CompactHashCache("test::");
+        TransactionalCache hashes = new TransactionalCache(committedHashes);
+
+        List<MatchedGroupInfo> before = statistics.getGroupsInfo(allGroups(storage));
+        List<MatchedBody> bodies = generate(1);
+
+        // the first write caused by a conflict succeeds, the next one fails
+        storage.successfulWrites = 1;
+        try {
+            match(storage, statistics, hashes, bodies);
+            fail("The write should fail");
+        } catch (UnrecoverableException ex) {
+            assertTrue(storage.uncommitted.size() > 0);
+            storage.rollback();
+            statistics.rollback();
+            hashes.rollback();
+        }
+
+        assertEquals(30, storage.committed.size());
+        assertEquals(toString(before), toString(statistics.getGroupsInfo(allGroups(storage))));
+        bodies.stream().filter(n -> n.getHash() != null).forEach(n -> assertEquals(null, hashes.get(n.getHash())));
+
+        storage.successfulWrites = -1;
+        List<MatchedBody> again = generate(1);
+        List<String> groups = match(storage, statistics, hashes, again);
+        storage.commit();
+        statistics.commit();
+        hashes.commit();
+
+        Storage reference = createStorage(1);
+        assertEquals(groups, match(reference, new GroupStatisticsStore(reference::getGroupsInfo, 0),
+            new TransactionalCache(new CompactHashCache("test::")), generate(1)));
+        assertEquals(toString(storage.getGroupsInfo(allGroups(storage))),
+            toString(statistics.getGroupsInfo(allGroups(storage))));
+        again.stream().filter(n -> n.getHash() != null).forEach(n -> assertNotNull(committedHashes.get(n.getHash())));
+    }
+
+    /**
+     * Matches and saves the bodies of one tender in the same way as the matcher.
+     *
+     * @param storage
+     *      storage
+     * @param statistics
+     *      group statistics
+     * @param hashes
+     *      hash cache
+     * @param bodies
+     *      bodies of the tender
+     * @return groups of the bodies
+     */
+    private static List<String> match(final Storage storage, final GroupStatisticsStore statistics,
+                                      final TransactionalCache hashes, final List<MatchedBody> bodies) {
+        MatchedBodyWriteBatch batch = new MatchedBodyWriteBatch(storage::write, BodyMatchSpeculation::getDefaultKeys);
+        List<String> groups = new ArrayList<>();
+        for (MatchedBody body : bodies) {
+            BodyMatch match = batch.match(body, storage::match);
+            if (match != null) {
+                body.setGroupId(match.getGroupId());
+                hashes.put(body.getHash(), match.getGroupId());
+                batch.add(body, new MatchedBody());
+                statistics.record(body);
+                groups.add(match.getGroupId());
+            }
+        }
+        batch.write();
+
+        return groups;
+    }
+
+    /**
+     * @param storage
+     *      storage
+     * @return ids of all the committed groups
+     */
+    private static List<String> allGroups(final Storage storage) {
+        return storage.committed.stream().map(MatchedBody::getGroupId).distinct().sorted()
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * @param info
+     *      group statistics
+     * @return statistics as sorted strings
+     */
+    private static List<String> toString(final List<MatchedGroupInfo> info) {
+        return info.stream()
+            .map(n -> n.getGroupId() + ":" + n.getSize() + ":" + n.getHasEtalon())
+            .sorted()
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * @param seed
+     *      random seed
+     * @return storage with the committed bodies matched before the tender
+     */
+    private static Storage createStorage(final int seed) {
+        Random random = new Random(-seed);
+        Storage storage = new Storage();
+        for (int i = 0; i < 30; i++) {
+            MatchedBody body = body("n" + random.nextInt(40), "a" + random.nextInt(60), "h" + random.nextInt(50));
+            body.setGroupId(storage.match(body).getGroupId());
+            storage.write(List.of(body));
+            storage.commit();
+        }
+
+        return storage;
+    }
+
+    /**
+     * @param seed
+     *      random seed
+     * @return bodies of one tender
+     */
+    private static List<MatchedBody> generate(final int seed) {
+        Random random = new Random(seed);
+        List<MatchedBody> bodies = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String name = "n" + random.nextInt(400);
+            String address = random.nextBoolean() ? null : "a" + random.nextInt(600);
+            String hash = random.nextInt(10) == 0 ? null : "h" + random.nextInt(1000);
+            bodies.add(body(name, address, hash));
+        }
+
+        return bodies;
+    }
+
+    /**
+     * @param name
+     *      name and standardized name
+     * @param address
+     *      standardized address
+     * @param hash
+     *      hash
+     * @return body
+     */
+    private static MatchedBody body(final String name, final String address, final String hash) {
+        MatchedBody body = new MatchedBody();
+        body.setName(name);
+        body.setStandardizedName(name);
+        body.setStandardizedAddress(address);
+        body.setHash(hash);
+        return body;
+    }
+}
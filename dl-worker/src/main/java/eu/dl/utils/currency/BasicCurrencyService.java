@@ -1,56 +1,110 @@
 package eu.dl.utils.currency;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import eu.dl.core.UnrecoverableException;
 import eu.dl.core.config.Config;
 import eu.dl.dataaccess.dao.ExchangeRatesDAO;
+import eu.dl.dataaccess.dao.TransactionUtils;
 import eu.dl.dataaccess.dao.jdbc.JdbcExhangeRatesDAO;
+import eu.dl.dataaccess.dao.jdbc.JdbcTransactionUtils;
 import eu.dl.dataaccess.dto.ExchangeRates;
-import eu.dl.worker.utils.ThreadUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.text.SimpleDateFormat;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Currency;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides functionality related currency and its conversions.
  *
+ * The whole table of exchange rates is loaded at once when the service is created and it is reloaded periodically in
+ * the background (see configuration property {@code currency.refreshInterval} in minutes, 60 by default, 0 disables
+ * the refresh). The lookups never touch the database nor the remote API, the rates missing in the store are
+ * downloaded from the rate source by the background thread and they are available once they are downloaded. Until
+ * then the days within the retention period use the rates of the previous day, the conversions for the other days
+ * fail with {@link ExchangeRatesPendingException}, so the work is retried once the rates are downloaded.
  */
 public class BasicCurrencyService implements CurrencyService {
-    
+
+    private static final int DEFAULT_REFRESH_INTERVAL = 60;
+
     private Logger logger;
-    
+
     private ExchangeRatesDAO<ExchangeRates> dao;
-    
-    private Map<LocalDate, ExchangeRates> cache;
-    
-    private static final long RETENTION_PERIOD = 5;
 
-    private static final String API_URL = "http://data.fixer.io/api/";
-    
+    private ExchangeRateSource source;
+
+    private TransactionUtils transactionUtils;
+
+    private volatile ExchangeRateStore store;
+
     /**
-     * Creates currency service.
-     * 
+     * Dates whose download has been requested since the last refresh, they aren't requested again.
+     */
+    private final Set<LocalDate> requested = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Dates for which the rate source has no rates since the last refresh, their conversions fail for good.
+     */
+    private final Set<LocalDate> unavailable = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Rates added to the store while the refresh loads the stored rates, null if no refresh is running. Guarded by
+     * this.
+     */
+    private List<ExchangeRates> addedDuringRefresh;
+
+    /**
+     * Single background thread which refreshes the store and downloads the missing rates.
+     */
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "currency-service");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Creates currency service with the rates stored in the database and downloaded from the fixer.io API.
+     *
      */
     public BasicCurrencyService() {
+        this(new JdbcExhangeRatesDAO(), new FixerExchangeRateSource(), JdbcTransactionUtils.getInstance(),
+            getRefreshIntervalFromConfig());
+    }
+
+    /**
+     * Creates currency service and loads all the stored exchange rates.
+     *
+     * @param dao
+     *      DAO of the stored exchange rates
+     * @param source
+     *      source of the exchange rates missing in the database
+     * @param transactionUtils
+     *      transaction utils of the DAO used by the background thread
+     * @param refreshInterval
+     *      interval of the background refresh in minutes, no refresh if not positive
+     */
+    public BasicCurrencyService(final ExchangeRatesDAO<ExchangeRates> dao, final ExchangeRateSource source,
+                                final TransactionUtils transactionUtils, final int refreshInterval) {
         logger = LoggerFactory.getLogger(this.getClass());
-        dao = new JdbcExhangeRatesDAO();
-        cache = new HashMap<LocalDate, ExchangeRates>();
+        this.dao = dao;
+        this.source = source;
+        this.transactionUtils = transactionUtils;
+
+        store = load();
+
+        if (refreshInterval > 0) {
+            executor.scheduleWithFixedDelay(this::refresh, refreshInterval, refreshInterval, TimeUnit.MINUTES);
+        }
     }
 
     @Override
@@ -59,31 +113,39 @@ public class BasicCurrencyService implements CurrencyService {
     }
 
     @Override
-    public final BigDecimal convert(final Currency currencyFrom, final Currency currencyTo, final BigDecimal amount, 
+    public final BigDecimal convert(final Currency currencyFrom, final Currency currencyTo, final BigDecimal amount,
             final LocalDate date) {
         if (currencyFrom == null || currencyTo == null || amount == null) {
-            logger.debug("Unable to convert amout {} from {} to {}, unsufficient data provided", 
+            logger.debug("Unable to convert amout {} from {} to {}, unsufficient data provided",
                     amount, currencyFrom, currencyTo);
             return null;
         }
-        
+
         // get exchange rates for date
-        ExchangeRates exchangeRates = getExchangeRates(date);
-        if (exchangeRates == null || exchangeRates.getRates() == null) {
+        ExchangeRateStore current = store;
+        if (!current.contains(date)) {
+            requestDownload(date);
+        }
+        int day = current.getDay(date);
+        if (day < 0) {
+            if (isPending(date)) {
+                throw new ExchangeRatesPendingException("Unable to convert currency, exchange rates for the "
+                        + "desired date " + date + " are being downloaded");
+            }
             throw new UnconvertableException("Unable to convert currency, there are no exchange "
                     + "rates available for the desired date " + date);
         }
-        
+
         // no convert needed, two same currencies provided
         if (currencyFrom.getCurrencyCode().equals(currencyTo.getCurrencyCode())) {
             logger.debug("{} {} converted to {}", amount, currencyFrom, currencyTo);
             return amount;
         }
-        
+
         // currencyFrom is base
-        if (currencyFrom.getCurrencyCode().equals(exchangeRates.getBase())) {
+        if (currencyFrom.getCurrencyCode().equals(ExchangeRateStore.BASE)) {
             logger.debug("currencyFrom is the base for exchange rates");
-            BigDecimal exchangeRate = exchangeRates.getRates().get(currencyTo.getCurrencyCode());
+            BigDecimal exchangeRate = current.getRate(day, currencyTo.getCurrencyCode());
             if (exchangeRate != null) {
                 logger.debug("{} {} converted to {}", amount, currencyFrom, currencyTo);
                 return amount.multiply(exchangeRate);
@@ -92,10 +154,10 @@ public class BasicCurrencyService implements CurrencyService {
                         + "rates available for the desired currency " + currencyTo.getCurrencyCode());
             }
         }
-        
+
         // currencyTo is base
-        if (currencyTo.getCurrencyCode().equals(exchangeRates.getBase())) {
-            BigDecimal exchangeRate = exchangeRates.getRates().get(currencyFrom.getCurrencyCode());
+        if (currencyTo.getCurrencyCode().equals(ExchangeRateStore.BASE)) {
+            BigDecimal exchangeRate = current.getRate(day, currencyFrom.getCurrencyCode());
             if (exchangeRate != null) {
                 logger.debug("{} {} converted to {}", amount, currencyFrom, currencyTo);
                 return amount.divide(exchangeRate, 0, RoundingMode.HALF_EVEN);
@@ -104,138 +166,192 @@ public class BasicCurrencyService implements CurrencyService {
                         + "rates available for the desired currency " + currencyFrom.getCurrencyCode());
             }
         }
-        
+
         // convert through base currency
-        BigDecimal exchangeRateFrom = exchangeRates.getRates().get(currencyFrom.getCurrencyCode());
-        BigDecimal exchangeRateTo = exchangeRates.getRates().get(currencyTo.getCurrencyCode());
+        BigDecimal exchangeRateFrom = current.getRate(day, currencyFrom.getCurrencyCode());
+        BigDecimal exchangeRateTo = current.getRate(day, currencyTo.getCurrencyCode());
         if (exchangeRateFrom == null) {
             throw new UnconvertableException("Unable to convert currency, there is no exchange "
                     + "rates available for the desired currency " + currencyFrom.getCurrencyCode());
         }
-        
+
         if (exchangeRateTo == null) {
             throw new UnconvertableException("Unable to convert currency, there is no exchange "
                     + "rates available for the desired currency " + currencyTo.getCurrencyCode());
         }
-        
+
         return amount.divide(exchangeRateFrom, 0, RoundingMode.HALF_EVEN).multiply(exchangeRateTo);
     }
 
     /**
-     * Gets the exchange rates for a current date. The inner implementation retrieves entry from 
-     * a cache first, then from db. If nothing found locally, it tries to get data from remote API 
-     * and store them. If stored into cache, the entry is valid for the whole lifetime
-     * of the service unless cache cleaned explicitely.
-     * 
-     * @param date the date to be searched 
+     * Gets the exchange rates for a current date from the store. Days without rates fall back to the nearest previous
+     * day with rates. Rates missing for the date are requested from the rate source in the background, if no
+     * previous rates are found, null is returned right away.
+     *
+     * @param date the date to be searched
      * @return found result or null
      */
+    @Override
     public final ExchangeRates getExchangeRates(final LocalDate date) {
-        // try cache first
-        if (cache.containsKey(date)) {
-            // rates for date found, return them
-            logger.debug("Exchange rates for {} found in cache.", date);
-            return cache.get(date);
-        } else {
-            // no cache entry, check db
-            logger.debug("Exchange rates for {} not found in cache.", date);
-            ExchangeRates exchangeRates = dao.getByDate(date);
-            if (exchangeRates != null) {
-                // found in db, return
-                logger.debug("Exchange rates for {} found in db.", date);
-                cache.put(date, exchangeRates);
-                return exchangeRates;
-            } else {
-                // nothing found locally, download from remote API
-                logger.debug("Exchange rates for {} not found in db.", date);
-                exchangeRates = getExchangeRatesFromRemote(date);
-                if (exchangeRates != null) {
-                    dao.save(exchangeRates.setDate(date));
-                    logger.debug("Exchange rates retrieved from API, storing to db with id {}.", exchangeRates.getId());
+        ExchangeRateStore current = store;
+        if (!current.contains(date)) {
+            requestDownload(date);
+        }
+        ExchangeRates exchangeRates = current.getExchangeRates(date);
+        if (exchangeRates == null) {
+            logger.debug("Exchange rates for {} not found.", date);
+        }
+
+        return exchangeRates;
+    }
+
+    @Override
+    public final ExchangeRates downloadExchangeRates(final LocalDate date) {
+        try {
+            return executor.submit(() -> {
+                download(date);
+                return store.getExchangeRates(date);
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Download of exchange rates for {} interrupted", date);
+            throw new UnrecoverableException("Download of exchange rates interrupted", e);
+        } catch (ExecutionException e) {
+            logger.error("Unable to download exchange rates for {} because of {}", date, e.getCause());
+            throw new UnrecoverableException("Unable to download exchange rates for " + date, e.getCause());
+        }
+    }
+
+    @Override
+    public final void updateExchangeRates(final LocalDate date, final ExchangeRates exchangeRates) {
+        dao.save(exchangeRates);
+        add(exchangeRates.setDate(date));
+    }
+
+    /**
+     * Reloads all the stored exchange rates, the rates which couldn't be downloaded before are requested again. The
+     * rates added while the stored ones are loaded are added to the loaded store, so they aren't lost.
+     */
+    final void refresh() {
+        synchronized (this) {
+            addedDuringRefresh = new ArrayList<>();
+        }
+
+        try {
+            transactionUtils.begin();
+            ExchangeRateStore loaded = load();
+            transactionUtils.commit();
+            synchronized (this) {
+                for (ExchangeRates exchangeRates : addedDuringRefresh) {
+                    loaded = loaded.with(exchangeRates);
                 }
-                cache.put(date, exchangeRates);
-                return exchangeRates;
+                store = loaded;
             }
+            requested.clear();
+            unavailable.clear();
+        } catch (RuntimeException e) {
+            // the current store is kept, next refresh may succeed
+            transactionUtils.rollback();
+            logger.error("Unable to refresh exchange rates because of {}", e);
+        } finally {
+            synchronized (this) {
+                addedDuringRefresh = null;
+            }
+            transactionUtils.release();
         }
     }
 
     /**
-     * Retrieves exchange rates from remote API.
-     * 
-     * @param date date to retrieve exchange rates for
-     * @return exchange rates or null
+     * @return store of all the exchange rates in the database
      */
-    private ExchangeRates getExchangeRatesFromRemote(final LocalDate date) {
-        try {
-            ThreadUtils.humanize(2000);
-            logger.debug("Querying exchange rates API for {}", date);
-            URL url = new URL(getHistoricalRatesEndpointUrl(date));
+    private ExchangeRateStore load() {
+        ExchangeRateStore loaded = ExchangeRateStore.of(dao.findAll());
+        logger.info("Loaded exchange rates for {} days.", loaded.size());
+        return loaded;
+    }
 
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Accept", "application/json");
+    /**
+     * Requests the download of the rates for the date in the background, unless it has been already requested.
+     *
+     * @param date
+     *      date
+     */
+    private void requestDownload(final LocalDate date) {
+        if (date == null || date.isAfter(LocalDate.now()) || !requested.add(date)) {
+            return;
+        }
 
-            if (conn.getResponseCode() != 200) {
-                throw new UnrecoverableException(
-                        "Unable to retrieve data for " + date + ", http error code " + conn.getResponseCode());
+        executor.execute(() -> {
+            try {
+                download(date);
+            } catch (RuntimeException e) {
+                // the download is requested again by the next conversion
+                requested.remove(date);
+                logger.error("Unable to download exchange rates for {} because of {}", date, e);
             }
+        });
+    }
 
-            BufferedReader br = new BufferedReader(new InputStreamReader(
-                (conn.getInputStream())));
+    /**
+     * @param date
+     *      date without rates in the store
+     * @return true if the rates for the date may still be downloaded, false if the rate source has no rates for it
+     */
+    private boolean isPending(final LocalDate date) {
+        return date != null && !date.isAfter(LocalDate.now()) && !unavailable.contains(date);
+    }
 
-            String line;
-            String response = "";
-            while ((line = br.readLine()) != null) {
-                response = response + line;
-            }
+    /**
+     * Downloads the rates for the date from the rate source and saves them, unless they are already stored. Called
+     * only from the background thread.
+     *
+     * @param date
+     *      date
+     */
+    private void download(final LocalDate date) {
+        if (store.contains(date)) {
+            return;
+        }
 
-            conn.disconnect();
-
-            logger.debug("Retrieved connection rates from API");
-            
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
-            mapper.registerModule(new JavaTimeModule());
-            mapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
-            mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
-
-            JsonNode error = mapper.readTree(response).findValue("error");
-            // API return error response
-            if (error != null) {
-                logger.error("Unable to retrieve exchange rates for " + date + " because of API failed with error message "
-                    + error.path("info").textValue());
-                throw new UnrecoverableException("Unable to retrieve exchange rates for " + date);
-            }
+        ExchangeRates exchangeRates = source.getExchangeRates(date);
+        if (exchangeRates == null) {
+            logger.debug("Exchange rates for {} not available.", date);
+            unavailable.add(date);
+            return;
+        }
 
-            ExchangeRates exchangeRates = mapper.readValue(response, ExchangeRates.class);
-            
-            // in some cases the api does not contain actual rates and returns a nonsense insted
-            // we should ignore such results
-            if (ChronoUnit.DAYS.between(exchangeRates.getDate(), date) > RETENTION_PERIOD) {
-                logger.debug("API returned exchange rates for a to far date ({} instead of {}).", 
-                        exchangeRates.getDate(), date);
-                return null;
-            }
-            
-            return exchangeRates;
-        } catch (Exception e) {
-            throw new UnrecoverableException("Unable to retrieve exchange rates for " + date, e);
+        try {
+            transactionUtils.begin();
+            dao.save(exchangeRates.setDate(date));
+            transactionUtils.commit();
+            logger.debug("Exchange rates retrieved from source, stored to db with id {}.", exchangeRates.getId());
+            add(exchangeRates);
+        } catch (RuntimeException e) {
+            transactionUtils.rollback();
+            throw e;
+        } finally {
+            transactionUtils.release();
         }
     }
 
-    @Override
-    public final void updateExchangeRates(final LocalDate date, final ExchangeRates exchangeRates) {
-        cache.put(date, exchangeRates);
-        dao.save(exchangeRates);
+    /**
+     * Adds the rates to the store.
+     *
+     * @param exchangeRates
+     *      exchange rates with date
+     */
+    private synchronized void add(final ExchangeRates exchangeRates) {
+        store = store.with(exchangeRates);
+        if (addedDuringRefresh != null) {
+            addedDuringRefresh.add(exchangeRates);
+        }
     }
 
     /**
-     * @param date
-     *      A date in the past for which historical rates are requested
-     * @return endpoint url
+     * @return refresh interval in minutes from configuration
      */
-    private static String getHistoricalRatesEndpointUrl(final LocalDate date) {
-        String accessKey = Config.getInstance().getParam("currency.api.access_key");
-        return API_URL + date.format(DateTimeFormatter.ISO_LOCAL_DATE) + "?base=EUR&access_key=" + accessKey;
+    private static int getRefreshIntervalFromConfig() {
+        Integer interval = Config.getInstance().getParamValueAs("currency.refreshInterval", Integer::valueOf);
+        return interval != null ? interval : DEFAULT_REFRESH_INTERVAL;
     }
 }
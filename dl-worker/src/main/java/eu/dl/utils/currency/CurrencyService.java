@@ -37,15 +37,23 @@ public interface CurrencyService {
     
     /**
      * Gets the exchange rates for a current date. The inner implementation retrieves entry from 
-     * a cache first, then from db. If nothing found locally, it tries to get data from remote API 
-     * and store them. If stored into cache, the entry is valid for the whole lifetime
-     * of the service unless cache cleaned explicitely.
+     * the rates loaded from db, it never waits for the remote API. If nothing found locally, the rates
+     * are downloaded from remote API in the background and they are available later.
      * 
      * @param date the date to be searched 
      * @return found result or null
      */
     ExchangeRates getExchangeRates(LocalDate date);
 
+    /**
+     * Gets the exchange rates for a current date, in case they aren't available locally, they are downloaded from
+     * remote API and stored. Waits for the download, so it is not meant for the conversions.
+     *
+     * @param date the date to be searched
+     * @return found result or null
+     */
+    ExchangeRates downloadExchangeRates(LocalDate date);
+
     /**
      * Updates the exchange rates for given date.
      *
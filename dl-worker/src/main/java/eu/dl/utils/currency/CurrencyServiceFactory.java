@@ -5,6 +5,8 @@ package eu.dl.utils.currency;
  */
 public class CurrencyServiceFactory {
 
+    private static CurrencyService currencyService;
+
     /**
      * Default constructor.
      */
@@ -13,11 +15,16 @@ public class CurrencyServiceFactory {
     }
 
     /**
-     * Creates and returns storage service.
+     * Returns currency service. The service loads all the exchange rates when created, so one instance is shared by
+     * all the callers.
      * 
      * @return currency service
      */
-    public static final CurrencyService getCurrencyService() {
-        return new BasicCurrencyService();
+    public static final synchronized CurrencyService getCurrencyService() {
+        if (currencyService == null) {
+            currencyService = new BasicCurrencyService();
+        }
+
+        return currencyService;
     }
 }
@@ -0,0 +1,21 @@
+package eu.dl.utils.currency;
+
+import eu.dl.dataaccess.dto.ExchangeRates;
+
+import java.time.LocalDate;
+
+/**
+ * Source of the exchange rates missing in the database, eg. remote API. The source is called only from the background
+ * thread of the currency service, so it may be slow.
+ */
+@FunctionalInterface
+public interface ExchangeRateSource {
+    /**
+     * Gets the exchange rates for the date.
+     *
+     * @param date
+     *      date
+     * @return exchange rates with EUR base or null if there are no rates for the date
+     */
+    ExchangeRates getExchangeRates(LocalDate date);
+}
@@ -0,0 +1,272 @@
+package eu.dl.utils.currency;
+
+import eu.dl.dataaccess.dto.ExchangeRates;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Immutable store of the exchange rates with EUR base indexed by date. The rates of all the days are kept in one
+ * primitive array, one row of currencies per day, so the lookup doesn't allocate anything. Days without rates
+ * (weekends, holidays) fall back to the nearest previous day with rates, at most {@link #RETENTION_PERIOD} days back.
+ *
+ * The rates are kept as doubles together with their scale, so the rates published with up to 15 significant digits
+ * are returned exactly as they were stored.
+ */
+final class ExchangeRateStore {
+    /**
+     * Base currency of all the stored rates.
+     */
+    static final String BASE = "EUR";
+
+    /**
+     * Maximal number of days the rates of the previous day are used for.
+     */
+    static final int RETENTION_PERIOD = 5;
+
+    private static final Logger logger = LoggerFactory.getLogger(ExchangeRateStore.class);
+
+    private final LocalDate first;
+
+    private final int days;
+
+    private final Map<String, Integer> currencies;
+
+    private final String[] codes;
+
+    /**
+     * Rates by day and currency, NaN for the missing ones.
+     */
+    private final double[] rates;
+
+    /**
+     * Scales of the rates by day and currency.
+     */
+    private final byte[] scales;
+
+    /**
+     * Index of the day whose rates are used for the day, -1 if there are no rates for the day.
+     */
+    private final int[] sourceDays;
+
+    /**
+     * @param first
+     *      first day of the store
+     * @param days
+     *      number of days
+     * @param codes
+     *      currency codes
+     * @param rates
+     *      rates by day and currency
+     * @param scales
+     *      scales of the rates
+     * @param present
+     *      days with rates
+     */
+    private ExchangeRateStore(final LocalDate first, final int days, final String[] codes, final double[] rates,
+                              final byte[] scales, final boolean[] present) {
+        this.first = first;
+        this.days = days;
+        this.codes = codes;
+        this.rates = rates;
+        this.scales = scales;
+
+        currencies = new HashMap<>();
+        for (int i = 0; i < codes.length; i++) {
+            currencies.put(codes[i], i);
+        }
+
+        sourceDays = new int[days];
+        int last = -1;
+        for (int day = 0; day < days; day++) {
+            if (present[day]) {
+                last = day;
+            }
+            sourceDays[day] = last >= 0 && day - last <= RETENTION_PERIOD ? last : -1;
+        }
+    }
+
+    /**
+     * Creates store of the exchange rates. Rates with another base than EUR are skipped, the later rates of the same
+     * day overwrite the previous ones.
+     *
+     * @param exchangeRates
+     *      exchange rates
+     * @return store
+     */
+    static ExchangeRateStore of(final Collection<ExchangeRates> exchangeRates) {
+        List<ExchangeRates> valid = new ArrayList<>();
+        TreeSet<String> codes = new TreeSet<>();
+        LocalDate first = null;
+        LocalDate last = null;
+        for (ExchangeRates n : exchangeRates) {
+            if (n == null || n.getDate() == null || n.getRates() == null) {
+                continue;
+            } else if (n.getBase() != null && !n.getBase().equals(BASE)) {
+                logger.warn("Exchange rates for {} with base {} skipped.", n.getDate(), n.getBase());
+                continue;
+            }
+
+            valid.add(n);
+            codes.addAll(n.getRates().keySet());
+            first = first == null || n.getDate().isBefore(first) ? n.getDate() : first;
+            last = last == null || n.getDate().isAfter(last) ? n.getDate() : last;
+        }
+
+        if (valid.isEmpty()) {
+            return new ExchangeRateStore(LocalDate.MIN, 0, new String[0], new double[0], new byte[0],
+                new boolean[0]);
+        }
+
+        String[] codeArray = codes.toArray(new String[0]);
+        int days = (int) ChronoUnit.DAYS.between(first, last) + 1;
+        double[] rates = new double[days * codeArray.length];
+        Arrays.fill(rates, Double.NaN);
+        byte[] scales = new byte[rates.length];
+        boolean[] present = new boolean[days];
+
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < codeArray.length; i++) {
+            index.put(codeArray[i], i);
+        }
+
+        for (ExchangeRates n : valid) {
+            int day = (int) ChronoUnit.DAYS.between(first, n.getDate());
+            int offset = day * codeArray.length;
+            Arrays.fill(rates, offset, offset + codeArray.length, Double.NaN);
+            n.getRates().forEach((code, rate) -> {
+                if (rate != null) {
+                    rates[offset + index.get(code)] = rate.doubleValue();
+                    scales[offset + index.get(code)] = (byte) Math.max(0, Math.min(Byte.MAX_VALUE, rate.scale()));
+                }
+            });
+            present[day] = true;
+        }
+
+        return new ExchangeRateStore(first, days, codeArray, rates, scales, present);
+    }
+
+    /**
+     * @param date
+     *      date
+     * @return index of the day whose rates are used for the date or -1 if there are no rates for the date
+     */
+    int getDay(final LocalDate date) {
+        if (days == 0 || date == null || date.isBefore(first)) {
+            return -1;
+        }
+
+        long day = ChronoUnit.DAYS.between(first, date);
+        int source = sourceDays[(int) Math.min(day, days - 1)];
+        return source >= 0 && day - source <= RETENTION_PERIOD ? source : -1;
+    }
+
+    /**
+     * @param date
+     *      date
+     * @return true if there are rates stored directly for the date (not the fallback ones)
+     */
+    boolean contains(final LocalDate date) {
+        int day = getDay(date);
+        return day >= 0 && first.plusDays(day).equals(date);
+    }
+
+    /**
+     * @param day
+     *      day index, see {@link #getDay(LocalDate)}
+     * @param currency
+     *      currency code
+     * @return rate of the currency for the day or null if the rate is missing
+     */
+    BigDecimal getRate(final int day, final String currency) {
+        Integer index = currencies.get(currency);
+        if (index == null) {
+            return null;
+        }
+
+        int cell = day * codes.length + index;
+        if (Double.isNaN(rates[cell])) {
+            return null;
+        }
+
+        BigDecimal rate = BigDecimal.valueOf(rates[cell]).stripTrailingZeros();
+        return rate.scale() <= scales[cell] ? rate.setScale(scales[cell]) : rate;
+    }
+
+    /**
+     * @param date
+     *      date
+     * @return exchange rates used for the date (with the date of the rates) or null if there are no rates
+     */
+    ExchangeRates getExchangeRates(final LocalDate date) {
+        int day = getDay(date);
+        return day < 0 ? null : toExchangeRates(day);
+    }
+
+    /**
+     * @param exchangeRates
+     *      exchange rates to be added
+     * @return new store with the added rates
+     */
+    ExchangeRateStore with(final ExchangeRates exchangeRates) {
+        List<ExchangeRates> all = toList();
+        all.add(exchangeRates);
+        return of(all);
+    }
+
+    /**
+     * @return number of the days with rates
+     */
+    int size() {
+        int size = 0;
+        for (int day = 0; day < days; day++) {
+            if (sourceDays[day] == day) {
+                size++;
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * @return exchange rates of all the days with rates
+     */
+    private List<ExchangeRates> toList() {
+        List<ExchangeRates> result = new ArrayList<>();
+        for (int day = 0; day < days; day++) {
+            if (sourceDays[day] == day) {
+                result.add(toExchangeRates(day));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param day
+     *      day with rates
+     * @return exchange rates of the day
+     */
+    private ExchangeRates toExchangeRates(final int day) {
+        HashMap<String, BigDecimal> dayRates = new LinkedHashMap<>();
+        for (String code : codes) {
+            BigDecimal rate = getRate(day, code);
+            if (rate != null) {
+                dayRates.put(code, rate);
+            }
+        }
+
+        return new ExchangeRates().setDate(first.plusDays(day)).setBase(BASE).setRates(dayRates);
+    }
+}
@@ -0,0 +1,21 @@
+package eu.dl.utils.currency;
+
+import eu.dl.core.RecoverableException;
+
+/**
+ * Exception used to indicate that the currencies can't be converted yet, because the exchange rates for the date are
+ * being downloaded in the background. The work should be retried later, so the unconverted amounts aren't stored.
+ */
+public class ExchangeRatesPendingException extends RecoverableException {
+    private static final long serialVersionUID = -6107381546311259617L;
+
+    /**
+     * Initialize exception with a reason for failure.
+     *
+     * @param message
+     *            reason for exception
+     */
+    public ExchangeRatesPendingException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,102 @@
+package eu.dl.utils.currency;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import eu.dl.core.UnrecoverableException;
+import eu.dl.core.config.Config;
+import eu.dl.dataaccess.dto.ExchangeRates;
+import eu.dl.worker.utils.ThreadUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Exchange rates downloaded from the fixer.io API.
+ */
+public final class FixerExchangeRateSource implements ExchangeRateSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(FixerExchangeRateSource.class);
+
+    private static final long RETENTION_PERIOD = 5;
+
+    private static final String API_URL = "http://data.fixer.io/api/";
+
+    @Override
+    public ExchangeRates getExchangeRates(final LocalDate date) {
+        try {
+            ThreadUtils.humanize(2000);
+            logger.debug("Querying exchange rates API for {}", date);
+            URL url = new URL(getHistoricalRatesEndpointUrl(date));
+
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setRequestMethod("GET");
+            conn.setRequestProperty("Accept", "application/json");
+
+            if (conn.getResponseCode() != 200) {
+                throw new UnrecoverableException(
+                        "Unable to retrieve data for " + date + ", http error code " + conn.getResponseCode());
+            }
+
+            BufferedReader br = new BufferedReader(new InputStreamReader(
+                (conn.getInputStream())));
+
+            String line;
+            String response = "";
+            while ((line = br.readLine()) != null) {
+                response = response + line;
+            }
+
+            conn.disconnect();
+
+            logger.debug("Retrieved connection rates from API");
+
+            ObjectMapper mapper = new ObjectMapper();
+            mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+            mapper.registerModule(new JavaTimeModule());
+            mapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
+            mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+            JsonNode error = mapper.readTree(response).findValue("error");
+            // API return error response
+            if (error != null) {
+                logger.error("Unable to retrieve exchange rates for " + date + " because of API failed with error message "
+                    + error.path("info").textValue());
+                throw new UnrecoverableException("Unable to retrieve exchange rates for " + date);
+            }
+
+            ExchangeRates exchangeRates = mapper.readValue(response, ExchangeRates.class);
+
+            // in some cases the api does not contain actual rates and returns a nonsense insted
+            // we should ignore such results
+            if (ChronoUnit.DAYS.between(exchangeRates.getDate(), date) > RETENTION_PERIOD) {
+                logger.debug("API returned exchange rates for a to far date ({} instead of {}).",
+                        exchangeRates.getDate(), date);
+                return null;
+            }
+
+            return exchangeRates;
+        } catch (Exception e) {
+            throw new UnrecoverableException("Unable to retrieve exchange rates for " + date, e);
+        }
+    }
+
+    /**
+     * @param date
+     *      A date in the past for which historical rates are requested
+     * @return endpoint url
+     */
+    private static String getHistoricalRatesEndpointUrl(final LocalDate date) {
+        String accessKey = Config.getInstance().getParam("currency.api.access_key");
+        return API_URL + date.format(DateTimeFormatter.ISO_LOCAL_DATE) + "?base=EUR&access_key=" + accessKey;
+    }
+}
@@ -8,7 +8,7 @@ import com.rabbitmq.client.ConnectionFactory;
 import com.rabbitmq.client.Consumer;
 import com.rabbitmq.client.DefaultConsumer;
 import com.rabbitmq.client.Envelope;
-import com.rabbitmq.client.MessageProperties;
+import com.rabbitmq.client.GetResponse;
 import eu.dl.core.RecoverableException;
 import eu.dl.core.UnrecoverableException;
 import eu.dl.core.config.Config;
@@ -21,10 +21,15 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -53,9 +58,30 @@ public abstract class BaseWorker implements Worker {
     protected final Config config;
 
     /**
-     * RabbitMQ channel for outgoing messages.
+     * RabbitMQ connection for outgoing messages.
      */
-    private Channel outgoingChannel;
+    private Connection outgoingConnection;
+
+    /**
+     * Publishers of outgoing messages. Channels mustn't be shared between threads, so each consumer thread
+     * publishes via its own channel.
+     */
+    private final ThreadLocal<OutgoingPublisher> outgoingPublisher = new ThreadLocal<>();
+
+    /**
+     * Default number of threads consuming the incoming queue.
+     */
+    private static final int THREADS_DEFAULT = 1;
+
+    /**
+     * Default number of unacknowledged messages delivered to one consumer thread.
+     */
+    private static final int PREFETCH_DEFAULT = 1;
+
+    /**
+     * Default maximal number of messages processed at once.
+     */
+    private static final int BATCH_SIZE_DEFAULT = 1;
 
     /**
      * Number of displayed characters of message on debug level.
@@ -74,10 +100,19 @@ public abstract class BaseWorker implements Worker {
     private static final int RETRY_COUNT_DEFAULT_LIMIT = 1;
 
     /**
-     * Newer versions of rabbitmq are significantly slower after sending 100 000 messages.
+     * Default number of buffered outgoing messages which triggers publishing.
+     */
+    private static final int PUBLISH_BATCH_SIZE_DEFAULT = 100;
+
+    /**
+     * Default maximal number of published messages not yet confirmed by the broker, per thread.
      */
-    private static final int MAX_MESSAGES_SENT_BY_EXCHANGE_CONNETION = 100000;
-    private int messagesSentByExchangeConnection;
+    private static final int PUBLISH_MAX_UNCONFIRMED_DEFAULT = 1000;
+
+    /**
+     * Default time in milliseconds spent waiting for confirms of the outgoing messages.
+     */
+    private static final long PUBLISH_CONFIRM_TIMEOUT_DEFAULT = 60000;
 
     /**
      * Environment prefix used to define queue names etc.
@@ -167,6 +202,59 @@ public abstract class BaseWorker implements Worker {
         return queueName;
     }
 
+    /**
+     * Gets number of threads consuming the incoming queue. The number can be set with a configuration property
+     * {@code <worker_class>.threads}, by default the worker processes one message at a time. Each thread consumes via
+     * its own channel and works with its own database connection, so raise the number only for the workers whose
+     * {@link #doWork(Message)} is thread safe and doesn't depend on the order of messages.
+     *
+     * @return number of consumer threads
+     */
+    protected int getThreadsCount() {
+        Integer threads = config.getParamValueAs(getName() + ".threads", Integer::valueOf);
+        return threads == null || threads < 1 ? THREADS_DEFAULT : threads;
+    }
+
+    /**
+     * Gets number of unacknowledged messages delivered to one consumer thread. The number can be set with
+     * a configuration property {@code <worker_class>.prefetch}.
+     *
+     * @return prefetch count per consumer thread
+     */
+    protected final int getPrefetchCount() {
+        Integer prefetch = config.getParamValueAs(getName() + ".prefetch", Integer::valueOf);
+        return prefetch == null || prefetch < 1 ? PREFETCH_DEFAULT : prefetch;
+    }
+
+    /**
+     * Gets maximal number of messages processed at once by {@link #doWork(List)}. The number can be set with
+     * a configuration property {@code <worker_class>.batchSize}, by default each message is processed alone. The batch
+     * takes only the messages already waiting in the queue, it never waits for more of them.
+     *
+     * @return maximal number of messages in one batch
+     */
+    protected int getBatchSize() {
+        Integer batchSize = config.getParamValueAs(getName() + ".batchSize", Integer::valueOf);
+        return batchSize == null || batchSize < 1 ? BATCH_SIZE_DEFAULT : batchSize;
+    }
+
+    /**
+     * Gets configuration value of the publishing of outgoing messages. The value can be set with a configuration
+     * property {@code <worker_class>.<name>}, eg. {@code publishBatchSize} (number of buffered messages which
+     * triggers publishing, see {@link #flushOutgoingMessagesIfFull()}), {@code publishMaxUnconfirmed} (number of
+     * messages published without confirm from the broker) or {@code publishConfirmTimeout} (time spent waiting for confirms in milliseconds).
+     *
+     * @param name
+     *      name of the property
+     * @param defaultValue
+     *      value used when the property is missing or isn't positive
+     * @return property value
+     */
+    private long getPublishParam(final String name, final long defaultValue) {
+        Long value = config.getParamValueAs(getName() + "." + name, Long::valueOf);
+        return value == null || value < 1 ? defaultValue : value;
+    }
+
     /**
      * Provides name of the outgoing queue. The worker usually publishes into
      * the queue identified by its fully qualified class name. Tag can be set with a configuration property
@@ -210,6 +298,43 @@ public abstract class BaseWorker implements Worker {
      */
     protected abstract void doWork(Message message);
 
+    /**
+     * Handles the work of several messages at once (see {@link #getBatchSize()}). The work of all the messages is
+     * committed in one transaction and the messages are acknowledged after the commit. In case the work fails, it is
+     * rolled back and the messages are handed over to {@link #doWork(Message)} one by one, so that each of them is
+     * retried or rejected on its own. By default the messages are processed one after another.
+     *
+     * @param messages
+     *            messages to be processed, never contain a command
+     *
+     * @throws UnrecoverableException
+     *             in case the work cannot be done
+     * @throws RecoverableException
+     *             in case another worker may succeed and do the work
+     */
+    protected void doWork(final List<Message> messages) {
+        for (Message message : messages) {
+            doWork(message);
+        }
+    }
+
+    /**
+     * Processes a command other than "resend". The workers which accept their own commands override this method, the
+     * default implementation rejects the command.
+     *
+     * @param command
+     *            command name
+     * @param message
+     *            message with the command and its parameters
+     * @throws UnrecoverableException
+     *             in case the command is unknown or it cannot be done
+     * @throws RecoverableException
+     *             in case another worker may succeed and do the work
+     */
+    protected void processCommand(final String command, final Message message) {
+        logger.error("Uknown command {}", command);
+        throw new UnrecoverableException("Unknow command in the message ");
+    }
 
     /**
      * Resends all the messages ever being send by this worker name and version.
@@ -242,150 +367,51 @@ public abstract class BaseWorker implements Worker {
         // initialize messaging and start to consume and work on the tasks
         // delivered
         connectOutgoingExchange();
+        // the outgoing messages are published as soon as the data they refer to are committed, the workers which
+        // commit in the middle of the work (eg. after each crawled date) don't keep them till the end
+        getTransactionUtils().addCommitListener(this::confirmOutgoingMessages);
         connectIncomingQueue();
     }
 
     /**
-     * Registers itself to receive messages from the queue. This methods also
-     * handles error states when message is being processed. The queue is
-     * defined here (and created if it doesn't exist).
+     * Registers itself to receive messages from the queue. Each of the consumer threads gets its own channel with its
+     * own consumer, the messages are acknowledged one by one. The queue is defined here (and created if it doesn't
+     * exist).
      */
     private void connectIncomingQueue() {
-        try {
-            
-            final Channel channel = getIncommingChanel();
-            
-            // message consumer
-            final Consumer consumer = new DefaultConsumer(channel) {
-                @Override
-                public void handleDelivery(final String consumerTag, final Envelope envelope,
-                                           final AMQP.BasicProperties properties, final byte[] body) throws IOException {
-                    Message message = MessageFactory.getMessage();
-                    try {
-                        ThreadContext.put("message_id", UUID.randomUUID().toString());
-                        ThreadContext.put("environment", envPrefix);
-                        ThreadContext.put("worker_name", getName());
-                        ThreadContext.put("worker_version", getVersion());
-                        
-                        logger.info("Processing message");
-
-                        // convert bytes to string
-                        final String rawMessage = new String(body, "UTF-8");
-                        logger.debug("Raw message: {}", StringUtils.abbreviate(rawMessage, RAW_MESSAGE_LONG));
-                        logger.trace("Raw message: {}", rawMessage);
-
-                        // parse incoming json to hashmap
-                        message = MessageFactory.getMessage(rawMessage);
-
-                        logger.debug("Parsed message {}", message);
-
-                        // check whether special command was send
-                        final String command = message.getValue("command");
-                        if (command != null) {
-                            if (command.equals("resend")) {
-                                final String version = message.getValue("version");
-                                final String fromDate = message.getValue("fromDate");
-                                final String toDate = message.getValue("toDate");
-
-                                if (version != null) {
-                                    logger.info("Triggering resend command with version {}", version);
-                                    resend(version, fromDate, toDate);
-                                } else {
-                                    logger.info("No version specified in the message, sending \"latest\" instead.");
-                                    resend(LATEST, fromDate, toDate);
-                                }
-                            } else {
-                                logger.error("Uknown command {}", command);
-                                throw new UnrecoverableException("Unknow command in the message ");
-                            }
-                        } else {
-                            // no special command send, process message
-                            doWork(message);
-                        }
-
-                        logger.debug("Processed, sending ack back");
-
-                        // acknowledge message - it will not be processed by next worker
-                        channel.basicAck(envelope.getDeliveryTag(), false);
-                        logger.info("Message processed. Waiting for next work...");
-                    } catch (final RecoverableException ex) {
-                        getTransactionUtils().rollback();
-                        ThreadContext.put("original_message", message.toJson());
-                        ThreadContext.put("exception", ex.toString());
-                        ThreadContext.put("stack_trace", stackTraceToString(ex));
-                        
-                        logger.error("Recoverable exception thrown while doing work {}", ex);
-                        logger.error("Message body: {}", message.toJson());
-
-                        String retryCountString = message.getValue("retryCount");
-                        int retryCount = (retryCountString == null) ? 0 : Integer.parseInt(retryCountString);
-                        if (retryCount < getRetryCountLimit()) {
-                            // acknowledge the message, increment the "retryCount" and publish it as new message.
-                            // It will be tried again at the end of queue
-
-                            channel.basicAck(envelope.getDeliveryTag(), false);
-                            logger.error("Message was acknowledged and will be planned to requeue", ex);
-                            message.setValue("retryCount", Integer.toString(retryCount + 1));
-
-                            logger.info("Publishing json message to {}", envPrefix + getIncomingQueueName());
-                            logger.debug("Message body: {}",
-                                    StringUtils.abbreviate(message.toJson(), RAW_MESSAGE_LONG));
-                            logger.trace("Message body: {}", message.toJson());
-                            channel.basicPublish("", 
-                                                 envPrefix + getIncomingQueueName(), 
-                                                 null, 
-                                                 message.toJson().getBytes());
-                        } else {
-                            getTransactionUtils().rollback();
-                            // not acknowledge the message and don't allow requeue
-                            channel.basicNack(envelope.getDeliveryTag(), false, false);
-                            logger.warn(
-                                    "Recoverable exception has been thrown {} times for this message (limit is "
-                                            +
-                                    "{}) and the message WILL NOT BE REQUEUED",
-                                    retryCount + 1, getRetryCountLimit() + 1);
-                        }
-                    } catch (final UnrecoverableException ex) {
-                        getTransactionUtils().rollback();
-
-                        // add info to thread context to store data in logs
-                        ThreadContext.put("original_message", message.toJson());
-                        ThreadContext.put("exception", ex.toString());
-                        ThreadContext.put("stack_trace", stackTraceToString(ex));
-                        
-                        logger.error("Unrecoverable exception thrown while doing work {}", ex);
-                        logger.error("Message body: {}", message.toJson());
-                        // not acknowledge the message
-                        // and don't allow requeue
-
-                        channel.basicNack(envelope.getDeliveryTag(), false, false);
-                        logger.error("Message wasn't acknowledged and WILL NOT BE REQUEUED", ex);
-                    } catch (final Exception ex) {
-                        getTransactionUtils().rollback();
-                        // add info to thread context to store data in logs
-                        ThreadContext.put("original_message", message.toJson());
-                        ThreadContext.put("exception", ex.toString());
-                        ThreadContext.put("stack_trace", stackTraceToString(ex));
-                        
-                        logger.error("General exception thrown while doing work {}", ex);
-                        logger.error("Message body: {}", message.toJson());
-
-                        // not acknowledge the message
-                        // and don't allow requeue
-                        channel.basicNack(envelope.getDeliveryTag(), false, false);
-                        logger.error("Message wasn't acknowledged and WILL NOT BE REQUEUED", ex);
+        final int threads = getThreadsCount();
+        final int prefetch = getPrefetchCount();
 
+        try {
+            final AtomicInteger threadCounter = new AtomicInteger();
+            final ExecutorService executor = Executors.newFixedThreadPool(threads,
+                r -> new Thread(r, getClass().getSimpleName() + "-" + threadCounter.incrementAndGet()));
+
+            // consumers of all the channels are dispatched by the executor
+            final Connection connection = getConnectionFactory().newConnection(executor);
+
+            for (int i = 0; i < threads; i++) {
+                final Channel channel = getIncommingChanel(connection, prefetch, i == 0);
+
+                // message consumer
+                final Consumer consumer = new DefaultConsumer(channel) {
+                    @Override
+                    public void handleDelivery(final String consumerTag, final Envelope envelope,
+                                               final AMQP.BasicProperties properties, final byte[] body)
+                        throws IOException {
+                        processDelivery(channel, envelope, body);
                     }
-                    ThreadContext.clearAll();
-                }
-            };
-            
-            logger.info("Connected incomming exchange '{}', established que '{}' with tag '{}'",
-                        envPrefix + getIncomingExchangeName(), 
-                        envPrefix + getIncomingQueueName(), 
-                        envPrefix + getIncomingQueueName());
-            channel.basicConsume(envPrefix + getIncomingQueueName(), false, consumer);
+                };
 
+                channel.basicConsume(envPrefix + getIncomingQueueName(), false, consumer);
+            }
+
+            logger.info("Connected incomming exchange '{}', established que '{}' with tag '{}', {} consumer(s) with"
+                    + " prefetch {}",
+                        envPrefix + getIncomingExchangeName(),
+                        envPrefix + getIncomingQueueName(),
+                        envPrefix + getIncomingQueueName(),
+                        threads, prefetch);
         } catch (IOException | TimeoutException ex) {
             logger.error("Unable to establish connection with messaging system - {}", ex);
             throw new RuntimeException("Unable to establish connection with messaging system", ex);
@@ -393,63 +419,312 @@ public abstract class BaseWorker implements Worker {
     }
 
     /**
-     * Gets channel for incoming queue.
-     * 
-     * @return initialised channel
-     * 
-     * @throws IOException 
-     * @throws TimeoutException 
+     * Handles one delivered message. In case the worker processes messages in batches, the messages waiting in the
+     * queue are fetched and processed together with the delivered one.
+     *
+     * @param channel
+     *      channel the message was delivered by
+     * @param envelope
+     *      message envelope
+     * @param body
+     *      message body
+     * @throws IOException
+     *      in case the message can't be acknowledged
+     */
+    private void processDelivery(final Channel channel, final Envelope envelope, final byte[] body) throws IOException {
+        final int batchSize = getBatchSize();
+        if (batchSize == 1) {
+            processMessage(channel, envelope, body);
+            return;
+        }
+
+        // the waiting messages are fetched by the same channel, so they count towards its unacknowledged messages
+        final List<GetResponse> deliveries = new ArrayList<>();
+        deliveries.add(new GetResponse(envelope, null, body, 0));
+        while (deliveries.size() < batchSize) {
+            final GetResponse delivery = channel.basicGet(envPrefix + getIncomingQueueName(), false);
+            if (delivery == null) {
+                break;
+            }
+            deliveries.add(delivery);
+        }
+
+        if (deliveries.size() > 1 && processBatch(channel, deliveries)) {
+            return;
+        }
+
+        for (GetResponse delivery : deliveries) {
+            processMessage(channel, delivery.getEnvelope(), delivery.getBody());
+        }
+    }
+
+    /**
+     * Processes the messages at once by {@link #doWork(List)} and acknowledges them. Nothing is acknowledged in case
+     * of failure and the work is rolled back, the messages have to be processed one by one then.
+     *
+     * @param channel
+     *      channel the messages were delivered by
+     * @param deliveries
+     *      delivered messages
+     * @return true if the messages have been processed, false if they have to be processed one by one
+     * @throws IOException
+     *      in case the messages can't be acknowledged
      */
-    private Channel getIncommingChanel() throws IOException, TimeoutException {
-        // configure connection
+    private boolean processBatch(final Channel channel, final List<GetResponse> deliveries) throws IOException {
+        try {
+            ThreadContext.put("message_id", UUID.randomUUID().toString());
+            ThreadContext.put("environment", envPrefix);
+            ThreadContext.put("worker_name", getName());
+            ThreadContext.put("worker_version", getVersion());
+
+            final List<Message> messages = new ArrayList<>();
+            for (GetResponse delivery : deliveries) {
+                final Message message = MessageFactory.getMessage(new String(delivery.getBody(), "UTF-8"));
+                if (message.getValue("command") != null) {
+                    // commands are processed alone
+                    return false;
+                }
+                messages.add(message);
+            }
+
+            logger.info("Processing batch of {} messages", messages.size());
+            doWork(messages);
+
+            getTransactionUtils().commit();
+            confirmOutgoingMessages();
+        } catch (final Exception ex) {
+            rollback();
+            logger.warn("Batch of {} messages failed, the messages will be processed one by one - {}",
+                deliveries.size(), ex);
+            return false;
+        } finally {
+            getTransactionUtils().release();
+            ThreadContext.clearAll();
+        }
+
+        for (GetResponse delivery : deliveries) {
+            channel.basicAck(delivery.getEnvelope().getDeliveryTag(), false);
+        }
+        logger.info("Batch of {} messages processed. Waiting for next work...", deliveries.size());
+
+        return true;
+    }
+
+    /**
+     * Handles one message. This methods also handles error states when message is being processed.
+     *
+     * @param channel
+     *      channel the message was delivered by
+     * @param envelope
+     *      message envelope
+     * @param body
+     *      message body
+     * @throws IOException
+     *      in case the message can't be acknowledged
+     */
+    private void processMessage(final Channel channel, final Envelope envelope, final byte[] body) throws IOException {
+        Message message = MessageFactory.getMessage();
+        try {
+            ThreadContext.put("message_id", UUID.randomUUID().toString());
+            ThreadContext.put("environment", envPrefix);
+            ThreadContext.put("worker_name", getName());
+            ThreadContext.put("worker_version", getVersion());
+
+            logger.info("Processing message");
+
+            // convert bytes to string
+            final String rawMessage = new String(body, "UTF-8");
+            logger.debug("Raw message: {}", StringUtils.abbreviate(rawMessage, RAW_MESSAGE_LONG));
+            logger.trace("Raw message: {}", rawMessage);
+
+            // parse incoming json to hashmap
+            message = MessageFactory.getMessage(rawMessage);
+
+            logger.debug("Parsed message {}", message);
+
+            // check whether special command was send
+            final String command = message.getValue("command");
+            if (command != null) {
+                if (command.equals("resend")) {
+                    final String version = message.getValue("version");
+                    final String fromDate = message.getValue("fromDate");
+                    final String toDate = message.getValue("toDate");
+
+                    if (version != null) {
+                        logger.info("Triggering resend command with version {}", version);
+                        resend(version, fromDate, toDate);
+                    } else {
+                        logger.info("No version specified in the message, sending \"latest\" instead.");
+                        resend(LATEST, fromDate, toDate);
+                    }
+                } else {
+                    processCommand(command, message);
+                }
+            } else {
+                // no special command send, process message
+                doWork(message);
+            }
+
+            // commit the work left uncommitted by the worker
+            getTransactionUtils().commit();
+
+            // outgoing messages have to be confirmed by the broker before the inbound message is acknowledged
+            confirmOutgoingMessages();
+
+            logger.debug("Processed, sending ack back");
+
+            // acknowledge message - it will not be processed by next worker
+            channel.basicAck(envelope.getDeliveryTag(), false);
+            logger.info("Message processed. Waiting for next work...");
+        } catch (final RecoverableException ex) {
+            rollback();
+            ThreadContext.put("original_message", message.toJson());
+            ThreadContext.put("exception", ex.toString());
+            ThreadContext.put("stack_trace", stackTraceToString(ex));
+
+            logger.error("Recoverable exception thrown while doing work {}", ex);
+            logger.error("Message body: {}", message.toJson());
+
+            String retryCountString = message.getValue("retryCount");
+            int retryCount = (retryCountString == null) ? 0 : Integer.parseInt(retryCountString);
+            if (retryCount < getRetryCountLimit()) {
+                // acknowledge the message, increment the "retryCount" and publish it as new message.
+                // It will be tried again at the end of queue
+
+                channel.basicAck(envelope.getDeliveryTag(), false);
+                logger.error("Message was acknowledged and will be planned to requeue", ex);
+                message.setValue("retryCount", Integer.toString(retryCount + 1));
+
+                logger.info("Publishing json message to {}", envPrefix + getIncomingQueueName());
+                logger.debug("Message body: {}",
+                        StringUtils.abbreviate(message.toJson(), RAW_MESSAGE_LONG));
+                logger.trace("Message body: {}", message.toJson());
+                channel.basicPublish("",
+                                     envPrefix + getIncomingQueueName(),
+                                     null,
+                                     message.toJson().getBytes());
+            } else {
+                rollback();
+                // not acknowledge the message and don't allow requeue
+                channel.basicNack(envelope.getDeliveryTag(), false, false);
+                logger.warn(
+                        "Recoverable exception has been thrown {} times for this message (limit is "
+                                +
+                        "{}) and the message WILL NOT BE REQUEUED",
+                        retryCount + 1, getRetryCountLimit() + 1);
+            }
+        } catch (final UnrecoverableException ex) {
+            rollback();
+
+            // add info to thread context to store data in logs
+            ThreadContext.put("original_message", message.toJson());
+            ThreadContext.put("exception", ex.toString());
+            ThreadContext.put("stack_trace", stackTraceToString(ex));
+
+            logger.error("Unrecoverable exception thrown while doing work {}", ex);
+            logger.error("Message body: {}", message.toJson());
+            // not acknowledge the message
+            // and don't allow requeue
+
+            channel.basicNack(envelope.getDeliveryTag(), false, false);
+            logger.error("Message wasn't acknowledged and WILL NOT BE REQUEUED", ex);
+        } catch (final Exception ex) {
+            rollback();
+            // add info to thread context to store data in logs
+            ThreadContext.put("original_message", message.toJson());
+            ThreadContext.put("exception", ex.toString());
+            ThreadContext.put("stack_trace", stackTraceToString(ex));
+
+            logger.error("General exception thrown while doing work {}", ex);
+            logger.error("Message body: {}", message.toJson());
+
+            // not acknowledge the message
+            // and don't allow requeue
+            channel.basicNack(envelope.getDeliveryTag(), false, false);
+            logger.error("Message wasn't acknowledged and WILL NOT BE REQUEUED", ex);
+
+        } finally {
+            // each message is processed as a separate unit of work, return its resources (eg. database connection)
+            getTransactionUtils().release();
+
+            // thread context belongs to the consumer thread, clean it up for the next message
+            ThreadContext.clearAll();
+        }
+    }
+
+    /**
+     * Returns factory of connections to the messaging system.
+     *
+     * @return configured connection factory
+     */
+    protected ConnectionFactory getConnectionFactory() {
         final ConnectionFactory factory = new ConnectionFactory();
         factory.setHost(config.getParam("rabbitmq.host"));
         factory.setUsername(config.getParam("rabbitmq.username"));
         factory.setPassword(config.getParam("rabbitmq.password"));
 //        factory.setPort(5674);
 
-        // establish connection
-        final Connection connection = factory.newConnection();
+        return factory;
+    }
+
+    /**
+     * Gets channel for incoming queue.
+     *
+     * @param connection
+     *      connection to the messaging system
+     * @param prefetch
+     *      maximal number of unacknowledged messages delivered to the channel
+     * @param declare
+     *      whether the queue and the exchange should be declared
+     * @return initialised channel
+     *
+     * @throws IOException
+     */
+    private Channel getIncommingChanel(final Connection connection, final int prefetch, final boolean declare)
+        throws IOException {
         final Channel channel = connection.createChannel();
-        
-        // define the queue as lazy - store params on the disk
-        Map<String, Object> args = new HashMap<String, Object>();
-        args.put("x-queue-mode", "lazy");
-
-        // declare the queue itself
-        channel.queueDeclare(envPrefix + getIncomingQueueName(), true, false, false, args);
-        channel.exchangeDeclare(envPrefix + getIncomingExchangeName(), "direct", true);
-        channel.basicQos(1);
-
-        channel.queueBind(envPrefix + getIncomingQueueName(), 
-                          envPrefix + getIncomingExchangeName(), 
-                          envPrefix + getIncomingQueueName());
-        
+
+        if (declare) {
+            // define the queue as lazy - store params on the disk
+            Map<String, Object> args = new HashMap<String, Object>();
+            args.put("x-queue-mode", "lazy");
+
+            // declare the queue itself
+            channel.queueDeclare(envPrefix + getIncomingQueueName(), true, false, false, args);
+            channel.exchangeDeclare(envPrefix + getIncomingExchangeName(), "direct", true);
+
+            channel.queueBind(envPrefix + getIncomingQueueName(),
+                              envPrefix + getIncomingExchangeName(),
+                              envPrefix + getIncomingQueueName());
+        }
+
+        channel.basicQos(prefetch);
+
         return channel;
     }
 
     /**
      * Registers itself to send messages to the queue. The queue is defined here
-     * (and created if it doesn't exist yet).
+     * (and created if it doesn't exist yet). Channels opened by the previous connection are closed with it and get
+     * reopened on the next publish.
      */
-    private void connectOutgoingExchange() {
+    private synchronized void connectOutgoingExchange() {
         try {
-            // configure connection
-            final ConnectionFactory factory = new ConnectionFactory();
-            factory.setHost(config.getParam("rabbitmq.host"));
-            factory.setUsername(config.getParam("rabbitmq.username"));
-            factory.setPassword(config.getParam("rabbitmq.password"));
-//            factory.setPort(5674);
+            final ConnectionFactory factory = getConnectionFactory();
             logger.info("Initialised outgoing queue host:{} username:{} password:{}", config.getParam("rabbitmq.host"),
                     config.getParam("rabbitmq.username"), config.getParam("rabbitmq.password"));
 
+            if (outgoingConnection != null && outgoingConnection.isOpen()) {
+                outgoingConnection.abort();
+            }
+
             // establish connection
-            final Connection connection = factory.newConnection();
-            outgoingChannel = connection.createChannel();
+            outgoingConnection = factory.newConnection();
+            final Channel channel = outgoingConnection.createChannel();
 
-            outgoingChannel.exchangeDeclare(envPrefix + getOutgoingExchangeName(), "direct", true);
+            channel.exchangeDeclare(envPrefix + getOutgoingExchangeName(), "direct", true);
+            openOutgoingPublisher(channel);
 
-            messagesSentByExchangeConnection = 0;
             logger.info("Connection to outgoing exchange {} established", envPrefix + getOutgoingExchangeName());
         } catch (IOException | TimeoutException ex) {
             logger.error("Unable to establish connection with messaging system - {}", ex);
@@ -457,6 +732,71 @@ public abstract class BaseWorker implements Worker {
         }
     }
 
+    /**
+     * Creates outgoing publisher of the current thread. Messages not confirmed by the previous publisher of the
+     * thread are taken over by the new one.
+     *
+     * @param channel
+     *      opened channel
+     * @return outgoing publisher
+     * @throws IOException
+     *      in case the channel can't be switched to confirm mode
+     */
+    private OutgoingPublisher openOutgoingPublisher(final Channel channel) throws IOException {
+        final OutgoingPublisher publisher = new OutgoingPublisher(channel, envPrefix + getOutgoingExchangeName(),
+            (int) getPublishParam("publishBatchSize", PUBLISH_BATCH_SIZE_DEFAULT),
+            (int) getPublishParam("publishMaxUnconfirmed", PUBLISH_MAX_UNCONFIRMED_DEFAULT),
+            getPublishParam("publishConfirmTimeout", PUBLISH_CONFIRM_TIMEOUT_DEFAULT));
+
+        final OutgoingPublisher previous = outgoingPublisher.get();
+        if (previous != null) {
+            previous.abort();
+            publisher.addAll(previous.drain());
+        }
+
+        outgoingPublisher.set(publisher);
+
+        return publisher;
+    }
+
+    /**
+     * Returns outgoing publisher of the current thread. The publisher is created if the thread hasn't got any yet or
+     * if its channel has been closed.
+     *
+     * @return outgoing publisher
+     * @throws IOException
+     *      in case the channel can't be opened
+     */
+    private OutgoingPublisher getOutgoingPublisher() throws IOException {
+        final OutgoingPublisher publisher = outgoingPublisher.get();
+        if (publisher == null || !publisher.isOpen()) {
+            final Channel channel;
+            synchronized (this) {
+                if (outgoingConnection == null) {
+                    connectOutgoingExchange();
+                    return outgoingPublisher.get();
+                }
+                channel = outgoingConnection.createChannel();
+            }
+            return openOutgoingPublisher(channel);
+        }
+
+        return publisher;
+    }
+
+    /**
+     * Reconnects outgoing exchange after publishing failure. In case the failed connection has already been
+     * replaced by another thread, the publisher of the current thread is reopened with its next use.
+     *
+     * @param failedConnection
+     *      connection used by the failed publish
+     */
+    private synchronized void reconnectOutgoingExchange(final Connection failedConnection) {
+        if (failedConnection == null || failedConnection == outgoingConnection) {
+            connectOutgoingExchange();
+        }
+    }
+
     /**
      * Sends message to the outgoing exchange with default tag.
      *
@@ -468,7 +808,10 @@ public abstract class BaseWorker implements Worker {
     }
 
     /**
-     * Sends message to the outgoing echange with a specified tag.
+     * Sends message to the outgoing echange with a specified tag. The message is buffered and published in batch
+     * with other messages once the work is committed, including the commits made in the middle of the work, and it's
+     * confirmed by the broker before the commit returns and the inbound message is acknowledged. The message is
+     * discarded if the work is rolled back before the commit.
      *
      * @param message
      *            message to be send to other workers
@@ -476,26 +819,73 @@ public abstract class BaseWorker implements Worker {
      *            tag for the message
      */
     protected final void publishMessage(final Message message, final String tag) {
-        try {
-            logger.debug("Message body: {}", StringUtils.abbreviate(message.toJson(), RAW_MESSAGE_LONG));
-            logger.trace("Message body: {}", message.toJson());
+        final String json = message.toJson();
+        logger.debug("Message body: {}", StringUtils.abbreviate(json, RAW_MESSAGE_LONG));
+        logger.trace("Message body: {}", json);
 
-            messagesSentByExchangeConnection++;
-            if (messagesSentByExchangeConnection > MAX_MESSAGES_SENT_BY_EXCHANGE_CONNETION) {
-                outgoingChannel.abort();
-                connectOutgoingExchange();
-            }
+        final byte[] body = json.getBytes();
+        withOutgoingPublisher(publisher -> publisher.add(envPrefix + tag, body));
 
+        logger.info("Published json message to exchange {} , tag {}", envPrefix + getOutgoingExchangeName(),
+                envPrefix + tag);
+    }
+
+    /**
+     * Publishes the buffered outgoing messages of the current thread right away if the buffer is full, so that
+     * the work publishing lots of messages doesn't keep all of them in memory. Call it only when the data the messages
+     * refer to have been already committed or when the work doesn't write anything, eg. while resending the stored
+     * items. Messages published this way aren't discarded by the rollback.
+     */
+    protected final void flushOutgoingMessagesIfFull() {
+        withOutgoingPublisher(OutgoingPublisher::flushIfFull);
+    }
+
+    /**
+     * Rolls back the unit of work of the current thread and discards the outgoing messages it has published, so that
+     * the messages of the failed work are never sent.
+     */
+    private void rollback() {
+        getTransactionUtils().rollback();
+        final OutgoingPublisher publisher = outgoingPublisher.get();
+        if (publisher != null) {
+            publisher.discard();
+        }
+    }
+
+    /**
+     * Publishes all the buffered outgoing messages of the current thread and waits until they are confirmed by the
+     * broker. Called after each commit (see {@link TransactionUtils#addCommitListener(Runnable)}) and once more before
+     * the inbound message is acknowledged, in case the worker doesn't use the same transaction utils all the time.
+     */
+    private void confirmOutgoingMessages() {
+        final OutgoingPublisher publisher = outgoingPublisher.get();
+        if (publisher != null && publisher.hasPending()) {
+            withOutgoingPublisher(OutgoingPublisher::awaitConfirms);
+            logger.debug("Outgoing messages confirmed");
+        }
+    }
+
+    /**
+     * Performs action with the outgoing publisher of the current thread. In case of connection failure the outgoing
+     * exchange is reconnected, unconfirmed messages are taken over by the new publisher and the action is repeated.
+     *
+     * @param action
+     *      action to be performed
+     */
+    private void withOutgoingPublisher(final PublisherAction action) {
+        try {
             int exceptionsCount = 0;
             while (true) {
+                OutgoingPublisher publisher = null;
                 try {
-                    outgoingChannel.basicPublish(envPrefix + getOutgoingExchangeName(),
-                            envPrefix + tag,
-                            MessageProperties.PERSISTENT_TEXT_PLAIN,
-                            message.toJson().getBytes());
+                    publisher = getOutgoingPublisher();
+                    action.perform(publisher);
                     break;
-                } catch (SocketException | AlreadyClosedException e1) {
+                } catch (SocketException | AlreadyClosedException | TimeoutException e1) {
                     logger.error(e1.getClass().getName() + " exception occurred during message publish.", e1);
+                    if (publisher != null) {
+                        publisher.abort();
+                    }
                     if (exceptionsCount > 0) {
                         throw new UnrecoverableException("Reconnection outgoing channel did not work");
                     }
@@ -508,7 +898,7 @@ public abstract class BaseWorker implements Worker {
                         }
                         try {
                             // reconnect outgoing channel
-                            connectOutgoingExchange();
+                            reconnectOutgoingExchange(publisher == null ? null : publisher.getConnection());
                             break;
                         } catch (RuntimeException e2) {
                             if (++exceptionsCount > PUBLISH_MESSAGE_FAILURE_LIMIT) {
@@ -521,9 +911,6 @@ public abstract class BaseWorker implements Worker {
                     }
                 }
             }
-
-            logger.info("Published json message to exchange {} , tag {}", envPrefix + getOutgoingExchangeName(),
-                    envPrefix + tag);
         } catch (final IOException ex) {
             logger.error("Unable to publish message - {}", ex);
             throw new UnrecoverableException("Unable to publish message", ex);
@@ -563,4 +950,20 @@ public abstract class BaseWorker implements Worker {
         }
         return result;
     }
+
+    /**
+     * Action performed with outgoing publisher.
+     */
+    @FunctionalInterface
+    private interface PublisherAction {
+        /**
+         * @param publisher
+         *      outgoing publisher of the current thread
+         * @throws IOException
+         *      in case of publishing failure
+         * @throws TimeoutException
+         *      in case the broker doesn't confirm messages in time
+         */
+        void perform(OutgoingPublisher publisher) throws IOException, TimeoutException;
+    }
 }
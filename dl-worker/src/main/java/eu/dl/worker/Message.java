@@ -1,5 +1,6 @@
 package eu.dl.worker;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 
@@ -31,6 +32,18 @@ public interface Message {
      */
     Message setValue(String key, String value);
 
+    /**
+     * Sets the list param of message, it can be read with {@link #getValueAsList(String, Class)}.
+     *
+     * @param key
+     *            key
+     * @param values
+     *            values
+     *
+     * @return instance of this message to be used in fluent interface
+     */
+    Message setValues(String key, Collection<String> values);
+
     /**
      * Return the value of param identified by key.
      *
@@ -0,0 +1,400 @@
+package eu.dl.worker;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.MessageProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Publishes messages to one exchange over a channel in confirm mode. Messages are buffered per routing key and sent
+ * in batches when the caller waits for confirms (after the unit of work is committed and before the inbound message
+ * is acknowledged) or when the caller asks to flush the full buffer. Buffered messages of the unit of work which is
+ * rolled back are discarded. The number of published but not yet confirmed messages is bounded, messages rejected by
+ * the broker are published again.
+ *
+ * The publisher is owned by one consumer thread, the other threads only deliver the confirms.
+ */
+final class OutgoingPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutgoingPublisher.class);
+
+    private final Channel channel;
+
+    private final String exchange;
+
+    private final int batchSize;
+
+    private final int maxUnconfirmed;
+
+    private final long confirmTimeout;
+
+    /**
+     * Buffered messages by routing key.
+     */
+    private final Map<String, List<byte[]>> buffer = new LinkedHashMap<>();
+
+    private int buffered = 0;
+
+    /**
+     * Published messages waiting for confirmation by their sequence number.
+     */
+    private final ConcurrentNavigableMap<Long, PendingMessage> unconfirmed = new ConcurrentSkipListMap<>();
+
+    private final AtomicInteger unconfirmedCount = new AtomicInteger();
+
+    /**
+     * Messages rejected by the broker, they are published again with the next flush.
+     */
+    private final ConcurrentLinkedQueue<PendingMessage> rejected = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Guards the buffer and the channel. Confirm callbacks never take the lock, they only notify {@link #confirmed}.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Monitor notified whenever the broker confirms or rejects messages.
+     */
+    private final Object confirmed = new Object();
+
+    /**
+     * Puts the channel to confirm mode and creates publisher on top of it.
+     *
+     * @param channel
+     *      opened channel
+     * @param exchange
+     *      name of the exchange the messages are published to
+     * @param batchSize
+     *      number of buffered messages which triggers flush
+     * @param maxUnconfirmed
+     *      maximal number of published but unconfirmed messages
+     * @param confirmTimeout
+     *      maximal time in milliseconds spent waiting for confirms
+     * @throws IOException
+     *      in case the confirm mode can't be set
+     */
+    OutgoingPublisher(final Channel channel, final String exchange, final int batchSize, final int maxUnconfirmed,
+                      final long confirmTimeout) throws IOException {
+        this.channel = channel;
+        this.exchange = exchange;
+        this.batchSize = batchSize;
+        this.maxUnconfirmed = maxUnconfirmed;
+        this.confirmTimeout = confirmTimeout;
+
+        channel.confirmSelect();
+        channel.addConfirmListener((tag, multiple) -> handleConfirm(tag, multiple, true),
+            (tag, multiple) -> handleConfirm(tag, multiple, false));
+    }
+
+    /**
+     * Adds message to the buffer.
+     *
+     * @param routingKey
+     *      routing key of the message
+     * @param body
+     *      message body
+     */
+    void add(final String routingKey, final byte[] body) {
+        lock.lock();
+        try {
+            buffer.computeIfAbsent(routingKey, k -> new ArrayList<>()).add(body);
+            buffered++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publishes the buffered messages if the buffer is full.
+     *
+     * @throws IOException
+     *      in case of publishing failure
+     * @throws TimeoutException
+     *      in case the broker doesn't confirm messages in time
+     */
+    void flushIfFull() throws IOException, TimeoutException {
+        lock.lock();
+        try {
+            if (buffered >= batchSize) {
+                flush();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publishes all the buffered messages and waits until the broker confirms all of them. Rejected messages are
+     * published again.
+     *
+     * @throws IOException
+     *      in case of publishing failure
+     * @throws TimeoutException
+     *      in case the broker doesn't confirm messages in time
+     */
+    void awaitConfirms() throws IOException, TimeoutException {
+        lock.lock();
+        try {
+            final long deadline = System.currentTimeMillis() + confirmTimeout;
+            while (true) {
+                flush();
+
+                synchronized (confirmed) {
+                    if (unconfirmedCount.get() == 0 && rejected.isEmpty()) {
+                        return;
+                    }
+                    if (rejected.isEmpty()) {
+                        waitForConfirm(deadline);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discards the buffered messages, the already published ones are kept.
+     */
+    void discard() {
+        lock.lock();
+        try {
+            buffer.clear();
+            buffered = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true if there are any buffered, unconfirmed or rejected messages
+     */
+    boolean hasPending() {
+        return buffered > 0 || unconfirmedCount.get() > 0 || !rejected.isEmpty();
+    }
+
+    /**
+     * Removes and returns all the messages which haven't been confirmed yet, in the order they were added. Use it
+     * to publish the messages of the failed channel via another one. Messages which have been published but not
+     * confirmed may be delivered twice.
+     *
+     * @return pending messages
+     */
+    List<PendingMessage> drain() {
+        lock.lock();
+        try {
+            final List<PendingMessage> pending = new ArrayList<>(unconfirmed.values());
+            unconfirmed.clear();
+            unconfirmedCount.set(0);
+
+            PendingMessage message;
+            while ((message = rejected.poll()) != null) {
+                pending.add(message);
+            }
+
+            buffer.forEach((routingKey, bodies) -> bodies.forEach(b -> pending.add(new PendingMessage(routingKey, b))));
+            buffer.clear();
+            buffered = 0;
+
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds messages drained from another publisher to the buffer.
+     *
+     * @param messages
+     *      messages to be published
+     */
+    void addAll(final List<PendingMessage> messages) {
+        messages.forEach(m -> add(m.routingKey, m.body));
+    }
+
+    /**
+     * @return true if the underlying channel is opened
+     */
+    boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * @return connection of the underlying channel
+     */
+    Connection getConnection() {
+        return channel.getConnection();
+    }
+
+    /**
+     * Aborts the underlying channel, pending messages can be drained afterwards.
+     */
+    void abort() {
+        try {
+            channel.abort();
+        } catch (IOException ex) {
+            logger.debug("Unable to abort outgoing channel", ex);
+        }
+    }
+
+    /**
+     * Publishes rejected and buffered messages, waits for confirms whenever the limit of unconfirmed messages is
+     * reached. Has to be called with the lock held.
+     *
+     * @throws IOException
+     *      in case of publishing failure
+     * @throws TimeoutException
+     *      in case the broker doesn't confirm messages in time
+     */
+    private void flush() throws IOException, TimeoutException {
+        final long deadline = System.currentTimeMillis() + confirmTimeout;
+
+        PendingMessage message;
+        while ((message = rejected.peek()) != null) {
+            reserve(deadline);
+            rejected.poll();
+            publish(message);
+        }
+
+        final Iterator<Map.Entry<String, List<byte[]>>> entries = buffer.entrySet().iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<String, List<byte[]>> entry = entries.next();
+            final List<byte[]> bodies = entry.getValue();
+            int published = 0;
+            try {
+                for (byte[] body : bodies) {
+                    reserve(deadline);
+                    publish(new PendingMessage(entry.getKey(), body));
+                    published++;
+                    buffered--;
+                }
+            } finally {
+                // the published messages are unconfirmed now, only the rest stays buffered
+                bodies.subList(0, published).clear();
+            }
+            entries.remove();
+        }
+    }
+
+    /**
+     * Waits until the number of unconfirmed messages drops below the limit, so that one more message can be published.
+     *
+     * @param deadline
+     *      time until which the confirms are awaited
+     * @throws TimeoutException
+     *      in case the broker doesn't confirm messages until the deadline
+     */
+    private void reserve(final long deadline) throws TimeoutException {
+        synchronized (confirmed) {
+            while (unconfirmedCount.get() >= maxUnconfirmed) {
+                waitForConfirm(deadline);
+            }
+        }
+    }
+
+    /**
+     * Waits for the next confirm. Has to be called while holding the {@link #confirmed} monitor.
+     *
+     * @param deadline
+     *      time until which the confirms are awaited
+     * @throws TimeoutException
+     *      in case the deadline passes
+     */
+    private void waitForConfirm(final long deadline) throws TimeoutException {
+        final long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            throw new TimeoutException("Broker didn't confirm " + unconfirmedCount.get() + " messages in "
+                + confirmTimeout + " ms");
+        }
+        try {
+            confirmed.wait(remaining);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Interrupted while waiting for confirms");
+        }
+    }
+
+    /**
+     * Publishes one message. The message is registered as unconfirmed before it's sent, so that the confirm can't
+     * overtake it.
+     *
+     * @param message
+     *      message
+     * @throws IOException
+     *      in case of publishing failure
+     */
+    private void publish(final PendingMessage message) throws IOException {
+        unconfirmed.put(channel.getNextPublishSeqNo(), message);
+        unconfirmedCount.incrementAndGet();
+        channel.basicPublish(exchange, message.routingKey, MessageProperties.PERSISTENT_TEXT_PLAIN, message.body);
+    }
+
+    /**
+     * Handles confirm or reject of the published messages.
+     *
+     * @param deliveryTag
+     *      sequence number of the message
+     * @param multiple
+     *      whether all the messages up to the sequence number are concerned
+     * @param ack
+     *      true for confirm, false for reject
+     */
+    private void handleConfirm(final long deliveryTag, final boolean multiple, final boolean ack) {
+        final List<PendingMessage> messages = new ArrayList<>();
+        if (multiple) {
+            final NavigableMap<Long, PendingMessage> head = unconfirmed.headMap(deliveryTag, true);
+            messages.addAll(head.values());
+            head.clear();
+        } else {
+            final PendingMessage message = unconfirmed.remove(deliveryTag);
+            if (message != null) {
+                messages.add(message);
+            }
+        }
+
+        if (!ack) {
+            logger.warn("Broker rejected {} message(s), they will be published again", messages.size());
+            rejected.addAll(messages);
+        }
+
+        synchronized (confirmed) {
+            unconfirmedCount.addAndGet(-messages.size());
+            confirmed.notifyAll();
+        }
+    }
+
+    /**
+     * Message waiting to be published or confirmed.
+     */
+    static final class PendingMessage {
+        private final String routingKey;
+
+        private final byte[] body;
+
+        /**
+         * @param routingKey
+         *      routing key
+         * @param body
+         *      message body
+         */
+        PendingMessage(final String routingKey, final byte[] body) {
+            this.routingKey = routingKey;
+            this.body = body;
+        }
+    }
+}
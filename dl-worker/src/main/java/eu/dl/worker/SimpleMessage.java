@@ -3,6 +3,8 @@
  */
 package eu.dl.worker;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,9 +16,10 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import eu.dl.core.UnrecoverableException;
+import eu.dl.dataaccess.utils.MapperRegistry;
 
 /**
  * Represents default message with fluent interface. Method to string is able to
@@ -32,16 +35,19 @@ public class SimpleMessage implements Message {
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass().getName());
 
-    private final ObjectMapper mapper;
+    private static final ObjectMapper mapper = MapperRegistry.getMessageMapper();
+
+    /**
+     * Reader of the message data, shared by all the messages.
+     */
+    private static final ObjectReader DATA_READER = mapper.readerFor(new TypeReference<Map<String, Object>>() {
+    });
 
     /**
      * Public Constructor.
      */
     public SimpleMessage() {
         super();
-        mapper = new ObjectMapper();
-        // java time module must be registered to support java 8 date time classes
-        mapper.registerModule(new JavaTimeModule());
     }
 
     @Override
@@ -50,6 +56,12 @@ public class SimpleMessage implements Message {
         return this;
     }
 
+    @Override
+    public final Message setValues(final String key, final Collection<String> values) {
+        data.put(key, new ArrayList<>(values));
+        return this;
+    }
+
     @Override
     public final String toJson() {
         try {
@@ -68,8 +80,7 @@ public class SimpleMessage implements Message {
     @Override
     public final void init(final String json) {
         try {
-            data = (HashMap<String, Object>) mapper.readValue(json, new TypeReference<Map<String, Object>>() {
-            });
+            data = DATA_READER.readValue(json);
         } catch (final Exception ex) {
             logger.error("Unable to create from json", ex);
             logger.error("Message body: {}", json);
@@ -13,7 +13,6 @@ import eu.dl.worker.utils.BasicPluginRegistry;
 import eu.dl.worker.utils.PluginRegistry;
 import org.apache.logging.log4j.ThreadContext;
 
-import java.util.List;
 import java.util.Map.Entry;
 
 /**
@@ -143,13 +142,14 @@ public abstract class BaseCleaner<T extends Parsable, V extends Cleanable> exten
                 resendVersion = getVersion();
             }
 
-            final List<V> items = cleanDao.getMine(getName(), resendVersion, dateFrom, dateTo);
-
-            for (final V item : items) {
+            // ids are streamed from the database, so that all of them needn't be held in memory
+            cleanDao.forEachMineId(getName(), resendVersion, dateFrom, dateTo, id -> {
                 final Message outgoingMessage = MessageFactory.getMessage();
-                outgoingMessage.setValue("id", item.getId());
+                outgoingMessage.setValue("id", id);
                 publishMessage(outgoingMessage);
-            }
+                // resend doesn't write anything, the messages needn't wait for the commit
+                flushOutgoingMessagesIfFull();
+            });
         } catch (final Exception ex) {
             logger.error("Unable to resend messages for matching {}", ex);
             throw new UnrecoverableException("Unable to resend messages for matching", ex);
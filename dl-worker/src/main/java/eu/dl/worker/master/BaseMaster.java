@@ -10,14 +10,27 @@ import eu.dl.dataaccess.dto.matched.Matchable;
 import eu.dl.worker.BaseWorker;
 import eu.dl.worker.Message;
 import eu.dl.worker.indicator.plugin.IndicatorPlugin;
+import eu.dl.worker.master.plugin.IncrementalMasterPlugin;
 import eu.dl.worker.master.plugin.MasterPlugin;
 import eu.dl.worker.utils.BasicPluginRegistry;
 import eu.dl.worker.utils.PluginRegistry;
 import org.apache.logging.log4j.ThreadContext;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -47,6 +60,16 @@ public abstract class BaseMaster<T extends Matchable & MasterablePart, V extends
      */
     private static final long WORKER_TIME_THRESHOLD = 1000;
 
+    /**
+     * Default number of threads mastering the groups of one batch.
+     */
+    private static final int MASTERING_THREADS_DEFAULT = 1;
+
+    /**
+     * Executor mastering the groups of the batches, created once more than one mastering thread is configured.
+     */
+    private ExecutorService masteringExecutor;
+
     /**
      * Initializes this class to be used. Registers plugins etc.
      */
@@ -60,18 +83,90 @@ public abstract class BaseMaster<T extends Matchable & MasterablePart, V extends
 
     @Override
     protected final void doWork(final Message message) {
+        final String groupId = message.getValue("groupId");
+        if (groupId != null) {
+            masterGroup(groupId);
+            return;
+        }
+
+        final List<String> groupIds = getGroupIds(message);
+        logger.info("Mastering of {} groups starts.", groupIds.size());
+        for (String id : groupIds) {
+            masterGroup(id);
+        }
+    }
+
+    /**
+     * Masters all the groups of the messages at once. The matched items and the existing master records of all the
+     * groups are selected by two queries, the master plugins of the groups are run by
+     * {@link #getMasteringThreadsCount()} threads, the master records are post-processed by the calling thread and
+     * saved at once. The result is the same as if the groups were mastered one by one.
+     *
+     * @param messages
+     *            messages with group ids
+     */
+    @Override
+    protected final void doWork(final List<Message> messages) {
         long startTime = System.currentTimeMillis();
 
+        final Set<String> groupIds = new LinkedHashSet<>();
+        for (Message message : messages) {
+            final String groupId = message.getValue("groupId");
+            if (groupId != null) {
+                groupIds.add(groupId);
+            } else {
+                groupIds.addAll(getGroupIds(message));
+            }
+        }
+
         getTransactionUtils().begin();
-        final String groupId = message.getValue("groupId");
-        ThreadContext.put("group_id", groupId);
 
-        logger.info("Mastering of group {} starts.", groupId);
+        logger.info("Mastering of {} groups of {} messages starts.", groupIds.size(), messages.size());
+
+        long selectStartTime = System.currentTimeMillis();
+        final Map<String, List<T>> matchedItems =
+            groupByGroupId(matchedDAO.getByGroupIds(groupIds), Matchable::getGroupId);
+        final Map<String, List<V>> existingItems =
+            groupByGroupId(masterDAO.getByGroupIds(groupIds), Masterable::getGroupId);
+        long selectEndTime = System.currentTimeMillis();
+        logger.info("Selection of matched and master objects of {} groups for {} took {} ms.", groupIds.size(),
+                    this.getClass().getName(), selectEndTime - selectStartTime);
+
+        // the post-processing may access the database and services which aren't thread safe, so it runs within
+        // the transaction of this thread
+        final List<V> items = masterGroups(groupIds.stream()
+            .map(id -> (Callable<MasteredGroup>) () -> masterPlugins(id, matchedItems.getOrDefault(id,
+                new ArrayList<>()), existingItems.getOrDefault(id, new ArrayList<>())))
+            .collect(Collectors.toList())).stream()
+            .map(this::postProcess)
+            .collect(Collectors.toList());
+
+        masterDAO.saveAll(items);
+
+        getTransactionUtils().commit();
+        logger.info("Mastering finished for {} groups, {} master records stored", groupIds.size(), items.size());
+
+        long endTime = System.currentTimeMillis();
+        if ((endTime - startTime) > WORKER_TIME_THRESHOLD * groupIds.size()) {
+            logger.warn("Execution of master worker for {} groups took {} ms.", groupIds.size(), endTime - startTime);
+        }
+    }
+
+    /**
+     * Masters one group of the matched items.
+     *
+     * @param groupId
+     *            group id
+     */
+    private void masterGroup(final String groupId) {
+        long startTime = System.currentTimeMillis();
+
+        getTransactionUtils().begin();
+        ThreadContext.put("group_id", groupId);
 
         // get the matched items
         long selectStartTime = System.currentTimeMillis();
         List<T> matchedItems = matchedDAO.getByGroupId(groupId);
-        List<T> rawMatchedItems = matchedItems.stream().collect(Collectors.toList());
 
         long selectEndTime = System.currentTimeMillis();
         logger.info("Selection of matched objects for {} took {} ms.", this.getClass().getName(),
@@ -80,6 +175,61 @@ public abstract class BaseMaster<T extends Matchable & MasterablePart, V extends
         // get already existing items(result of previous mastering)
         List<V> existingItems = masterDAO.getByGroupId(groupId);
 
+        V item = master(groupId, matchedItems, existingItems);
+        if (item == null) {
+            return;
+        }
+
+        String savedId = masterDAO.save(item);
+
+        getTransactionUtils().commit();
+        logger.info("Mastering finished for group id {} stored as {}", groupId, savedId);
+
+        long endTime = System.currentTimeMillis();
+        if ((endTime - startTime) > WORKER_TIME_THRESHOLD) {
+            logger.warn("Execution of master worker took {} ms.", endTime - startTime);
+        }
+    }
+
+    /**
+     * Creates master record of one group.
+     *
+     * @param groupId
+     *            group id
+     * @param matchedItems
+     *            matched items of the group
+     * @param existingItems
+     *            already existing master records of the group (result of previous mastering)
+     *
+     * @return master record to be saved or null if no items are left for mastering
+     */
+    private V master(final String groupId, final List<T> matchedItems, final List<V> existingItems) {
+        return postProcess(masterPlugins(groupId, matchedItems, existingItems));
+    }
+
+    /**
+     * Preprocesses the matched items of one group and runs the master plugins. Unlike the post-processing (see
+     * {@link #postProcess(MasteredGroup)}), the plugins get all they need from the matched items, so the groups of one
+     * batch can be mastered concurrently.
+     *
+     * @param groupId
+     *            group id
+     * @param matchedItems
+     *            matched items of the group
+     * @param existingItems
+     *            already existing master records of the group (result of previous mastering)
+     *
+     * @return mastered group or null if no items are left for mastering
+     */
+    private MasteredGroup masterPlugins(final String groupId, final List<T> matchedItems,
+                                        final List<V> existingItems) {
+        ThreadContext.put("group_id", groupId);
+
+        logger.info("Mastering of group {} starts.", groupId);
+
+        List<T> items = matchedItems;
+        List<T> rawMatchedItems = items.stream().collect(Collectors.toList());
+
         // check whether there is only one item and prepare this item to be updated
         V item = masterDAO.getEmptyInstance();
         
@@ -91,33 +241,94 @@ public abstract class BaseMaster<T extends Matchable & MasterablePart, V extends
             item = existingItems.get(0);
         }
 
-        item.setPersistentId(getPersistentId(matchedItems));
-        item.setProcessingOrder(getProcessingOrder(matchedItems));
+        item.setPersistentId(getPersistentId(items));
+        item.setProcessingOrder(getProcessingOrder(items));
         // preprocess matched items before creating master
-        matchedItems = generalPreprocessData(matchedItems);
-        if (matchedItems.isEmpty()) {
+        items = generalPreprocessData(items);
+        if (items.isEmpty()) {
             logger.info("No items left for mastering after the general preprocessing.");
-            return;
+            return null;
         }
-        matchedItems = sourceSpecificPreprocessData(matchedItems);
-        if (matchedItems.isEmpty()) {
+        items = sourceSpecificPreprocessData(items);
+        if (items.isEmpty()) {
             logger.info("No items left for mastering after the source specific preprocessing.");
-            return;
+            return null;
+        }
+
+        final boolean incremental = isIncrementalMastering();
+        MasteringState previousState = incremental ? MasteringState.read(item, getVersion()) : null;
+        List<T> previousItems = null;
+        List<T> addedItems = null;
+        if (previousState != null) {
+            List<List<T>> split = previousState.split(items);
+            if (split != null) {
+                previousItems = split.get(0);
+                addedItems = split.get(1);
+                // the added items follow the previous ones as if all of them were mastered now
+                items = new ArrayList<>(previousItems);
+                items.addAll(addedItems);
+                logger.info("Incremental mastering of {} added items to {} previous items.", addedItems.size(),
+                    previousItems.size());
+            }
         }
 
         // iterate over all plugins and execute them in a proper order
+        final Map<String, Map<String, Object>> pluginStates = new HashMap<>();
         for (Entry<String, MasterPlugin> entry : pluginRegistry.getPlugins().entrySet()) {
             MasterPlugin<T, V, T> plugin = entry.getValue();
-            item = plugin.master(matchedItems, item, matchedItems);
+            if (incremental && plugin instanceof IncrementalMasterPlugin
+                && ((IncrementalMasterPlugin) plugin).isIncremental()) {
+                IncrementalMasterPlugin<T, V, T> incrementalPlugin = (IncrementalMasterPlugin<T, V, T>) plugin;
+                Map<String, Object> state = previousItems == null ? null
+                    : previousState.getPluginState(entry.getKey());
+                if (state == null) {
+                    state = new HashMap<>();
+                    item = incrementalPlugin.master(items, item, items, state);
+                } else if (!addedItems.isEmpty()) {
+                    item = incrementalPlugin.masterAdded(previousItems, addedItems, item, items, state);
+                }
+                pluginStates.put(entry.getKey(), state);
+            } else {
+                // the plugin isn't associative, all the items are mastered again
+                item = plugin.master(items, item, items);
+            }
         }
 
         // save master record
         item.setGroupId(groupId);
-        
-        item = postProcessMasterRecord(item, rawMatchedItems);
-                
+
+        MasteringState state = incremental ? MasteringState.of(getVersion(), items, pluginStates) : null;
+        return new MasteredGroup(item, rawMatchedItems, state);
+    }
+
+    /**
+     * Post-processes the master record of one group and evaluates its indicators. The post-processing may access
+     * the database, so it has to run in the thread which owns the transaction.
+     *
+     * @param group
+     *            mastered group or null
+     *
+     * @return master record to be saved or null if no items are left for mastering
+     */
+    private V postProcess(final MasteredGroup group) {
+        if (group == null) {
+            return null;
+        }
+
+        ThreadContext.put("group_id", group.item.getGroupId());
+
+        V item = postProcessMasterRecord(group.item, group.matchedItems);
+
         item = sourceSpecificPostprocessData(item);
 
+        MasteringState state = group.state;
+        if (state != null) {
+            state.write(item);
+        } else {
+            // the state of the previous incremental mastering isn't valid anymore
+            MasteringState.remove(item);
+        }
+
         List<Indicator> indicators = new ArrayList<>();
         
         // iterate over all indicator plugins and execute them in a proper order
@@ -131,18 +342,159 @@ public abstract class BaseMaster<T extends Matchable & MasterablePart, V extends
 
         item.setIndicators(indicators);
 
-        String savedId = masterDAO.save(item);
+        return item;
+    }
 
-        
-        getTransactionUtils().commit();
-        logger.info("Mastering finished for group id {} stored as {}", groupId, savedId);
+    /**
+     * Runs the master plugins of the groups. In case more than one mastering thread is configured, the groups are
+     * mastered concurrently.
+     *
+     * @param tasks
+     *            mastering of the groups
+     *
+     * @return mastered groups in the order of the groups
+     */
+    private List<MasteredGroup> masterGroups(final List<Callable<MasteredGroup>> tasks) {
+        final List<MasteredGroup> items = new ArrayList<>();
+        final int threads = getMasteringThreadsCount();
+        if (threads == 1 || tasks.size() == 1) {
+            for (Callable<MasteredGroup> task : tasks) {
+                items.add(call(task));
+            }
+        } else {
+            final Map<String, String> context = ThreadContext.getImmutableContext();
+            final List<Future<MasteredGroup>> results = new ArrayList<>();
+            for (Callable<MasteredGroup> task : tasks) {
+                results.add(getMasteringExecutor(threads).submit(() -> {
+                    ThreadContext.putAll(context);
+                    try {
+                        return call(task);
+                    } finally {
+                        ThreadContext.clearAll();
+                    }
+                }));
+            }
 
-        long endTime = System.currentTimeMillis();
-        if ((endTime - startTime) > WORKER_TIME_THRESHOLD) {
-            logger.warn("Execution of master worker took {} ms.", endTime - startTime);
+            try {
+                for (Future<MasteredGroup> result : results) {
+                    items.add(result.get());
+                }
+            } catch (ExecutionException ex) {
+                results.forEach(n -> n.cancel(true));
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                logger.error("Mastering of the groups failed with {}", ex);
+                throw new UnrecoverableException("Mastering of the groups failed.", ex);
+            } catch (InterruptedException ex) {
+                results.forEach(n -> n.cancel(true));
+                Thread.currentThread().interrupt();
+                logger.error("Mastering of the groups was interrupted");
+                throw new UnrecoverableException("Mastering of the groups was interrupted.", ex);
+            }
+        }
+
+        items.removeIf(Objects::isNull);
+        return items;
+    }
+
+    /**
+     * Gets whether the groups are mastered incrementally. The property can be set with a configuration property
+     * {@code <worker_class>.incrementalMastering}, by default all the matched items of the group are mastered again.
+     * The incremental mastering stores the state of the mastering in the metadata of the master record. When only
+     * new matched items have been added to the group since the previous mastering, the associative plugins (see
+     * {@link IncrementalMasterPlugin}) master the new items only and merge them into the previous master record.
+     * The other plugins master all the items, all the plugins do so in case some of the previous items have been
+     * changed or removed.
+     *
+     * @return true if the groups are mastered incrementally
+     */
+    protected boolean isIncrementalMastering() {
+        Boolean incremental = config.getParamValueAs(getName() + ".incrementalMastering", Boolean::valueOf);
+        return incremental != null && incremental;
+    }
+
+    /**
+     * @param task
+     *            mastering of one group
+     * @return mastered group or null
+     */
+    private MasteredGroup call(final Callable<MasteredGroup> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("Mastering of the group failed with {}", ex);
+            throw new UnrecoverableException("Mastering of the group failed.", ex);
         }
     }
 
+    /**
+     * Gets number of threads mastering the groups of one batch (see {@link #getBatchSize()}). The number can be set
+     * with a configuration property {@code <worker_class>.masteringThreads}, by default the groups are mastered one
+     * after another. Only the preprocessing and the master plugins run concurrently, raise the number only for the
+     * masters whose preprocessing and plugins are thread safe and don't access the database.
+     *
+     * @return number of mastering threads
+     */
+    protected int getMasteringThreadsCount() {
+        Integer threads = config.getParamValueAs(getName() + ".masteringThreads", Integer::valueOf);
+        return threads == null || threads < 1 ? MASTERING_THREADS_DEFAULT : threads;
+    }
+
+    /**
+     * @param threads
+     *            number of threads
+     * @return executor shared by all the consumer threads
+     */
+    private synchronized ExecutorService getMasteringExecutor(final int threads) {
+        if (masteringExecutor == null) {
+            final AtomicInteger threadCounter = new AtomicInteger();
+            masteringExecutor = Executors.newFixedThreadPool(threads, r -> {
+                final Thread thread = new Thread(r, getClass().getSimpleName() + "-master-"
+                    + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return masteringExecutor;
+    }
+
+    /**
+     * @param message
+     *            message without group id
+     * @return group ids of the message
+     */
+    private List<String> getGroupIds(final Message message) {
+        // the matcher publishes all the groups changed by one matched item in one message
+        final List<String> groupIds = message.getValueAsList("groupIds", String.class);
+        if (groupIds == null) {
+            logger.error("Message {} contains neither group id nor group ids.", message.toJson());
+            throw new UnrecoverableException("Message contains neither group id nor group ids.");
+        }
+
+        return groupIds;
+    }
+
+    /**
+     * @param items
+     *            items of many groups, may be null
+     * @param groupId
+     *            returns group id of the item
+     * @param <U>
+     *            item class
+     * @return items by group id
+     */
+    private static <U> Map<String, List<U>> groupByGroupId(final List<U> items, final Function<U, String> groupId) {
+        if (items == null) {
+            return new HashMap<>();
+        }
+
+        return items.stream().collect(Collectors.groupingBy(groupId));
+    }
+
     /**
      * This method is used for master item postProcessing before its saved to persistent storage. 
      * There can be additional values calculated etc.
@@ -264,4 +616,29 @@ public abstract class BaseMaster<T extends Matchable & MasterablePart, V extends
      * @return postprocessed master item
      */
     protected abstract V sourceSpecificPostprocessData(V item);
+
+    /**
+     * Master record of one group created by the master plugins, waiting for the post-processing.
+     */
+    private final class MasteredGroup {
+        private final V item;
+
+        private final List<T> matchedItems;
+
+        private final MasteringState state;
+
+        /**
+         * @param item
+         *            master record
+         * @param matchedItems
+         *            matched items of the group as selected, before the preprocessing
+         * @param state
+         *            state of the incremental mastering or null
+         */
+        MasteredGroup(final V item, final List<T> matchedItems, final MasteringState state) {
+            this.item = item;
+            this.matchedItems = matchedItems;
+            this.state = state;
+        }
+    }
 }
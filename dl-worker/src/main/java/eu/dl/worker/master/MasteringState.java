@@ -0,0 +1,196 @@
+package eu.dl.worker.master;
+
+import eu.dl.dataaccess.dto.Storable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * State of the incremental mastering of one group, stored in the metadata of the master record. It consists of keys
+ * of the matched items mastered so far (in the order of mastering) and of the states of the incremental plugins
+ * (see {@link eu.dl.worker.master.plugin.IncrementalMasterPlugin}). The state is valid only for the same version of
+ * the master.
+ */
+final class MasteringState {
+    /**
+     * Key of the state in the metadata of the master record.
+     */
+    static final String METADATA_KEY = "masteringState";
+
+    private static final String VERSION = "version";
+
+    private static final String ITEMS = "items";
+
+    private static final String PLUGINS = "plugins";
+
+    private final String version;
+
+    private final List<String> itemKeys;
+
+    private final Map<String, Map<String, Object>> pluginStates;
+
+    /**
+     * @param version
+     *      version of the master
+     * @param itemKeys
+     *      keys of the mastered items in the order of mastering
+     * @param pluginStates
+     *      states of the incremental plugins by plugin name
+     */
+    MasteringState(final String version, final List<String> itemKeys,
+                   final Map<String, Map<String, Object>> pluginStates) {
+        this.version = version;
+        this.itemKeys = itemKeys;
+        this.pluginStates = pluginStates;
+    }
+
+    /**
+     * Creates state of the mastered items.
+     *
+     * @param version
+     *      version of the master
+     * @param items
+     *      mastered items in the order of mastering
+     * @param pluginStates
+     *      states of the incremental plugins by plugin name
+     * @return state or null if some of the items can't be identified
+     */
+    static MasteringState of(final String version, final List<? extends Storable> items,
+                             final Map<String, Map<String, Object>> pluginStates) {
+        List<String> keys = new ArrayList<>();
+        for (Storable item : items) {
+            String key = getKey(item);
+            if (key == null) {
+                return null;
+            }
+            keys.add(key);
+        }
+
+        return new MasteringState(version, keys, pluginStates);
+    }
+
+    /**
+     * Reads the state stored in the master record.
+     *
+     * @param item
+     *      master record
+     * @param version
+     *      current version of the master
+     * @return state or null if there is no state of the version
+     */
+    static MasteringState read(final Storable item, final String version) {
+        if (item.getMetaData() == null || !(item.getMetaData().get(METADATA_KEY) instanceof Map)) {
+            return null;
+        }
+
+        Map<?, ?> state = (Map<?, ?>) item.getMetaData().get(METADATA_KEY);
+        if (!Objects.equals(version, state.get(VERSION)) || !(state.get(ITEMS) instanceof List)
+            || !(state.get(PLUGINS) instanceof Map)) {
+            return null;
+        }
+
+        List<String> keys = new ArrayList<>();
+        ((List<?>) state.get(ITEMS)).forEach(n -> keys.add(String.valueOf(n)));
+
+        Map<String, Map<String, Object>> plugins = new HashMap<>();
+        ((Map<?, ?>) state.get(PLUGINS)).forEach((name, pluginState) -> {
+            if (pluginState instanceof Map) {
+                Map<String, Object> copy = new HashMap<>();
+                ((Map<?, ?>) pluginState).forEach((k, v) -> copy.put(String.valueOf(k), v));
+                plugins.put(String.valueOf(name), copy);
+            }
+        });
+
+        return new MasteringState(version, keys, plugins);
+    }
+
+    /**
+     * Stores the state in the metadata of the master record.
+     *
+     * @param item
+     *      master record
+     */
+    void write(final Storable item) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put(VERSION, version);
+        state.put(ITEMS, new ArrayList<>(itemKeys));
+        state.put(PLUGINS, new HashMap<>(pluginStates));
+
+        if (item.getMetaData() == null) {
+            item.setMetaData(new HashMap<>());
+        }
+        item.getMetaData().put(METADATA_KEY, state);
+    }
+
+    /**
+     * Removes the state from the metadata of the master record.
+     *
+     * @param item
+     *      master record
+     */
+    static void remove(final Storable item) {
+        if (item.getMetaData() != null) {
+            item.getMetaData().remove(METADATA_KEY);
+        }
+    }
+
+    /**
+     * Splits the items to the previously mastered ones and the added ones.
+     *
+     * @param items
+     *      items to be mastered
+     * @param <T>
+     *      item type
+     * @return previous items in the order of the previous mastering and added items in the original order, null if
+     *      some of the previous items have been changed or aren't mastered anymore
+     */
+    <T extends Storable> List<List<T>> split(final List<T> items) {
+        Set<String> previousKeys = new HashSet<>(itemKeys);
+        Map<String, T> previous = new HashMap<>();
+        List<T> added = new ArrayList<>();
+        for (T item : items) {
+            String key = getKey(item);
+            if (key == null) {
+                return null;
+            } else if (previousKeys.contains(key)) {
+                previous.put(key, item);
+            } else {
+                added.add(item);
+            }
+        }
+
+        if (previous.size() != itemKeys.size()) {
+            return null;
+        }
+
+        List<T> previousItems = new ArrayList<>();
+        itemKeys.forEach(n -> previousItems.add(previous.get(n)));
+
+        return Arrays.asList(previousItems, added);
+    }
+
+    /**
+     * @param name
+     *      plugin name
+     * @return state of the plugin or null if the plugin hasn't stored state
+     */
+    Map<String, Object> getPluginState(final String name) {
+        return pluginStates.get(name);
+    }
+
+    /**
+     * @param item
+     *      matched item
+     * @return key identifying the item and its version or null if the item has no id
+     */
+    private static String getKey(final Storable item) {
+        return item.getId() == null ? null : item.getId() + "@" + item.getModified();
+    }
+}
@@ -0,0 +1,74 @@
+package eu.dl.worker.master.plugin;
+
+import eu.dl.dataaccess.dto.matched.MasterablePart;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mastering plugin whose result can be updated by the newly added items without mastering all the items again. Result
+ * of {@link #masterAdded(List, List, Object, List, Map)} has to be the same as the result of mastering of all the
+ * items, the previous items followed by the added ones.
+ *
+ * Whatever the plugin needs to merge the added items (eg. the item which the value was picked from) is kept in its
+ * state. The state is filled by the full mastering, updated by the incremental one and stored with the master record
+ * between them, so it has to contain only JSON compatible values (strings, numbers, booleans, lists and maps).
+ *
+ * @param <T>
+ *         matched items
+ * @param <V>
+ *         mastered items
+ * @param <U>
+ *         type of context items
+ */
+public interface IncrementalMasterPlugin<T extends MasterablePart, V, U> extends MasterPlugin<T, V, U> {
+    /**
+     * Masters all the items in the same way as {@link #master(List, Object, List)} and fills the state needed by
+     * the following incremental mastering.
+     *
+     * @param items
+     *         item set to be mastered
+     * @param finalItem
+     *         mastered item
+     * @param context
+     *         context of all root items
+     * @param state
+     *         empty state of the plugin
+     *
+     * @return mastered item
+     */
+    V master(List<T> items, V finalItem, List<U> context, Map<String, Object> state);
+
+    /**
+     * Masters the added items into the item mastered from the previous items.
+     *
+     * @param previousItems
+     *         items of the previous mastering in the same order
+     * @param addedItems
+     *         items added since the previous mastering, never empty
+     * @param finalItem
+     *         item mastered from the previous items
+     * @param context
+     *         context of all root items
+     * @param state
+     *         state of the plugin after the previous mastering, it is updated
+     *
+     * @return mastered item
+     */
+    V masterAdded(List<T> previousItems, List<T> addedItems, V finalItem, List<U> context, Map<String, Object> state);
+
+    /**
+     * Some configurations of the plugin can't be mastered incrementally, all the items have to be mastered then.
+     *
+     * @return true if the plugin can master the added items incrementally
+     */
+    default boolean isIncremental() {
+        return true;
+    }
+
+    @Override
+    default V master(final List<T> items, final V finalItem, final List<U> context) {
+        return master(items, finalItem, context, new HashMap<>());
+    }
+}
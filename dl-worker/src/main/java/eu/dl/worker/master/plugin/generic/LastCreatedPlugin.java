@@ -3,11 +3,11 @@ package eu.dl.worker.master.plugin.generic;
 import eu.dl.core.UnrecoverableException;
 import eu.dl.dataaccess.dto.matched.MasterablePart;
 import eu.dl.dataaccess.dto.utils.DTOUtils;
+import eu.dl.dataaccess.utils.PropertyAccessor;
 import eu.dl.worker.master.plugin.MasterPlugin;
 import eu.dl.worker.master.plugin.generic.comparators.CreatedDateComparator;
 import eu.dl.worker.master.plugin.generic.converter.Converter;
 
-import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -67,28 +67,22 @@ public class LastCreatedPlugin<T extends MasterablePart, V, U> extends GenericMa
         
         for (String fieldName : fieldNames) {
             // getter and setter methods
-            Method getter;
+            PropertyAccessor getter;
             try {
                 // getter method
-                getter = items.get(0).getClass().getMethod("get" + fieldName);
+                getter = PropertyAccessor.of(items.get(0).getClass(), fieldName);
 
                 Object result;
                 
                 // setter
-                Method setter = null;
-                for (Method methodFound : finalItem.getClass().getMethods()) {
-                    if (methodFound.getName().equals("set" + fieldName)) {
-                        setter = methodFound;
-                        break;
-                    }
-                }
+                PropertyAccessor setter = PropertyAccessor.of(finalItem.getClass(), fieldName);
                 // iterate over result set and "pick" the last nonempty value
                 for (T item : sortedItems) {
-                    result = getter.invoke(item);
+                    result = getter.get(item);
 
                     // setter method
                     if (!DTOUtils.isEmpty(result)) {
-                        setter.invoke(finalItem, converter.convert(result));
+                        setter.set(finalItem, converter.convert(result));
                     }
                 }
             } catch (Exception e) {
@@ -3,13 +3,14 @@ package eu.dl.worker.master.plugin.generic;
 import eu.dl.core.UnrecoverableException;
 import eu.dl.dataaccess.dto.matched.MasterablePart;
 import eu.dl.dataaccess.dto.utils.DTOUtils;
-import eu.dl.worker.master.plugin.MasterPlugin;
+import eu.dl.dataaccess.utils.PropertyAccessor;
+import eu.dl.worker.master.plugin.IncrementalMasterPlugin;
 import eu.dl.worker.master.plugin.generic.comparators.PublicationDateComparator;
 import eu.dl.worker.master.plugin.generic.converter.Converter;
 
-import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -24,7 +25,7 @@ import java.util.stream.Collectors;
  *         context items type
  */
 public class LastPublishedPlugin<T extends MasterablePart, V, U> extends GenericMasterPlugin
-    implements MasterPlugin<T, V, U> {
+    implements IncrementalMasterPlugin<T, V, U> {
 
     private Converter converter;
 
@@ -59,44 +60,93 @@ public class LastPublishedPlugin<T extends MasterablePart, V, U> extends Generic
     }
 
     @Override
-    public final V master(final List<T> items, final V finalItem, final List<U> context) {
+    public final V master(final List<T> items, final V finalItem, final List<U> context,
+                          final Map<String, Object> state) {
+        for (String fieldName : fieldNames) {
+            final T last = getLast(items, fieldName);
+            if (last != null) {
+                set(finalItem, fieldName, last);
+                // the index identifies the item among the previous items of the incremental mastering
+                state.put(fieldName, LastValuePlugin.indexOf(items, last));
+            }
+        }
+        return finalItem;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Index of the previous item which the value was picked from is kept in the state. The added item wins unless it
+     * was published earlier, because the added items follow the previous ones.
+     */
+    @Override
+    public final V masterAdded(final List<T> previousItems, final List<T> addedItems, final V finalItem,
+                               final List<U> context, final Map<String, Object> state) {
+        final PublicationDateComparator<T> comparator = new PublicationDateComparator<>();
+        for (String fieldName : fieldNames) {
+            final T last = getLast(addedItems, fieldName);
+            final Number previous = (Number) state.get(fieldName);
+            if (last != null
+                && (previous == null || comparator.compare(last, previousItems.get(previous.intValue())) >= 0)) {
+                set(finalItem, fieldName, last);
+                state.put(fieldName, previousItems.size() + LastValuePlugin.indexOf(addedItems, last));
+            }
+        }
+        return finalItem;
+    }
+
+    /**
+     * @param items
+     *         items
+     * @param fieldName
+     *         field name
+     * @return the last published item with nonempty value of the field (the last one of the items published on the
+     *         same day) or null
+     */
+    private T getLast(final List<T> items, final String fieldName) {
         final List<T> sortedItems = items
             .stream()
             .sorted(new PublicationDateComparator<T>())
             .collect(Collectors.toList());
-        
-        for (String fieldName : fieldNames) {
-            // getter and setter methods
-            Method getter;
-            try {
-                // getter method
-                getter = items.get(0).getClass().getMethod("get" + fieldName);
 
-                Object result;
-                
-                // setter
-                Method setter = null;
-                for (Method methodFound : finalItem.getClass().getMethods()) {
-                    if (methodFound.getName().equals("set" + fieldName)) {
-                        setter = methodFound;
-                        break;
-                    }
-                }
-                // iterate over result set and "pick" the last nonempty value
-                for (T item : sortedItems) {
-                    result = getter.invoke(item);
+        try {
+            // getter method
+            PropertyAccessor getter = PropertyAccessor.of(items.get(0).getClass(), fieldName);
 
-                    // setter method
-                    if (!DTOUtils.isEmpty(result)) {
-                        setter.invoke(finalItem, converter.convert(result));
-                    }
+            // iterate over result set and "pick" the last nonempty value
+            T last = null;
+            for (T item : sortedItems) {
+                if (!DTOUtils.isEmpty(getter.get(item))) {
+                    last = item;
                 }
-            } catch (Exception e) {
-                // unable to pick the last value
-                logger.error("Unable to pick the last value for field '{}' with exception {}", fieldName, e);
-                throw new UnrecoverableException("Unable to pick value for exception", e);
             }
+
+            return last;
+        } catch (Exception e) {
+            // unable to pick the last value
+            logger.error("Unable to pick the last value for field '{}' with exception {}", fieldName, e);
+            throw new UnrecoverableException("Unable to pick value for exception", e);
+        }
+    }
+
+    /**
+     * Saves the value of the item to the final item.
+     *
+     * @param finalItem
+     *         mastered item
+     * @param fieldName
+     *         field name
+     * @param item
+     *         item with the value
+     */
+    private void set(final V finalItem, final String fieldName, final T item) {
+        try {
+            Object result = PropertyAccessor.of(item.getClass(), fieldName).get(item);
+            PropertyAccessor.of(finalItem.getClass(), fieldName).set(finalItem, converter.convert(result));
+        } catch (Exception e) {
+            // unable to pick the last value
+            logger.error("Unable to pick the last value for field '{}' with exception {}", fieldName, e);
+            throw new UnrecoverableException("Unable to pick value for exception", e);
         }
-        return finalItem;
     }
 }
@@ -2,10 +2,11 @@ package eu.dl.worker.master.plugin.generic;
 
 import eu.dl.core.UnrecoverableException;
 import eu.dl.dataaccess.dto.matched.MasterablePart;
-import eu.dl.worker.master.plugin.MasterPlugin;
+import eu.dl.dataaccess.utils.PropertyAccessor;
+import eu.dl.worker.master.plugin.IncrementalMasterPlugin;
 
-import java.lang.reflect.Method;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This plugin makes logical OR of boolean fields of all items in the list and
@@ -24,7 +25,7 @@ import java.util.List;
  *         context items type
  */
 public class LogicalORPlugin<T extends MasterablePart, V, U>
-        extends GenericMasterPlugin implements MasterPlugin<T, V, U> {
+        extends GenericMasterPlugin implements IncrementalMasterPlugin<T, V, U> {
 
     /**
      * Plugin initialization.
@@ -37,41 +38,102 @@ public class LogicalORPlugin<T extends MasterablePart, V, U>
     }
 
     @Override
-    public final V master(final List<T> items, final V finalItem, final List<U> context) {
+    public final V master(final List<T> items, final V finalItem, final List<U> context,
+                          final Map<String, Object> state) {
         if (items.isEmpty()) {
             return finalItem;
         }
 
         for (String field : fieldNames) {
-            try {
-                Method getter = items.get(0).getClass().getMethod("get" + field);
-                Method setter = finalItem.getClass().getMethod("set" + field, Boolean.class);
+            final Boolean finalValue = or(items, field);
+            set(finalItem, field, finalValue);
+            if (finalValue != null) {
+                state.put(field, finalValue);
+            }
+        }
 
-                if (!getter.getReturnType().equals(Boolean.class)) {
-                    logger.error("Field {} isn't declared as Boolean.", field);
-                    throw new UnrecoverableException("Field isn't declared as Boolean.");
-                }
-  
-                Boolean finalValue = null;
-                for (T item : items) {                    
-                    final Boolean itemValue = (Boolean) getter.invoke(item);
-                    if (itemValue != null) {
-                        if (itemValue) {
-                            finalValue = true;
-                            break;
-                        } else {
-                            finalValue = false;
-                        }
-                    }
-                }
+        return finalItem;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Logical OR of the previous items is kept in the state.
+     */
+    @Override
+    public final V masterAdded(final List<T> previousItems, final List<T> addedItems, final V finalItem,
+                               final List<U> context, final Map<String, Object> state) {
+        for (String field : fieldNames) {
+            final Boolean previousValue = (Boolean) state.get(field);
+            final Boolean addedValue = or(addedItems, field);
+
+            final Boolean finalValue;
+            if (Boolean.TRUE.equals(previousValue) || Boolean.TRUE.equals(addedValue)) {
+                finalValue = true;
+            } else if (previousValue != null || addedValue != null) {
+                finalValue = false;
+            } else {
+                finalValue = null;
+            }
 
-                setter.invoke(finalItem, finalValue);
-            } catch (Exception e) {
-                logger.error("Unable to master boolean value for field '{}' because of exception", field, e);
-                throw new UnrecoverableException("Unable to master boolean value because of exception", e);
+            set(finalItem, field, finalValue);
+            if (finalValue != null) {
+                state.put(field, finalValue);
             }
         }
 
         return finalItem;
     }
+
+    /**
+     * @param items
+     *         non-empty list of items
+     * @param field
+     *         field name
+     * @return logical OR of the field values
+     */
+    private Boolean or(final List<T> items, final String field) {
+        try {
+            PropertyAccessor getter = PropertyAccessor.of(items.get(0).getClass(), field);
+
+            if (!Boolean.class.equals(getter.getType())) {
+                logger.error("Field {} isn't declared as Boolean.", field);
+                throw new UnrecoverableException("Field isn't declared as Boolean.");
+            }
+
+            Boolean finalValue = null;
+            for (T item : items) {
+                final Boolean itemValue = (Boolean) getter.get(item);
+                if (itemValue != null) {
+                    if (itemValue) {
+                        return true;
+                    } else {
+                        finalValue = false;
+                    }
+                }
+            }
+
+            return finalValue;
+        } catch (Exception e) {
+            logger.error("Unable to master boolean value for field '{}' because of exception", field, e);
+            throw new UnrecoverableException("Unable to master boolean value because of exception", e);
+        }
+    }
+
+    /**
+     * @param finalItem
+     *         mastered item
+     * @param field
+     *         field name
+     * @param value
+     *         mastered value
+     */
+    private void set(final V finalItem, final String field, final Boolean value) {
+        try {
+            PropertyAccessor.of(finalItem.getClass(), field).set(finalItem, value);
+        } catch (Exception e) {
+            logger.error("Unable to master boolean value for field '{}' because of exception", field, e);
+            throw new UnrecoverableException("Unable to master boolean value because of exception", e);
+        }
+    }
 }
@@ -3,23 +3,23 @@ package eu.dl.worker.master.plugin.generic;
 import eu.dl.core.UnrecoverableException;
 import eu.dl.dataaccess.dto.codetables.BodyIdentifier;
 import eu.dl.dataaccess.dto.generic.Amendment;
-import eu.dl.dataaccess.dto.generic.Payment;
 import eu.dl.dataaccess.dto.generic.Publication;
 import eu.dl.dataaccess.dto.generic.UnitPrice;
 import eu.dl.dataaccess.dto.matched.MasterablePart;
 import eu.dl.dataaccess.dto.matched.MatchedBody;
 import eu.dl.dataaccess.dto.utils.DTOUtils;
 import eu.dl.dataaccess.utils.BodyUtils;
-import eu.dl.worker.master.plugin.MasterPlugin;
+import eu.dl.dataaccess.utils.PropertyAccessor;
+import eu.dl.worker.master.plugin.IncrementalMasterPlugin;
 import eu.dl.worker.master.plugin.generic.converter.Converter;
-import eu.dl.worker.utils.ArrayUtils;
 
-import java.lang.reflect.Method;
-import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -34,7 +34,7 @@ import java.util.stream.IntStream;
  *         context items type
  */
 public final class UnionPlugin<T extends MasterablePart, V, U>
-        extends GenericMasterPlugin implements MasterPlugin<T, V, U> {
+        extends GenericMasterPlugin implements IncrementalMasterPlugin<T, V, U> {
 
     private Converter converter;
 
@@ -69,21 +69,14 @@ public final class UnionPlugin<T extends MasterablePart, V, U>
     }
 
     @Override
-    public V master(final List<T> items, final V finalItem, final List<U> context) {
+    public V master(final List<T> items, final V finalItem, final List<U> context, final Map<String, Object> state) {
         for (String fieldName : fieldNames) {
             try {
                 // getter method
-                Method getter = items.get(0).getClass().getMethod("get" + fieldName);
+                PropertyAccessor getter = PropertyAccessor.of(items.get(0).getClass(), fieldName);
 
                 // Get content of all lists
-                List<Object> listOfAll = new ArrayList<>();
-                for (Object item : items) {
-                    final Object temp = getter.invoke(item);
-
-                    if (temp != null) {
-                        listOfAll.addAll((List<Object>) temp);
-                    }
-                }
+                List<Object> listOfAll = getValues(items, getter);
 
                 List<Object> result;
                 // Get rid of duplicates
@@ -103,60 +96,16 @@ public final class UnionPlugin<T extends MasterablePart, V, U>
                         });
 
                     result = new ArrayList<>(publications);
-                // Bidders
-                } else if (BodyUtils.getBodyFieldNamesInLowerCase().contains(fieldName.toLowerCase())) {
-                    result = listOfAll.stream().filter(ArrayUtils.distinct(t -> ((MatchedBody) t).getGroupId()))
-                            .collect(Collectors.toList());
-                // Payments
-                } else if (fieldName.toLowerCase().equals("payments")) {
-                    result = listOfAll.stream().filter(t -> {
-                        if (((Payment) t).getPaymentDate() == null) {
-                            return true;
-                        }
-
-                        return ArrayUtils.distinct(tt -> {
-                            Payment p = (Payment) tt;
-                            LocalDate date = p.getPaymentDate();
-                            BigDecimal amount = p.getPrice() != null ? p.getPrice().getNetAmount() : null;
-
-                            return date + "|" + amount;
-                        }).test(t);
-                    }).collect(Collectors.toList());
-                // BodyIds
-                } else if (fieldName.toLowerCase().equals("bodyids")) {
-                    result = listOfAll
-                        .stream()
-                        .map(t -> (BodyIdentifier) t)
-                        .filter(ArrayUtils.distinct(t ->
-                            (t.getId() == null ? "" : t.getId())
-                                .concat(t.getType() == null ? "" : t.getType().toString())
-                                .concat(t.getScope() == null ? "" : t.getScope().toString())))
-                        .collect(Collectors.toList());
-                } else if (fieldName.toLowerCase().equals("unitprices")) {
-                    result = listOfAll
-                        .stream()
-                        .map(t -> (UnitPrice) t)
-                        .filter(ArrayUtils.distinct(t -> t.getDescription() + t.getUnitNumber()))
-                        .collect(Collectors.toList());
-                } else if (fieldName.toLowerCase().equals("amendments")) {
-                    result = listOfAll
-                            .stream()
-                            .map(t -> (Amendment) t)
-                            .filter(ArrayUtils.distinct(Amendment::getSourceId))
-                            .collect(Collectors.toList());
                 } else {
-                    result = listOfAll.stream().filter(ArrayUtils.distinct())
-                        .collect(Collectors.toList());
+                    Set<String> keys = new LinkedHashSet<>();
+                    result = distinct(listOfAll, fieldName, keys);
+                    state.put(fieldName, new ArrayList<>(keys));
                 }
 
                 // Save the result
-                if (!DTOUtils.isEmpty(result)) {
-                    for (Method method : finalItem.getClass().getMethods()) {
-                        if (method.getName().equals("set" + fieldName)) {
-                            method.invoke(finalItem, converter.convert(result));
-                            break;
-                        }
-                    }
+                PropertyAccessor setter = PropertyAccessor.of(finalItem.getClass(), fieldName);
+                if (!DTOUtils.isEmpty(result) && setter.isWritable()) {
+                    setter.set(finalItem, converter.convert(result));
                 }
             } catch (Exception e) {
                 // unable to pick the last value
@@ -167,6 +116,149 @@ public final class UnionPlugin<T extends MasterablePart, V, U>
         return finalItem;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Keys of the distinct values of the previous items are kept in the state, the added values with new keys are
+     * appended to the mastered list.
+     */
+    @Override
+    public V masterAdded(final List<T> previousItems, final List<T> addedItems, final V finalItem,
+                         final List<U> context, final Map<String, Object> state) {
+        for (String fieldName : fieldNames) {
+            try {
+                PropertyAccessor getter = PropertyAccessor.of(addedItems.get(0).getClass(), fieldName);
+                List<Object> listOfAdded = getValues(addedItems, getter);
+
+                if (listOfAdded.stream().anyMatch(n -> n instanceof Publication)) {
+                    logger.error("Publications of field '{}' can't be mastered incrementally", fieldName);
+                    throw new UnrecoverableException("Publications can't be mastered incrementally");
+                }
+
+                Set<String> keys = new LinkedHashSet<>();
+                if (state.get(fieldName) != null) {
+                    ((List<?>) state.get(fieldName)).forEach(n -> keys.add(n.toString()));
+                }
+                List<Object> result = distinct(listOfAdded, fieldName, keys);
+                state.put(fieldName, new ArrayList<>(keys));
+
+                // Append the result to the previous one
+                PropertyAccessor setter = PropertyAccessor.of(finalItem.getClass(), fieldName);
+                if (!DTOUtils.isEmpty(result) && setter.isWritable()) {
+                    List<Object> merged = new ArrayList<>();
+                    Object previous = setter.get(finalItem);
+                    if (previous != null) {
+                        merged.addAll((List<Object>) previous);
+                    }
+                    merged.addAll((List<Object>) converter.convert(result));
+                    setter.set(finalItem, merged);
+                }
+            } catch (UnrecoverableException e) {
+                throw e;
+            } catch (Exception e) {
+                logger.error("Unable to pick the last value for field '{}' with exception {}", fieldName, e);
+                throw new UnrecoverableException("Unable to pick value for exception", e);
+            }
+        }
+        return finalItem;
+    }
+
+    /**
+     * Publications are merged with respect to their inclusion, so they have to be mastered all at once.
+     *
+     * @return false if the plugin masters publications
+     */
+    @Override
+    public boolean isIncremental() {
+        return fieldNames.stream().noneMatch(n -> n.equalsIgnoreCase("publications"));
+    }
+
+    /**
+     * @param items
+     *      items
+     * @param getter
+     *      getter of the list field
+     * @return content of the lists of all the items
+     */
+    private static List<Object> getValues(final List<?> items, final PropertyAccessor getter) {
+        List<Object> values = new ArrayList<>();
+        for (Object item : items) {
+            final Object temp = getter.get(item);
+
+            if (temp != null) {
+                values.addAll((List<Object>) temp);
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Gets rid of duplicate values. Values whose key has been already seen are removed.
+     *
+     * @param values
+     *      values
+     * @param fieldName
+     *      field name
+     * @param keys
+     *      keys already seen, the keys of the returned values are added
+     * @return distinct values in the original order
+     */
+    private static List<Object> distinct(final List<Object> values, final String fieldName, final Set<String> keys) {
+        return values.stream()
+            .filter(t -> {
+                String key = getKey(t, fieldName);
+                return key == null || keys.add(key);
+            })
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * @param value
+     *      value
+     * @param fieldName
+     *      field name
+     * @return key of the value, values with the same key are duplicates, null for value which is always kept
+     */
+    private static String getKey(final Object value, final String fieldName) {
+        // Bidders
+        if (BodyUtils.getBodyFieldNamesInLowerCase().contains(fieldName.toLowerCase())) {
+            return ((MatchedBody) value).getGroupId();
+        // Payments, all of them are kept, even the ones of the same date and amount
+        } else if (fieldName.toLowerCase().equals("payments")) {
+            return null;
+        // BodyIds
+        } else if (fieldName.toLowerCase().equals("bodyids")) {
+            BodyIdentifier t = (BodyIdentifier) value;
+            return (t.getId() == null ? "" : t.getId())
+                .concat(t.getType() == null ? "" : t.getType().toString())
+                .concat(t.getScope() == null ? "" : t.getScope().toString());
+        } else if (fieldName.toLowerCase().equals("unitprices")) {
+            UnitPrice t = (UnitPrice) value;
+            return t.getDescription() + t.getUnitNumber();
+        } else if (fieldName.toLowerCase().equals("amendments")) {
+            return ((Amendment) value).getSourceId();
+        } else if (value != null && !hasOwnToString(value)) {
+            // identity of the object isn't stable between the masterings, distinct objects are never duplicates
+            return null;
+        } else {
+            return Objects.toString(value);
+        }
+    }
+
+    /**
+     * @param value
+     *      not null value
+     * @return true if the class of the value overrides {@link Object#toString()}
+     */
+    private static boolean hasOwnToString(final Object value) {
+        try {
+            return value.getClass().getMethod("toString").getDeclaringClass() != Object.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
     /**
      * @param o1
      *      first object to be compared
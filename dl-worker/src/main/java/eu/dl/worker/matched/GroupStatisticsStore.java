@@ -0,0 +1,350 @@
+package eu.dl.worker.matched;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.dl.dataaccess.dao.PoolBodyDAO;
+import eu.dl.dataaccess.dto.codetables.BodyIdentifier;
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+import eu.dl.dataaccess.dto.matched.MatchedGroupInfo;
+
+/**
+ * In-memory statistics of the groups of the matched bodies (group size and etalon presence), which answers
+ * {@link PoolBodyDAO#getGroupsInfo(List)} without querying the database.
+ *
+ * The store is filled in bulk on startup and the matcher records each body it saves into a group. Saves which aren't
+ * recorded (eg. the etalon plugins create matched bodies of the etalons) have to invalidate the group. The changes are
+ * visible only to the thread which made them until {@link #commit()} is called after the database transaction has
+ * been committed, {@link #rollback()} discards them. Groups missing in the store are read from the DAO, and every
+ * {@code checkInterval}-th lookup is compared with the DAO and repaired in case it differs (eg. because another
+ * process saved bodies into the group).
+ *
+ * The instances are thread-safe.
+ */
+public final class GroupStatisticsStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupStatisticsStore.class);
+
+    private final PoolBodyDAO<?> dao;
+
+    private final int checkInterval;
+
+    /**
+     * Committed statistics by group ids. The size is shifted by one bit and the lowest bit holds the etalon presence,
+     * so the statistics of the small groups share the cached Integer instances.
+     */
+    private final Map<String, Integer> groups = new ConcurrentHashMap<>();
+
+    /**
+     * Changes made by the current thread which haven't been committed yet.
+     */
+    private final ThreadLocal<Map<String, Change>> changes = ThreadLocal.withInitial(HashMap::new);
+
+    private final AtomicLong lookups = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder mismatches = new LongAdder();
+
+    /**
+     * Uncommitted change of one group.
+     */
+    private static final class Change {
+
+        /**
+         * Statistics visible in the current transaction or null if they aren't known.
+         */
+        private Integer stats;
+
+        /**
+         * Number of the recorded bodies.
+         */
+        private int added = 0;
+
+        /**
+         * Whether any of the recorded bodies refers to an etalon.
+         */
+        private boolean etalonAdded = false;
+
+        /**
+         * Whether the group has been changed by a save which hasn't been recorded.
+         */
+        private boolean invalidated = false;
+
+        /**
+         * @param stats
+         *      statistics visible in the current transaction, may be null
+         */
+        private Change(final Integer stats) {
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * @param dao
+     *      DAO which is asked for the groups missing in the store
+     * @param checkInterval
+     *      every {@code checkInterval}-th lookup is compared with the DAO, 0 turns the check off
+     */
+    public GroupStatisticsStore(final PoolBodyDAO<?> dao, final int checkInterval) {
+        this.dao = dao;
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * Puts committed statistics of the group, used for the bulk loading of the store.
+     *
+     * @param info
+     *      group statistics
+     */
+    public void put(final MatchedGroupInfo info) {
+        groups.put(info.getGroupId(), encode(info));
+    }
+
+    /**
+     * Returns statistics of the groups in the same way as {@link PoolBodyDAO#getGroupsInfo(List)}. Groups without
+     * bodies aren't included and the groups are ordered by size descending.
+     *
+     * @param groupIds
+     *      group ids
+     * @return statistics of the groups
+     */
+    public List<MatchedGroupInfo> getGroupsInfo(final List<String> groupIds) {
+        if (groupIds == null || groupIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Map<String, Change> local = changes.get();
+
+        Map<String, Integer> found = new HashMap<>();
+        final List<String> missing = new ArrayList<>();
+        for (String groupId : groupIds) {
+            final Change change = local.get(groupId);
+            final Integer stats = change != null ? change.stats : groups.get(groupId);
+            if (stats == null) {
+                missing.add(groupId);
+            } else {
+                found.put(groupId, stats);
+            }
+        }
+
+        hits.add(found.size());
+        if (!missing.isEmpty()) {
+            misses.add(missing.size());
+            found.putAll(fetch(missing, local));
+        }
+
+        if (checkInterval > 0 && lookups.incrementAndGet() % checkInterval == 0) {
+            final Map<String, Integer> actual = fetch(groupIds, local);
+            if (!actual.equals(found)) {
+                mismatches.increment();
+                logger.warn("Group statistics {} differ from the database {}, the store has been repaired",
+                    toInfo(groupIds, found), toInfo(groupIds, actual));
+                found = actual;
+            }
+        }
+
+        return toInfo(groupIds, found);
+    }
+
+    /**
+     * Records the body saved into its group by the current transaction.
+     *
+     * @param body
+     *      saved body with group id
+     */
+    public void record(final MatchedBody body) {
+        final Change change = changes.get().computeIfAbsent(body.getGroupId(), k -> new Change(groups.get(k)));
+
+        final boolean etalon = isEtalon(body);
+        change.added++;
+        change.etalonAdded |= etalon;
+        if (change.stats != null) {
+            change.stats = encode(size(change.stats) + 1, hasEtalon(change.stats) || etalon);
+        }
+    }
+
+    /**
+     * Invalidates the group changed by the current transaction by a save which can't be recorded, the statistics of
+     * the group are read from the DAO again.
+     *
+     * @param groupId
+     *      group id
+     */
+    public void invalidate(final String groupId) {
+        final Change change = changes.get().computeIfAbsent(groupId, k -> new Change(null));
+        change.stats = null;
+        change.invalidated = true;
+    }
+
+    /**
+     * Publishes the changes of the current thread to the other threads. Call after the database transaction has been
+     * committed.
+     */
+    public void commit() {
+        final Map<String, Change> local = changes.get();
+        local.forEach((groupId, change) -> {
+            if (change.invalidated) {
+                groups.remove(groupId);
+            } else if (change.added > 0) {
+                // the recorded bodies are added to the current statistics, so the concurrent commits of the same
+                // group don't overwrite each other
+                groups.compute(groupId, (k, stats) -> stats == null ? change.stats
+                    : encode(size(stats) + change.added, hasEtalon(stats) || change.etalonAdded));
+            }
+        });
+        local.clear();
+    }
+
+    /**
+     * Discards the changes of the current thread. Call after the database transaction has been rolled back.
+     */
+    public void rollback() {
+        changes.get().clear();
+    }
+
+    /**
+     * @return number of the committed groups in the store
+     */
+    public int size() {
+        return groups.size();
+    }
+
+    /**
+     * @return number of the groups found in the store
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of the groups read from the DAO because they were missing in the store
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of the lookups which differed from the DAO
+     */
+    public long getMismatchCount() {
+        return mismatches.sum();
+    }
+
+    /**
+     * Reads statistics of the groups from the DAO and stores them. The statistics of the groups changed by the
+     * current transaction are stored only for the current thread, because the DAO sees the uncommitted changes.
+     *
+     * @param groupIds
+     *      group ids
+     * @param local
+     *      changes of the current thread
+     * @return statistics by group ids, groups without bodies have zero size
+     */
+    private Map<String, Integer> fetch(final List<String> groupIds, final Map<String, Change> local) {
+        final Map<String, Integer> fetched = new HashMap<>();
+        for (String groupId : groupIds) {
+            fetched.put(groupId, encode(0, false));
+        }
+
+        final List<MatchedGroupInfo> infos = dao.getGroupsInfo(new ArrayList<>(fetched.keySet()));
+        if (infos != null) {
+            infos.forEach(info -> fetched.put(info.getGroupId(), encode(info)));
+        }
+
+        fetched.forEach((groupId, stats) -> {
+            final Change change = local.get(groupId);
+            if (change != null) {
+                change.stats = stats;
+            } else {
+                groups.put(groupId, stats);
+            }
+        });
+
+        return fetched;
+    }
+
+    /**
+     * @param groupIds
+     *      group ids in the order of the request
+     * @param stats
+     *      statistics by group ids
+     * @return statistics of the not empty groups ordered by size descending
+     */
+    private static List<MatchedGroupInfo> toInfo(final List<String> groupIds, final Map<String, Integer> stats) {
+        final List<MatchedGroupInfo> result = new ArrayList<>();
+        groupIds.stream().distinct().forEach(groupId -> {
+            final Integer value = stats.get(groupId);
+            if (value != null && size(value) > 0) {
+                result.add(new MatchedGroupInfo()
+                    .setGroupId(groupId)
+                    .setSize(size(value))
+                    .setHasEtalon(hasEtalon(value)));
+            }
+        });
+
+        result.sort(Comparator.comparing(MatchedGroupInfo::getSize).reversed());
+        return result;
+    }
+
+    /**
+     * @param body
+     *      body
+     * @return true if the body refers to an etalon
+     */
+    private static boolean isEtalon(final MatchedBody body) {
+        return body.getBodyIds() != null && body.getBodyIds().stream()
+            .anyMatch(id -> id != null && id.getType() == BodyIdentifier.Type.ETALON_ID);
+    }
+
+    /**
+     * @param info
+     *      group statistics
+     * @return encoded statistics
+     */
+    private static Integer encode(final MatchedGroupInfo info) {
+        return encode(Objects.requireNonNullElse(info.getSize(), 0), Boolean.TRUE.equals(info.getHasEtalon()));
+    }
+
+    /**
+     * @param size
+     *      group size
+     * @param hasEtalon
+     *      etalon presence
+     * @return encoded statistics
+     */
+    private static Integer encode(final int size, final boolean hasEtalon) {
+        return (size << 1) | (hasEtalon ? 1 : 0);
+    }
+
+    /**
+     * @param stats
+     *      encoded statistics
+     * @return group size
+     */
+    private static int size(final Integer stats) {
+        return stats >>> 1;
+    }
+
+    /**
+     * @param stats
+     *      encoded statistics
+     * @return etalon presence
+     */
+    private static boolean hasEtalon(final Integer stats) {
+        return (stats & 1) == 1;
+    }
+}
@@ -1,6 +1,7 @@
 package eu.dl.worker.matched.plugin;
 
 import eu.dl.dataaccess.dao.ApproximateMatchBodyDAO;
+import eu.dl.dataaccess.dao.MatchedBodiesPool;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -12,7 +13,10 @@ import eu.dl.dataaccess.dto.codetables.BodyIdentifier;
 import eu.dl.dataaccess.dto.matched.ApproximatellyMatchable;
 import eu.dl.dataaccess.dto.matched.EtalonBody;
 import eu.dl.dataaccess.dto.matched.MatchedBody;
+import eu.dl.worker.utils.matched.BodyFingerprint;
 import eu.dl.worker.utils.matched.MatchedUtils;
+import eu.dl.worker.utils.matched.SimilarityScorer;
+import eu.dl.worker.utils.matched.TrigramIndex;
 
 /**
  * This plugin attempts to find approximate match with pool of bodies. 
@@ -41,6 +45,14 @@ import eu.dl.worker.utils.matched.MatchedUtils;
  *
  * If some S_i > 0.75 (arbitrary threshold, will be subject to change :D, this one has been set as rough equivalent of
  * two exact matches in 1), we take the match with max_i(S_i) and matching ends.
+ *
+ * Trigram similarities are the expensive part of the computation. Their upper bounds are computed from the shared
+ * trigrams first and the bodies which can't reach the threshold even with the upper bounds are skipped. The shared
+ * trigrams of the bodies from the prefetched pools are counted by a {@link TrigramIndex} built once for the pools. The
+ * attributes of each body are tokenized only once into {@link BodyFingerprint} and compared by
+ * {@link SimilarityScorer}, which returns the same similarities as {@link MatchedUtils}. The fingerprints of the
+ * bodies from the prefetched pools (see {@link MatchedBodiesPool}) are stored with the pools, so they are computed
+ * only once for all the bodies matched with the same pools.
  * 
  * @param <T>
  *      class of the matched body
@@ -52,6 +64,39 @@ public abstract class BaseApproximateMatchingPlugin<T extends MatchedBody, U ext
         
     private static final float MATCH_LOWER_THRESHOLD = 0.75f;
 
+    /**
+     * Tolerance of the similarity upper bounds to the float rounding errors.
+     */
+    private static final float BOUND_TOLERANCE = 0.0001f;
+
+    /**
+     * Trigram indices of the standardized names and addresses of all the bodies of the prefetched pools, built once
+     * for the pools. The identifiers in the indices are the positions of the bodies in the pools.
+     */
+    private static final class PoolIndex {
+
+        private final TrigramIndex names = new TrigramIndex();
+
+        private final TrigramIndex addresses = new TrigramIndex();
+
+        /**
+         * @param pools
+         *      prefetched pools
+         * @return index of all the pool bodies
+         */
+        private static PoolIndex of(final MatchedBodiesPool<?> pools) {
+            final PoolIndex index = new PoolIndex();
+            for (int position = 0; position < pools.size(); position++) {
+                final BodyFingerprint print = pools.getAttachment(position, BodyFingerprint.class,
+                    BodyFingerprint::of);
+                index.names.add(print.getName());
+                index.addresses.add(print.getAddress());
+            }
+
+            return index;
+        }
+    }
+
     /**
      * Constructor with body pool DAO initialization.
      *
@@ -66,36 +111,137 @@ public abstract class BaseApproximateMatchingPlugin<T extends MatchedBody, U ext
     protected final Map<U, Float> getSimiliraties(final T item, final List<U> pool) {
         final Map<U, Float> bodySimilarities = new HashMap<>();
 
-        pool.forEach((body) -> {
-            float nameSim =
-                MatchedUtils.trigramSimilarity(item.getStandardizedName(), body.getStandardizedName());
+        // the attributes are tokenized once per body, the comparisons then work on the fingerprints only
+        final SimilarityScorer scorer = new SimilarityScorer();
+        final BodyFingerprint itemPrint = BodyFingerprint.of(item);
+
+        // the prefetched pools are indexed by trigrams, so the upper bounds of the trigram similarities with all their
+        // bodies are counted at once from the posting lists
+        final MatchedBodiesPool.Selection<?> selection =
+            pool instanceof MatchedBodiesPool.Selection ? (MatchedBodiesPool.Selection<?>) pool : null;
+        final PoolIndex index = selection == null ? null
+            : selection.getPools().getAttachment(PoolIndex.class, PoolIndex::of);
+        final float[] nameBounds = index == null ? null : index.names.getUpperBounds(itemPrint.getName());
+        final float[] addrBounds = index == null ? null : index.addresses.getUpperBounds(itemPrint.getAddress());
+
+        for (int i = 0; i < pool.size(); i++) {
+            final U body = pool.get(i);
 
-            float addrSim =
-                MatchedUtils.trigramSimilarity(item.getStandardizedAddress(), body.getStandardizedAddress());
+            // upper bounds of the trigram similarities are cheap, only the bodies which can still reach the threshold
+            // are candidates for the expensive trigram distance
+            final float nameBound;
+            final float addrBound;
+            final BodyFingerprint bodyPrint;
+            if (index != null) {
+                final int position = selection.getPosition(i);
+                nameBound = nameBounds[position];
+                addrBound = addrBounds[position];
+                if (!canReachThreshold(nameBound, addrBound, 1f, 1f, 1f)) {
+                    continue;
+                }
+                bodyPrint = getFingerprint(pool, i);
+            } else {
+                bodyPrint = getFingerprint(pool, i);
+                nameBound = SimilarityScorer.trigramUpperBound(itemPrint.getName(), bodyPrint.getName());
+                addrBound = SimilarityScorer.trigramUpperBound(itemPrint.getAddress(), bodyPrint.getAddress());
+                if (!canReachThreshold(nameBound, addrBound, 1f, 1f, 1f)) {
+                    continue;
+                }
+            }
 
             final Float bodyIdSim = getBestBodyIdSimilarity(item.getBodyIds(), body.getBodyIds());
 
-            float postcodeSim = getPostcodeSimilarity(item.getPostcode(), body.getPostcode());
+            float postcodeSim = scorer.oneDigitSimilarity(itemPrint.getPostcode(), bodyPrint.getPostcode());
+
+            final float nutsSim = scorer.bestNutsSimilarity(itemPrint, bodyPrint, (body instanceof EtalonBody ? 5 : 0));
+
+            if (!canReachThreshold(nameBound, addrBound, bodyIdSim, postcodeSim, nutsSim)) {
+                continue;
+            }
+
+            float nameSim = scorer.trigramSimilarity(itemPrint.getName(), bodyPrint.getName());
+
+            if (!canReachThreshold(nameSim, addrBound, bodyIdSim, postcodeSim, nutsSim)) {
+                continue;
+            }
 
-            final Float nutsSim =
-                getBestNutsSimilarity(item.getNuts(), body.getNuts(), (body instanceof EtalonBody ? 5 : 0));
+            float addrSim = scorer.trigramSimilarity(itemPrint.getAddress(), bodyPrint.getAddress());
 
-            float weightenedAverage = (
-                nameSim
-                + addrSim
-                + bodyIdSim
-                + postcodeSim * 0.2f
-                + nutsSim * 0.2f
-                ) / (1 + 1 + 1 + 0.2f + 0.2f);
+            float weightenedAverage = getWeightenedAverage(nameSim, addrSim, bodyIdSim, postcodeSim, nutsSim);
 
             if (weightenedAverage >= MATCH_LOWER_THRESHOLD) {
                 bodySimilarities.put(body, weightenedAverage);
             }
-        });
+        }
 
         return bodySimilarities;
     }
-    
+
+    /**
+     * Returns fingerprint of the pool body. The fingerprint of the body from the prefetched pools is computed when it
+     * is requested for the first time and then it is stored with the body.
+     *
+     * @param pool
+     *      bodies pool
+     * @param i
+     *      index of the body in the pool
+     * @return fingerprint of the body
+     */
+    private BodyFingerprint getFingerprint(final List<U> pool, final int i) {
+        if (pool instanceof MatchedBodiesPool.Selection) {
+            return ((MatchedBodiesPool.Selection<?>) pool).getAttachment(i, BodyFingerprint.class,
+                BodyFingerprint::of);
+        }
+
+        return BodyFingerprint.of(pool.get(i));
+    }
+
+    /**
+     * @param nameSim
+     *      standardized name similarity
+     * @param addrSim
+     *      standardized address similarity
+     * @param bodyIdSim
+     *      body id similarity
+     * @param postcodeSim
+     *      postcode similarity
+     * @param nutsSim
+     *      nuts similarity
+     * @return weightened average of the similarities
+     */
+    private static float getWeightenedAverage(final float nameSim, final float addrSim, final float bodyIdSim,
+                                              final float postcodeSim, final float nutsSim) {
+        return (
+            nameSim
+            + addrSim
+            + bodyIdSim
+            + postcodeSim * 0.2f
+            + nutsSim * 0.2f
+            ) / (1 + 1 + 1 + 0.2f + 0.2f);
+    }
+
+    /**
+     * Checks whether the weightened average of the given similarities (or their upper bounds) reaches the threshold.
+     * The check is tolerant to the rounding errors, so it never rejects a body which would be matched.
+     *
+     * @param nameSim
+     *      standardized name similarity or its upper bound
+     * @param addrSim
+     *      standardized address similarity or its upper bound
+     * @param bodyIdSim
+     *      body id similarity or its upper bound
+     * @param postcodeSim
+     *      postcode similarity or its upper bound
+     * @param nutsSim
+     *      nuts similarity or its upper bound
+     * @return true if the threshold can be reached
+     */
+    private static boolean canReachThreshold(final float nameSim, final float addrSim, final float bodyIdSim,
+                                             final float postcodeSim, final float nutsSim) {
+        return getWeightenedAverage(nameSim, addrSim, bodyIdSim, postcodeSim, nutsSim) + BOUND_TOLERANCE
+            >= MATCH_LOWER_THRESHOLD;
+    }
+
     /**
      * Returns the pool of bodies for approximate matching of the given {@code item}. The pool is identified as union of
      * these two:
@@ -139,41 +285,4 @@ public abstract class BaseApproximateMatchingPlugin<T extends MatchedBody, U ext
         
         return (similarities.isEmpty() ? 0f : Collections.max(similarities));
     }
-    
-    /**
-     * Computes similarity for postcode from {@code source} and {@code target} item.
-     * 
-     * @param source
-     *      origin matched postcode
-     * @param target
-     *      postcode that is compared with {@code source}
-     * @return similarity of postocodes or 0.5 in case that on of compared items haven't defined postcode
-     */
-    private Float getPostcodeSimilarity(final String source, final String target) {
-        return MatchedUtils.oneDigitSimilarity(source, target);
-    }
-    
-    /**
-     * Computes similarities for each nuts from {@code source} with each nuts from {@target} and returns the best match.
-     * 
-     * @param source
-     *      origin list of NUTS codes
-     * @param target
-     *      list of NUTS codes that are compared with {@code source}
-     * @param trimNuts
-     *      number of the most left characters of nuts used for matching, if is 0 orginal codes are comapred
-     * @return best match
-     */
-    private Float getBestNutsSimilarity(final List<String> source, final List<String> target, final int trimNuts) {
-        if (source == null || target == null) {            
-            return 0.5f;
-        }
-        
-        final List<Float> similarities = new ArrayList<>();        
-        source.forEach((code) -> {
-            similarities.addAll(MatchedUtils.nutsSimilarities(code, target, trimNuts));
-        });
-        
-        return (similarities.isEmpty() ? 0f : Collections.max(similarities));
-    }
 }
@@ -1,7 +1,6 @@
 package eu.dl.worker.matched.plugin;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -17,6 +16,7 @@ import eu.dl.dataaccess.dto.matched.EtalonBody;
 import eu.dl.dataaccess.dto.matched.MatchedBody;
 import eu.dl.dataaccess.dto.matched.MatchedGroupInfo;
 import eu.dl.dataaccess.dto.matched.PoolBody;
+import eu.dl.worker.matched.GroupStatisticsStore;
 import eu.dl.worker.utils.ArrayUtils;
 
 /**
@@ -36,6 +36,11 @@ public abstract class BaseBodiesPoolMatchingPlugin<T extends MatchedBody, U exte
 
     protected final V poolDAO;
 
+    /**
+     * Store answering the group statistics instead of the pool DAO, null if the DAO is queried.
+     */
+    private GroupStatisticsStore groupStatistics;
+
     /**
      * Constructor with body pool DAO initialization.
      *
@@ -46,6 +51,20 @@ public abstract class BaseBodiesPoolMatchingPlugin<T extends MatchedBody, U exte
         this.poolDAO = poolDAO;
     }
 
+    /**
+     * Sets the store which answers statistics of the groups compared when several bodies have the best similarity.
+     * The store has to hold the statistics of the same groups as the pool DAO returns.
+     *
+     * @param groupStatistics
+     *      group statistics store, null to query the pool DAO
+     * @return this instance for chaining
+     */
+    public final BaseBodiesPoolMatchingPlugin<T, U, V> setGroupStatistics(
+        final GroupStatisticsStore groupStatistics) {
+        this.groupStatistics = groupStatistics;
+        return this;
+    }
+
     @Override
     public final MatchingResult match(final T item) {
         final MatchingResult matchingResult = new MatchingResult();
@@ -58,7 +77,7 @@ public abstract class BaseBodiesPoolMatchingPlugin<T extends MatchedBody, U exte
             Map<U, Float> similarities = getSimiliraties(item, matchedPoolBodies);
 
             if (!similarities.isEmpty()) {
-                final Map.Entry<U, Float> best = getBest(similarities);
+                final Map.Entry<U, Float> best = getBest(similarities, matchingResult);
                 MatchedBody bestMatchedBody = bestToMatchedBody(best.getKey());
 
                 HashMap<String, Object> meta = new HashMap<>();
@@ -112,9 +131,12 @@ public abstract class BaseBodiesPoolMatchingPlugin<T extends MatchedBody, U exte
      *
      * @param similarities
      *      similarities
+     * @param matchingResult
+     *      matching result, ids of the compared groups are set in case the best similarity is picked by the groups
+     *      info
      * @return best similarity
      */
-    private Map.Entry<U, Float> getBest(final Map<U, Float> similarities) {
+    private Map.Entry<U, Float> getBest(final Map<U, Float> similarities, final MatchingResult matchingResult) {
         if (similarities == null) {
             return null;
         }
@@ -140,7 +162,10 @@ public abstract class BaseBodiesPoolMatchingPlugin<T extends MatchedBody, U exte
                 return max.get(0);
             }
 
-            List<MatchedGroupInfo> info = poolDAO.getGroupsInfo(Arrays.asList(byGroups.keySet().toArray()));
+            final List<String> candidateGroupIds = new ArrayList<>(byGroups.keySet());
+            List<MatchedGroupInfo> info = groupStatistics != null
+                ? groupStatistics.getGroupsInfo(candidateGroupIds) : poolDAO.getGroupsInfo(candidateGroupIds);
+            matchingResult.setCandidateGroupIds(candidateGroupIds);
 
             List<MatchedGroupInfo> bestGroups = getGroupsWithHighestScore(info);
 
@@ -1,10 +1,15 @@
 package eu.dl.worker.matched.plugin;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.cache2k.Cache;
-import org.cache2k.Cache2kBuilder;
-
+import eu.dl.core.cache.Cache;
+import eu.dl.core.cache.CacheFactory;
+import eu.dl.core.cache.CacheSettings;
 import eu.dl.dataaccess.dao.ManualMatchDAO;
 import eu.dl.dataaccess.dto.matched.ManualMatch;
 import eu.dl.dataaccess.dto.matched.ManuallyMatchable;
@@ -15,26 +20,63 @@ import org.slf4j.LoggerFactory;
  * This plugin checks, whether there are some manual fixes entered for the
  * particular CleanBody.
  *
+ * The manual matches are streamed to the cache (full hash to group id) once, then the matches modified since the last
+ * refresh are applied every refresh interval, so the manual fixes take effect without restarting the matcher. The
+ * refresh is done by the thread which matches the first item after the interval elapsed. The modification time is
+ * set by the database on each insert and update of the match (see migration 009_manual_match_modified_trigger.sql).
+ *
  * @param <T>
  *
  */
 public class ManualMatchingPlugin<T extends ManuallyMatchable> implements MatchingPlugin<T> {
-    
+
     protected final Logger logger = LoggerFactory.getLogger(this.getClass().getName());
 
     private ManualMatchDAO manualMatchDao;
 
     private static final String MATCHED_BY = "manual";
 
+    /**
+     * Default interval between two refreshes of the manual matches.
+     */
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofMinutes(1);
+
+    /**
+     * The match modified before the latest seen modification time may become visible later, when its transaction
+     * commits. The refresh reads this much older matches again.
+     */
+    private static final Duration COMMIT_LAG = Duration.ofMinutes(1);
+
+    /**
+     * Number of the matches written to the cache at once.
+     */
+    private static final int CACHE_BATCH_SIZE = 1000;
+
     private String flag = "";
 
-    protected final Cache<String, String> cache; 
-	
+    protected final Cache cache;
+
+    /**
+     * Interval between two refreshes in nanoseconds, negative if the matches aren't refreshed.
+     */
+    private final long refreshInterval;
+
+    /**
+     * {@link System#nanoTime()} of the next refresh.
+     */
+    private final AtomicLong nextRefresh = new AtomicLong();
+
+    /**
+     * The latest modification time of the loaded matches.
+     */
+    private LocalDateTime watermark = LocalDateTime.of(1970, 1, 1, 0, 0);
+
     /**
      * No default constructor.
      */
     protected ManualMatchingPlugin() {
     		cache = null;
+        refreshInterval = -1;
         // no default constructor allowed here
     }
 
@@ -46,24 +88,56 @@ public class ManualMatchingPlugin<T extends ManuallyMatchable> implements Matchi
      * @param flag
      *            flag/type used to identify item
      * @param dao
-     *           dao providing access to manual matches 
+     *           dao providing access to manual matches
      */
     public ManualMatchingPlugin(final ManualMatchDAO dao, final String flag) {
+        this(dao, flag, DEFAULT_REFRESH_INTERVAL);
+    }
+
+    /**
+     * Plugin with the given refresh interval of the manual matches.
+     *
+     * @param flag
+     *            flag/type used to identify item
+     * @param dao
+     *           dao providing access to manual matches
+     * @param refreshInterval
+     *           interval between two refreshes of the manual matches, null if they are loaded only once
+     */
+    public ManualMatchingPlugin(final ManualMatchDAO dao, final String flag, final Duration refreshInterval) {
+        this(dao, flag, CacheFactory.getCache("manualMatchCache_" + flag,
+            new CacheSettings().setImplementation("compact")), refreshInterval);
+    }
+
+    /**
+     * Plugin storing the manual matches to the given cache.
+     *
+     * @param flag
+     *            flag/type used to identify item
+     * @param dao
+     *           dao providing access to manual matches
+     * @param cache
+     *           cache of the group ids by full hashes
+     * @param refreshInterval
+     *           interval between two refreshes of the manual matches, null if they are loaded only once
+     */
+    public ManualMatchingPlugin(final ManualMatchDAO dao, final String flag, final Cache cache,
+                                final Duration refreshInterval) {
         this.manualMatchDao = dao;
         this.flag = flag;
-        cache = new Cache2kBuilder<String, String>() {}
-			.name("manualMatchCache_" + flag)
-			.eternal(true)
-			.entryCapacity(20000000)
-			.build();
+        this.cache = cache;
+        this.refreshInterval = refreshInterval == null ? -1 : refreshInterval.toNanos();
         populateCache();
+        nextRefresh.set(System.nanoTime() + this.refreshInterval);
     }
 
 	@Override
     public final MatchingResult match(final T item) {
+        refreshIfDue();
+
         MatchingResult matchingResult = new MatchingResult();
 //        logger.i("Number of matched groups whitch includes etalon is greather then 1. {}", groupIds);
-        String groupId = cache.peek(item.getFullHash());
+        String groupId = cache.get(item.getFullHash());
         if (groupId != null) {
             // the same hash found, storing into the same group
             matchingResult.setGroupId(groupId);
@@ -73,16 +147,72 @@ public class ManualMatchingPlugin<T extends ManuallyMatchable> implements Matchi
 
         return matchingResult;
     }
-	
+
+    /**
+     * Applies the manual matches modified since the last refresh (or the initial load) to the cache.
+     *
+     * @return number of the applied matches
+     */
+    public final synchronized int refresh() {
+        final List<ManualMatch> modified = manualMatchDao.getModifiedSince(flag, watermark.minus(COMMIT_LAG));
+        if (modified == null || modified.isEmpty()) {
+            return 0;
+        }
+
+        // the matches are ordered by modification time, so the latest match of the hash wins
+        final Map<String, String> batch = new HashMap<>();
+        for (ManualMatch match : modified) {
+            batch.put(match.getFullHash(), match.getGroupId());
+            updateWatermark(match);
+        }
+        cache.putAll(batch);
+
+        logger.debug("Manual matches refreshed, {} matches modified since {}", modified.size(), watermark);
+        return modified.size();
+    }
+
+    /**
+     * Refreshes the manual matches in case the refresh interval elapsed. Only one of the concurrently matching
+     * threads does the refresh.
+     */
+    private void refreshIfDue() {
+        if (refreshInterval < 0) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+        final long next = nextRefresh.get();
+        if (now - next >= 0 && nextRefresh.compareAndSet(next, now + refreshInterval)) {
+            refresh();
+        }
+    }
+
 	/**
-	 * Populates cache with already stored results.
+	 * Populates cache with already stored results. The matches are streamed, so they needn't fit in memory.
 	 */
-	private void populateCache() {
-        List<ManualMatch> manuallyEntered = manualMatchDao.getAllEntries(this.flag);
-        if (manuallyEntered != null && !manuallyEntered.isEmpty()) {
-        		for (ManualMatch match : manuallyEntered) {
-        			cache.put(match.getFullHash(), match.getGroupId());
-        		}
-        }
+	private synchronized void populateCache() {
+        final Map<String, String> batch = new HashMap<>();
+        manualMatchDao.forEachEntry(this.flag, m -> {
+            ManualMatch match = (ManualMatch) m;
+            batch.put(match.getFullHash(), match.getGroupId());
+            updateWatermark(match);
+            if (batch.size() == CACHE_BATCH_SIZE) {
+                cache.putAll(batch);
+                batch.clear();
+            }
+        });
+        cache.putAll(batch);
 	}
+
+    /**
+     * Moves the watermark to the modification time of the match in case it is later.
+     *
+     * @param match
+     *      loaded match
+     */
+    private void updateWatermark(final ManualMatch match) {
+        if (match.getModified() != null && match.getModified().isAfter(watermark)) {
+            watermark = match.getModified();
+        }
+    }
 }
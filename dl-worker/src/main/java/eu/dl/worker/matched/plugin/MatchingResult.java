@@ -1,6 +1,7 @@
 package eu.dl.worker.matched.plugin;
 
 import java.util.HashMap;
+import java.util.List;
 
 import eu.dl.dataaccess.dto.matched.MatchedBody;
 
@@ -21,6 +22,8 @@ public class MatchingResult {
     
     private HashMap<String, Object> metaData;
 
+    private List<String> candidateGroupIds;
+
     /**
      * @return the bodyId
      */
@@ -109,4 +112,22 @@ public class MatchingResult {
 	public final void setMatchedBody(final MatchedBody matchedBody) {
 		this.matchedBody = matchedBody;
 	}
+
+    /**
+     * Ids of the groups whose state decided the result. The plugin sets them when equally scored candidates from
+     * several groups have been found and the best one has been picked by the group properties (eg. size).
+     *
+     * @return ids of the compared groups or null if the result doesn't depend on the groups state
+     */
+    public final List<String> getCandidateGroupIds() {
+        return candidateGroupIds;
+    }
+
+    /**
+     * @param candidateGroupIds
+     *            ids of the compared groups
+     */
+    public final void setCandidateGroupIds(final List<String> candidateGroupIds) {
+        this.candidateGroupIds = candidateGroupIds;
+    }
 }
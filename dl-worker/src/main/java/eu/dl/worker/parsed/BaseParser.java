@@ -52,7 +52,7 @@ public abstract class BaseParser<V extends Raw, T extends Parsable> extends Base
         int counter = 1;
         String rawPersistentId = rawItem.getPersistentId();
         
-        // send messages about processed items
+        // prepare processed items for saving
         for (T parsedTender : processedParsedItems) {
             parsedTender.setRawObjectId(rawItemId);
             
@@ -68,12 +68,15 @@ public abstract class BaseParser<V extends Raw, T extends Parsable> extends Base
                 parsedTender.setProcessingOrder(rawItem.getCreated().format(formatter));
             }
 
-            getTransactionUtils().begin();
-            final String parsedId = parsedDao.save(parsedTender);
-            getTransactionUtils().commit();
-            createAndPublishMessage(parsedId);
         }
 
+        // save all the parsed items at once
+        getTransactionUtils().begin();
+        final List<String> parsedIds = parsedDao.saveAll(processedParsedItems);
+        getTransactionUtils().commit();
+
+        // send messages about processed items
+        parsedIds.forEach(this::createAndPublishMessage);
     }
 
     @Override
@@ -87,13 +90,14 @@ public abstract class BaseParser<V extends Raw, T extends Parsable> extends Base
                 resendVersion = getVersion();
             }
 
-            final List<T> items = parsedDao.getMine(getName(), resendVersion, dateFrom, dateTo);
-
-            for (final Parsable item : items) {
+            // ids are streamed from the database, so that all of them needn't be held in memory
+            parsedDao.forEachMineId(getName(), resendVersion, dateFrom, dateTo, id -> {
                 final Message outgoingMessage = MessageFactory.getMessage();
-                outgoingMessage.setValue("id", item.getId());
+                outgoingMessage.setValue("id", id);
                 publishMessage(outgoingMessage);
-            }
+                // resend doesn't write anything, the messages needn't wait for the commit
+                flushOutgoingMessagesIfFull();
+            });
         } catch (final Exception ex) {
             logger.error("Unable to resend messages for cleaning {}", ex);
             throw new UnrecoverableException("Unable to resend messages for cleaning", ex);
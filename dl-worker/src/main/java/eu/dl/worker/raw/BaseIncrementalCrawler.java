@@ -36,6 +36,7 @@ public abstract class BaseIncrementalCrawler extends BaseCrawler {
                 crawlSourceForDate(actualDate);
                 crawlerAuditDao.updateLastCrawledDateForCrawler(actualDate);
                 actualDate = actualDate.plus(1, getIncrementUnit());
+                // the messages of the crawled date are published and confirmed with the commit
                 getTransactionUtils().commit();
             }
             finalCleanup();
@@ -56,27 +56,29 @@ public abstract class BaseDownloader<T extends Raw> extends BaseRawWorker {
         // download and populate raw data (there might me more records at once => list of raw data objects)
         final List<T> rawData = downloadAndPopulateRawData(message);
 
-        // save all the stuff
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSSSS");
         for (T rawDataItem : rawData) {
-            getTransactionUtils().begin();
-
             // generate persistent id if not already set by the worker logic
             if (rawDataItem.getPersistentId() == null) {
                 rawDataItem.setPersistentId(generatePersistentId(rawDataItem, getSourceId()));
             }
 
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSSSS");
             rawDataItem.setProcessingOrder(Timestamp.valueOf(LocalDateTime.now()).toLocalDateTime().format(formatter));
-            final String savedId = rawDao.save(rawDataItem);
-            getTransactionUtils().commit();
-            logger.info("Stored raw data as {}", savedId);
+        }
+
+        // save all the stuff at once
+        getTransactionUtils().begin();
+        final List<String> savedIds = rawDao.saveAll(rawData);
+        getTransactionUtils().commit();
+        logger.info("Stored raw data as {}", savedIds);
 
+        for (int i = 0; i < rawData.size(); i++) {
             // post-processing, doesn't affect raw record
-            postProcess(rawDataItem);
+            postProcess(rawData.get(i));
 
             // create and publish message with saved id
             final Message outgoingMessage = MessageFactory.getMessage();
-            outgoingMessage.setValue("id", savedId);
+            outgoingMessage.setValue("id", savedIds.get(i));
             publishMessage(outgoingMessage);
         }
     }
@@ -92,13 +94,14 @@ public abstract class BaseDownloader<T extends Raw> extends BaseRawWorker {
                 resendVersion = getVersion();
             }
 
-            final List<T> rawDataItems = getRawDataDao().getMine(getName(), resendVersion, dateFrom, dateTo);
-
-            for (final T rawDataItem : rawDataItems) {
+            // ids are streamed from the database, so that all of them needn't be held in memory
+            getRawDataDao().forEachMineId(getName(), resendVersion, dateFrom, dateTo, id -> {
                 final Message outgoingMessage = MessageFactory.getMessage();
-                outgoingMessage.setValue("id", rawDataItem.getId());
+                outgoingMessage.setValue("id", id);
                 publishMessage(outgoingMessage);
-            }
+                // resend doesn't write anything, the messages needn't wait for the commit
+                flushOutgoingMessagesIfFull();
+            });
         } catch (final Exception ex) {
             logger.error("Unable to resend messages for parsing {}", ex);
             throw new UnrecoverableException("Unable to resend messages for parsing", ex);
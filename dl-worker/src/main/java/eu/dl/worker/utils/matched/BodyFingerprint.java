@@ -0,0 +1,193 @@
+package eu.dl.worker.utils.matched;
+
+import java.util.Arrays;
+import java.util.List;
+
+import eu.dl.dataaccess.dto.matched.ApproximatellyMatchable;
+
+/**
+ * Precomputed representation of the body attributes compared by the approximate matching. The strings are
+ * tokenized only once when the fingerprint is created, so each comparison of two fingerprints done by
+ * {@link SimilarityScorer} works on the prepared arrays only. The instances are immutable.
+ */
+public final class BodyFingerprint {
+
+    private final Text name;
+
+    private final Text address;
+
+    private final String postcode;
+
+    private final String[] nuts;
+
+    /**
+     * Trigrams of one string. Each trigram is packed into a long as three 16 bit characters, the string is prefixed
+     * with two zero characters in the same way as in {@link org.apache.lucene.search.spell.NGramDistance}, so the
+     * string of length {@code l} has exactly {@code l} trigrams.
+     */
+    public static final class Text {
+
+        private final String value;
+
+        /**
+         * Trigrams in order of their positions in the string.
+         */
+        private final long[] grams;
+
+        /**
+         * The same trigrams sorted, used for counting of the shared trigrams by merging.
+         */
+        private final long[] sortedGrams;
+
+        /**
+         * @param value
+         *      not null string
+         */
+        private Text(final String value) {
+            this.value = value;
+            this.grams = new long[value.length()];
+
+            char c0 = 0;
+            char c1 = 0;
+            for (int i = 0; i < value.length(); i++) {
+                final char c2 = value.charAt(i);
+                grams[i] = pack(c0, c1, c2);
+                c0 = c1;
+                c1 = c2;
+            }
+
+            this.sortedGrams = grams.clone();
+            Arrays.sort(sortedGrams);
+        }
+
+        /**
+         * @param value
+         *      string, may be null
+         * @return trigrams of the string or null for null string
+         */
+        public static Text of(final String value) {
+            return value == null ? null : new Text(value);
+        }
+
+        /**
+         * @return original string
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * @return length of the original string
+         */
+        public int length() {
+            return grams.length;
+        }
+
+        /**
+         * @param i
+         *      position of the trigram, the trigram ends with the character on the same position
+         * @return packed trigram
+         */
+        long gram(final int i) {
+            return grams[i];
+        }
+
+        /**
+         * Counts the trigrams shared by both strings, each trigram is counted as many times as it occurs in the string
+         * with less occurrences. Merges the sorted trigrams of both strings.
+         *
+         * @param other
+         *      other string
+         * @return number of the shared trigrams
+         */
+        int countCommon(final Text other) {
+            final long[] a = sortedGrams;
+            final long[] b = other.sortedGrams;
+
+            int common = 0;
+            int i = 0;
+            int j = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    common++;
+                    i++;
+                    j++;
+                }
+            }
+
+            return common;
+        }
+
+        /**
+         * @param c0
+         *      first character
+         * @param c1
+         *      second character
+         * @param c2
+         *      third character
+         * @return packed trigram
+         */
+        private static long pack(final char c0, final char c1, final char c2) {
+            return ((long) c0 << 32) | ((long) c1 << 16) | c2;
+        }
+    }
+
+    /**
+     * @param name
+     *      standardized name, may be null
+     * @param address
+     *      standardized address, may be null
+     * @param postcode
+     *      postcode, may be null
+     * @param nuts
+     *      list of NUTS codes, may be null
+     */
+    public BodyFingerprint(final String name, final String address, final String postcode, final List<String> nuts) {
+        this.name = Text.of(name);
+        this.address = Text.of(address);
+        this.postcode = postcode;
+        this.nuts = nuts == null ? null : nuts.toArray(new String[0]);
+    }
+
+    /**
+     * @param body
+     *      body
+     * @return fingerprint of the body
+     */
+    public static BodyFingerprint of(final ApproximatellyMatchable body) {
+        return new BodyFingerprint(body.getStandardizedName(), body.getStandardizedAddress(), body.getPostcode(),
+            body.getNuts());
+    }
+
+    /**
+     * @return trigrams of the standardized name or null
+     */
+    public Text getName() {
+        return name;
+    }
+
+    /**
+     * @return trigrams of the standardized address or null
+     */
+    public Text getAddress() {
+        return address;
+    }
+
+    /**
+     * @return postcode or null
+     */
+    public String getPostcode() {
+        return postcode;
+    }
+
+    /**
+     * @return NUTS codes or null, the array is shared and mustn't be modified
+     */
+    String[] getNuts() {
+        return nuts;
+    }
+}
@@ -18,6 +18,11 @@ import eu.dl.dataaccess.dto.codetables.BodyIdentifier;
  * @author Tomas Mrazek
  */
 public final class MatchedUtils {
+
+    /**
+     * Trigram distance, the instance holds only the n-gram size and so can be shared.
+     */
+    private static final NGramDistance TRIGRAM_DISTANCE = new NGramDistance(3);
     
     /**
      * Suppress default constructor for noninstantiability.
@@ -98,7 +103,7 @@ public final class MatchedUtils {
      * @return similarity of strings
      */
     public static Float trigramSimilarity(final String source, final String target) {
-        return getSimilarity(source, target, (s, t) -> new NGramDistance(3).getDistance(s, t));
+        return getSimilarity(source, target, TRIGRAM_DISTANCE::getDistance);
     }
     
     /**
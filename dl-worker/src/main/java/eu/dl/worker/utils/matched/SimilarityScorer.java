@@ -0,0 +1,342 @@
+package eu.dl.worker.utils.matched;
+
+/**
+ * Computes similarities of the {@link BodyFingerprint}s. Each method returns exactly the same value as its string
+ * counterpart in {@link MatchedUtils}, but it works on the precomputed trigrams and reuses its own buffers, so no
+ * objects are allocated during the comparison.
+ *
+ * The trigram similarity follows the dynamic programming of {@link org.apache.lucene.search.spell.NGramDistance}
+ * step by step (including the order of float operations), only the cost of aligning two trigrams is computed from the
+ * packed trigrams at once. The instances aren't thread-safe, each thread should use its own scorer.
+ */
+public final class SimilarityScorer {
+
+    private static final int N = 3;
+
+    /**
+     * Similarity of the pair with null value.
+     */
+    private static final float NULL_SIMILARITY = 0.5f;
+
+    /**
+     * Mask of the lowest 15 bits of each packed character.
+     */
+    private static final long LOW_BITS = 0x7FFF7FFF7FFFL;
+
+    /**
+     * Mask of the highest bit of each packed character.
+     */
+    private static final long HIGH_BITS = 0x800080008000L;
+
+    /**
+     * Cost of aligning two trigrams indexed by {@code different * (N + 1) + compared}, where {@code different} is
+     * number of different characters and {@code compared} number of characters which aren't padding in both trigrams.
+     * The values are computed by the same expression as in the NGramDistance.
+     */
+    private static final float[] ALIGN_COSTS = new float[(N + 1) * (N + 1)];
+
+    static {
+        for (int different = 0; different <= N; different++) {
+            for (int compared = 0; compared <= N; compared++) {
+                ALIGN_COSTS[different * (N + 1) + compared] = (float) different / compared;
+            }
+        }
+    }
+
+    private float[] previousCosts = new float[0];
+
+    private float[] currentCosts = new float[0];
+
+    private int[] previousDistances = new int[0];
+
+    private int[] currentDistances = new int[0];
+
+    /**
+     * Computes trigram similarity of two strings.
+     *
+     * @see MatchedUtils#trigramSimilarity(String, String)
+     *
+     * @param source
+     *      source string trigrams, may be null
+     * @param target
+     *      target string trigrams, may be null
+     * @return similarity of strings
+     */
+    public float trigramSimilarity(final BodyFingerprint.Text source, final BodyFingerprint.Text target) {
+        if (source == null || target == null) {
+            return NULL_SIMILARITY;
+        } else if (source.getValue().equals(target.getValue())) {
+            return 1f;
+        }
+
+        // MatchedUtils passes the strings to NGramDistance in the reverse order
+        return trigramDistance(target, source);
+    }
+
+    /**
+     * Returns upper bound of trigram similarity of two strings without computing the similarity itself, so the
+     * expensive trigram distance has to be computed only for the strings which can reach the required similarity. The
+     * shared trigrams are counted by merging of the sorted trigrams.
+     *
+     * @param source
+     *      source string trigrams, may be null
+     * @param target
+     *      target string trigrams, may be null
+     * @return upper bound of similarity
+     */
+    public static float trigramUpperBound(final BodyFingerprint.Text source, final BodyFingerprint.Text target) {
+        if (source == null || target == null) {
+            return NULL_SIMILARITY;
+        }
+
+        return trigramUpperBound(source.length(), target.length(), source.countCommon(target));
+    }
+
+    /**
+     * Returns upper bound of trigram similarity of two not null strings. The bound follows from the
+     * {@link org.apache.lucene.search.spell.NGramDistance} definition. Each alignment of two strings needs at least
+     * {@code |sl - tl|} insertions or deletions (cost 1 each) and each of the remaining aligned trigrams that isn't
+     * shared by both strings costs at least {@code 1/3}. Strings shorter than three characters are compared char by
+     * char, so only the length bound is applied for them.
+     *
+     * @param sourceLength
+     *      length of the first string
+     * @param targetLength
+     *      length of the second string
+     * @param common
+     *      number of trigrams shared by both strings
+     * @return upper bound of similarity
+     */
+    static float trigramUpperBound(final int sourceLength, final int targetLength, final int common) {
+        final int max = Math.max(sourceLength, targetLength);
+        final int min = Math.min(sourceLength, targetLength);
+
+        if (max == 0) {
+            return 1f;
+        } else if (min < N) {
+            return (float) min / max;
+        }
+
+        return 1f - (max - min + Math.max(0, min - common) / (float) N) / max;
+    }
+
+    /**
+     * Computes similarity of two strings which differ at most in one character.
+     *
+     * @see MatchedUtils#oneDigitSimilarity(String, String)
+     *
+     * @param source
+     *      source string, may be null
+     * @param target
+     *      target string, may be null
+     * @return similarity of strings
+     */
+    public float oneDigitSimilarity(final String source, final String target) {
+        if (source == null || target == null) {
+            return NULL_SIMILARITY;
+        } else if (source.equals(target)) {
+            return 1f;
+        }
+
+        final float similarity = levensteinSimilarity(target, target.length(), source, source.length());
+        final int distance = Math.round(Math.max(source.length(), target.length()) * (1 - similarity));
+
+        if (distance == 0) {
+            return 1f;
+        } else if (distance == 1) {
+            return 0.8f;
+        }
+
+        return 0f;
+    }
+
+    /**
+     * Computes similarities of each NUTS code of the {@code source} with each NUTS code of the {@code target} and
+     * returns the best one.
+     *
+     * @see MatchedUtils#nutsSimilarities(String, java.util.List, int)
+     *
+     * @param source
+     *      origin fingerprint
+     * @param target
+     *      fingerprint which is compared with {@code source}
+     * @param cropNuts
+     *      number of the most left characters of nuts used for matching, if is 0 orginal codes are comapred
+     * @return best similarity, 0.5 if some of the fingerprints hasn't NUTS codes, 0 if there is nothing to compare
+     */
+    public float bestNutsSimilarity(final BodyFingerprint source, final BodyFingerprint target, final int cropNuts) {
+        final String[] sourceNuts = source.getNuts();
+        final String[] targetNuts = target.getNuts();
+        if (sourceNuts == null || targetNuts == null) {
+            return NULL_SIMILARITY;
+        }
+
+        boolean compared = false;
+        float best = 0f;
+        for (String code : sourceNuts) {
+            if (code == null) {
+                best = compared ? Math.max(best, NULL_SIMILARITY) : NULL_SIMILARITY;
+                compared = true;
+                continue;
+            }
+
+            for (String other : targetNuts) {
+                final float similarity;
+                if (other == null) {
+                    similarity = NULL_SIMILARITY;
+                } else if (code.equals(other)) {
+                    similarity = 1f;
+                } else {
+                    // MatchedUtils passes the codes to the comparison in the reverse order
+                    similarity = nutsSimilarity(other, code, cropNuts);
+                }
+
+                best = compared ? Math.max(best, similarity) : similarity;
+                compared = true;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * @param s
+     *      first NUTS code
+     * @param t
+     *      second NUTS code
+     * @param cropNuts
+     *      number of the most left characters of nuts used for matching, if is 0 orginal codes are comapred
+     * @return similarity of not equal NUTS codes
+     */
+    private float nutsSimilarity(final String s, final String t, final int cropNuts) {
+        final float similarity = levensteinSimilarity(
+            s, cropNuts > 0 ? Math.min(s.length(), cropNuts) : s.length(),
+            t, cropNuts > 0 ? Math.min(t.length(), cropNuts) : t.length());
+
+        final int distance = Math.round(Math.max(s.length(), t.length()) * (1 - similarity));
+
+        if (distance == 0) {
+            return 1f;
+        } else if (distance == 1 && s.length() == 5 && t.regionMatches(0, s, 0, 4)) {
+            return 0.8f;
+        }
+
+        return 0f;
+    }
+
+    /**
+     * Computes trigram similarity in the same way as {@link org.apache.lucene.search.spell.NGramDistance}.
+     *
+     * @param source
+     *      source string trigrams
+     * @param target
+     *      target string trigrams
+     * @return similarity
+     */
+    private float trigramDistance(final BodyFingerprint.Text source, final BodyFingerprint.Text target) {
+        final int sl = source.length();
+        final int tl = target.length();
+
+        if (sl == 0 || tl == 0) {
+            return sl == tl ? 1 : 0;
+        }
+
+        if (sl < N || tl < N) {
+            int cost = 0;
+            for (int i = 0, ni = Math.min(sl, tl); i < ni; i++) {
+                if (source.getValue().charAt(i) == target.getValue().charAt(i)) {
+                    cost++;
+                }
+            }
+            return (float) cost / Math.max(sl, tl);
+        }
+
+        if (previousCosts.length <= sl) {
+            previousCosts = new float[sl + 1];
+            currentCosts = new float[sl + 1];
+        }
+
+        float[] p = previousCosts;
+        float[] d = currentCosts;
+
+        for (int i = 0; i <= sl; i++) {
+            p[i] = i;
+        }
+
+        for (int j = 1; j <= tl; j++) {
+            final long t = target.gram(j - 1);
+            d[0] = j;
+            for (int i = 1; i <= sl; i++) {
+                final long s = source.gram(i - 1);
+                final float ec = ALIGN_COSTS[countChars(s ^ t) * (N + 1) + countChars(s | t)];
+                d[i] = Math.min(Math.min(d[i - 1] + 1, p[i] + 1), p[i - 1] + ec);
+            }
+
+            final float[] swap = p;
+            p = d;
+            d = swap;
+        }
+
+        return 1.0f - (p[sl] / Math.max(tl, sl));
+    }
+
+    /**
+     * Computes Levenshtein similarity of the prefixes of two strings in the same way as
+     * {@link org.apache.lucene.search.spell.LevensteinDistance}.
+     *
+     * @param source
+     *      source string
+     * @param sl
+     *      length of the source prefix
+     * @param target
+     *      target string
+     * @param tl
+     *      length of the target prefix
+     * @return similarity
+     */
+    private float levensteinSimilarity(final String source, final int sl, final String target, final int tl) {
+        if (sl == 0 || tl == 0) {
+            return sl == tl ? 1 : 0;
+        }
+
+        if (previousDistances.length <= sl) {
+            previousDistances = new int[sl + 1];
+            currentDistances = new int[sl + 1];
+        }
+
+        int[] p = previousDistances;
+        int[] d = currentDistances;
+
+        for (int i = 0; i <= sl; i++) {
+            p[i] = i;
+        }
+
+        for (int j = 1; j <= tl; j++) {
+            final char t = target.charAt(j - 1);
+            d[0] = j;
+            for (int i = 1; i <= sl; i++) {
+                final int cost = source.charAt(i - 1) == t ? 0 : 1;
+                d[i] = Math.min(Math.min(d[i - 1] + 1, p[i] + 1), p[i - 1] + cost);
+            }
+
+            final int[] swap = p;
+            p = d;
+            d = swap;
+        }
+
+        return 1.0f - ((float) p[sl] / Math.max(tl, sl));
+    }
+
+    /**
+     * Counts not zero characters of the packed trigram. The highest bit of each character is set if any of its bits
+     * is set (adding the lower bits to the mask carries into the highest bit), so all three characters are tested at
+     * once.
+     *
+     * @param packed
+     *      packed trigram
+     * @return number of not zero characters
+     */
+    private static int countChars(final long packed) {
+        return Long.bitCount((((packed & LOW_BITS) + LOW_BITS) | packed) & HIGH_BITS);
+    }
+}
@@ -0,0 +1,114 @@
+package eu.dl.worker.utils.matched;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted trigram index of strings. For the given query the index returns upper bound of
+ * {@link MatchedUtils#trigramSimilarity(String, String)} for each indexed string without computing the similarity
+ * itself, so the expensive trigram distance has to be computed only for the strings which can reach the required
+ * similarity. The trigrams shared by the query and all the indexed strings are counted at once from the posting lists
+ * of the query trigrams, the bound itself is {@link SimilarityScorer#trigramUpperBound(BodyFingerprint.Text,
+ * BodyFingerprint.Text)}.
+ *
+ * The index is filled incrementally, each added string gets its position as identifier. Adding isn't thread-safe,
+ * the filled index can be queried by several threads.
+ */
+public final class TrigramIndex {
+
+    private static final int N = 3;
+
+    /**
+     * Similarity of the pair with null string.
+     */
+    private static final float NULL_SIMILARITY = 0.5f;
+
+    /**
+     * Trigram -> list of {index of string, number of occurrences of the trigram in the string}.
+     */
+    private final Map<Long, List<int[]>> postings = new HashMap<>();
+
+    private final List<BodyFingerprint.Text> texts = new ArrayList<>();
+
+    /**
+     * Adds string to the index.
+     *
+     * @param text
+     *      trigrams of the indexed string, may be null
+     * @return identifier of the string, i.e. its position in the index
+     */
+    public int add(final BodyFingerprint.Text text) {
+        final int id = texts.size();
+        texts.add(text);
+
+        if (text != null && text.length() >= N) {
+            getTrigrams(text).forEach((trigram, count) ->
+                postings.computeIfAbsent(trigram, k -> new ArrayList<>(1)).add(new int[]{id, count}));
+        }
+
+        return id;
+    }
+
+    /**
+     * @return number of the indexed strings
+     */
+    public int size() {
+        return texts.size();
+    }
+
+    /**
+     * Returns upper bounds of trigram similarity of the given query with each indexed string.
+     *
+     * @param query
+     *      trigrams of the query string, may be null
+     * @return array of upper bounds indexed by string identifiers
+     */
+    public float[] getUpperBounds(final BodyFingerprint.Text query) {
+        final float[] bounds = new float[texts.size()];
+        if (query == null) {
+            Arrays.fill(bounds, NULL_SIMILARITY);
+            return bounds;
+        }
+
+        // number of trigrams shared by the query and each indexed string
+        final int[] common = new int[texts.size()];
+        if (query.length() >= N) {
+            getTrigrams(query).forEach((trigram, count) -> {
+                List<int[]> list = postings.get(trigram);
+                if (list != null) {
+                    list.forEach(p -> common[p[0]] += Math.min(p[1], count));
+                }
+            });
+        }
+
+        for (int i = 0; i < bounds.length; i++) {
+            BodyFingerprint.Text text = texts.get(i);
+            if (text == null) {
+                bounds[i] = NULL_SIMILARITY;
+            } else {
+                bounds[i] = SimilarityScorer.trigramUpperBound(query.length(), text.length(), common[i]);
+            }
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Returns trigrams of the given string with their number of occurrences.
+     *
+     * @param text
+     *      trigrams of the string
+     * @return trigram counts
+     */
+    private static Map<Long, Integer> getTrigrams(final BodyFingerprint.Text text) {
+        final Map<Long, Integer> trigrams = new HashMap<>();
+        for (int i = 0; i < text.length(); i++) {
+            trigrams.merge(text.gram(i), 1, Integer::sum);
+        }
+
+        return trigrams;
+    }
+}
@@ -0,0 +1,324 @@
+package eu.dl.utils.currency;
+
+import eu.dl.dataaccess.dao.DummyTransactionUtils;
+import eu.dl.dataaccess.dao.ExchangeRatesDAO;
+import eu.dl.dataaccess.dto.ExchangeRates;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test of the currency service with the rates stored in memory and the offline rate source.
+ */
+public final class BasicCurrencyServiceTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    private static final Currency CZK = Currency.getInstance("CZK");
+
+    private static final Currency GBP = Currency.getInstance("GBP");
+
+    /**
+     * Monday with stored rates.
+     */
+    private static final LocalDate MONDAY = LocalDate.of(2020, 3, 2);
+
+    /**
+     * In-memory exchange rates DAO.
+     */
+    private static final class Storage implements ExchangeRatesDAO<ExchangeRates> {
+        private final List<ExchangeRates> rates = new ArrayList<>();
+
+        private final AtomicInteger saves = new AtomicInteger();
+
+        /**
+         * Action run after the rates are read by {@link #findAll()}, before they are returned.
+         */
+        private Runnable afterRead = () -> { };
+
+        @Override
+        public ExchangeRates getById(final String id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ExchangeRates getByDate(final LocalDate date) {
+            throw new UnsupportedOperationException("The rates should be read at once");
+        }
+
+        @Override
+        public List<ExchangeRates> findAll() {
+            List<ExchangeRates> result;
+            synchronized (this) {
+                result = rates.stream().sorted(Comparator.comparing(ExchangeRates::getDate))
+                    .collect(Collectors.toList());
+            }
+            afterRead.run();
+            return result;
+        }
+
+        @Override
+        public synchronized String save(final ExchangeRates exchangeRates) {
+            saves.incrementAndGet();
+            rates.add(exchangeRates);
+            return exchangeRates.getDate().toString();
+        }
+    }
+
+    /**
+     * Conversions use the rates of the date, days without rates use the previous ones up to the retention period.
+     */
+    @Test
+    public void convertTest() {
+        Storage storage = new Storage();
+        // Monday to Friday
+        for (int i = 0; i < 5; i++) {
+            storage.rates.add(rates(MONDAY.plusDays(i), "25.1" + i, "0.8" + i));
+        }
+        BasicCurrencyService service = new BasicCurrencyService(storage, date -> null, new DummyTransactionUtils(), 0);
+
+        BigDecimal amount = new BigDecimal(1000);
+        assertEquals(amount.multiply(new BigDecimal("25.11")), service.convert(EUR, CZK, amount, MONDAY.plusDays(1)));
+        assertEquals(amount.divide(new BigDecimal("25.12"), 0, RoundingMode.HALF_EVEN),
+            service.convert(CZK, EUR, amount, MONDAY.plusDays(2)));
+        assertEquals(amount.divide(new BigDecimal("25.13"), 0, RoundingMode.HALF_EVEN).multiply(new BigDecimal("0.83")),
+            service.convert(CZK, GBP, amount, MONDAY.plusDays(3)));
+        assertEquals(amount, service.convert(CZK, CZK, amount, MONDAY));
+
+        // weekend uses the rates of Friday
+        assertEquals(amount.multiply(new BigDecimal("25.14")), service.convert(EUR, CZK, amount, MONDAY.plusDays(6)));
+        assertEquals(MONDAY.plusDays(4), service.getExchangeRates(MONDAY.plusDays(6)).getDate());
+
+        assertNull(service.getExchangeRates(MONDAY.minusDays(1)));
+        assertNull(service.getExchangeRates(MONDAY.plusDays(10)));
+        try {
+            service.convert(EUR, Currency.getInstance("USD"), amount, MONDAY);
+            fail("USD rate is missing");
+        } catch (UnconvertableException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Missing rates are downloaded in the background, the callers aren't blocked by the download and the rates are
+     * downloaded only once.
+     */
+    @Test
+    public void backgroundDownloadTest() throws Exception {
+        Storage storage = new Storage();
+        storage.rates.add(rates(MONDAY, "25.5", "0.85"));
+
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger downloads = new AtomicInteger();
+        ExchangeRateSource source = date -> {
+            downloads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rates(date, "26", "0.9");
+        };
+        BasicCurrencyService service = new BasicCurrencyService(storage, source, new DummyTransactionUtils(), 0);
+
+        LocalDate date = MONDAY.plusDays(30);
+        for (int i = 0; i < 10; i++) {
+            assertNull(service.getExchangeRates(date));
+            try {
+                service.convert(EUR, CZK, BigDecimal.ONE, date);
+                fail("The rates aren't downloaded yet");
+            } catch (ExchangeRatesPendingException e) {
+                // expected
+            }
+        }
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (service.getExchangeRates(date) == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(new BigDecimal("26"), service.convert(EUR, CZK, BigDecimal.ONE, date));
+        assertEquals(1, downloads.get());
+        assertEquals(1, storage.saves.get());
+
+        // blocking download doesn't download the stored rates again
+        assertNotNull(service.downloadExchangeRates(date));
+        assertEquals(1, downloads.get());
+    }
+
+    /**
+     * Refresh loads the rates stored by other workers, the conversions running meanwhile always see consistent rates.
+     */
+    @Test
+    public void refreshTest() throws Exception {
+        Storage storage = new Storage();
+        storage.rates.add(rates(MONDAY, "25", "0.8"));
+        BasicCurrencyService service = new BasicCurrencyService(storage, date -> null, new DummyTransactionUtils(), 0);
+
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    try {
+                        BigDecimal czk = service.convert(EUR, CZK, BigDecimal.ONE, MONDAY);
+                        BigDecimal gbp = service.convert(EUR, GBP, BigDecimal.ONE, MONDAY);
+                        assertTrue(czk.compareTo(new BigDecimal(25)) >= 0);
+                        assertNotNull(gbp);
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (int i = 1; i <= 50; i++) {
+            synchronized (storage) {
+                storage.rates.add(rates(MONDAY.plusDays(i), String.valueOf(25 + i), "0.8"));
+            }
+            service.refresh();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(new ArrayList<>(), failures);
+        assertEquals(new BigDecimal("75"), service.convert(EUR, CZK, BigDecimal.ONE, MONDAY.plusDays(50)));
+    }
+
+    /**
+     * Rates missing for a day within the retention period are downloaded, the rates of the previous day are used
+     * until then.
+     */
+    @Test
+    public void fallbackDownloadTest() throws Exception {
+        Storage storage = new Storage();
+        storage.rates.add(rates(MONDAY, "25", "0.8"));
+        BasicCurrencyService service = new BasicCurrencyService(storage, date -> rates(date, "27", "0.9"),
+            new DummyTransactionUtils(), 0);
+
+        LocalDate tuesday = MONDAY.plusDays(1);
+        assertEquals(new BigDecimal("25"), service.convert(EUR, CZK, BigDecimal.ONE, tuesday));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!tuesday.equals(service.getExchangeRates(tuesday).getDate()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(new BigDecimal("27"), service.convert(EUR, CZK, BigDecimal.ONE, tuesday));
+        assertEquals(1, storage.saves.get());
+    }
+
+    /**
+     * Conversions for the dates without rates are retried until the rate source answers, they fail for good once the
+     * source has no rates for the date. Failed downloads are requested again.
+     */
+    @Test
+    public void pendingDownloadTest() throws Exception {
+        Storage storage = new Storage();
+        storage.rates.add(rates(MONDAY, "25", "0.8"));
+
+        AtomicInteger downloads = new AtomicInteger();
+        LocalDate failing = MONDAY.plusDays(40);
+        ExchangeRateSource source = date -> {
+            if (downloads.incrementAndGet() == 1 && date.equals(failing)) {
+                throw new IllegalStateException("API unavailable");
+            }
+            return date.equals(failing) ? rates(date, "28", "0.9") : null;
+        };
+        BasicCurrencyService service = new BasicCurrencyService(storage, source, new DummyTransactionUtils(), 0);
+
+        try {
+            service.convert(EUR, CZK, BigDecimal.ONE, MONDAY.plusDays(1000000));
+            fail("There are no rates for the future dates");
+        } catch (UnconvertableException e) {
+            // expected
+        }
+
+        // the first download fails, the next conversion requests it again and gets the rates
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        BigDecimal converted = null;
+        while (converted == null && System.nanoTime() < deadline) {
+            try {
+                converted = service.convert(EUR, CZK, BigDecimal.ONE, failing);
+            } catch (ExchangeRatesPendingException e) {
+                Thread.sleep(10);
+            }
+        }
+        assertEquals(new BigDecimal("28"), converted);
+
+        // the source has no rates for the date, the conversion is retried until the source answers
+        LocalDate missing = MONDAY.plusDays(60);
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        boolean unconvertable = false;
+        while (!unconvertable && System.nanoTime() < deadline) {
+            try {
+                service.convert(EUR, CZK, BigDecimal.ONE, missing);
+                fail("The source has no rates for the date");
+            } catch (ExchangeRatesPendingException e) {
+                Thread.sleep(10);
+            } catch (UnconvertableException e) {
+                unconvertable = true;
+            }
+        }
+        assertTrue(unconvertable);
+        assertEquals(3, downloads.get());
+    }
+
+    /**
+     * Rates updated while the refresh loads the stored rates are kept in the refreshed store.
+     */
+    @Test
+    public void updateDuringRefreshTest() {
+        Storage storage = new Storage();
+        storage.rates.add(rates(MONDAY, "25", "0.8"));
+        BasicCurrencyService service = new BasicCurrencyService(storage, date -> null, new DummyTransactionUtils(), 0);
+
+        LocalDate tuesday = MONDAY.plusDays(1);
+        storage.afterRead = () -> service.updateExchangeRates(tuesday, rates(tuesday, "26", "0.8"));
+        service.refresh();
+        storage.afterRead = () -> { };
+
+        assertEquals(tuesday, service.getExchangeRates(tuesday).getDate());
+        assertEquals(new BigDecimal("26"), service.convert(EUR, CZK, BigDecimal.ONE, tuesday));
+    }
+
+    /**
+     * @param date
+     *      date
+     * @param czk
+     *      CZK rate
+     * @param gbp
+     *      GBP rate
+     * @return exchange rates with EUR base
+     */
+    private static ExchangeRates rates(final LocalDate date, final String czk, final String gbp) {
+        HashMap<String, BigDecimal> rates = new HashMap<>();
+        rates.put("EUR", BigDecimal.ONE);
+        rates.put("CZK", new BigDecimal(czk));
+        rates.put("GBP", new BigDecimal(gbp));
+        return new ExchangeRates().setDate(date).setBase("EUR").setRates(rates);
+    }
+}
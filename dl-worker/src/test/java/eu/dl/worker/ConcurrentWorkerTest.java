@@ -0,0 +1,229 @@
+package eu.dl.worker;
+
+import com.rabbitmq.client.ConnectionFactory;
+import eu.dl.core.config.Config;
+import eu.dl.dataaccess.dao.DummyTransactionUtils;
+import eu.dl.dataaccess.dao.TransactionUtils;
+import org.apache.logging.log4j.ThreadContext;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the concurrent consumption of the incoming queue by {@link BaseWorker}.
+ */
+public final class ConcurrentWorkerTest {
+
+    private static final int MESSAGES = 120;
+
+    /**
+     * Simulated duration of one piece of work (eg. database round trips) in milliseconds.
+     */
+    private static final long WORK_TIME = 10;
+
+    private static final long TIMEOUT = 60000;
+
+    /**
+     * Loads test configuration.
+     */
+    public ConcurrentWorkerTest() {
+        Config.getInstance().addConfigFile("unit_test");
+    }
+
+    /**
+     * Tests that all the messages are processed exactly once, acknowledged one by one and that each message is
+     * processed with its own thread context.
+     *
+     * @throws InterruptedException
+     *      if interrupted while waiting
+     */
+    @Test
+    public void allMessagesProcessedOnceTest() throws InterruptedException {
+        InProcessBroker broker = new InProcessBroker();
+        SleepingWorker worker = new SleepingWorker(4, broker);
+
+        run(worker, broker);
+
+        assertEquals(MESSAGES, worker.processed.size());
+        assertEquals(0, worker.duplicates.get());
+        assertEquals(MESSAGES, worker.messageIds.size());
+        assertEquals(MESSAGES, broker.getAcked());
+        assertEquals(0, broker.getNacked());
+        assertEquals(MESSAGES, broker.getPublished().size());
+        assertTrue(worker.threads.size() > 1);
+    }
+
+    /**
+     * Tests that the throughput grows with the number of consumer threads.
+     *
+     * @throws InterruptedException
+     *      if interrupted while waiting
+     */
+    @Test
+    public void throughputGrowsWithThreadsTest() throws InterruptedException {
+        InProcessBroker singleBroker = new InProcessBroker();
+        long single = run(new SleepingWorker(1, singleBroker), singleBroker);
+
+        InProcessBroker multiBroker = new InProcessBroker();
+        long multi = run(new SleepingWorker(4, multiBroker), multiBroker);
+
+        assertTrue("4 threads took " + multi + " ms, 1 thread took " + single + " ms", multi * 2 < single);
+    }
+
+    /**
+     * Tests that the waiting messages are processed in batches, each message exactly once, and that all of them are
+     * acknowledged.
+     *
+     * @throws InterruptedException
+     *      if interrupted while waiting
+     */
+    @Test
+    public void batchedMessagesTest() throws InterruptedException {
+        InProcessBroker broker = new InProcessBroker();
+        SleepingWorker worker = new SleepingWorker(2, broker);
+        worker.batchSize = 10;
+
+        run(worker, broker);
+
+        assertEquals(MESSAGES, worker.processed.size());
+        assertEquals(0, worker.duplicates.get());
+        assertEquals(MESSAGES, broker.getAcked());
+        assertEquals(0, broker.getNacked());
+        assertEquals(MESSAGES, broker.getPublished().size());
+        assertTrue(worker.maxBatch.get() > 1);
+        assertTrue(worker.maxBatch.get() <= 10);
+    }
+
+    /**
+     * Starts the worker, lets it process all the messages and stops the broker.
+     *
+     * @param worker
+     *      worker
+     * @param broker
+     *      broker stand-in
+     * @return processing time in milliseconds
+     * @throws InterruptedException
+     *      if interrupted while waiting
+     */
+    private static long run(final SleepingWorker worker, final InProcessBroker broker) throws InterruptedException {
+        for (int i = 0; i < MESSAGES; i++) {
+            broker.enqueue(MessageFactory.getMessage().setValue("id", String.valueOf(i)).toJson());
+        }
+
+        long start = System.currentTimeMillis();
+        worker.startWork();
+        assertTrue(broker.awaitHandled(MESSAGES, TIMEOUT));
+        long time = System.currentTimeMillis() - start;
+
+        broker.shutdown();
+
+        return time;
+    }
+
+    /**
+     * Ordering insensitive worker which simulates work by sleeping.
+     */
+    private static final class SleepingWorker extends BaseWorker {
+        private final int threadsCount;
+
+        private final InProcessBroker broker;
+
+        private final Set<String> processed = ConcurrentHashMap.newKeySet();
+
+        private final Set<String> messageIds = ConcurrentHashMap.newKeySet();
+
+        private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        private final AtomicInteger duplicates = new AtomicInteger();
+
+        private final AtomicInteger maxBatch = new AtomicInteger();
+
+        private int batchSize = 1;
+
+        /**
+         * @param threadsCount
+         *      number of consumer threads
+         * @param broker
+         *      broker stand-in
+         */
+        SleepingWorker(final int threadsCount, final InProcessBroker broker) {
+            this.threadsCount = threadsCount;
+            this.broker = broker;
+        }
+
+        @Override
+        protected int getThreadsCount() {
+            return threadsCount;
+        }
+
+        @Override
+        protected int getBatchSize() {
+            return batchSize;
+        }
+
+        @Override
+        protected void doWork(final List<Message> messages) {
+            maxBatch.accumulateAndGet(messages.size(), Math::max);
+            super.doWork(messages);
+        }
+
+        @Override
+        protected ConnectionFactory getConnectionFactory() {
+            return broker.getConnectionFactory();
+        }
+
+        @Override
+        protected void doWork(final Message message) {
+            messageIds.add(ThreadContext.get("message_id"));
+            threads.add(Thread.currentThread().getName());
+
+            try {
+                Thread.sleep(WORK_TIME);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (!processed.add(message.getValue("id"))) {
+                duplicates.incrementAndGet();
+            }
+
+            publishMessage(MessageFactory.getMessage().setValue("id", message.getValue("id")));
+        }
+
+        @Override
+        protected String getVersion() {
+            return "1";
+        }
+
+        @Override
+        protected String getIncomingQueueName() {
+            return "test";
+        }
+
+        @Override
+        protected String getOutgoingExchangeName() {
+            return "test_out";
+        }
+
+        @Override
+        protected String getIncomingExchangeName() {
+            return "test_in";
+        }
+
+        @Override
+        protected void resend(final String version, final String dateFrom, final String dateTo) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected TransactionUtils getTransactionUtils() {
+            return new DummyTransactionUtils();
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package eu.dl.worker;
+
+import com.rabbitmq.client.ConnectionFactory;
+import eu.dl.core.UnrecoverableException;
+import eu.dl.core.config.Config;
+import eu.dl.dataaccess.dao.DummyTransactionUtils;
+import eu.dl.dataaccess.dao.TransactionUtils;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the batched publishing with publisher confirms in {@link BaseWorker}.
+ */
+public final class ConfirmedPublishingTest {
+
+    private static final int MESSAGES = 30;
+
+    private static final int FAN_OUT = 40;
+
+    private static final long TIMEOUT = 60000;
+
+    /**
+     * Every n-th message fails in the failing worker.
+     */
+    private static final int FAILING_EVERY = 10;
+
+    /**
+     * Loads test configuration (small batches and small limit of unconfirmed messages for the test worker).
+     */
+    public ConfirmedPublishingTest() {
+        Config.getInstance().addConfigFile("unit_test");
+    }
+
+    /**
+     * Tests that all the fanned out messages are published and confirmed before the inbound message is acknowledged.
+     *
+     * @throws InterruptedException
+     *      if interrupted while waiting
+     */
+    @Test
+    public void fanOutConfirmedBeforeAckTest() throws InterruptedException {
+        InProcessBroker broker = new InProcessBroker();
+
+        run(broker);
+
+        assertEquals(MESSAGES, broker.getAcked());
+        assertEquals(0, broker.getNacked());
+        assertEquals(0, broker.getAckedWithUnconfirmed());
+        assertEquals(MESSAGES * FAN_OUT, broker.getPublished().size());
+        assertEquals(expected(), new HashSet<>(broker.getPublished()));
+    }
+
+    /**
+     * Tests that the messages rejected by the broker are published again.
+     *
+     * @throws InterruptedException
+     *      if interrupted while waiting
+     */
+    @Test
+    public void rejectedMessagesRepublishedTest() throws InterruptedException {
+        InProcessBroker broker = new InProcessBroker();
+        broker.setRejectEvery(7);
+
+        run(broker);
+
+        assertEquals(MESSAGES, broker.getAcked());
+        assertEquals(0, broker.getAckedWithUnconfirmed());
+        assertTrue(broker.getPublishAttempts() > MESSAGES * FAN_OUT);
+        assertEquals(expected(), new HashSet<>(broker.getPublished()));
+    }
+
+    /**
+     * Tests that the messages of the failed batch are discarded with its rollback, so that they aren't published
+     * again when the messages are processed one by one, and that nothing is published for the failed message.
+     *
+     * @throws InterruptedException
+     *      if interrupted while waiting
+     */
+    @Test
+    public void failedWorkNotPublishedTest() throws InterruptedException {
+        InProcessBroker broker = new InProcessBroker();
+        FanOutWorker worker = new FanOutWorker(broker, 10, true, false);
+
+        run(broker, worker);
+
+        assertTrue(worker.failedBatches.get() > 0);
+        assertEquals(MESSAGES - MESSAGES / FAILING_EVERY, broker.getAcked());
+        assertEquals(MESSAGES / FAILING_EVERY, broker.getNacked());
+
+        Set<String> expected = expected();
+        for (int i = 0; i < MESSAGES; i += FAILING_EVERY) {
+            for (int j = 0; j < FAN_OUT; j++) {
+                expected.remove(MessageFactory.getMessage().setValue("id", i + "-" + j).toJson());
+            }
+        }
+        assertEquals(expected.size(), broker.getPublished().size());
+        assertEquals(expected, new HashSet<>(broker.getPublished()));
+    }
+
+    /**
+     * Tests that the messages published before the commit in the middle of the work are published with the commit,
+     * so that they aren't lost when the rest of the work fails, while the messages published after it are discarded.
+     *
+     * @throws InterruptedException
+     *      if interrupted while waiting
+     */
+    @Test
+    public void committedWorkPublishedTest() throws InterruptedException {
+        InProcessBroker broker = new InProcessBroker();
+        FanOutWorker worker = new FanOutWorker(broker, 1, true, true);
+
+        run(broker, worker);
+
+        assertEquals(MESSAGES - MESSAGES / FAILING_EVERY, broker.getAcked());
+        assertEquals(MESSAGES / FAILING_EVERY, broker.getNacked());
+
+        Set<String> expected = expected();
+        for (int i = 0; i < MESSAGES; i += FAILING_EVERY) {
+            for (int j = FAN_OUT / 2; j < FAN_OUT; j++) {
+                expected.remove(MessageFactory.getMessage().setValue("id", i + "-" + j).toJson());
+            }
+        }
+        assertEquals(expected.size(), broker.getPublished().size());
+        assertEquals(expected, new HashSet<>(broker.getPublished()));
+    }
+
+    /**
+     * Lets the fan out worker process all the messages and stops the broker.
+     *
+     * @param broker
+     *      broker stand-in
+     * @throws InterruptedException
+     *      if interrupted while waiting
+     */
+    private static void run(final InProcessBroker broker) throws InterruptedException {
+        run(broker, new FanOutWorker(broker, 1, false, false));
+    }
+
+    /**
+     * Lets the worker process all the messages and stops the broker.
+     *
+     * @param broker
+     *      broker stand-in
+     * @param worker
+     *      worker consuming from the broker
+     * @throws InterruptedException
+     *      if interrupted while waiting
+     */
+    private static void run(final InProcessBroker broker, final FanOutWorker worker) throws InterruptedException {
+        for (int i = 0; i < MESSAGES; i++) {
+            broker.enqueue(MessageFactory.getMessage().setValue("id", String.valueOf(i)).toJson());
+        }
+
+        worker.startWork();
+        assertTrue(broker.awaitHandled(MESSAGES, TIMEOUT));
+
+        broker.shutdown();
+    }
+
+    /**
+     * @return bodies of all the messages the worker is expected to publish
+     */
+    private static Set<String> expected() {
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            for (int j = 0; j < FAN_OUT; j++) {
+                expected.add(MessageFactory.getMessage().setValue("id", i + "-" + j).toJson());
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Worker publishing several messages for each inbound message. It consumes with one thread, so that all the
+     * unconfirmed messages seen by the broker belong to the message being processed. The failing worker fails each
+     * batch and every {@link #FAILING_EVERY}-th message after it has published its messages. The committing worker
+     * commits after the first half of the messages of each inbound message.
+     */
+    private static final class FanOutWorker extends BaseWorker {
+        private final InProcessBroker broker;
+
+        private final int batchSize;
+
+        private final boolean failing;
+
+        private final boolean committing;
+
+        private final TransactionUtils transactionUtils = new DummyTransactionUtils();
+
+        private final AtomicInteger failedBatches = new AtomicInteger();
+
+        /**
+         * @param broker
+         *      broker stand-in
+         * @param batchSize
+         *      maximal number of messages processed at once
+         * @param failing
+         *      whether the batches and some of the messages fail
+         * @param committing
+         *      whether the worker commits in the middle of the work
+         */
+        FanOutWorker(final InProcessBroker broker, final int batchSize, final boolean failing,
+                     final boolean committing) {
+            this.broker = broker;
+            this.batchSize = batchSize;
+            this.failing = failing;
+            this.committing = committing;
+        }
+
+        @Override
+        protected int getBatchSize() {
+            return batchSize;
+        }
+
+        @Override
+        protected void doWork(final List<Message> messages) {
+            if (failing) {
+                failedBatches.incrementAndGet();
+            }
+            super.doWork(messages);
+            if (failing) {
+                throw new UnrecoverableException("Batch failed");
+            }
+        }
+
+        @Override
+        protected ConnectionFactory getConnectionFactory() {
+            return broker.getConnectionFactory();
+        }
+
+        @Override
+        protected void doWork(final Message message) {
+            for (int j = 0; j < FAN_OUT; j++) {
+                if (committing && j == FAN_OUT / 2) {
+                    getTransactionUtils().commit();
+                }
+                publishMessage(MessageFactory.getMessage().setValue("id", message.getValue("id") + "-" + j));
+            }
+            if (failing && Integer.parseInt(message.getValue("id")) % FAILING_EVERY == 0) {
+                throw new UnrecoverableException("Message failed");
+            }
+        }
+
+        @Override
+        protected String getVersion() {
+            return "1";
+        }
+
+        @Override
+        protected String getIncomingQueueName() {
+            return "test";
+        }
+
+        @Override
+        protected String getOutgoingExchangeName() {
+            return "test_out";
+        }
+
+        @Override
+        protected String getIncomingExchangeName() {
+            return "test_in";
+        }
+
+        @Override
+        protected void resend(final String version, final String dateFrom, final String dateTo) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected TransactionUtils getTransactionUtils() {
+            return transactionUtils;
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package eu.dl.worker;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmCallback;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in of the RabbitMQ broker with one queue. Deliveries of one channel are dispatched one after
+ * another on the executor of the connection, channels are dispatched concurrently - the same way as the RabbitMQ
+ * client does it. The waiting messages can be fetched by basic.get too. Channels in confirm mode get the published
+ * messages confirmed asynchronously, optionally some of them are rejected.
+ */
+final class InProcessBroker {
+
+    private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+
+    private final List<String> published = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicInteger acked = new AtomicInteger();
+
+    private final AtomicInteger nacked = new AtomicInteger();
+
+    private final AtomicLong deliveryTags = new AtomicLong();
+
+    private final List<Thread> dispatchers = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile boolean running = true;
+
+    /**
+     * Every n-th published message is rejected, 0 means no rejects.
+     */
+    private volatile int rejectEvery = 0;
+
+    private final AtomicInteger publishAttempts = new AtomicInteger();
+
+    private final AtomicInteger unconfirmed = new AtomicInteger();
+
+    private final AtomicInteger ackedWithUnconfirmed = new AtomicInteger();
+
+    private final ExecutorService confirmer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "confirmer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Puts message to the queue.
+     *
+     * @param json
+     *      message body
+     */
+    void enqueue(final String json) {
+        queue.add(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Makes the broker reject every n-th published message.
+     *
+     * @param rejectEvery
+     *      period of rejects, 0 means no rejects
+     */
+    void setRejectEvery(final int rejectEvery) {
+        this.rejectEvery = rejectEvery;
+    }
+
+    /**
+     * @return connection factory creating connections to this broker
+     */
+    ConnectionFactory getConnectionFactory() {
+        return new ConnectionFactory() {
+            @Override
+            public Connection newConnection(final ExecutorService executor) {
+                return InProcessBroker.this.createConnection(executor);
+            }
+
+            @Override
+            public Connection newConnection() {
+                return InProcessBroker.this.createConnection(null);
+            }
+        };
+    }
+
+    /**
+     * Waits until the given number of messages is acknowledged or rejected.
+     *
+     * @param count
+     *      number of messages
+     * @param timeout
+     *      timeout in milliseconds
+     * @return true if all the messages have been handled in time
+     * @throws InterruptedException
+     *      if interrupted while waiting
+     */
+    boolean awaitHandled(final int count, final long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (acked.get() + nacked.get() < count) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /**
+     * Stops all the dispatchers.
+     *
+     * @throws InterruptedException
+     *      if interrupted while waiting
+     */
+    void shutdown() throws InterruptedException {
+        running = false;
+        for (Thread dispatcher : new ArrayList<>(dispatchers)) {
+            dispatcher.join();
+        }
+        confirmer.shutdown();
+    }
+
+    /**
+     * @return number of acknowledged messages
+     */
+    int getAcked() {
+        return acked.get();
+    }
+
+    /**
+     * @return number of rejected messages
+     */
+    int getNacked() {
+        return nacked.get();
+    }
+
+    /**
+     * @return number of inbound messages acknowledged while some of the outgoing messages weren't confirmed yet
+     */
+    int getAckedWithUnconfirmed() {
+        return ackedWithUnconfirmed.get();
+    }
+
+    /**
+     * @return number of attempts to publish message, including the rejected ones
+     */
+    int getPublishAttempts() {
+        return publishAttempts.get();
+    }
+
+    /**
+     * @return bodies of the accepted published messages
+     */
+    List<String> getPublished() {
+        return published;
+    }
+
+    /**
+     * @param executor
+     *      executor dispatching the consumers
+     * @return connection proxy
+     */
+    private Connection createConnection(final ExecutorService executor) {
+        final Connection[] connection = new Connection[1];
+        connection[0] = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "createChannel":
+                        return createChannel(connection[0], executor);
+                    case "isOpen":
+                        return true;
+                    case "close":
+                    case "abort":
+                        return null;
+                    default:
+                        return handleObjectMethod(proxy, method, args);
+                }
+            });
+
+        return connection[0];
+    }
+
+    /**
+     * @param connection
+     *      owning connection
+     * @param executor
+     *      executor dispatching the consumers
+     * @return channel proxy
+     */
+    private Channel createChannel(final Connection connection, final ExecutorService executor) {
+        return (Channel) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Channel.class},
+            new InvocationHandler() {
+                private final AtomicLong nextPublishSeqNo = new AtomicLong();
+
+                private final List<ConfirmCallback[]> confirmListeners = new ArrayList<>();
+
+                private volatile boolean open = true;
+
+                @Override
+                public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "basicConsume":
+                            startDispatcher((String) args[0], (Consumer) args[args.length - 1], executor);
+                            return "consumer";
+                        case "basicGet":
+                            byte[] body = queue.poll();
+                            return body == null ? null
+                                : new GetResponse(new Envelope(deliveryTags.incrementAndGet(), false, "",
+                                    (String) args[0]), null, body, queue.size());
+                        case "basicAck":
+                            if (unconfirmed.get() > 0) {
+                                ackedWithUnconfirmed.incrementAndGet();
+                            }
+                            acked.incrementAndGet();
+                            return null;
+                        case "basicNack":
+                        case "basicReject":
+                            nacked.incrementAndGet();
+                            return null;
+                        case "basicPublish":
+                            if (!open) {
+                                throw new IOException("Channel is closed");
+                            }
+                            publish(new String((byte[]) args[args.length - 1], StandardCharsets.UTF_8));
+                            return null;
+                        case "confirmSelect":
+                            nextPublishSeqNo.set(1);
+                            return null;
+                        case "getNextPublishSeqNo":
+                            return nextPublishSeqNo.get();
+                        case "addConfirmListener":
+                            confirmListeners.add(new ConfirmCallback[]{(ConfirmCallback) args[0],
+                                (ConfirmCallback) args[1]});
+                            return null;
+                        case "isOpen":
+                            return open;
+                        case "close":
+                        case "abort":
+                            open = false;
+                            return null;
+                        case "getConnection":
+                            return connection;
+                        case "basicQos":
+                        case "queueDeclare":
+                        case "exchangeDeclare":
+                        case "queueBind":
+                            return null;
+                        default:
+                            return handleObjectMethod(proxy, method, args);
+                    }
+                }
+
+                /**
+                 * Accepts or rejects published message. In confirm mode the message is confirmed asynchronously.
+                 *
+                 * @param body
+                 *      message body
+                 */
+                private void publish(final String body) {
+                    final int attempt = publishAttempts.incrementAndGet();
+                    final boolean reject = rejectEvery > 0 && attempt % rejectEvery == 0;
+                    if (!reject) {
+                        published.add(body);
+                    }
+
+                    final long seqNo = nextPublishSeqNo.get();
+                    if (seqNo == 0) {
+                        return;
+                    }
+
+                    nextPublishSeqNo.incrementAndGet();
+                    unconfirmed.incrementAndGet();
+                    confirmer.execute(() -> {
+                        unconfirmed.decrementAndGet();
+                        for (ConfirmCallback[] listener : confirmListeners) {
+                            try {
+                                listener[reject ? 1 : 0].handle(seqNo, false);
+                            } catch (IOException ex) {
+                                throw new RuntimeException(ex);
+                            }
+                        }
+                    });
+                }
+            });
+    }
+
+    /**
+     * Starts thread delivering messages to the consumer of one channel.
+     *
+     * @param queueName
+     *      name of the consumed queue
+     * @param consumer
+     *      consumer
+     * @param executor
+     *      executor the deliveries are handled on
+     */
+    private void startDispatcher(final String queueName, final Consumer consumer, final ExecutorService executor) {
+        Thread dispatcher = new Thread(() -> {
+            try {
+                while (running) {
+                    byte[] body = queue.poll(10, TimeUnit.MILLISECONDS);
+                    if (body == null) {
+                        continue;
+                    }
+
+                    Envelope envelope = new Envelope(deliveryTags.incrementAndGet(), false, "", queueName);
+                    // deliveries of one channel never overlap
+                    executor.submit(() -> {
+                        consumer.handleDelivery("consumer", envelope, null, body);
+                        return null;
+                    }).get();
+                }
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        dispatcher.setDaemon(true);
+        dispatchers.add(dispatcher);
+        dispatcher.start();
+    }
+
+    /**
+     * Handles methods of {@link Object} called on the proxy.
+     *
+     * @param proxy
+     *      proxy
+     * @param method
+     *      called method
+     * @param args
+     *      method arguments
+     * @return method result
+     */
+    private static Object handleObjectMethod(final Object proxy, final Method method, final Object[] args) {
+        switch (method.getName()) {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "InProcessBroker proxy";
+            default:
+                throw new UnsupportedOperationException(method.getName() + " is not supported by the stand-in");
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package eu.dl.worker.master;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import eu.dl.core.config.Config;
+import eu.dl.dataaccess.dao.DummyTransactionUtils;
+import eu.dl.dataaccess.dao.MasterDAO;
+import eu.dl.dataaccess.dao.MatchedDAO;
+import eu.dl.dataaccess.dao.PageCursor;
+import eu.dl.dataaccess.dao.TransactionUtils;
+import eu.dl.dataaccess.dto.indicator.BasicIndicator;
+import eu.dl.dataaccess.dto.indicator.Indicator;
+import eu.dl.dataaccess.dto.master.MasterBody;
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+import eu.dl.worker.Message;
+import eu.dl.worker.MessageFactory;
+import eu.dl.worker.indicator.plugin.IndicatorPlugin;
+
+/**
+ * Test of the batched mastering. The master records created from the batches of messages have to be the same as the
+ * ones created by mastering of the groups one by one.
+ */
+public final class BatchedMasterTest {
+
+    private static final int GROUPS = 40;
+
+    private static final int MESSAGES = 60;
+
+    private static final int BATCH_SIZE = 8;
+
+    /**
+     * Loads test configuration.
+     */
+    public BatchedMasterTest() {
+        Config.getInstance().addConfigFile("unit_test");
+    }
+
+    /**
+     * Messages with single groups, lists of groups and repeated groups are mastered in batches by several threads with
+     * the same result as one group after another. The groups of each batch are selected by two queries and saved at
+     * once.
+     */
+    @Test
+    public void sameAsPerGroupTest() {
+        for (int seed = 0; seed < 5; seed++) {
+            List<Message> messages = generateMessages(seed);
+
+            Storage expected = new Storage(seed);
+            BaseMaster<MatchedBody, MasterBody> perGroup = createMaster(expected, 1);
+            for (Message message : messages) {
+                perGroup.doWork(message);
+            }
+
+            Storage actual = new Storage(seed);
+            TestMaster batched = createMaster(actual, 4);
+            for (int i = 0; i < messages.size(); i += BATCH_SIZE) {
+                batched.doWork(messages.subList(i, Math.min(messages.size(), i + BATCH_SIZE)));
+            }
+
+            int batches = (MESSAGES + BATCH_SIZE - 1) / BATCH_SIZE;
+            assertEquals("seed " + seed, expected.toStrings(), actual.toStrings());
+            assertEquals(2 * batches, actual.selects.get());
+            assertEquals(batches, actual.saves.get());
+            assertTrue(expected.selects.get() > 2 * MESSAGES);
+            // the post-processing may access the database, so it stays in the thread owning the transaction
+            assertEquals(Set.of(Thread.currentThread()), batched.postProcessingThreads);
+        }
+    }
+
+    /**
+     * @param seed
+     *      random seed
+     * @return messages with group id or group ids, the groups repeat
+     */
+    private static List<Message> generateMessages(final int seed) {
+        Random random = new Random(seed);
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            if (random.nextBoolean()) {
+                messages.add(MessageFactory.getMessage().setValue("groupId", "group_" + random.nextInt(GROUPS)));
+            } else {
+                List<String> groupIds = new ArrayList<>();
+                for (int j = random.nextInt(4); j >= 0; j--) {
+                    groupIds.add("group_" + random.nextInt(GROUPS));
+                }
+                messages.add(MessageFactory.getMessage().setValues("groupIds", groupIds));
+            }
+        }
+
+        return messages;
+    }
+
+    /**
+     * @param storage
+     *      storage of the matched and master bodies
+     * @param threads
+     *      number of mastering threads
+     * @return master
+     */
+    private static TestMaster createMaster(final Storage storage, final int threads) {
+        return new TestMaster() {
+            @Override
+            protected MatchedDAO<MatchedBody> getMatchedDAO() {
+                return storage.matchedDAO;
+            }
+
+            @Override
+            protected MasterDAO<MasterBody> getMasterDAO() {
+                return storage.masterDAO;
+            }
+
+            @Override
+            protected int getMasteringThreadsCount() {
+                return threads;
+            }
+        };
+    }
+
+    /**
+     * In-memory storage of the matched and master bodies. Some of the groups have been mastered before, the bodies
+     * of one group are filtered out by the preprocessing.
+     */
+    private static final class Storage {
+        private final Map<String, List<MatchedBody>> matched = new ConcurrentHashMap<>();
+
+        private final Map<String, MasterBody> master = new ConcurrentHashMap<>();
+
+        private final AtomicInteger selects = new AtomicInteger();
+
+        private final AtomicInteger saves = new AtomicInteger();
+
+        private final MatchedDAO<MatchedBody> matchedDAO = new MatchedDAO<MatchedBody>() {
+            @Override
+            public List<MatchedBody> getByGroupId(final String groupId) {
+                selects.incrementAndGet();
+                return new ArrayList<>(matched.getOrDefault(groupId, new ArrayList<>()));
+            }
+
+            @Override
+            public List<MatchedBody> getByGroupIds(final Collection<String> groupIds) {
+                selects.incrementAndGet();
+                return groupIds.stream().flatMap(n -> matched.getOrDefault(n, new ArrayList<>()).stream())
+                    .collect(Collectors.toList());
+            }
+
+            @Override
+            public List<MatchedBody> getByIds(final List<String> ids) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<MatchedBody> getMineByHash(final String hash) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<MatchedBody> getByHash(final String hash) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public MatchedBody getEmptyInstance() {
+                return new MatchedBody();
+            }
+        };
+
+        private final MasterDAO<MasterBody> masterDAO = new MasterDAO<MasterBody>() {
+            @Override
+            public List<MasterBody> getByGroupId(final String groupId) {
+                selects.incrementAndGet();
+                return master.containsKey(groupId) ? List.of(copy(master.get(groupId))) : new ArrayList<>();
+            }
+
+            @Override
+            public List<MasterBody> getByGroupIds(final Collection<String> groupIds) {
+                selects.incrementAndGet();
+                return groupIds.stream().filter(master::containsKey).map(n -> copy(master.get(n)))
+                    .collect(Collectors.toList());
+            }
+
+            @Override
+            public String save(final MasterBody masteredItem) {
+                saves.incrementAndGet();
+                return put(masteredItem);
+            }
+
+            @Override
+            public List<String> saveAll(final Collection<MasterBody> masteredItems) {
+                saves.incrementAndGet();
+                return masteredItems.stream().map(this::put).collect(Collectors.toList());
+            }
+
+            /**
+             * @param item
+             *      master body
+             * @return id of the stored body
+             */
+            private String put(final MasterBody item) {
+                if (item.getId() == null) {
+                    item.setId("master_" + item.getGroupId());
+                }
+                master.put(item.getGroupId(), copy(item));
+                return item.getId();
+            }
+
+            @Override
+            public List<MasterBody> getModifiedAfter(final LocalDateTime timestamp, final Integer page,
+                                                     final Integer pageSize) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<MasterBody> getModifiedAfter(final LocalDateTime timestamp, final Integer page) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<MasterBody> getModifiedAfter(final LocalDateTime timestamp, final String modifiedBy,
+                                                     final Integer page, final Integer pageSize) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<MasterBody> getModifiedAfter(final LocalDateTime timestamp, final String modifiedBy,
+                                                     final Integer page) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<MasterBody> getModifiedAfter(final LocalDateTime timestamp, final String createdBy,
+                                                     final String country, final Integer page,
+                                                     final Integer pageSize) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<MasterBody> getModifiedAfter(final LocalDateTime timestamp, final String createdBy,
+                                                     final String country, final Integer page) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<MasterBody> getModifiedAfter(final PageCursor cursor, final String createdBy,
+                                                     final String country, final Integer pageSize) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<MasterBody> getModifiedAfter(final PageCursor cursor, final String createdBy,
+                                                     final String country) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public MasterBody getEmptyInstance() {
+                return new MasterBody();
+            }
+        };
+
+        /**
+         * @param seed
+         *      random seed
+         */
+        Storage(final int seed) {
+            Random random = new Random(-seed);
+            for (int i = 0; i < GROUPS; i++) {
+                String groupId = "group_" + i;
+                List<MatchedBody> bodies = new ArrayList<>();
+                for (int j = random.nextInt(4); j >= 0; j--) {
+                    MatchedBody body = new MatchedBody().setName((i == 7 ? "skip_" : "body_") + random.nextInt(100))
+                        .setGroupId(groupId);
+                    body.setId(groupId + "_" + j);
+                    body.setProcessingOrder(String.valueOf(random.nextInt(1000)));
+                    bodies.add(body);
+                }
+                matched.put(groupId, bodies);
+
+                if (i % 3 == 0) {
+                    MasterBody previous = new MasterBody().setName("previous").setGroupId(groupId);
+                    previous.setId("previous_" + groupId);
+                    master.put(groupId, previous);
+                }
+            }
+        }
+
+        /**
+         * @return stored master bodies as sorted strings
+         */
+        List<String> toStrings() {
+            return master.values().stream()
+                .map(n -> String.join("|", n.getGroupId(), n.getId(), n.getName(), n.getPersistentId(),
+                    n.getProcessingOrder(), n.getIndicators() == null ? "" : n.getIndicators().stream()
+                        .map(i -> ((BasicIndicator) i).getValue().toString()).collect(Collectors.joining(","))))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+
+        /**
+         * @param body
+         *      master body
+         * @return copy of the body, so that the stored body isn't changed by the master
+         */
+        private static MasterBody copy(final MasterBody body) {
+            MasterBody copy = new MasterBody().setName(body.getName()).setGroupId(body.getGroupId())
+                .setIndicators(body.getIndicators());
+            copy.setId(body.getId());
+            copy.setPersistentId(body.getPersistentId());
+            copy.setProcessingOrder(body.getProcessingOrder());
+            return copy;
+        }
+    }
+
+    /**
+     * Master joining the names of the matched bodies. The name keeps the mark of the previous master record, so
+     * the master record has to be updated rather than created again.
+     */
+    private abstract static class TestMaster extends BaseMaster<MatchedBody, MasterBody> {
+        private final Set<Thread> postProcessingThreads = ConcurrentHashMap.newKeySet();
+
+        @Override
+        protected void registerCommonPlugins() {
+            pluginRegistry.registerPlugin("name", (items, finalItem, context) -> {
+                MasterBody item = (MasterBody) finalItem;
+                String names = ((List<MatchedBody>) items).stream().map(MatchedBody::getName).sorted()
+                    .collect(Collectors.joining(","));
+                boolean previous = item.getName() != null && item.getName().startsWith("previous");
+                return item.setName(previous ? "previous>" + names : names);
+            });
+        }
+
+        @Override
+        protected void registerProjectSpecificPlugins() {
+        }
+
+        @Override
+        protected void registerSpecificPlugins() {
+        }
+
+        @Override
+        protected void registerIndicatorPlugins() {
+            indicatorPluginRegistry.registerPlugin("length", new IndicatorPlugin<MasterBody>() {
+                @Override
+                public Indicator evaluate(final MasterBody item) {
+                    BasicIndicator indicator = new BasicIndicator();
+                    indicator.setValue((double) item.getName().length());
+                    return indicator;
+                }
+
+                @Override
+                public String getType() {
+                    return "length";
+                }
+            });
+        }
+
+        @Override
+        protected List<MatchedBody> generalPreprocessData(final List<MatchedBody> items) {
+            return items.stream().filter(n -> !n.getName().startsWith("skip_")).collect(Collectors.toList());
+        }
+
+        @Override
+        protected List<MatchedBody> sourceSpecificPreprocessData(final List<MatchedBody> items) {
+            return items;
+        }
+
+        @Override
+        protected MasterBody postProcessMasterRecord(final MasterBody item, final List<MatchedBody> matchedItems) {
+            postProcessingThreads.add(Thread.currentThread());
+            return item;
+        }
+
+        @Override
+        protected MasterBody sourceSpecificPostprocessData(final MasterBody item) {
+            return item;
+        }
+
+        @Override
+        protected String getPersistentId(final List<MatchedBody> matchedItems) {
+            return matchedItems.isEmpty() ? null : "persistent_" + matchedItems.get(0).getGroupId();
+        }
+
+        @Override
+        protected String getVersion() {
+            return "1";
+        }
+
+        @Override
+        protected String getIncomingQueueName() {
+            return "test";
+        }
+
+        @Override
+        protected TransactionUtils getTransactionUtils() {
+            return new DummyTransactionUtils();
+        }
+    }
+}
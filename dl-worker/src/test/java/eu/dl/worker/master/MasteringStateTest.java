@@ -0,0 +1,72 @@
+package eu.dl.worker.master;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import eu.dl.dataaccess.dto.master.MasterBody;
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+
+/**
+ * Test of the state of the incremental mastering stored in the master record.
+ */
+public final class MasteringStateTest {
+
+    /**
+     * Stored state splits the items to the previous ones in the order of the previous mastering and the added ones.
+     * The state isn't used for another version or in case some of the previous items have been changed or removed.
+     */
+    @Test
+    public void splitTest() {
+        List<MatchedBody> items = List.of(body("a"), body("b"), body("c"));
+        Map<String, Map<String, Object>> plugins = new HashMap<>();
+        plugins.put("isPublic", new HashMap<>(Map.of("isPublic", true)));
+
+        MasterBody master = new MasterBody();
+        MasteringState.of("1", items, plugins).write(master);
+
+        assertNull(MasteringState.read(master, "2"));
+        MasteringState state = MasteringState.read(master, "1");
+        assertEquals(true, state.getPluginState("isPublic").get("isPublic"));
+        assertNull(state.getPluginState("name"));
+
+        List<MatchedBody> current = new ArrayList<>(List.of(body("d"), items.get(2), items.get(0), items.get(1)));
+        List<List<MatchedBody>> split = state.split(current);
+        assertEquals(List.of(items.get(0), items.get(1), items.get(2)), split.get(0));
+        assertEquals(List.of(current.get(0)), split.get(1));
+
+        // removed item
+        assertNull(state.split(List.of(items.get(0), items.get(1))));
+
+        // changed item
+        MatchedBody changed = body("b");
+        changed.setModified(LocalDateTime.of(2020, 1, 2, 0, 0));
+        assertNull(state.split(List.of(items.get(0), changed, items.get(2))));
+
+        // item without id
+        assertNull(state.split(List.of(items.get(0), items.get(1), items.get(2), new MatchedBody())));
+        assertNull(MasteringState.of("1", List.of(new MatchedBody()), plugins));
+
+        MasteringState.remove(master);
+        assertNull(MasteringState.read(master, "1"));
+    }
+
+    /**
+     * @param id
+     *      id
+     * @return matched body with id and modification time
+     */
+    private static MatchedBody body(final String id) {
+        MatchedBody body = new MatchedBody();
+        body.setId(id);
+        body.setModified(LocalDateTime.of(2020, 1, 1, 0, 0));
+        return body;
+    }
+}
@@ -0,0 +1,119 @@
+package eu.dl.worker.master.plugin;
+
+import eu.dl.dataaccess.dto.codetables.BodyIdentifier;
+import eu.dl.dataaccess.dto.codetables.BuyerActivityType;
+import eu.dl.dataaccess.dto.master.MasterBody;
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+import eu.dl.worker.master.plugin.generic.LastPublishedPlugin;
+import eu.dl.worker.master.plugin.generic.LastValuePlugin;
+import eu.dl.worker.master.plugin.generic.LogicalORPlugin;
+import eu.dl.worker.master.plugin.generic.UnionPlugin;
+import eu.dl.worker.master.plugin.generic.comparators.StringComparator;
+import eu.dl.worker.master.plugin.generic.converter.TenderConverter;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test of the incremental mastering. Randomly generated items are mastered in random chunks, each chunk is merged into
+ * the result of the previous ones, and the result is compared with the mastering of all the items at once.
+ */
+public final class IncrementalMasterPluginTest {
+
+    /**
+     * Incremental mastering of the associative plugins gives the same result as the full mastering.
+     */
+    @Test
+    public void sameAsFullMasteringTest() {
+        for (int seed = 0; seed < 200; seed++) {
+            Random random = new Random(seed);
+            List<MatchedBody> items = generate(random);
+
+            for (IncrementalMasterPlugin<MatchedBody, MasterBody, MatchedBody> plugin : createPlugins()) {
+                MasterBody expected = plugin.master(items, new MasterBody(), items);
+
+                // the first chunk is mastered fully, the following ones incrementally
+                int first = 1 + random.nextInt(items.size());
+                List<MatchedBody> previous = new ArrayList<>(items.subList(0, first));
+                Map<String, Object> state = new HashMap<>();
+                MasterBody actual = plugin.master(previous, new MasterBody(), previous, state);
+                while (previous.size() < items.size()) {
+                    int end = previous.size() + 1 + random.nextInt(items.size() - previous.size());
+                    List<MatchedBody> added = new ArrayList<>(items.subList(previous.size(), end));
+                    List<MatchedBody> context = new ArrayList<>(previous);
+                    context.addAll(added);
+                    actual = plugin.masterAdded(previous, added, actual, context, state);
+                    previous = context;
+                }
+
+                assertEquals("seed " + seed + ", " + plugin.getClass().getSimpleName(), toString(expected),
+                    toString(actual));
+            }
+        }
+    }
+
+    /**
+     * @return plugins under test
+     */
+    private static List<IncrementalMasterPlugin<MatchedBody, MasterBody, MatchedBody>> createPlugins() {
+        return Arrays.asList(
+            new LogicalORPlugin<>(Arrays.asList("isPublic", "isSectoral")),
+            new LastValuePlugin<>("email", new StringComparator<>("email"), new TenderConverter()),
+            new LastPublishedPlugin<>("name", new TenderConverter()),
+            new UnionPlugin<>(Arrays.asList("bodyIds", "mainActivities"), new TenderConverter()));
+    }
+
+    /**
+     * @param random
+     *      random generator
+     * @return matched items with many missing and duplicate values
+     */
+    private static List<MatchedBody> generate(final Random random) {
+        Boolean[] booleans = {null, Boolean.TRUE, Boolean.FALSE};
+        BuyerActivityType[] activities = BuyerActivityType.values();
+
+        List<MatchedBody> items = new ArrayList<>();
+        int size = 1 + random.nextInt(12);
+        for (int i = 0; i < size; i++) {
+            MatchedBody body = new MatchedBody()
+                .setIsPublic(booleans[random.nextInt(3)])
+                .setIsSectoral(booleans[random.nextInt(3)])
+                .setEmail(random.nextInt(3) == 0 ? null : "e" + random.nextInt(5))
+                .setName(random.nextInt(4) == 0 ? null : "n" + i)
+                .setPublicationDate(random.nextInt(4) == 0 ? null : LocalDate.of(2020, 1, 1 + random.nextInt(5)));
+            for (int j = random.nextInt(3); j > 0; j--) {
+                body.addBodyId(new BodyIdentifier().setId(String.valueOf(random.nextInt(4)))
+                    .setType(BodyIdentifier.Type.ORGANIZATION_ID).setScope(BodyIdentifier.Scope.SK));
+            }
+            if (random.nextBoolean()) {
+                body.setMainActivities(random.ints(random.nextInt(3), 0, activities.length)
+                    .mapToObj(n -> activities[n]).collect(Collectors.toList()));
+            }
+            items.add(body);
+        }
+
+        return items;
+    }
+
+    /**
+     * @param body
+     *      master body
+     * @return mastered fields of the body
+     */
+    private static String toString(final MasterBody body) {
+        String bodyIds = body.getBodyIds() == null ? null : body.getBodyIds().stream()
+            .map(n -> n.getId() + n.getType() + n.getScope()).collect(Collectors.joining(","));
+
+        return body.getIsPublic() + "|" + body.getIsSectoral() + "|" + body.getEmail() + "|" + body.getName() + "|"
+            + bodyIds + "|" + body.getMainActivities();
+    }
+}
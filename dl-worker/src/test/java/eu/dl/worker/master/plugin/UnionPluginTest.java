@@ -1,15 +1,20 @@
 package eu.dl.worker.master.plugin;
 
 import eu.dl.dataaccess.dto.codetables.BodyIdentifier;
+import eu.dl.dataaccess.dto.generic.Payment;
+import eu.dl.dataaccess.dto.generic.Price;
 import eu.dl.dataaccess.dto.generic.Publication;
+import eu.dl.dataaccess.dto.master.MasterBid;
 import eu.dl.dataaccess.dto.master.MasterBody;
 import eu.dl.dataaccess.dto.master.MasterTender;
+import eu.dl.dataaccess.dto.matched.MatchedBid;
 import eu.dl.dataaccess.dto.matched.MatchedBody;
 import eu.dl.dataaccess.dto.matched.MatchedTender;
 import eu.dl.worker.master.plugin.generic.UnionPlugin;
 import eu.dl.worker.master.plugin.generic.converter.TenderConverter;
 import org.junit.Test;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
@@ -95,4 +100,23 @@ public class UnionPluginTest {
                 BodyIdentifier.Type.ORGANIZATION_ID));
         assertTrue(masterTender.getBidsRecipient().getBodyIds().get(0).getScope().equals(BodyIdentifier.Scope.SK));
     }
+
+    /**
+     * Test whether UnionPlugin keeps all the payments, even the ones with the same date and amount.
+     */
+    @Test
+    public final void allPaymentsTest() {
+        Supplier<Payment> payment = () -> new Payment()
+                .setPaymentDate(LocalDate.of(2020, 1, 1))
+                .setPrice(new Price().setNetAmount(BigDecimal.TEN));
+        MatchedBid matchedBid1 = new MatchedBid().setPayments(Arrays.asList(payment.get(), new Payment()));
+        MatchedBid matchedBid2 = new MatchedBid().setPayments(Arrays.asList(payment.get(), new Payment()));
+        MasterBid masterBid = new MasterBid();
+
+        MasterPlugin masterPlugin = new UnionPlugin("payments", new TenderConverter());
+        masterPlugin.master(Arrays.asList(matchedBid1, matchedBid2), masterBid,
+                Arrays.asList(matchedBid1, matchedBid2));
+
+        assertTrue(masterBid.getPayments().size() == 4);
+    }
 }
@@ -0,0 +1,244 @@
+package eu.dl.worker.matched;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import eu.dl.dataaccess.dao.PoolBodyDAO;
+import eu.dl.dataaccess.dto.codetables.BodyIdentifier;
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+import eu.dl.dataaccess.dto.matched.MatchedGroupInfo;
+
+/**
+ * Test of the group statistics store. The database is simulated by a map of group statistics, the store answers have
+ * to be the same as the database ones.
+ */
+public final class GroupStatisticsStoreTest {
+
+    /**
+     * Group statistics in the database.
+     */
+    private final Map<String, MatchedGroupInfo> database = new HashMap<>();
+
+    /**
+     * Group ids the DAO has been asked for.
+     */
+    private final List<String> queried = new ArrayList<>();
+
+    /**
+     * DAO reading the simulated database in the same way as the JDBC one.
+     */
+    private final PoolBodyDAO<MatchedBody> dao = groups -> {
+        queried.addAll(groups);
+        return expected(groups);
+    };
+
+    /**
+     * Loaded groups are answered without the DAO, the missing ones are read from the DAO once.
+     */
+    @Test
+    public void loadAndFallbackTest() {
+        save("a", 3, false);
+        save("b", 5, true);
+        save("c", 1, false);
+        GroupStatisticsStore store = new GroupStatisticsStore(dao, 0);
+        store.put(database.get("a"));
+        store.put(database.get("b"));
+
+        assertSame(expected(List.of("a", "b", "missing")), store.getGroupsInfo(List.of("a", "b", "missing")));
+        assertEquals(List.of("missing"), queried);
+
+        assertSame(expected(List.of("a", "c")), store.getGroupsInfo(List.of("a", "c")));
+        queried.clear();
+        store.getGroupsInfo(List.of("a", "b", "c", "missing"));
+        assertTrue(queried.isEmpty());
+        assertEquals(2, store.getMissCount());
+    }
+
+    /**
+     * Recorded bodies are visible only to the recording thread until the commit, rollback discards them.
+     *
+     * @throws Exception
+     *      in case the other thread fails
+     */
+    @Test
+    public void transactionTest() throws Exception {
+        save("a", 3, false);
+        GroupStatisticsStore store = new GroupStatisticsStore(dao, 0);
+        store.put(database.get("a"));
+
+        store.record(body("a", true));
+        store.record(body("new", false));
+        save("new", 1, false);
+        assertEquals("a:4:true", info(store, "a"));
+        assertEquals("new:1:false", info(store, "new"));
+        assertEquals("a:3:false", inOtherThread(() -> info(store, "a")));
+
+        store.rollback();
+        assertEquals("a:3:false", info(store, "a"));
+
+        store.record(body("a", false));
+        // another thread commits a body of the same group meanwhile
+        inOtherThread(() -> {
+            store.record(body("a", true));
+            store.commit();
+            return null;
+        });
+        store.commit();
+        assertEquals("a:5:true", info(store, "a"));
+        assertEquals("a:5:true", inOtherThread(() -> info(store, "a")));
+    }
+
+    /**
+     * Invalidated group is read from the DAO again.
+     */
+    @Test
+    public void invalidateTest() {
+        save("a", 3, false);
+        GroupStatisticsStore store = new GroupStatisticsStore(dao, 0);
+        store.put(database.get("a"));
+
+        store.invalidate("a");
+        save("a", 4, true);
+        assertEquals("a:4:true", info(store, "a"));
+        assertEquals(List.of("a"), queried);
+
+        store.commit();
+        queried.clear();
+        assertEquals("a:4:true", info(store, "a"));
+        assertEquals(List.of("a"), queried);
+    }
+
+    /**
+     * Statistics differing from the database are detected by the check and repaired.
+     */
+    @Test
+    public void consistencyCheckTest() {
+        save("a", 3, false);
+        save("b", 2, false);
+        GroupStatisticsStore store = new GroupStatisticsStore(dao, 2);
+        store.put(database.get("a"));
+        store.put(database.get("b"));
+
+        // another process saves into the group
+        save("b", 4, false);
+        assertSame(List.of(database.get("a"), new MatchedGroupInfo().setGroupId("b").setSize(2)),
+            store.getGroupsInfo(List.of("a", "b")));
+        assertEquals(0, store.getMismatchCount());
+
+        assertSame(expected(List.of("a", "b")), store.getGroupsInfo(List.of("a", "b")));
+        assertEquals(1, store.getMismatchCount());
+
+        queried.clear();
+        assertSame(expected(List.of("a", "b")), store.getGroupsInfo(List.of("a", "b")));
+        assertTrue(queried.isEmpty());
+    }
+
+    /**
+     * @param groups
+     *      group ids
+     * @return statistics of the groups in the database ordered by size descending
+     */
+    private List<MatchedGroupInfo> expected(final List<String> groups) {
+        return groups.stream()
+            .filter(database::containsKey)
+            .map(database::get)
+            .sorted((a, b) -> Integer.compare(b.getSize(), a.getSize()))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * @param groupId
+     *      group id
+     * @param size
+     *      group size
+     * @param hasEtalon
+     *      etalon presence
+     */
+    private void save(final String groupId, final int size, final boolean hasEtalon) {
+        database.put(groupId, new MatchedGroupInfo().setGroupId(groupId).setSize(size).setHasEtalon(hasEtalon));
+    }
+
+    /**
+     * @param store
+     *      store
+     * @param groupId
+     *      group id
+     * @return group statistics as string
+     */
+    private static String info(final GroupStatisticsStore store, final String groupId) {
+        List<MatchedGroupInfo> info = store.getGroupsInfo(List.of(groupId));
+        assertEquals(1, info.size());
+        return toString(info).get(0);
+    }
+
+    /**
+     * @param groupId
+     *      group id
+     * @param etalon
+     *      whether the body refers to an etalon
+     * @return body of the group
+     */
+    private static MatchedBody body(final String groupId, final boolean etalon) {
+        MatchedBody body = new MatchedBody();
+        body.setGroupId(groupId);
+        if (etalon) {
+            body.setBodyIds(Arrays.asList(new BodyIdentifier().setType(BodyIdentifier.Type.ETALON_ID).setId("1")));
+        }
+        return body;
+    }
+
+    /**
+     * @param <R>
+     *      result class
+     * @param task
+     *      task
+     * @return result of the task executed in another thread
+     * @throws InterruptedException
+     *      in case of interruption
+     * @throws ExecutionException
+     *      in case the task fails
+     */
+    private static <R> R inOtherThread(final Callable<R> task)
+        throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(task).get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param expected
+     *      expected statistics
+     * @param actual
+     *      actual statistics
+     */
+    private static void assertSame(final List<MatchedGroupInfo> expected, final List<MatchedGroupInfo> actual) {
+        assertEquals(toString(expected), toString(actual));
+    }
+
+    /**
+     * @param info
+     *      group statistics
+     * @return statistics as strings
+     */
+    private static List<String> toString(final List<MatchedGroupInfo> info) {
+        return info.stream()
+            .map(n -> n.getGroupId() + ":" + n.getSize() + ":" + n.getHasEtalon())
+            .collect(Collectors.toList());
+    }
+}
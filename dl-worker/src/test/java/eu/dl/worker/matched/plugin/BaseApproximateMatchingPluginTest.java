@@ -0,0 +1,225 @@
+package eu.dl.worker.matched.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import eu.dl.dataaccess.dao.MatchedBodiesPool;
+import eu.dl.dataaccess.dto.codetables.BodyIdentifier;
+import eu.dl.dataaccess.dto.generic.Address;
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+import eu.dl.worker.utils.matched.BodyFingerprint;
+import eu.dl.worker.utils.matched.MatchedUtils;
+
+/**
+ * Test of the similarities computation of the BaseApproximateMatchingPlugin.
+ */
+public final class BaseApproximateMatchingPluginTest {
+    private static final List<String> NAMES = Arrays.asList("zakladni skola", "mestsky urad", "krajska nemocnice",
+        "sprava silnic", "technicke sluzby", "ministerstvo vnitra", "obec", "dopravni podnik", "vodarny a kanalizace",
+        "stavebni firma s r o");
+
+    private static final List<String> STREETS = Arrays.asList("hlavni", "namesti miru", "nadrazni", "skolni",
+        "husova", "palackeho");
+
+    /**
+     * The pruned computation returns the same similarities as the brute force computation over the whole pool.
+     */
+    @Test
+    public void sameAsBruteForceTest() {
+        Random random = new Random(7);
+        List<MatchedBody> pool = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            pool.add(randomBody(random));
+        }
+
+        assertTrue(assertSameAsBruteForce(pool, pool, random) > 0);
+    }
+
+    /**
+     * The pool selected from the prefetched pools returns the same similarities and the fingerprints of its bodies are
+     * stored with the pools.
+     */
+    @Test
+    public void prefetchedPoolTest() {
+        Random random = new Random(11);
+        List<MatchedBody> bodies = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            // the digest puts all the bodies into one pool
+            bodies.add(randomBody(random).setDigest("digest"));
+        }
+
+        MatchedBody searched = new MatchedBody().setDigest("digest");
+        MatchedBodiesPool.Selection<MatchedBody> pool = (MatchedBodiesPool.Selection<MatchedBody>)
+            new MatchedBodiesPool<>(new MatchedBodiesPool.Keys(Collections.singletonList(searched), v -> v), bodies)
+                .getApproximateMatchBodiesPool(null, null, null, "digest");
+
+        assertTrue(assertSameAsBruteForce(pool, bodies, random) > 0);
+        for (int i = 0; i < pool.size(); i++) {
+            assertNotNull(pool.getAttachment(i, BodyFingerprint.class, b -> null));
+        }
+    }
+
+    /**
+     * Compares the similarities of random items with the pool with the brute force computation.
+     *
+     * @param pool
+     *      pool passed to the plugin
+     * @param bodies
+     *      bodies of the pool
+     * @param random
+     *      random generator
+     * @return number of the matched bodies
+     */
+    private static int assertSameAsBruteForce(final List<MatchedBody> pool, final List<MatchedBody> bodies,
+                                              final Random random) {
+        ApproximateMatchingPlugin<MatchedBody> plugin = new ApproximateMatchingPlugin<>(null);
+
+        int matches = 0;
+        for (int i = 0; i < 200; i++) {
+            // half of the items are modified copies of the pool bodies
+            MatchedBody item = i % 2 == 0 ? randomBody(random)
+                : typo(bodies.get(random.nextInt(bodies.size())), random);
+
+            Map<MatchedBody, Float> expected = new HashMap<>();
+            for (MatchedBody body : bodies) {
+                float similarity = getSimilarity(item, body);
+                if (similarity >= 0.75f) {
+                    expected.put(body, similarity);
+                }
+            }
+
+            assertEquals(expected, plugin.getSimiliraties(item, pool));
+            matches += expected.size();
+        }
+
+        return matches;
+    }
+
+    /**
+     * Computes similarity of the {@code item} with the {@code body} from the strings without any shortcuts, in the
+     * same way as the plugin did before the fingerprints and the pruning.
+     *
+     * @param item
+     *      matched item
+     * @param body
+     *      body from the pool
+     * @return similarity
+     */
+    private static float getSimilarity(final MatchedBody item, final MatchedBody body) {
+        return (
+            MatchedUtils.trigramSimilarity(item.getStandardizedName(), body.getStandardizedName())
+            + MatchedUtils.trigramSimilarity(item.getStandardizedAddress(), body.getStandardizedAddress())
+            + getBestBodyIdSimilarity(item.getBodyIds(), body.getBodyIds())
+            + MatchedUtils.oneDigitSimilarity(item.getPostcode(), body.getPostcode()) * 0.2f
+            + getBestNutsSimilarity(item.getNuts(), body.getNuts()) * 0.2f
+            ) / (1 + 1 + 1 + 0.2f + 0.2f);
+    }
+
+    /**
+     * @param source
+     *      origin list of bodies identifiers
+     * @param target
+     *      list of bodies identifiers that is compared with {@code source}
+     * @return best similarity of the body identifiers
+     */
+    private static float getBestBodyIdSimilarity(final List<BodyIdentifier> source,
+                                                 final List<BodyIdentifier> target) {
+        if (source == null || target == null || source.isEmpty() || target.isEmpty()) {
+            return 0.5f;
+        }
+
+        if (!source.stream().anyMatch(s -> target.stream().anyMatch(t -> MatchedUtils.areBodyIdsComparable(s, t)))) {
+            return 0.5f;
+        }
+
+        List<Float> similarities = new ArrayList<>();
+        source.forEach(bodyId -> similarities.addAll(MatchedUtils.bodyIdSimilarities(bodyId, target)));
+
+        return similarities.isEmpty() ? 0f : Collections.max(similarities);
+    }
+
+    /**
+     * @param source
+     *      origin list of NUTS codes
+     * @param target
+     *      list of NUTS codes that are compared with {@code source}
+     * @return best similarity of the NUTS codes
+     */
+    private static float getBestNutsSimilarity(final List<String> source, final List<String> target) {
+        if (source == null || target == null) {
+            return 0.5f;
+        }
+
+        List<Float> similarities = new ArrayList<>();
+        source.forEach(code -> similarities.addAll(MatchedUtils.nutsSimilarities(code, target, 0)));
+
+        return similarities.isEmpty() ? 0f : Collections.max(similarities);
+    }
+
+    /**
+     * @param random
+     *      random generator
+     * @return random body
+     */
+    private static MatchedBody randomBody(final Random random) {
+        MatchedBody body = new MatchedBody()
+            .setStandardizedName(random.nextInt(20) == 0 ? null
+                : NAMES.get(random.nextInt(NAMES.size())) + " " + (char) ('a' + random.nextInt(26)))
+            .setStandardizedAddress(random.nextInt(10) == 0 ? null
+                : STREETS.get(random.nextInt(STREETS.size())) + " " + random.nextInt(50))
+            .setAddress(new Address()
+                .addNuts("CZ0" + (10 + random.nextInt(3)))
+                .setPostcode(String.valueOf(10000 + random.nextInt(5))));
+
+        if (random.nextBoolean()) {
+            body.setBodyIds(Arrays.asList(new BodyIdentifier()
+                .setId(String.valueOf(100 + random.nextInt(20)))
+                .setScope(BodyIdentifier.Scope.CZ)
+                .setType(BodyIdentifier.Type.ORGANIZATION_ID)));
+        }
+
+        return body;
+    }
+
+    /**
+     * @param body
+     *      original body
+     * @param random
+     *      random generator
+     * @return copy of the body with typo in name and address
+     */
+    private static MatchedBody typo(final MatchedBody body, final Random random) {
+        return new MatchedBody()
+            .setStandardizedName(typo(body.getStandardizedName(), random))
+            .setStandardizedAddress(typo(body.getStandardizedAddress(), random))
+            .setBodyIds(body.getBodyIds())
+            .setAddress(body.getAddress());
+    }
+
+    /**
+     * @param value
+     *      original string
+     * @param random
+     *      random generator
+     * @return string with one character replaced
+     */
+    private static String typo(final String value, final Random random) {
+        if (value == null || value.isEmpty()) {
+            return value;
+        }
+
+        int position = random.nextInt(value.length());
+        return value.substring(0, position) + (char) ('a' + random.nextInt(26)) + value.substring(position + 1);
+    }
+}
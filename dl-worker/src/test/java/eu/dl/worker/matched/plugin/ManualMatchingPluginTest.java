@@ -0,0 +1,146 @@
+package eu.dl.worker.matched.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import eu.dl.core.cache.CompactHashCache;
+import eu.dl.dataaccess.dao.ManualMatchDAO;
+import eu.dl.dataaccess.dto.matched.ManualMatch;
+import eu.dl.dataaccess.dto.matched.MatchedBody;
+
+/**
+ * Test of the manual matching plugin. The manual matches stored in the database are simulated by a list, the changes
+ * of the list have to be seen by the plugin without creating a new instance.
+ */
+public final class ManualMatchingPluginTest {
+
+    /**
+     * Manual matches in the database.
+     */
+    private final List<ManualMatch> database = new ArrayList<>();
+
+    /**
+     * Number of the refresh queries.
+     */
+    private int refreshes = 0;
+
+    /**
+     * DAO reading the simulated database in the same way as the JDBC one.
+     */
+    private final ManualMatchDAO<ManualMatch> dao = new ManualMatchDAO<ManualMatch>() {
+        @Override
+        public List<ManualMatch> getByHash(final String hash, final String flag) {
+            return database.stream()
+                .filter(m -> m.getFullHash().equals(hash) && m.getFlag().equals(flag))
+                .collect(Collectors.toList());
+        }
+
+        @Override
+        public List<ManualMatch> getAllEntries(final String flag) {
+            return database.stream().filter(m -> m.getFlag().equals(flag)).collect(Collectors.toList());
+        }
+
+        @Override
+        public void forEachEntry(final String flag, final Consumer<ManualMatch> action) {
+            getAllEntries(flag).forEach(action);
+        }
+
+        @Override
+        public List<ManualMatch> getModifiedSince(final String flag, final LocalDateTime since) {
+            refreshes++;
+            return database.stream()
+                .filter(m -> m.getFlag().equals(flag) && !m.getModified().isBefore(since))
+                .sorted(Comparator.comparing(ManualMatch::getModified))
+                .collect(Collectors.toList());
+        }
+    };
+
+    /**
+     * Manual match inserted after the plugin has been created takes effect without restart.
+     */
+    @Test
+    public void newMatchTest() {
+        save("a", "group1", "body", 10);
+        save("b", "group2", "tender", 10);
+        ManualMatchingPlugin<MatchedBody> plugin =
+            new ManualMatchingPlugin<>(dao, "body", new CompactHashCache("test::"), Duration.ZERO);
+
+        assertEquals("group1", plugin.match(body("a")).getGroupId());
+        assertEquals("manual", plugin.match(body("a")).getMatchedBy());
+        assertFalse(plugin.match(body("b")).getMatched());
+        assertFalse(plugin.match(body("c")).getMatched());
+
+        save("c", "group3", "body", 20);
+        MatchingResult result = plugin.match(body("c"));
+        assertTrue(result.getMatched());
+        assertEquals("group3", result.getGroupId());
+    }
+
+    /**
+     * Changed manual match replaces the previous one, the refresh reads only the recently modified matches.
+     */
+    @Test
+    public void changedMatchTest() {
+        save("a", "group1", "body", 0);
+        ManualMatchingPlugin<MatchedBody> plugin =
+            new ManualMatchingPlugin<>(dao, "body", new CompactHashCache("test::"), null);
+
+        database.get(0).setGroupId("group2");
+        database.get(0).setModified(at(30));
+        assertEquals("group1", plugin.match(body("a")).getGroupId());
+        assertEquals(0, refreshes);
+
+        assertEquals(1, plugin.refresh());
+        assertEquals("group2", plugin.match(body("a")).getGroupId());
+
+        // the match modified long before the watermark isn't read again
+        save("old", "group3", "body", 0);
+        assertEquals(1, plugin.refresh());
+        assertFalse(plugin.match(body("old")).getMatched());
+    }
+
+    /**
+     * @param hash
+     *      full hash
+     * @param groupId
+     *      group id
+     * @param flag
+     *      flag
+     * @param minutes
+     *      modification time in minutes
+     */
+    private void save(final String hash, final String groupId, final String flag, final int minutes) {
+        ManualMatch match = new ManualMatch().setFullHash(hash).setGroupId(groupId).setFlag(flag);
+        match.setModified(at(minutes));
+        database.add(match);
+    }
+
+    /**
+     * @param minutes
+     *      minutes since the start of the test day
+     * @return modification time
+     */
+    private static LocalDateTime at(final int minutes) {
+        return LocalDateTime.of(2018, 1, 1, 0, 0).plusMinutes(minutes);
+    }
+
+    /**
+     * @param hash
+     *      full hash
+     * @return body with the full hash
+     */
+    private static MatchedBody body(final String hash) {
+        return new MatchedBody().setFullHash(hash);
+    }
+}
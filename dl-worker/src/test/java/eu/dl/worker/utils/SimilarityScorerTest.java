@@ -0,0 +1,215 @@
+package eu.dl.worker.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import eu.dl.worker.utils.matched.BodyFingerprint;
+import eu.dl.worker.utils.matched.MatchedUtils;
+import eu.dl.worker.utils.matched.SimilarityScorer;
+
+/**
+ * SimilarityScorer test class. The scores computed from the fingerprints have to be identical with the scores of the
+ * string implementation in MatchedUtils.
+ */
+public final class SimilarityScorerTest {
+    /**
+     * Characters of the random strings, the small alphabet makes shared trigrams likely. Zero character is the same as
+     * the trigram padding.
+     */
+    private static final char[] ALPHABET = {'a', 'b', 'c', ' ', 'ž', '\0'};
+
+    /**
+     * Trigram similarity of the fingerprints is identical with the string one, the upper bound is never lower than
+     * the similarity.
+     */
+    @Test
+    public void trigramSimilarityTest() {
+        Random random = new Random(17);
+        SimilarityScorer scorer = new SimilarityScorer();
+        for (int i = 0; i < 20000; i++) {
+            String source = randomString(random, 12);
+            String target = random.nextInt(5) == 0 ? typo(source, random) : randomString(random, 12);
+
+            BodyFingerprint.Text sourceText = BodyFingerprint.Text.of(source);
+            BodyFingerprint.Text targetText = BodyFingerprint.Text.of(target);
+
+            assertIdentical(MatchedUtils.trigramSimilarity(source, target),
+                scorer.trigramSimilarity(sourceText, targetText), source, target);
+
+            // NGramDistance returns NaN for some strings with the zero character, there is nothing to bound
+            float similarity = MatchedUtils.trigramSimilarity(source, target);
+            assertTrue(source + " x " + target, Float.isNaN(similarity)
+                || SimilarityScorer.trigramUpperBound(sourceText, targetText) + 0.0001f >= similarity);
+        }
+    }
+
+    /**
+     * Test of the upper bounds of the null, equal and short strings.
+     */
+    @Test
+    public void trigramUpperBoundTest() {
+        BodyFingerprint.Text text = BodyFingerprint.Text.of("abcdef");
+        assertEquals(0.5f, SimilarityScorer.trigramUpperBound(text, null), 0f);
+        assertEquals(0.5f, SimilarityScorer.trigramUpperBound(null, text), 0f);
+        assertEquals(1f, SimilarityScorer.trigramUpperBound(text, BodyFingerprint.Text.of("abcdef")), 0f);
+        assertEquals(2 / 6f, SimilarityScorer.trigramUpperBound(text, BodyFingerprint.Text.of("ab")), 0f);
+        assertEquals(0f, SimilarityScorer.trigramUpperBound(text, BodyFingerprint.Text.of("")), 0f);
+        assertEquals(1f, SimilarityScorer.trigramUpperBound(BodyFingerprint.Text.of(""),
+            BodyFingerprint.Text.of("")), 0f);
+    }
+
+    /**
+     * One digit similarity is identical with the string one.
+     */
+    @Test
+    public void oneDigitSimilarityTest() {
+        Random random = new Random(23);
+        SimilarityScorer scorer = new SimilarityScorer();
+        for (int i = 0; i < 20000; i++) {
+            String source = randomString(random, 7);
+            String target = random.nextBoolean() ? typo(source, random) : randomString(random, 7);
+
+            assertIdentical(MatchedUtils.oneDigitSimilarity(source, target),
+                scorer.oneDigitSimilarity(source, target), source, target);
+        }
+    }
+
+    /**
+     * The best NUTS similarity is identical with the best of the string similarities, both for the original and the
+     * cropped codes.
+     */
+    @Test
+    public void bestNutsSimilarityTest() {
+        Random random = new Random(31);
+        SimilarityScorer scorer = new SimilarityScorer();
+        for (int i = 0; i < 20000; i++) {
+            List<String> source = randomNuts(random);
+            List<String> target = randomNuts(random);
+            int crop = random.nextBoolean() ? 5 : 0;
+
+            assertIdentical(bestNutsSimilarity(source, target, crop),
+                scorer.bestNutsSimilarity(fingerprint(source), fingerprint(target), crop), source, target);
+        }
+    }
+
+    /**
+     * Reference implementation of the best NUTS similarity on strings.
+     *
+     * @param source
+     *      source NUTS codes
+     * @param target
+     *      target NUTS codes
+     * @param crop
+     *      number of the compared characters
+     * @return best similarity
+     */
+    private static float bestNutsSimilarity(final List<String> source, final List<String> target, final int crop) {
+        if (source == null || target == null) {
+            return 0.5f;
+        }
+
+        List<Float> similarities = new ArrayList<>();
+        source.forEach(code -> similarities.addAll(MatchedUtils.nutsSimilarities(code, target, crop)));
+
+        return similarities.isEmpty() ? 0f : Collections.max(similarities);
+    }
+
+    /**
+     * @param nuts
+     *      NUTS codes
+     * @return fingerprint with the NUTS codes only
+     */
+    private static BodyFingerprint fingerprint(final List<String> nuts) {
+        return new BodyFingerprint(null, null, null, nuts);
+    }
+
+    /**
+     * @param expected
+     *      score of the string implementation
+     * @param actual
+     *      score of the fingerprints
+     * @param source
+     *      compared source
+     * @param target
+     *      compared target
+     */
+    private static void assertIdentical(final float expected, final float actual, final Object source,
+                                        final Object target) {
+        assertEquals(source + " x " + target, Float.floatToIntBits(expected), Float.floatToIntBits(actual));
+    }
+
+    /**
+     * @param random
+     *      random generator
+     * @return random list of NUTS codes with nulls
+     */
+    private static List<String> randomNuts(final Random random) {
+        if (random.nextInt(10) == 0) {
+            return null;
+        }
+
+        List<String> nuts = new ArrayList<>();
+        for (int i = random.nextInt(3); i >= 0; i--) {
+            if (random.nextInt(10) == 0) {
+                nuts.add(null);
+            } else {
+                String code = "CZ0" + (random.nextInt(3) + 1) + random.nextInt(3);
+                nuts.add(random.nextInt(4) == 0 ? code + random.nextInt(3) : code.substring(0, 3 + random.nextInt(3)));
+            }
+        }
+
+        return random.nextInt(10) == 0 ? Arrays.asList() : nuts;
+    }
+
+    /**
+     * @param random
+     *      random generator
+     * @param maxLength
+     *      maximal length of the string
+     * @return random string or null
+     */
+    private static String randomString(final Random random, final int maxLength) {
+        if (random.nextInt(20) == 0) {
+            return null;
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (int i = random.nextInt(maxLength + 1); i > 0; i--) {
+            text.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * @param value
+     *      original string, may be null
+     * @param random
+     *      random generator
+     * @return string with one character replaced, inserted or removed
+     */
+    private static String typo(final String value, final Random random) {
+        if (value == null || value.isEmpty()) {
+            return value;
+        }
+
+        int position = random.nextInt(value.length());
+        char c = ALPHABET[random.nextInt(ALPHABET.length)];
+        switch (random.nextInt(3)) {
+            case 0:
+                return value.substring(0, position) + c + value.substring(position + 1);
+            case 1:
+                return value.substring(0, position) + c + value.substring(position);
+            default:
+                return value.substring(0, position) + value.substring(position + 1);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package eu.dl.worker.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import eu.dl.worker.utils.matched.BodyFingerprint;
+import eu.dl.worker.utils.matched.MatchedUtils;
+import eu.dl.worker.utils.matched.SimilarityScorer;
+import eu.dl.worker.utils.matched.TrigramIndex;
+
+/**
+ * TrigramIndex test class.
+ */
+public final class TrigramIndexTest {
+    /**
+     * Test of the bounds of the null, equal and short strings.
+     */
+    @Test
+    public void specialCasesTest() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(null);
+        index.add(BodyFingerprint.Text.of("abcdef"));
+        index.add(BodyFingerprint.Text.of("ab"));
+        index.add(BodyFingerprint.Text.of(""));
+
+        float[] bounds = index.getUpperBounds(BodyFingerprint.Text.of("abcdef"));
+        assertEquals(4, index.size());
+        assertEquals(0.5f, bounds[0], 0f);
+        assertEquals(1f, bounds[1], 0f);
+        assertEquals(2 / 6f, bounds[2], 0f);
+        assertEquals(0f, bounds[3], 0f);
+
+        bounds = index.getUpperBounds(null);
+        for (float bound : bounds) {
+            assertEquals(0.5f, bound, 0f);
+        }
+    }
+
+    /**
+     * The upper bounds from the index are the same as the bounds of each pair and they are never lower than the
+     * trigram similarity.
+     */
+    @Test
+    public void upperBoundTest() {
+        List<String> words = Arrays.asList("skola", "skolni", "zakladni", "mesto", "praha", "obec", "nemocnice",
+            "ministerstvo", "sprava", "silnic", "a", "s", "r", "o", "kraj", "urad");
+
+        Random random = new Random(42);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = 1 + random.nextInt(5);
+            for (int j = 0; j < length; j++) {
+                String word = words.get(random.nextInt(words.size()));
+                // random typo
+                if (random.nextInt(4) == 0) {
+                    int position = random.nextInt(word.length());
+                    word = word.substring(0, position) + (char) ('a' + random.nextInt(26)) + word.substring(position);
+                }
+                text.append(j == 0 ? "" : " ").append(word);
+            }
+            texts.add(random.nextInt(20) == 0 ? text.substring(0, Math.min(2, text.length())) : text.toString());
+        }
+
+        TrigramIndex index = new TrigramIndex();
+        texts.forEach(t -> index.add(BodyFingerprint.Text.of(t)));
+
+        for (String query : texts.subList(0, 100)) {
+            BodyFingerprint.Text queryText = BodyFingerprint.Text.of(query);
+            float[] bounds = index.getUpperBounds(queryText);
+            for (int i = 0; i < texts.size(); i++) {
+                assertEquals(SimilarityScorer.trigramUpperBound(queryText, BodyFingerprint.Text.of(texts.get(i))),
+                    bounds[i], 0f);
+
+                float similarity = MatchedUtils.trigramSimilarity(query, texts.get(i));
+                assertTrue(query + " x " + texts.get(i), bounds[i] + 0.0001f >= similarity);
+            }
+        }
+    }
+}
@@ -29,6 +29,7 @@ import java.util.stream.Collectors;
 
 import static eu.dl.dataaccess.utils.RemoveNonsenseUtils.removeNonsensicalAmount;
 import static eu.dl.dataaccess.utils.RemoveNonsenseUtils.removeNonsensicalDateTime;
+import static spark.Spark.afterAfter;
 import static spark.Spark.get;
 
 /**
@@ -81,6 +82,10 @@ public final class TenderApi extends BaseServer {
     public void start() {
         init();
 
+        // each request is handled as a separate unit of work, return the connection of the request thread to the pool
+        // even if the request failed
+        afterAfter((request, response) -> transactionUtils.release());
+
         registerMasterTenderEndpoints();
 
         registerCleanTenderEndpoints();
@@ -92,17 +97,26 @@ public final class TenderApi extends BaseServer {
 
 
     /**
-     * Registers endpoints for clean tender API.
+     * Registers endpoints for clean tender API. The tender list is paged by the token returned in the
+     * {@link #NEXT_PAGE_TOKEN_HEADER} header (the first page is requested by timestamp), the page number parameter is
+     * still supported.
      */
     private void registerCleanTenderEndpoints() {
         get("/protected/clean_tender", "application/json", (request, response) -> {
-            LocalDateTime timestamp = getDate(request.queryParams("timestamp"));
-            Integer page = getInteger(request.queryParams("page"));
             String country = request.queryParams("country");
             String source = request.queryParams("source");
 
             transactionUtils.begin();
-            List<CleanTender> result = cleanDao.getModifiedAfter(timestamp, source, country, page);
+            List<CleanTender> result;
+            if (request.queryParams("page") != null) {
+                // page number is kept for compatibility, deep pages are slow
+                LocalDateTime timestamp = getDate(request.queryParams("timestamp"));
+                Integer page = getInteger(request.queryParams("page"));
+                result = cleanDao.getModifiedAfter(timestamp, source, country, page);
+            } else {
+                result = cleanDao.getModifiedAfter(getPageCursor(request), source, country);
+                setNextPageToken(response, result);
+            }
             transactionUtils.commit();
             return result;
         }, new JsonTransformer());
@@ -120,12 +134,12 @@ public final class TenderApi extends BaseServer {
     }
 
     /**
-     * Registers endpoints for master tender API.
+     * Registers endpoints for master tender API. The tender list is paged by the token returned in the
+     * {@link #NEXT_PAGE_TOKEN_HEADER} header (the first page is requested by timestamp), the page number parameter is
+     * still supported.
      */
     private void registerMasterTenderEndpoints() {
         get("/protected/master_tender", "application/json", (request, response) -> {
-            LocalDateTime timestamp = getDate(request.queryParams("timestamp"));
-            Integer page = getInteger(request.queryParams("page"));
             String country = request.queryParams("country");
             String source = request.queryParams("source");
             String format = request.queryParamOrDefault("format", DEFAULT_FORMAT).toLowerCase();
@@ -133,7 +147,16 @@ public final class TenderApi extends BaseServer {
 
             transactionUtils.begin();
 
-            List<MasterTender> result = masterDao.getModifiedAfter(timestamp, source, country, page, opentender);
+            List<MasterTender> result;
+            if (request.queryParams("page") != null) {
+                // page number is kept for compatibility, deep pages are slow
+                LocalDateTime timestamp = getDate(request.queryParams("timestamp"));
+                Integer page = getInteger(request.queryParams("page"));
+                result = masterDao.getModifiedAfter(timestamp, source, country, page, opentender);
+            } else {
+                result = masterDao.getModifiedAfter(getPageCursor(request), source, country, opentender);
+                setNextPageToken(response, result);
+            }
 
             populateUtils.populateBodies(result);
             transactionUtils.commit();
@@ -204,13 +227,20 @@ public final class TenderApi extends BaseServer {
         }, new JsonTransformer());
 
         get("/protected/master_tender/buyer_profile_matching", "application/json", (request, response) -> {
-            LocalDateTime timestamp = getDate(request.queryParams("timestamp"));
-            Integer page = getInteger(request.queryParams("page"));
             String source = request.queryParams("source");
 
             transactionUtils.begin();
 
-            List<MasterTender> result = masterDao.getModifiedAfterForBuyerProfileMatching(timestamp, source, page);
+            List<MasterTender> result;
+            if (request.queryParams("page") != null) {
+                // page number is kept for compatibility, deep pages are slow
+                LocalDateTime timestamp = getDate(request.queryParams("timestamp"));
+                Integer page = getInteger(request.queryParams("page"));
+                result = masterDao.getModifiedAfterForBuyerProfileMatching(timestamp, source, page);
+            } else {
+                result = masterDao.getModifiedAfterForBuyerProfileMatching(getPageCursor(request), source);
+                setNextPageToken(response, result);
+            }
 
             populateUtils.populateBodies(result);
             transactionUtils.commit();
@@ -1,6 +1,7 @@
 
 package eu.datlab.dataaccess.dao.jdbc;
 
+import java.io.IOException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -26,6 +27,13 @@ public class JdbcBVDEtalonBodyDAO extends BaseJdbcDAO<BVDEtalonBody> implements
 
     private static final int DIGEST_LENGTH_THRESHOLD = 3;
 
+    /**
+     * Updated columns of the registry, id first.
+     */
+    private static final List<String> UPDATED_COLUMNS = Arrays.asList("id", "digest", "standardizedname",
+        "standardizedaddress", "nuts3", "european_vat_number", "statistical_number", "trade_register_number",
+        "vattax_number", "digest2");
+
     /**
      * Initializes connection etc.
      */
@@ -44,7 +52,7 @@ public class JdbcBVDEtalonBodyDAO extends BaseJdbcDAO<BVDEtalonBody> implements
         }
 
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM bvd.registry_information WHERE " + restriction.toString() + ";");
 
             ResultSet rs = statement.executeQuery();
@@ -81,7 +89,7 @@ public class JdbcBVDEtalonBodyDAO extends BaseJdbcDAO<BVDEtalonBody> implements
         }
 
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM bvd.registry_information WHERE " + restriction.toString() + ";");
             long pluginStartTime = System.currentTimeMillis();
             ResultSet rs = statement.executeQuery();
@@ -108,7 +116,7 @@ public class JdbcBVDEtalonBodyDAO extends BaseJdbcDAO<BVDEtalonBody> implements
     @Override
     public final BVDEtalonBody getById(final String id) {
         try {
-            PreparedStatement statement = connection
+            PreparedStatement statement = getConnection()
                     .prepareStatement("SELECT * FROM bvd.registry_information  WHERE id = ?;");
 
             statement.setInt(1, Integer.valueOf(id));
@@ -137,7 +145,7 @@ public class JdbcBVDEtalonBodyDAO extends BaseJdbcDAO<BVDEtalonBody> implements
     @Override
     public final List<BVDEtalonBody> findAll(final int pageNumber, final int pageSize, final int offset) {
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM bvd.registry_information ORDER BY id LIMIT ? OFFSET ?;");
             
             statement.setInt(1, pageSize);
@@ -164,7 +172,7 @@ public class JdbcBVDEtalonBodyDAO extends BaseJdbcDAO<BVDEtalonBody> implements
     @Override
     public final void updateDigestsAndBodyIdsAndNuts(final BVDEtalonBody body) {
         try {
-            PreparedStatement statement = connection.prepareStatement("UPDATE bvd.registry_information SET "
+            PreparedStatement statement = getConnection().prepareStatement("UPDATE bvd.registry_information SET "
                 + "digest = ?, standardizedname = ?, standardizedaddress = ?, nuts3 = ?, european_vat_number = ?,"
                 + " statistical_number = ?, trade_register_number = ?, vattax_number = ?, digest2 = ? WHERE id = ?;");
 
@@ -187,6 +195,51 @@ public class JdbcBVDEtalonBodyDAO extends BaseJdbcDAO<BVDEtalonBody> implements
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The values are copied to a temporary staging table with the COPY command and the registry is updated with one
+     * UPDATE ... FROM statement.
+     */
+    @Override
+    public final void updateDigestsAndBodyIdsAndNuts(final List<BVDEtalonBody> bodies) {
+        if (bodies.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = bodies.stream()
+            .map(b -> new Object[]{Integer.valueOf(b.getId()), b.getDigest(), b.getStandardizedName(),
+                b.getStandardizedAddress(), b.getNuts3(), b.getEuropeanVatNumber(), b.getStatisticalNumber(),
+                b.getTradeRegisterNumber(), b.getVatTaxNumber(), b.getDigest2()})
+            .collect(Collectors.toList());
+
+        String assignments = UPDATED_COLUMNS.stream()
+            .skip(1)
+            .map(c -> c + " = s." + c)
+            .collect(Collectors.joining(", "));
+
+        try {
+            executeInTransaction(connection -> {
+                copyToStagingTable("registry_information_staging",
+                    "id integer, digest text, standardizedname text, standardizedaddress text, nuts3 text,"
+                        + " european_vat_number text, statistical_number text, trade_register_number text,"
+                        + " vattax_number text, digest2 text",
+                    UPDATED_COLUMNS, rows);
+
+                PreparedStatement statement = connection.prepareStatement("UPDATE bvd.registry_information r SET "
+                    + assignments + " FROM registry_information_staging s WHERE r.id = s.id");
+                int updated = statement.executeUpdate();
+                statement.close();
+
+                logger.debug("Updated {} etalon bodies", updated);
+                return updated;
+            });
+        } catch (SQLException | IOException e) {
+            logger.error("Unable to perform query, because of of {}", e);
+            throw new UnrecoverableException("Unable to perform query.", e);
+        }
+    }
+
     /**
      * Creates BVDEtalonBody object from a result set object.
      * 
@@ -314,7 +367,7 @@ public class JdbcBVDEtalonBodyDAO extends BaseJdbcDAO<BVDEtalonBody> implements
 	@Override
 	public final List<BVDEtalonBody> findAllById(final int id, final int amount) {
 		try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM bvd.registry_information WHERE id >= ? ORDER BY id LIMIT ?;");
             
             statement.setInt(1, id);
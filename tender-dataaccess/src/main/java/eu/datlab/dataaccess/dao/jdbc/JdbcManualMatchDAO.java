@@ -2,9 +2,13 @@ package eu.datlab.dataaccess.dao.jdbc;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import eu.dl.core.UnrecoverableException;
 import eu.dl.dataaccess.dao.ManualMatchDAO;
@@ -38,7 +42,7 @@ public class JdbcManualMatchDAO<T extends ManualMatch> extends BaseJdbcDAO<Manua
             }
 
             PreparedStatement statement =
-                connection.prepareStatement("SELECT * FROM " + getTableWithSchema() + " WHERE " + query);
+                getConnection().prepareStatement("SELECT * FROM " + getTableWithSchema() + " WHERE " + query);
 
             ResultSet rs = statement.executeQuery();
 
@@ -81,7 +85,7 @@ public class JdbcManualMatchDAO<T extends ManualMatch> extends BaseJdbcDAO<Manua
 //            String query = "data @> '{\"flag\":\"" + sanitizeForJsonString(flag) + "\"}'";
 
             PreparedStatement statement =
-                connection.prepareStatement("SELECT * FROM " + getTableWithSchema() + " WHERE flag = ?");
+                getConnection().prepareStatement("SELECT * FROM " + getTableWithSchema() + " WHERE flag = ?");
 
             statement.setString(1, flag);
             ResultSet rs = statement.executeQuery();
@@ -105,4 +109,73 @@ public class JdbcManualMatchDAO<T extends ManualMatch> extends BaseJdbcDAO<Manua
             throw new UnrecoverableException("Unable to generate result set.", e);
         }
 	}
-}
\ No newline at end of file
+
+    @Override
+    public final void forEachEntry(final String flag, final Consumer<ManualMatch> action) {
+        if (flag == null) {
+            return;
+        }
+
+        try {
+            forEachRow("SELECT hash, flag, groupid, modified FROM " + getTableWithSchema() + " WHERE flag = ?",
+                statement -> statement.setString(1, flag),
+                rs -> action.accept(createFromResultSet(rs)));
+        } catch (Exception e) {
+            logger.error("Unable to perform query, because of {}", e);
+            throw new UnrecoverableException("Unable to perform query.", e);
+        }
+    }
+
+    @Override
+    public final List<ManualMatch> getModifiedSince(final String flag, final LocalDateTime since) {
+        if (flag == null || since == null) {
+            return Collections.emptyList();
+        }
+
+        try {
+            PreparedStatement statement = getConnection().prepareStatement("SELECT hash, flag, groupid, modified"
+                + " FROM " + getTableWithSchema() + " WHERE flag = ? AND modified >= ? ORDER BY modified");
+
+            statement.setString(1, flag);
+            statement.setTimestamp(2, Timestamp.valueOf(since));
+            ResultSet rs = statement.executeQuery();
+
+            List<ManualMatch> result = new ArrayList<>();
+
+            while (rs.next()) {
+                result.add(createFromResultSet(rs));
+            }
+
+            rs.close();
+            statement.close();
+
+            return result;
+        } catch (Exception e) {
+            logger.error("Unable to generate result set, because of of {}", e);
+            throw new UnrecoverableException("Unable to generate result set.", e);
+        }
+    }
+
+    /**
+     * Creates manual match from the current row of the result set.
+     *
+     * @param rs
+     *      result set with columns hash, flag, groupid and modified
+     * @return manual match
+     * @throws SQLException
+     *      in case of database failure
+     */
+    private static ManualMatch createFromResultSet(final ResultSet rs) throws SQLException {
+        ManualMatch mm = new ManualMatch();
+        mm.setFullHash(rs.getString("hash"));
+        mm.setFlag(rs.getString("flag"));
+        mm.setGroupId(rs.getString("groupid"));
+
+        Timestamp modified = rs.getTimestamp("modified");
+        if (modified != null) {
+            mm.setModified(modified.toLocalDateTime());
+        }
+
+        return mm;
+    }
+}
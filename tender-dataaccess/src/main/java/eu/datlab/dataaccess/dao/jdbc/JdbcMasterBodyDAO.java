@@ -7,6 +7,7 @@ import eu.dl.dataaccess.dto.master.MasterBody;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.function.Consumer;
 
 /**
  * JDBC implementation of master tender DAO.
@@ -34,7 +35,7 @@ public class JdbcMasterBodyDAO extends GenericJdbcDAO<MasterBody> implements Mas
      */
     public final boolean existsInPoliticalExposedPersons(final String bvdIdNumber) {
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM " + schema + ".political_exposed_persons WHERE mi_bvd_id_number = '" +
                             bvdIdNumber + "'");
 
@@ -51,4 +52,16 @@ public class JdbcMasterBodyDAO extends GenericJdbcDAO<MasterBody> implements Mas
             throw new UnrecoverableException("Unable to perform query.", e);
         }
     }
+
+    @Override
+    public final void forEachPoliticalExposedPersonId(final Consumer<String> action) {
+        try {
+            forEachRow("SELECT DISTINCT mi_bvd_id_number FROM " + schema + ".political_exposed_persons"
+                    + " WHERE mi_bvd_id_number IS NOT NULL", statement -> { },
+                rs -> action.accept(rs.getString("mi_bvd_id_number")));
+        } catch (Exception e) {
+            logger.error("Unable to perform query, because of of {}", e);
+            throw new UnrecoverableException("Unable to perform query.", e);
+        }
+    }
 }
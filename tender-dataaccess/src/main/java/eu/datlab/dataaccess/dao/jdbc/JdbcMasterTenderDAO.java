@@ -1,6 +1,7 @@
 package eu.datlab.dataaccess.dao.jdbc;
 
 import eu.dl.dataaccess.dao.MasterTenderApiDAO;
+import eu.dl.dataaccess.dao.PageCursor;
 import eu.dl.core.UnrecoverableException;
 import eu.dl.dataaccess.dao.jdbc.GenericJdbcDAO;
 import eu.dl.dataaccess.dto.master.MasterTender;
@@ -48,10 +49,10 @@ public class JdbcMasterTenderDAO extends GenericJdbcDAO<MasterTender> implements
                 query = query + " AND data->'metaData'->>'opentender' = 'true'";
             }
 
-            query = query + " ORDER BY modified ASC LIMIT ? OFFSET ?";
+            query = query + " ORDER BY modified ASC, id ASC LIMIT ? OFFSET ?";
 
             System.out.println(query);
-            PreparedStatement statement = connection.prepareStatement(query);
+            PreparedStatement statement = getConnection().prepareStatement(query);
 
             statement.setTimestamp(1, Timestamp.valueOf(timestamp));
             statement.setInt(2, pageSize);
@@ -82,6 +83,62 @@ public class JdbcMasterTenderDAO extends GenericJdbcDAO<MasterTender> implements
     }
 
     @Override
+    public final List<MasterTender> getModifiedAfter(final PageCursor cursor, final String createdBy, final String countryCode,
+                                                     final boolean opentender, final Integer pageSize) {
+        try {
+            String query = "SELECT * FROM " + getTableWithSchema() + " WHERE " + getCursorCondition(cursor);
+
+            if (createdBy != null && !createdBy.isEmpty()) {
+                query = query + " AND createdby = ?";
+            }
+
+            if (countryCode != null && !countryCode.isEmpty()) {
+                query = query + " AND data->>'country' = ?";
+            }
+
+            if (opentender) {
+                query = query + " AND data->'metaData'->>'opentender' = 'true'";
+            }
+
+            query = query + " ORDER BY modified ASC, id ASC LIMIT ?";
+
+            PreparedStatement statement = getConnection().prepareStatement(query);
+
+            int index = setCursorParameters(statement, 1, cursor);
+            if (createdBy != null && !createdBy.isEmpty()) {
+                statement.setString(index++, createdBy);
+            }
+            if (countryCode != null && !countryCode.isEmpty()) {
+                statement.setString(index++, countryCode);
+            }
+            statement.setInt(index, pageSize);
+
+            ResultSet rs = statement.executeQuery();
+
+            List<MasterTender> result = new ArrayList<>();
+
+            while (rs.next()) {
+                result.add(createFromResultSet(rs));
+            }
+
+            rs.close();
+            statement.close();
+
+            return result;
+        } catch (Exception e) {
+            logger.error("Unable to perform query, because of of {}", e);
+            throw new UnrecoverableException("Unable to perform query.", e);
+        }
+    }
+
+    @Override
+    public final List<MasterTender> getModifiedAfter(final PageCursor cursor, final String createdBy, final String countryCode,
+                                                     final boolean opentender) {
+        return getModifiedAfter(cursor, createdBy, countryCode, opentender, getPageSize());
+    }
+
+    @Override
+    @Deprecated
     public final List<MasterTender> getModifiedAfterForBuyerProfileMatching(final LocalDateTime timestamp, final String createdBy,
                                                                             final Integer page) {
         if (createdBy == null) {
@@ -89,7 +146,7 @@ public class JdbcMasterTenderDAO extends GenericJdbcDAO<MasterTender> implements
         }
 
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                 "WITH data AS ("
                     + "SELECT id,"
                         + " min(p->>'publicationDate') FILTER (WHERE p->>'publicationDate' IS NOT NULL and (p->>'isIncluded')::boolean)"
@@ -101,7 +158,7 @@ public class JdbcMasterTenderDAO extends GenericJdbcDAO<MasterTender> implements
                 + " SELECT *"
                 + " FROM " + getTableWithSchema()
                 + " WHERE id IN (SELECT id FROM data WHERE min_publication_date IS NULL OR min_publication_date >= '2012-06-30')"
-                + " ORDER BY modified ASC LIMIT ? OFFSET ?"
+                + " ORDER BY modified ASC, id ASC LIMIT ? OFFSET ?"
             );
 
             statement.setString(1, createdBy);
@@ -126,4 +183,49 @@ public class JdbcMasterTenderDAO extends GenericJdbcDAO<MasterTender> implements
             throw new UnrecoverableException("Unable to perform query.", e);
         }
     }
+
+    @Override
+    public final List<MasterTender> getModifiedAfterForBuyerProfileMatching(final PageCursor cursor, final String createdBy) {
+        if (createdBy == null) {
+            return Collections.emptyList();
+        }
+
+        try {
+            PreparedStatement statement = getConnection().prepareStatement(
+                "WITH data AS ("
+                    + "SELECT id,"
+                        + " min(p->>'publicationDate') FILTER (WHERE p->>'publicationDate' IS NOT NULL and (p->>'isIncluded')::boolean)"
+                            + " AS min_publication_date"
+                    + " FROM " + getTableWithSchema() + " t, jsonb_array_elements(t.data->'publications') p"
+                    + " WHERE createdby = ? AND " + getCursorCondition(cursor)
+                        + " AND data@>'{\"publications\": [{\"isIncluded\": true}]}'"
+                    + " GROUP BY id"
+                + ")"
+                + " SELECT *"
+                + " FROM " + getTableWithSchema()
+                + " WHERE id IN (SELECT id FROM data WHERE min_publication_date IS NULL OR min_publication_date >= '2012-06-30')"
+                + " ORDER BY modified ASC, id ASC LIMIT ?"
+            );
+
+            statement.setString(1, createdBy);
+            int index = setCursorParameters(statement, 2, cursor);
+            statement.setInt(index, getPageSize());
+
+            ResultSet rs = statement.executeQuery();
+
+            List<MasterTender> result = new ArrayList<>();
+
+            while (rs.next()) {
+                result.add(createFromResultSet(rs));
+            }
+
+            rs.close();
+            statement.close();
+
+            return result;
+        } catch (Exception e) {
+            logger.error("Unable to perform query, because of of {}", e);
+            throw new UnrecoverableException("Unable to perform query.", e);
+        }
+    }
 }
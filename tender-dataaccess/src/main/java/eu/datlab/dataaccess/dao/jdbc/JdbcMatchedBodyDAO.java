@@ -1,6 +1,7 @@
 package eu.datlab.dataaccess.dao.jdbc;
 
 import eu.dl.core.UnrecoverableException;
+import eu.dl.dataaccess.dao.MatchedBodiesPool;
 import eu.dl.dataaccess.dao.MatchedBodyDAO;
 import eu.dl.dataaccess.dao.jdbc.GenericJdbcDAO;
 import eu.dl.dataaccess.dto.codetables.BodyIdentifier;
@@ -11,11 +12,19 @@ import eu.dl.dataaccess.dto.matched.MatchedGroupInfo;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.apache.commons.text.StringEscapeUtils;
 
 /**
  * JDBC implementation of master tender DAO.
@@ -26,6 +35,11 @@ public class JdbcMatchedBodyDAO extends GenericJdbcDAO<MatchedBody> implements M
 
     private static final int SELECT_DURATION_THRESHOLD = 50;
 
+    /**
+     * Pools prefetched for the current thread, see {@link #setPrefetchedPools(MatchedBodiesPool)}.
+     */
+    private final ThreadLocal<MatchedBodiesPool<MatchedBody>> prefetchedPools = new ThreadLocal<>();
+
     @Override
     public final MatchedBody getEmptyInstance() {
         return new MatchedBody();
@@ -40,6 +54,14 @@ public class JdbcMatchedBodyDAO extends GenericJdbcDAO<MatchedBody> implements M
     public final List<MatchedBody> getExactMatchBodiesPool(final String standardizedName,
                                                            final String standardizedAddress, final
                                                            List<BodyIdentifier> bodyIds) {
+        final MatchedBodiesPool<MatchedBody> pools = prefetchedPools.get();
+        if (pools != null) {
+            final List<MatchedBody> pool = pools.getExactMatchBodiesPool(standardizedName, standardizedAddress,
+                bodyIds);
+            if (pool != null) {
+                return pool;
+            }
+        }
 
         StringBuilder restriction = exactMatchRestrictionBuilder(standardizedName, standardizedAddress, bodyIds);
         String additionalMatchersRestriction = prepareAdditionalWorkersCondition();
@@ -48,7 +70,7 @@ public class JdbcMatchedBodyDAO extends GenericJdbcDAO<MatchedBody> implements M
             return Collections.emptyList();
         }
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM " + getTableWithSchema() + " WHERE ((modifiedBy = ? AND modifiedByVersion = ?) " +
                             additionalMatchersRestriction + ") AND (" + restriction
                             .toString() + ")");
@@ -78,6 +100,14 @@ public class JdbcMatchedBodyDAO extends GenericJdbcDAO<MatchedBody> implements M
                                                                  final String standardizedAddress, final
                                                                  List<BodyIdentifier> bodyIds, final String
                                                                          digest) {
+        final MatchedBodiesPool<MatchedBody> pools = prefetchedPools.get();
+        if (pools != null) {
+            final List<MatchedBody> pool = pools.getApproximateMatchBodiesPool(standardizedName, standardizedAddress,
+                bodyIds, digest);
+            if (pool != null) {
+                return pool;
+            }
+        }
 
         StringBuilder restriction = approximateMatchRestrictionBuilder(standardizedName, standardizedAddress, bodyIds,
                 digest);
@@ -89,7 +119,7 @@ public class JdbcMatchedBodyDAO extends GenericJdbcDAO<MatchedBody> implements M
 
         try {
 
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM " + getTableWithSchema() + " WHERE ((modifiedBy = ? AND modifiedByVersion = ?) " +
                             additionalMatchersRestriction + ") AND (" + restriction
                             .toString() + ")");
@@ -120,6 +150,78 @@ public class JdbcMatchedBodyDAO extends GenericJdbcDAO<MatchedBody> implements M
         }
     }
 
+    @Override
+    public final MatchedBodiesPool<MatchedBody> getMatchBodiesPools(final Collection<? extends MatchedBody> bodies) {
+        // the single body queries compare the stored values with the JSON escaped ones (see sanitizeForJsonString),
+        // the same values are searched for here so both return the same pools
+        final MatchedBodiesPool.Keys keys = new MatchedBodiesPool.Keys(bodies, StringEscapeUtils::escapeJson);
+        if (keys.isEmpty()) {
+            return new MatchedBodiesPool<>(keys, Collections.emptyList());
+        }
+
+        final List<String> restrictions = new ArrayList<>();
+        if (!keys.getNames().isEmpty()) {
+            restrictions.add("md5(data ->>'standardizedName') IN (SELECT md5(n) FROM unnest(?::text[]) AS n)");
+        }
+        if (!keys.getAddresses().isEmpty()) {
+            restrictions.add("md5(data ->>'standardizedAddress') IN (SELECT md5(a) FROM unnest(?::text[]) AS a)");
+        }
+        if (!keys.getDigests().isEmpty()) {
+            restrictions.add("data ->>'digest' IN (SELECT unnest(?::text[]))");
+        }
+        // containment can't be searched by an array of values using the index, so each identifier has its condition
+        keys.getBodyIds().forEach(id -> restrictions.add("data @> ?::jsonb"));
+
+        try {
+            PreparedStatement statement = getConnection().prepareStatement(
+                    "SELECT * FROM " + getTableWithSchema() + " WHERE ((modifiedBy = ? AND modifiedByVersion = ?) " +
+                            prepareAdditionalWorkersCondition() + ") AND (" + String.join(" OR ", restrictions) + ")");
+
+            int i = 1;
+            statement.setString(i++, workerName);
+            statement.setString(i++, workerVersion);
+            for (Collection<String> values : Arrays.asList(keys.getNames(), keys.getAddresses(), keys.getDigests())) {
+                if (!values.isEmpty()) {
+                    statement.setArray(i++, getConnection().createArrayOf("text", values.toArray()));
+                }
+            }
+            for (BodyIdentifier id : keys.getBodyIds()) {
+                statement.setString(i++, "{\"bodyIds\":[{\"id\":\"" + StringEscapeUtils.escapeJson(id.getId())
+                    + "\",\"scope\":\"" + id.getScope() + "\"}]}");
+            }
+
+            long selectStartTime = System.currentTimeMillis();
+            ResultSet rs = statement.executeQuery();
+            long selectEndTime = System.currentTimeMillis();
+            if (selectEndTime - selectStartTime > SELECT_DURATION_THRESHOLD) {
+                logger.warn("Too long selection of matched bodies pools of {} bodies {} ms.", bodies.size(),
+                        selectEndTime - selectStartTime);
+            }
+
+            List<MatchedBody> result = new ArrayList<MatchedBody>();
+            while (rs.next()) {
+                result.add(createFromResultSet(rs));
+            }
+
+            rs.close();
+            statement.close();
+
+            return new MatchedBodiesPool<>(keys, result);
+        } catch (Exception e) {
+            logger.error("Unable to perform query, because of of {}", e);
+            throw new UnrecoverableException("Unable to perform query.", e);
+        }
+    }
+
+    @Override
+    public final void setPrefetchedPools(final MatchedBodiesPool<MatchedBody> pools) {
+        if (pools == null) {
+            prefetchedPools.remove();
+        } else {
+            prefetchedPools.set(pools);
+        }
+    }
+
     @Override
     public final MatchedBody getByEtalonId(final String id) {
         if (id == null) {
@@ -140,7 +242,7 @@ public class JdbcMatchedBodyDAO extends GenericJdbcDAO<MatchedBody> implements M
         String additionalMatchersRestriction = prepareAdditionalWorkersCondition();
 
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM " + getTableWithSchema() + " WHERE ((modifiedBy = ? AND modifiedByVersion = ?) " +
                             additionalMatchersRestriction + ") AND " + bodyIdsRestriction
                             .toString());
@@ -169,7 +271,7 @@ public class JdbcMatchedBodyDAO extends GenericJdbcDAO<MatchedBody> implements M
     @Override
     public final List<MatchedBody> getForResend(final String name, final String version) {
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT DISTINCT data->>'groupId' AS groupId FROM " + getTableWithSchema() + " WHERE modifiedby "
                             + "=" + " ? AND modifiedbyversion = ?");
 
@@ -288,7 +390,7 @@ public class JdbcMatchedBodyDAO extends GenericJdbcDAO<MatchedBody> implements M
                 gidStm.append("data @> '{\"groupId\":\"").append(sanitizeForJsonString(gid)).append("\"}'");
             });
 
-            PreparedStatement statement = connection.prepareStatement("select data#>>'{groupId}' as gid,"
+            PreparedStatement statement = getConnection().prepareStatement("select data#>>'{groupId}' as gid,"
                     + "SUM((data @> '{\"bodyIds\": [{\"type\": \"ETALON_ID\"}]}')::int) > 0 as hasEtalon,"
                     + "COUNT(*) as size"
                     + " FROM " + getTableWithSchema()
@@ -331,7 +433,7 @@ public class JdbcMatchedBodyDAO extends GenericJdbcDAO<MatchedBody> implements M
         String additionalMatchersRestriction = prepareAdditionalWorkersCondition();
 
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT data->'groupId' as groupId FROM " + getTableWithSchema()
                             + " WHERE ((createdBy = ? AND createdByVersion = ?) "
                             + additionalMatchersRestriction + ") AND " + bodyIdsRestriction
@@ -359,28 +461,32 @@ public class JdbcMatchedBodyDAO extends GenericJdbcDAO<MatchedBody> implements M
     @Override
     public final Map<String, String> getHashAndGroupIds() {
         final Map<String, String> result = new HashMap<>();
+        forEachHashAndGroupId(result::put);
+        return result;
+    }
 
-        String oneBeforePreviousDate = null;
-        String previousDate = null;
+    @Override
+    public final void forEachHashAndGroupId(final BiConsumer<String, String> action) {
+        forEachHashAndGroupId(null, action);
+    }
 
+    @Override
+    public final void forEachHashAndGroupId(final LocalDateTime modifiedSince,
+                                            final BiConsumer<String, String> action) {
         try {
-            while (true) {
-                PreparedStatement statement = connection.prepareStatement(
-                    "SELECT modified, data->>'groupId' as groupId, data->>'hash' as hash,"
-                        + " jsonb_array_elements(data->'alternativeHashes')->>'hash' as alternativeHash"
-                    + " FROM " + getTableWithSchema()
-                    + " WHERE ((createdBy = ? AND createdByVersion = ?)" + prepareAdditionalWorkersCondition() + ")"
-                        + prepareModifiedAfterCondition(previousDate)
-                    + " ORDER BY modified ASC LIMIT 100000;");
-                
-                statement.setString(1, workerName);
-                statement.setString(2, workerVersion);
-
-                ResultSet rs = statement.executeQuery();
-
-                boolean noResults = true;
-
-                while (rs.next()) {
+            forEachRow("SELECT data->>'groupId' as groupId, data->>'hash' as hash,"
+                    + " jsonb_array_elements(data->'alternativeHashes')->>'hash' as alternativeHash"
+                + " FROM " + getTableWithSchema()
+                + " WHERE ((createdBy = ? AND createdByVersion = ?)" + prepareAdditionalWorkersCondition() + ")"
+                + (modifiedSince == null ? "" : " AND modified >= ?"),
+                statement -> {
+                    statement.setString(1, workerName);
+                    statement.setString(2, workerVersion);
+                    if (modifiedSince != null) {
+                        statement.setTimestamp(3, Timestamp.valueOf(modifiedSince));
+                    }
+                },
+                rs -> {
                     final String groupId = rs.getString("groupId");
 
                     if (groupId != null && !groupId.isEmpty()) {
@@ -388,48 +494,47 @@ public class JdbcMatchedBodyDAO extends GenericJdbcDAO<MatchedBody> implements M
                         final String alternativeHash = rs.getString("alternativeHash");
 
                         if (hash != null && !hash.isEmpty()) {
-                            result.put(hash, groupId);
+                            action.accept(hash, groupId);
                         }
 
                         if (alternativeHash != null && !alternativeHash.isEmpty()) {
-                            result.put(alternativeHash, groupId);
+                            action.accept(alternativeHash, groupId);
                         }
                     }
-
-                    previousDate = rs.getString("modified");
-                    noResults = false;
-                }
-
-                rs.close();
-                statement.close();
-
-                if (noResults) {
-                    break;
-                }
-
-                if (oneBeforePreviousDate != null && oneBeforePreviousDate.equals(
-                        previousDate)) {
-                    break;
-                } else {
-                    oneBeforePreviousDate = previousDate;
-                }
-            }
-
-            return result;
+                });
         } catch (Exception e) {
             logger.error("Unable to perform query, because of {}", e);
             throw new UnrecoverableException("Unable to perform query.", e);
         }
     }
 
-    /**
-     * Create sql condition if lastDate is not null.
-     *
-     * @param lastDate date by which to filter
-     * @return String or null
-     */
-    private String prepareModifiedAfterCondition(final String lastDate) {
-        return lastDate == null ? "" : " AND (modified > '" + lastDate + "')";
+    @Override
+    public final void forEachGroupInfo(final Consumer<MatchedGroupInfo> action) {
+        try {
+            forEachRow("SELECT data#>>'{groupId}' as gid,"
+                    + "SUM((data @> '{\"bodyIds\": [{\"type\": \"ETALON_ID\"}]}')::int) > 0 as hasEtalon,"
+                    + "COUNT(*) as size"
+                + " FROM " + getTableWithSchema()
+                + " WHERE modifiedby = ? AND modifiedbyversion = ?"
+                + " GROUP BY gid",
+                statement -> {
+                    statement.setString(1, workerName);
+                    statement.setString(2, workerVersion);
+                },
+                rs -> {
+                    final String groupId = rs.getString("gid");
+
+                    if (groupId != null) {
+                        action.accept(new MatchedGroupInfo()
+                            .setGroupId(groupId)
+                            .setSize(rs.getInt("size"))
+                            .setHasEtalon(rs.getBoolean("hasEtalon")));
+                    }
+                });
+        } catch (Exception e) {
+            logger.error("Unable to perform query, because of {}", e);
+            throw new UnrecoverableException("Unable to perform query.", e);
+        }
     }
 
     @Override
@@ -439,7 +544,7 @@ public class JdbcMatchedBodyDAO extends GenericJdbcDAO<MatchedBody> implements M
         }
 
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                 "SELECT * FROM " + getTableWithSchema()
                     + " WHERE ((createdBy = ? AND createdByVersion = ?) " + prepareAdditionalWorkersCondition() + ")" +
                     " AND data @> '{\"name\":\"" + name +"\", \"role\":\"" + role + "\"}'");
@@ -76,7 +76,7 @@ public class JdbcMatchedTenderDAO extends GenericJdbcDAO<MatchedTender> implemen
             }
 
             try {
-                PreparedStatement statement = connection.prepareStatement(
+                PreparedStatement statement = getConnection().prepareStatement(
                         "SELECT * FROM " + getTableWithSchema() + " WHERE ((modifiedBy = ? AND modifiedByVersion = ?)"
                                 + "" + " " + additionalMatchersRestriction + ") AND (" + idRestriction
                                 .toString() + ")");
@@ -159,7 +159,7 @@ public class JdbcMatchedTenderDAO extends GenericJdbcDAO<MatchedTender> implemen
             }
 
             try {
-                PreparedStatement statement = connection.prepareStatement(
+                PreparedStatement statement = getConnection().prepareStatement(
                         "SELECT * FROM " + getTableWithSchema() + " WHERE ((modifiedBy = ? AND modifiedByVersion = ?)"
                                 + "" + " " + additionalMatchersRestriction + ") AND (" + urlRestriction
                                 .toString() + ")");
@@ -235,7 +235,7 @@ public class JdbcMatchedTenderDAO extends GenericJdbcDAO<MatchedTender> implemen
             }
 
             try {
-                PreparedStatement statement = connection.prepareStatement(
+                PreparedStatement statement = getConnection().prepareStatement(
                         "SELECT * FROM " + getTableWithSchema() + " WHERE ((modifiedBy = ? AND modifiedByVersion = ?)"
                                 + "" + " " + additionalMatchersRestriction + ") AND (" + urlRestriction
                                 .toString() + ")");
@@ -289,7 +289,7 @@ public class JdbcMatchedTenderDAO extends GenericJdbcDAO<MatchedTender> implemen
                 .append("}}'");
 
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT * FROM " + getTableWithSchema() + " WHERE ((modifiedBy = ? AND modifiedByVersion = ?) "
                             + additionalMatchersRestriction + ") AND (" + urlRestriction.toString() + ")");
 
@@ -318,7 +318,7 @@ public class JdbcMatchedTenderDAO extends GenericJdbcDAO<MatchedTender> implemen
     @Override
     public final List<MatchedTender> getForResend(final String name, final String version) {
         try {
-            PreparedStatement statement = connection.prepareStatement(
+            PreparedStatement statement = getConnection().prepareStatement(
                     "SELECT DISTINCT data->>'groupId' AS groupId FROM " + getTableWithSchema() + " WHERE modifiedby "
                             + "=" + " ? AND modifiedbyversion = ?");
 
@@ -387,7 +387,7 @@ public class JdbcMatchedTenderDAO extends GenericJdbcDAO<MatchedTender> implemen
                 .collect(Collectors.joining(" OR "));
             
             try {
-                PreparedStatement statement = connection.prepareStatement(
+                PreparedStatement statement = getConnection().prepareStatement(
                         "SELECT * FROM " + getTableWithSchema() + " WHERE ((modifiedBy = ? AND modifiedByVersion = ?)"
                                 + "" + " " + additionalMatchersRestriction + ") AND (" + restriction + ")");
 
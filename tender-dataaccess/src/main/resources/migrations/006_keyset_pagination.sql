@@ -0,0 +1,10 @@
+SET search_path TO tender_development;
+
+-- keyset pagination seeks by (modified, id), see PageCursor
+CREATE INDEX raw_data_modified_id_idx ON raw_data (modified, id);
+CREATE INDEX parsed_tender_modified_id_idx ON parsed_tender (modified, id);
+CREATE INDEX clean_tender_modified_id_idx ON clean_tender (modified, id);
+CREATE INDEX matched_tender_modified_id_idx ON matched_tender (modified, id);
+CREATE INDEX matched_body_modified_id_idx ON matched_body (modified, id);
+CREATE INDEX master_tender_modified_id_idx ON master_tender (modified, id);
+CREATE INDEX master_body_modified_id_idx ON master_body (modified, id);
@@ -0,0 +1,4 @@
+SET search_path TO tender_development;
+
+-- matchers poll the manual matches modified since the last refresh, see ManualMatchingPlugin
+CREATE INDEX manual_match_flag_modified_idx ON manual_match (flag, modified);
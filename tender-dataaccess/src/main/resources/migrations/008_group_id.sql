@@ -0,0 +1,7 @@
+SET search_path TO tender_development;
+
+-- batched mastering selects the matched and master records of many groups at once by data->>'groupId' = ANY(?),
+-- see GenericJdbcDAO#getByGroupIds
+CREATE INDEX matched_tender_groupid_idx ON matched_tender ((data->>'groupId'));
+CREATE INDEX matched_body_groupid_idx ON matched_body ((data->>'groupId'));
+CREATE INDEX master_tender_groupid_idx ON master_tender ((data->>'groupId'));
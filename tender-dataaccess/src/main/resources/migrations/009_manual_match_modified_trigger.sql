@@ -0,0 +1,15 @@
+SET search_path TO tender_development;
+
+-- matchers poll the manual matches by modified (see 007_manual_match_modified.sql and ManualMatchingPlugin), so every
+-- insert and update has to set it, including the ones entered directly by SQL
+UPDATE manual_match SET modified = COALESCE(created, LOCALTIMESTAMP) WHERE modified IS NULL;
+
+CREATE OR REPLACE FUNCTION manual_match_set_modified() RETURNS trigger AS $$
+BEGIN
+    NEW.modified := LOCALTIMESTAMP;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER manual_match_modified_trg BEFORE INSERT OR UPDATE ON manual_match
+    FOR EACH ROW EXECUTE PROCEDURE manual_match_set_modified();
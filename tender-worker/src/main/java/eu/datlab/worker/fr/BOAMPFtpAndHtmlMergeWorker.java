@@ -4,7 +4,6 @@ import static eu.datlab.worker.fr.BOAMPTenderUtils.HTML_SOURCE_DATA_METADATA_KEY
 import static eu.datlab.worker.fr.BOAMPTenderUtils.HTML_SOURCE_URL_METADATA_KEY;
 
 import java.net.URL;
-import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.List;
 
@@ -15,7 +14,6 @@ import org.jsoup.parser.Parser;
 import org.jsoup.select.Elements;
 
 import eu.datlab.dataaccess.dao.DAOFactory;
-import eu.dl.core.UnrecoverableException;
 import eu.dl.dataaccess.dao.RawDataDAO;
 import eu.dl.dataaccess.dao.TransactionUtils;
 import eu.dl.dataaccess.dao.jdbc.JdbcTransactionUtils;
@@ -54,12 +52,7 @@ public final class BOAMPFtpAndHtmlMergeWorker extends BaseWorker {
         super();
 
         // handle commits manually, disable autocmmit feature
-        try {
-            JdbcTransactionUtils.getInstance().getConnection().setAutoCommit(false);
-        } catch (SQLException e) {
-            logger.debug("Unable to disable autocommit {}.", e);
-            throw new UnrecoverableException("Unable to disable autocommit", e);
-        }
+        JdbcTransactionUtils.getInstance().setAutoCommit(false);
 
         rawDAO = DAOFactory.getDAOFactory().getRawTenderDAO(getName(), getVersion());
     }
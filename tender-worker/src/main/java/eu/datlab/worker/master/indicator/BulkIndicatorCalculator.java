@@ -0,0 +1,258 @@
+package eu.datlab.worker.master.indicator;
+
+import eu.dl.core.UnrecoverableException;
+import eu.dl.dataaccess.dao.TransactionUtils;
+import eu.dl.dataaccess.dto.master.MasterTender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Recalculates indicators of many master tenders at once, eg. of a whole country after a change of an indicator
+ * plugin.
+ *
+ * The tenders are streamed by a reader thread and cut into pages. For each page the bodies are populated at once, the
+ * indicators are calculated in parallel across the tenders of the page and the whole page is written and committed at
+ * once. The reader reads the next pages meanwhile, at most {@link #READ_AHEAD} pages are kept in memory.
+ */
+public final class BulkIndicatorCalculator {
+
+    /**
+     * Maximal number of pages read in advance.
+     */
+    private static final int READ_AHEAD = 2;
+
+    /**
+     * Marks the end of the read pages.
+     */
+    private static final List<MasterTender> END = Collections.emptyList();
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkIndicatorCalculator.class);
+
+    private final Consumer<MasterTender> calculator;
+
+    private final Consumer<List<MasterTender>> populator;
+
+    private final Consumer<List<MasterTender>> writer;
+
+    private final TransactionUtils transactionUtils;
+
+    private final int pageSize;
+
+    private final int threads;
+
+    /**
+     * @param calculator
+     *      calculates indicators of one tender with populated bodies, has to be thread safe
+     * @param populator
+     *      populates bodies of the whole page, eg. {@link eu.dl.dataaccess.utils.PopulateUtils#populateBodies(List)}
+     * @param writer
+     *      depopulates bodies and saves the whole page
+     * @param transactionUtils
+     *      transaction utils of the DAOs used by the reader, the populator and the writer
+     * @param pageSize
+     *      number of tenders processed at once
+     * @param threads
+     *      number of threads calculating the indicators of one page
+     */
+    public BulkIndicatorCalculator(final Consumer<MasterTender> calculator,
+                                   final Consumer<List<MasterTender>> populator,
+                                   final Consumer<List<MasterTender>> writer, final TransactionUtils transactionUtils,
+                                   final int pageSize, final int threads) {
+        this.calculator = calculator;
+        this.populator = populator;
+        this.writer = writer;
+        this.transactionUtils = transactionUtils;
+        this.pageSize = Math.max(1, pageSize);
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Recalculates indicators of all the tenders passed by the reader. Each page is committed on its own, so the pages
+     * processed before a failure stay saved.
+     *
+     * @param reader
+     *      passes all the tenders to the given action, eg. {@code MasterTenderDAO#forEachByCountry}, it's called in
+     *      the reader thread within its own transaction
+     * @return number of the processed tenders
+     * @throws UnrecoverableException
+     *      in case the tenders can't be read, calculated or written
+     */
+    public long recalculate(final Consumer<Consumer<MasterTender>> reader) {
+        BlockingQueue<List<MasterTender>> pages = new ArrayBlockingQueue<>(READ_AHEAD);
+        AtomicReference<RuntimeException> readFailure = new AtomicReference<>();
+
+        Thread readerThread = new Thread(() -> read(reader, pages, readFailure), "indicator-reader");
+        readerThread.setDaemon(true);
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+
+        long count = 0;
+        try {
+            readerThread.start();
+
+            List<MasterTender> page;
+            while ((page = pages.take()) != END) {
+                process(page, executor);
+                count += page.size();
+                logger.info("Indicators of {} tenders recalculated.", count);
+            }
+
+            readerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Recalculation of indicators interrupted");
+            throw new UnrecoverableException("Recalculation of indicators interrupted", e);
+        } finally {
+            // stops the reader if the recalculation failed
+            readerThread.interrupt();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+
+        if (readFailure.get() != null) {
+            logger.error("Unable to read tenders because of {}", readFailure.get());
+            throw new UnrecoverableException("Unable to read tenders", readFailure.get());
+        }
+
+        return count;
+    }
+
+    /**
+     * Reads all the tenders and puts them to the queue page by page. Runs in the reader thread.
+     *
+     * @param reader
+     *      reader of the tenders
+     * @param pages
+     *      queue of the read pages, ended with {@link #END}
+     * @param failure
+     *      holder of the read failure
+     */
+    private void read(final Consumer<Consumer<MasterTender>> reader, final BlockingQueue<List<MasterTender>> pages,
+                      final AtomicReference<RuntimeException> failure) {
+        try {
+            transactionUtils.begin();
+            List<MasterTender> page = new ArrayList<>(pageSize);
+            reader.accept(tender -> {
+                page.add(tender);
+                if (page.size() >= pageSize) {
+                    put(pages, new ArrayList<>(page));
+                    page.clear();
+                }
+            });
+
+            if (!page.isEmpty()) {
+                put(pages, page);
+            }
+            transactionUtils.commit();
+        } catch (RuntimeException e) {
+            transactionUtils.rollback();
+            failure.set(e);
+        } finally {
+            transactionUtils.release();
+            try {
+                pages.put(END);
+            } catch (InterruptedException e) {
+                // the recalculation has been already stopped, nobody waits for the end
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Puts the page to the queue, waits for the free space.
+     *
+     * @param pages
+     *      queue of the pages
+     * @param page
+     *      page
+     */
+    private static void put(final BlockingQueue<List<MasterTender>> pages, final List<MasterTender> page) {
+        try {
+            pages.put(page);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnrecoverableException("Reading of tenders interrupted", e);
+        }
+    }
+
+    /**
+     * Populates the bodies, calculates indicators of all the tenders of the page and writes the page.
+     *
+     * @param page
+     *      page of the tenders
+     * @param executor
+     *      executor of the calculations, null for calculation in the current thread
+     * @throws InterruptedException
+     *      in case the thread is interrupted while waiting for the calculations
+     */
+    private void process(final List<MasterTender> page, final ExecutorService executor) throws InterruptedException {
+        try {
+            transactionUtils.begin();
+            populator.accept(page);
+
+            if (executor == null) {
+                page.forEach(calculator);
+            } else {
+                calculateInParallel(page, executor);
+            }
+
+            writer.accept(page);
+            transactionUtils.commit();
+        } catch (RuntimeException | InterruptedException e) {
+            transactionUtils.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Calculates indicators of the tenders, each thread calculates one chunk of the page.
+     *
+     * @param page
+     *      page of the tenders
+     * @param executor
+     *      executor of the calculations
+     * @throws InterruptedException
+     *      in case the thread is interrupted while waiting for the calculations
+     */
+    private void calculateInParallel(final List<MasterTender> page, final ExecutorService executor)
+        throws InterruptedException {
+        int chunkSize = (page.size() + threads - 1) / threads;
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < page.size(); from += chunkSize) {
+            List<MasterTender> chunk = page.subList(from, Math.min(page.size(), from + chunkSize));
+            futures.add(executor.submit(() -> {
+                try {
+                    chunk.forEach(calculator);
+                } finally {
+                    // plugins querying the database take the connection of the calculating thread
+                    transactionUtils.release();
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                logger.error("Unable to calculate indicators because of {}", e.getCause());
+                throw new UnrecoverableException("Unable to calculate indicators", e.getCause());
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package eu.datlab.worker.master.indicator;
 
 import eu.datlab.dataaccess.dao.DAOFactory;
+import eu.dl.core.UnrecoverableException;
 import eu.dl.dataaccess.dto.master.MasterTenderLot;
 import eu.dl.dataaccess.utils.PopulateUtils;
 import eu.dl.dataaccess.dao.MasterBodyDAO;
@@ -51,6 +52,13 @@ public class IndicatorWorker extends BaseWorker {
 
     private static final String VERSION = "1.0";
 
+    /**
+     * Command which recalculates indicators of all the tenders for a country and source.
+     */
+    public static final String RECALCULATE_COMMAND = "recalculate";
+
+    private static final int RECALCULATION_PAGE_SIZE = 1000;
+
     private static TransactionUtils transactionUtils;
 
     private static MasterTenderDAO masterDao;
@@ -111,38 +119,89 @@ public class IndicatorWorker extends BaseWorker {
 
         if (tender != null) {
             populateUtils.populateBodies(Arrays.asList(tender));
+            calculateIndicators(tender);
+            populateUtils.depopulateBodies(Arrays.asList(tender));
+            masterDao.save(tender);
+        }
 
-            // iterate over all item indicator plugins and execute them in a proper order
-            List<Indicator> tenderIndicators = new ArrayList<>();
-            for (Entry<String, IndicatorPlugin<MasterTender>> entry : tenderIndicatorPluginRegistry.getPlugins().entrySet()) {
-                IndicatorPlugin<MasterTender> plugin = entry.getValue();
-                Indicator indicator = plugin.evaluate(tender);
-                if (indicator != null) {
-                    tenderIndicators.add(indicator);
-                }
+        transactionUtils.commit();
+    }
+
+    /**
+     * Accepts command "recalculate" which recalculates indicators of all the master tenders for the given country
+     * ({@code country}) and source ({@code source}) at once, see {@link BulkIndicatorCalculator}. The number of tenders
+     * processed at once and the number of calculating threads can be set with configuration properties
+     * {@code <worker_class>.recalculation.pageSize} and {@code <worker_class>.recalculation.threads}.
+     *
+     * @param command
+     *            command name
+     * @param message
+     *            message with the command and its parameters
+     */
+    @Override
+    protected final void processCommand(final String command, final Message message) {
+        if (!RECALCULATE_COMMAND.equals(command)) {
+            super.processCommand(command, message);
+            return;
+        }
+
+        final String country = message.getValue("country");
+        final String source = message.getValue("source");
+        if (country == null || source == null) {
+            logger.error("Command {} requires country and source, {} given", command, message);
+            throw new UnrecoverableException("Command requires country and source");
+        }
+
+        Integer pageSize = config.getParamValueAs(getName() + ".recalculation.pageSize", Integer::valueOf);
+        Integer threads = config.getParamValueAs(getName() + ".recalculation.threads", Integer::valueOf);
+
+        BulkIndicatorCalculator calculator = new BulkIndicatorCalculator(this::calculateIndicators,
+            populateUtils::populateBodies,
+            page -> {
+                populateUtils.depopulateBodies(page);
+                masterDao.saveAll(page);
+            },
+            transactionUtils,
+            pageSize != null ? pageSize : RECALCULATION_PAGE_SIZE,
+            threads != null ? threads : Runtime.getRuntime().availableProcessors());
+
+        logger.info("Recalculating indicators of tenders from {} created by {}", country, source);
+        long count = calculator.recalculate(action -> masterDao.forEachByCountry(country, source, action));
+        logger.info("Indicators of {} tenders from {} created by {} recalculated", count, country, source);
+    }
+
+    /**
+     * Calculates tender and lot indicators of the tender. The bodies of the tender have to be populated.
+     *
+     * @param tender
+     *            master tender
+     */
+    private void calculateIndicators(final MasterTender tender) {
+        // iterate over all item indicator plugins and execute them in a proper order
+        List<Indicator> tenderIndicators = new ArrayList<>();
+        for (Entry<String, IndicatorPlugin<MasterTender>> entry : tenderIndicatorPluginRegistry.getPlugins().entrySet()) {
+            IndicatorPlugin<MasterTender> plugin = entry.getValue();
+            Indicator indicator = plugin.evaluate(tender);
+            if (indicator != null) {
+                tenderIndicators.add(indicator);
             }
-            tender.setIndicators(tenderIndicators);
-
-            if (tender.getLots() != null) {
-                for (MasterTenderLot lot : tender.getLots()) {
-                    List<Indicator> lotIndicators = new ArrayList<>();
-                    // iterate over all item indicator plugins and execute them in a proper order
-                    for (Entry<String, LotIndicatorPlugin> entry : lotIndicatorPluginRegistry.getPlugins().entrySet()) {
-                        LotIndicatorPlugin plugin = entry.getValue();
-                        Indicator indicator = plugin.evaluate(lot, tender);
-                        if (indicator != null) {
-                            lotIndicators.add(indicator);
-                        }
+        }
+        tender.setIndicators(tenderIndicators);
+
+        if (tender.getLots() != null) {
+            for (MasterTenderLot lot : tender.getLots()) {
+                List<Indicator> lotIndicators = new ArrayList<>();
+                // iterate over all item indicator plugins and execute them in a proper order
+                for (Entry<String, LotIndicatorPlugin> entry : lotIndicatorPluginRegistry.getPlugins().entrySet()) {
+                    LotIndicatorPlugin plugin = entry.getValue();
+                    Indicator indicator = plugin.evaluate(lot, tender);
+                    if (indicator != null) {
+                        lotIndicators.add(indicator);
                     }
-                    lot.setIndicators(lotIndicators);
                 }
+                lot.setIndicators(lotIndicators);
             }
-
-            populateUtils.depopulateBodies(Arrays.asList(tender));
-            masterDao.save(tender);
         }
-
-        transactionUtils.commit();
     }
 
     @Override
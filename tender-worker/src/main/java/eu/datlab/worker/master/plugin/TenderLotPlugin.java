@@ -4,6 +4,7 @@ import eu.dl.dataaccess.dto.generic.CPV;
 import eu.dl.dataaccess.dto.matched.MatchedBid;
 import eu.dl.dataaccess.dto.matched.MatchedTenderLot;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -13,6 +14,11 @@ import java.util.stream.Collectors;
  */
 public final class TenderLotPlugin extends BaseDatlabTenderLotPlugin {
 
+    /**
+     * Number of lots of one tender from which the lots are compared only with the lots with the same lot number.
+     */
+    private static final int BLOCKING_THRESHOLD = 10000;
+
     /**
      * Calculates matching ratio MR of two lots. Formula:
      * MR = MS / C
@@ -194,4 +200,31 @@ public final class TenderLotPlugin extends BaseDatlabTenderLotPlugin {
         //   C is the number of comparisons - number of comparisons on non-null values (null values are not compared)
         return matchingScore / numberOfComparisons;
     }
+
+    /**
+     * Lots are compared only with the lots with the same lot number, lots without number are compared with all the
+     * lots. The equal lot number is the heaviest attribute of the matching ratio, but the lots with different numbers
+     * can still reach the ratio 0.5 by the other attributes, so the blocking isn't exact.
+     *
+     * @param lot
+     *          matched lot
+     * @return lot number of the lot or null
+     */
+    @Override
+    protected Collection<?> getBlockingKeys(final MatchedTenderLot lot) {
+        return lot.getLotNumber() == null ? null : Collections.singletonList(lot.getLotNumber());
+    }
+
+    /**
+     * The blocking is used only in case some tender has at least {@link #BLOCKING_THRESHOLD} lots, the master skipped
+     * such tenders before, because all their lot pairs can't be compared. Smaller tenders are matched exactly.
+     *
+     * @param lotLists
+     *          list of matched lot lists (each matched lot list represents lots of one matched tender)
+     * @return true if some tender has too many lots to compare all the pairs
+     */
+    @Override
+    protected boolean isBlockingUsed(final List<List<MatchedTenderLot>> lotLists) {
+        return lotLists.stream().anyMatch(lots -> lots.size() >= BLOCKING_THRESHOLD);
+    }
 }
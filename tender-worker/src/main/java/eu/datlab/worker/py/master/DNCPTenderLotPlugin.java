@@ -3,6 +3,8 @@ package eu.datlab.worker.py.master;
 import eu.datlab.worker.master.plugin.BaseDatlabTenderLotPlugin;
 import eu.dl.dataaccess.dto.matched.MatchedTenderLot;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -26,4 +28,16 @@ public final class DNCPTenderLotPlugin extends BaseDatlabTenderLotPlugin {
 
         return Objects.equals(firstLot.getContractNumber(), secondLot.getContractNumber()) ? 1.0 : 0.0;
     }
+
+    /**
+     * Lots match only with equal contract number, so the contract number is the only blocking key.
+     *
+     * @param lot
+     *          matched lot
+     * @return contract number of the lot
+     */
+    @Override
+    protected Collection<?> getBlockingKeys(final MatchedTenderLot lot) {
+        return Collections.singletonList(lot.getContractNumber());
+    }
 }
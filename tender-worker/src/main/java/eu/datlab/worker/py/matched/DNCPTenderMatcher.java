@@ -8,6 +8,7 @@ import eu.dl.dataaccess.dto.matched.MatchedTender;
 import org.apache.commons.codec.digest.DigestUtils;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Collection;
 import java.util.UUID;
 
 import static eu.dl.dataaccess.utils.DigestUtils.bodyHash;
@@ -35,6 +36,14 @@ public class DNCPTenderMatcher extends BaseDatlabTenderMatcher {
     protected final void registerTenderPlugins() {
     }
 
+    @Override
+    protected final Collection<String> getBodyMatchingKeys(final MatchedBody body) {
+        // DNCPBuyersPlugin searches by name and role
+        Collection<String> keys = super.getBodyMatchingKeys(body);
+        keys.add("nameAndRole:" + body.getRole() + ":" + body.getName());
+        return keys;
+    }
+
     @Override
     protected final String generateBodyHash(final MatchedBody matchedBody) {
         return bodyHash(matchedBody);
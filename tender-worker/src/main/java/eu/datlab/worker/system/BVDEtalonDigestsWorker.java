@@ -1,13 +1,11 @@
 package eu.datlab.worker.system;
 
-import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import eu.datlab.dataaccess.dao.jdbc.JdbcBVDEtalonBodyDAO;
 import eu.datlab.dataaccess.dto.matched.BVDEtalonBody;
-import eu.dl.core.UnrecoverableException;
 import eu.dl.dataaccess.dao.EtalonBodyDAO;
 import eu.dl.dataaccess.dao.TransactionUtils;
 import eu.dl.dataaccess.dao.jdbc.JdbcTransactionUtils;
@@ -42,12 +40,7 @@ public final class BVDEtalonDigestsWorker extends BaseWorker {
     public BVDEtalonDigestsWorker() {
         super();
         // handle commits manually, disable autocmmit feature
-        try {
-            JdbcTransactionUtils.getInstance().getConnection().setAutoCommit(false);
-        } catch (SQLException e) {
-            logger.debug("Unable to disable autocommit {}.", e);
-            throw new UnrecoverableException("Unable to disable autocommit", e);
-        }
+        JdbcTransactionUtils.getInstance().setAutoCommit(false);
         etalonBodyDao = new JdbcBVDEtalonBodyDAO();
     }
 
@@ -105,9 +98,6 @@ public final class BVDEtalonDigestsWorker extends BaseWorker {
                     .setDigest(DigestUtils.digest(matchedEtalon))
                     .setDigest2(digest2(matchedEtalon));
 
-                // data updates
-                etalonBodyDao.updateDigestsAndBodyIdsAndNuts(etalon);
-
                 if (etalon.getDigest() == null) {
                     logger.error("Digest is null for id {}", etalon.getId());
                 }
@@ -115,6 +105,9 @@ public final class BVDEtalonDigestsWorker extends BaseWorker {
                 actualId = Integer.valueOf(etalon.getId());
             }
 
+            // data updates
+            etalonBodyDao.updateDigestsAndBodyIdsAndNuts(bodies);
+
             JdbcTransactionUtils.getInstance().commit();
 
             // increase page size
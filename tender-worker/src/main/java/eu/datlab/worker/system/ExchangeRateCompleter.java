@@ -43,7 +43,7 @@ public final class ExchangeRateCompleter extends BaseWorker {
 
         for (LocalDate dateToDownload = firstAvailableDate; dateToDownload.isBefore(LocalDate.now()); dateToDownload =
         dateToDownload.plusDays(1)) {
-            ExchangeRates exchangeRatesForDay = currencyService.getExchangeRates(dateToDownload);
+            ExchangeRates exchangeRatesForDay = currencyService.downloadExchangeRates(dateToDownload);
 
             if (exchangeRatesForDay == null) {
                 exchangeRates.put(dateToDownload.format(DATE_FORMATTER),
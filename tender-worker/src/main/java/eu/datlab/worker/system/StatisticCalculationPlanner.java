@@ -3,6 +3,7 @@ package eu.datlab.worker.system;
 import java.util.List;
 
 import eu.datlab.dataaccess.dao.DAOFactory;
+import eu.datlab.worker.master.indicator.IndicatorWorker;
 import eu.dl.dataaccess.dao.MasterTenderDAO;
 import eu.dl.dataaccess.dao.TransactionUtils;
 import eu.dl.worker.BaseWorker;
@@ -10,8 +11,10 @@ import eu.dl.worker.Message;
 import eu.dl.worker.MessageFactory;
 
 /**
- * This worker helpes to generate messages for statistic calulations workers.
- * 
+ * This worker helpes to generate messages for statistic calulations workers. Either one message per master tender
+ * id is generated or, if the incoming message contains {@code country}, one command which recalculates all
+ * the tenders of the country and source at once.
+ *
  * @author Jakub Krafka
  */
 public final class StatisticCalculationPlanner extends BaseWorker {
@@ -22,6 +25,8 @@ public final class StatisticCalculationPlanner extends BaseWorker {
 
     private static final String VERSION = "1.0";
 
+    private static final int PAGE_SIZE = 10000;
+
     private static TransactionUtils transactionUtils;
 
     private static MasterTenderDAO masterDao;
@@ -61,16 +66,36 @@ public final class StatisticCalculationPlanner extends BaseWorker {
         String target = message.getValue("target");
         String source = message.getValue("source");
         String version = message.getValue("version");
+        String country = message.getValue("country");
+
+        // the target recalculates the whole country at once, see IndicatorWorker
+        if (country != null) {
+            Message outgoingMessage = MessageFactory.getMessage();
+            outgoingMessage.setValue("command", IndicatorWorker.RECALCULATE_COMMAND);
+            outgoingMessage.setValue("country", country);
+            outgoingMessage.setValue("source", source);
+            publishMessage(outgoingMessage, target);
+            return;
+        }
 
-        final List<String> result = masterDao.getIdsBySourceAndVersion(source, version);
+        // ids are walked page by page, so that the whole id list isn't held in memory
+        String lastId = null;
+        List<String> result;
+        do {
+            result = masterDao.getIdsBySourceAndVersion(source, version, lastId, PAGE_SIZE);
 
-        if (result != null) {
             for (String id : result) {
                 Message outgoingMessage = MessageFactory.getMessage();
                 outgoingMessage.setValue("id", id);
                 publishMessage(outgoingMessage, target);
+                // the planner doesn't write anything, the messages needn't wait for the commit
+                flushOutgoingMessagesIfFull();
             }
-        }
+
+            if (!result.isEmpty()) {
+                lastId = result.get(result.size() - 1);
+            }
+        } while (result.size() == PAGE_SIZE);
     }
 
     @Override
@@ -0,0 +1,130 @@
+package eu.datlab.worker.master.indicator;
+
+import eu.dl.core.UnrecoverableException;
+import eu.dl.dataaccess.dao.DummyTransactionUtils;
+import eu.dl.dataaccess.dto.master.MasterTender;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test of the bulk recalculation of indicators.
+ */
+public final class BulkIndicatorCalculatorTest {
+
+    /**
+     * Each tender is calculated once after its page is populated and it's written with its page.
+     */
+    @Test
+    public void recalculateTest() {
+        Set<String> populated = ConcurrentHashMap.newKeySet();
+        Set<String> calculated = ConcurrentHashMap.newKeySet();
+        List<Integer> pageSizes = Collections.synchronizedList(new ArrayList<>());
+        Set<String> written = ConcurrentHashMap.newKeySet();
+
+        BulkIndicatorCalculator calculator = new BulkIndicatorCalculator(
+            tender -> {
+                if (!populated.contains(tender.getId())) {
+                    throw new IllegalStateException("Tender " + tender.getId() + " isn't populated");
+                }
+                assertTrue(calculated.add(tender.getId()));
+                tender.setIndicators(new ArrayList<>());
+            },
+            page -> page.forEach(n -> populated.add(n.getId())),
+            page -> {
+                pageSizes.add(page.size());
+                for (MasterTender tender : page) {
+                    assertNotNull(tender.getIndicators());
+                    assertTrue(written.add(tender.getId()));
+                }
+            },
+            new DummyTransactionUtils(), 100, 4);
+
+        assertEquals(2550, calculator.recalculate(tenders(2550)));
+        assertEquals(2550, calculated.size());
+        assertEquals(2550, written.size());
+        assertEquals(26, pageSizes.size());
+        assertEquals(Integer.valueOf(50), pageSizes.get(25));
+
+        assertEquals(0, calculator.recalculate(tenders(0)));
+    }
+
+    /**
+     * Failure of the reader fails the recalculation, the pages read before are written.
+     */
+    @Test
+    public void readFailureTest() {
+        List<MasterTender> written = Collections.synchronizedList(new ArrayList<>());
+        BulkIndicatorCalculator calculator = new BulkIndicatorCalculator(tender -> { }, page -> { }, written::addAll,
+            new DummyTransactionUtils(), 10, 1);
+
+        try {
+            calculator.recalculate(action -> {
+                tenders(25).accept(action);
+                throw new IllegalStateException("Connection lost");
+            });
+            fail("The read failure should be propagated");
+        } catch (UnrecoverableException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(20, written.size());
+    }
+
+    /**
+     * Failure of the calculation stops the recalculation and the reader of the endless stream of tenders.
+     */
+    @Test
+    public void calculationFailureTest() {
+        BulkIndicatorCalculator calculator = new BulkIndicatorCalculator(
+            tender -> {
+                if (tender.getId().equals("tender-150")) {
+                    throw new IllegalStateException("Plugin failed");
+                }
+            }, page -> { }, page -> { }, new DummyTransactionUtils(), 100, 3);
+
+        try {
+            calculator.recalculate(action -> {
+                for (int i = 0; ; i++) {
+                    action.accept(tender(i));
+                }
+            });
+            fail("The calculation failure should be propagated");
+        } catch (IllegalStateException e) {
+            assertEquals("Plugin failed", e.getMessage());
+        }
+    }
+
+    /**
+     * @param i
+     *      order of the tender
+     * @return tender with id
+     */
+    private static MasterTender tender(final int i) {
+        MasterTender tender = new MasterTender();
+        tender.setId("tender-" + i);
+        return tender;
+    }
+
+    /**
+     * @param count
+     *      number of tenders
+     * @return reader of the tenders
+     */
+    private static Consumer<Consumer<MasterTender>> tenders(final int count) {
+        return action -> {
+            for (int i = 0; i < count; i++) {
+                action.accept(tender(i));
+            }
+        };
+    }
+}
@@ -12,8 +12,13 @@ import eu.dl.worker.master.plugin.specific.FundingsPlugin;
 import org.junit.Test;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -142,4 +147,45 @@ public final class TenderLotPluginTest {
 
         assertNull(masterTender.getFundings());
     }
+
+    /**
+     * Lots of the tenders with tens of thousands of lots are mastered, the lots are compared only with the lots with
+     * the same lot number.
+     */
+    @Test
+    public void masterLargeTenderTest() {
+        final int lotCount = 20000;
+        Random random = new Random(5);
+        List<MatchedTender> tenders = new ArrayList<>();
+        for (String id : Arrays.asList(TENDER1_ID, TENDER2_ID)) {
+            List<Integer> numbers = new ArrayList<>();
+            for (int i = 1; i <= lotCount; i++) {
+                numbers.add(i);
+            }
+            Collections.shuffle(numbers, random);
+
+            MatchedTender tender = new MatchedTender();
+            tender.setId(id);
+            for (Integer number : numbers) {
+                tender.addLot(new MatchedTenderLot()
+                        .setLotId(id + "-" + number)
+                        .setLotNumber(number)
+                        .setSelectionMethod(SelectionMethod.LOWEST_PRICE)
+                        .setTitle("lot " + number));
+            }
+            tenders.add(tender);
+        }
+
+        final BaseTenderLotPlugin lotPlugin = new TenderLotPlugin();
+        MasterTender masterTender = new MasterTender();
+        lotPlugin.master(tenders, masterTender, tenders);
+
+        // lots with the same number form the groups
+        assertEquals(lotCount, masterTender.getLots().size());
+        masterTender.getLots().forEach(lot -> {
+            assertEquals(2, lot.getSourceLotIds().size());
+            assertEquals(lot.getSourceLotIds().get(0).getLotId().replace(TENDER1_ID, TENDER2_ID),
+                    lot.getSourceLotIds().get(1).getLotId());
+        });
+    }
 }